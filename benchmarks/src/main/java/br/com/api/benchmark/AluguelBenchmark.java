@@ -0,0 +1,106 @@
+package br.com.api.benchmark;
+
+import br.com.api.service.LivroService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aluguel seguido de devolução pelo {@link LivroService}, com 16 threads disputando 1, 16 ou mil livros de um
+ * catálogo de 10 mil. Com poucos livros, a maior parte das tentativas encontra o livro já alugado e recebe 409; os
+ * contadores {@code alugados} e {@code indisponiveis} mostram quantas tentativas de cada tipo houve por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(16)
+@Fork(1)
+public class AluguelBenchmark {
+
+    private static final int LIVROS = 10_000;
+
+    @Param({"1", "16", "1000"})
+    private int livrosDisputados;
+
+    private ConfigurableApplicationContext contexto;
+    private JdbcTemplate jdbcTemplate;
+    private LivroService livroService;
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("aluguel");
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        CatalogoBenchmark.popular(jdbcTemplate, LIVROS);
+        jdbcTemplate.update("update tb_livro set disponivel = true, uuid_usuario_keycloak = null");
+        ids = jdbcTemplate.queryForList("select id_livro from tb_livro order by id_livro limit ?", Long.class,
+                livrosDisputados);
+        livroService = contexto.getBean(LivroService.class);
+    }
+
+    /**
+     * Sem o OutboxRelay no contexto, os eventos se acumulam no outbox; a tabela e o histórico de empréstimos são
+     * esvaziados a cada iteração.
+     */
+    @TearDown(Level.Iteration)
+    public void limparOutbox() {
+        jdbcTemplate.update("delete from tb_evento_outbox");
+        jdbcTemplate.update("delete from tb_emprestimo");
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> alugarEDevolver(Leitor leitor) {
+        Long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        ResponseEntity<String> aluguel = livroService.alugarLivro(id);
+        if (aluguel.getStatusCode() != HttpStatus.OK) {
+            leitor.indisponiveis++;
+            return aluguel;
+        }
+        leitor.alugados++;
+        return livroService.devolverLivro(id);
+    }
+
+    /**
+     * Usuário autenticado de cada thread, como o token JWT de uma requisição.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Leitor {
+
+        public long alugados;
+        public long indisponiveis;
+
+        @Setup(Level.Iteration)
+        public void autenticar() {
+            Jwt jwt = Jwt.withTokenValue("token")
+                    .header("alg", "RS256")
+                    .subject(UUID.randomUUID().toString())
+                    .claim("email", "leitor@teste.com")
+                    .issuedAt(Instant.now())
+                    .build();
+            SecurityContextHolder.getContext().setAuthentication(
+                    new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("Administrador"))));
+            alugados = 0;
+            indisponiveis = 0;
+        }
+    }
+}
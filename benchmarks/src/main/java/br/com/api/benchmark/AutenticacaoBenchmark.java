@@ -0,0 +1,141 @@
+package br.com.api.benchmark;
+
+import br.com.api.cache.AutenticacaoJwtCache;
+import br.com.api.config.SecurityConfig;
+import br.com.api.model.usuario.UsuarioDto;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.shaded.gson.internal.LinkedTreeMap;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Custo da autenticação de um token do Keycloak assinado com RS256. Os métodos {@code conversao*} comparam só a
+ * conversão das claims em autoridades e usuário, antes (uma lista e autoridades novas a cada chamada) e depois (papéis
+ * internados e usuário montado junto); os {@code autenticacao*} incluem a validação da assinatura, com e sem o
+ * {@link AutenticacaoJwtCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutenticacaoBenchmark {
+
+    private final JwtAuthenticationConverter conversorAnterior = conversorAnterior();
+    private final Converter<Jwt, ? extends Authentication> conversor = SecurityConfig.jwtAuthenticationConverterForKeycloak();
+    private JwtAuthenticationProvider provedorAnterior;
+    private JwtAuthenticationProvider provedor;
+    private AutenticacaoJwtCache cache;
+    private String token;
+    private Jwt jwt;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws JOSEException {
+        RSAKey chave = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(UUID.randomUUID().toString())
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plus(Duration.ofHours(1))))
+                .claim("email", "leitor@teste.com")
+                .claim("given_name", "Leitor")
+                .claim("family_name", "Teste")
+                .claim("resource_access", Map.of("app-livros", Map.of("roles", List.of("ADMIN", "USER"))))
+                .build();
+        SignedJWT assinado = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(chave.getKeyID()).build(), claims);
+        assinado.sign(new RSASSASigner(chave));
+        token = assinado.serialize();
+
+        JwtDecoder decoder = NimbusJwtDecoder.withPublicKey(chave.toRSAPublicKey()).build();
+        jwt = decoder.decode(token);
+        provedorAnterior = new JwtAuthenticationProvider(decoder);
+        provedorAnterior.setJwtAuthenticationConverter(conversorAnterior);
+        provedor = new JwtAuthenticationProvider(decoder);
+        provedor.setJwtAuthenticationConverter(SecurityConfig.jwtAuthenticationConverterForKeycloak());
+        cache = new AutenticacaoJwtCache(10_000, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public void conversaoAnterior(Blackhole blackhole) {
+        blackhole.consume(conversorAnterior.convert(jwt));
+        blackhole.consume(usuarioAnterior(jwt));
+    }
+
+    @Benchmark
+    public Authentication conversao() {
+        return conversor.convert(jwt);
+    }
+
+    @Benchmark
+    public void autenticacaoAnterior(Blackhole blackhole) {
+        Authentication autenticacao = provedorAnterior.authenticate(new BearerTokenAuthenticationToken(token));
+        blackhole.consume(autenticacao);
+        blackhole.consume(usuarioAnterior((Jwt) autenticacao.getPrincipal()));
+    }
+
+    @Benchmark
+    public Authentication autenticacaoSemCache() {
+        return provedor.authenticate(new BearerTokenAuthenticationToken(token));
+    }
+
+    @Benchmark
+    public Authentication autenticacaoComCache() {
+        return cache.autenticar(new BearerTokenAuthenticationToken(token), provedor);
+    }
+
+    /**
+     * Conversor usado antes do cache, mantido aqui apenas para comparação.
+     */
+    @SuppressWarnings("unchecked")
+    private static JwtAuthenticationConverter conversorAnterior() {
+        Converter<Jwt, Collection<GrantedAuthority>> jwtGrantedAuthoritiesConverter = jwt -> {
+            Map<String, Object> resourceAccess = jwt.getClaim("resource_access");
+            Object client = resourceAccess.get("app-livros");
+            LinkedTreeMap<String, List<String>> clientRoleMap = (LinkedTreeMap<String, List<String>>) client;
+            if (clientRoleMap == null) {
+                return null;
+            }
+            List<String> clientRoles = new ArrayList<>(clientRoleMap.get("roles"));
+            return clientRoles.stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toList());
+        };
+
+        JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
+        jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwtGrantedAuthoritiesConverter);
+        return jwtAuthenticationConverter;
+    }
+
+    private static UsuarioDto usuarioAnterior(Jwt jwt) {
+        return new UsuarioDto(jwt.getClaim("sub"), jwt.getClaim("email"), jwt.getClaim("given_name"), jwt.getClaim("family_name"));
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.api.benchmark;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.repository.LivroRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência (com percentis, incluindo p99) de uma página filtrada num catálogo de 5 milhões de livros:
+ * a busca antiga via {@code Example}/{@code ExampleMatcher.withIgnoreCase()} contra a busca indexada
+ * {@link LivroRepository#buscar}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class BuscaBenchmark {
+
+    @Param({"5000000"})
+    private int linhas;
+
+    @Param({"TITULO_IGUAL", "AUTOR_PREFIXO", "ISBN"})
+    private String consulta;
+
+    private ConfigurableApplicationContext contexto;
+    private LivroRepository livroRepository;
+    private PageRequest pagina;
+    private Example<Livro> exemplo;
+    private LivroFiltro filtro;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("busca-" + linhas);
+        CatalogoBenchmark.popular(contexto.getBean(JdbcTemplate.class), linhas);
+        livroRepository = contexto.getBean(LivroRepository.class);
+        pagina = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "id"));
+
+        int alvo = linhas / 2;
+        Livro probe = new Livro();
+        ExampleMatcher matcher = ExampleMatcher.matchingAll().withIgnoreCase();
+        switch (consulta) {
+            case "TITULO_IGUAL" -> {
+                String titulo = CatalogoBenchmark.titulo(alvo);
+                probe.setTitulo(titulo.toUpperCase());
+                filtro = new LivroFiltro(titulo.toUpperCase(), null, null, null);
+            }
+            case "AUTOR_PREFIXO" -> {
+                String prefixo = CatalogoBenchmark.autor(alvo).substring(0, 6);
+                probe.setAutor(prefixo);
+                matcher = matcher.withStringMatcher(ExampleMatcher.StringMatcher.STARTING);
+                filtro = new LivroFiltro(null, prefixo + "*", null, null);
+            }
+            case "ISBN" -> {
+                probe.setIsbn(CatalogoBenchmark.isbn(alvo));
+                filtro = new LivroFiltro(null, null, CatalogoBenchmark.isbn(alvo), null);
+            }
+            default -> throw new IllegalArgumentException(consulta);
+        }
+        exemplo = Example.of(probe, matcher);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Page<Livro> exampleMatcher() {
+        return livroRepository.findAll(exemplo, pagina);
+    }
+
+    @Benchmark
+    public Page<Livro> buscaIndexada() {
+        return livroRepository.buscar(filtro, pagina);
+    }
+}
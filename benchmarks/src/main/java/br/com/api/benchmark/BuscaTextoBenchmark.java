@@ -0,0 +1,59 @@
+package br.com.api.benchmark;
+
+import br.com.api.busca.IndiceInvertido;
+import br.com.api.model.livro.LivroEncontrado;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência (com percentis, incluindo p99) da busca textual de {@code GET /livro/search} num índice com milhões de
+ * livros do catálogo sintético, sem banco: o índice é montado direto em memória, como faz a reconstrução. As
+ * consultas vão de um termo raro (o número do título) a palavras comuns, que aparecem em dezenas de milhares de
+ * livros, e a um prefixo digitado pela metade.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class BuscaTextoBenchmark {
+
+    @Param({"1000000", "3000000"})
+    private int livros;
+
+    @Param({"TERMO_RARO", "PALAVRA_COMUM", "DUAS_PALAVRAS", "TITULO_E_AUTOR", "PREFIXO"})
+    private String consulta;
+
+    private IndiceInvertido indice;
+    private String texto;
+    private boolean prefixo;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        indice = new IndiceInvertido();
+        for (int i = 0; i < livros; i++) {
+            indice.adicionar((long) i + 1, CatalogoBenchmark.titulo(i), CatalogoBenchmark.autor(i),
+                    CatalogoBenchmark.isbn(i));
+        }
+        int alvo = livros / 2;
+        switch (consulta) {
+            case "TERMO_RARO" -> texto = CatalogoBenchmark.titulo(alvo);
+            case "PALAVRA_COMUM" -> texto = "romance";
+            case "DUAS_PALAVRAS" -> texto = "codigo limpo";
+            case "TITULO_E_AUTOR" -> texto = "memorias clarice lispector";
+            case "PREFIXO" -> {
+                texto = "java progr";
+                prefixo = true;
+            }
+            default -> throw new IllegalArgumentException(consulta);
+        }
+    }
+
+    @Benchmark
+    public List<LivroEncontrado> buscar() {
+        return indice.buscar(texto, prefixo, 20);
+    }
+}
@@ -0,0 +1,136 @@
+package br.com.api.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Teste de carga HTTP contra uma API já em execução, para comparar o modo padrão (threads de plataforma do Tomcat)
+ * com o perfil {@code virtual-threads}: rode uma vez contra cada modo, com o mesmo banco e o mesmo catálogo.
+ *
+ * <p>Para cada quantidade de clientes em {@code carga.clientes}, cada cliente (uma thread virtual, com conexão
+ * própria) faz requisições em sequência para {@code carga.url}. Depois de {@code carga.aquecimento}, mede por
+ * {@code carga.duracao} a vazão e a latência (p50, p99, p99,9 e máxima) das respostas com sucesso e conta as falhas
+ * (status 4xx/5xx, timeouts e conexões recusadas). Como cada cliente espera a resposta antes da próxima requisição,
+ * um servidor saturado também reduz a vazão oferecida; compare as latências junto com a vazão.
+ *
+ * <pre>
+ * ./mvnw -f benchmarks/pom.xml compile exec:java -Dexec.mainClass=br.com.api.benchmark.CargaHttp \
+ *     -Dcarga.token=$TOKEN -Dcarga.clientes=1000,2500,5000,10000
+ * </pre>
+ */
+public final class CargaHttp {
+
+    private static final int CONEXOES_POR_CLIENTE_HTTP = 1000;
+
+    private CargaHttp() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        URI uri = URI.create(System.getProperty("carga.url",
+                "http://localhost:9090/api-livros/livro/getAllPage?page=0&size=20"));
+        String token = System.getProperty("carga.token", "");
+        List<Integer> niveis = Arrays.stream(System.getProperty("carga.clientes", "1000,2500,5000,10000").split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList();
+        Duration aquecimento = duracao(System.getProperty("carga.aquecimento", "15s"));
+        Duration duracao = duracao(System.getProperty("carga.duracao", "30s"));
+
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET();
+        if (!token.isBlank()) {
+            requisicao.header("Authorization", "Bearer " + token);
+        }
+        System.out.printf("%s, aquecimento de %ds, medição de %ds%n", uri, aquecimento.toSeconds(), duracao.toSeconds());
+        System.out.printf("%9s %12s %10s %10s %10s %10s %9s%n",
+                "clientes", "req/s", "p50 ms", "p99 ms", "p99,9 ms", "max ms", "falhas");
+        for (int clientes : niveis) {
+            executar(clientes, requisicao.build(), aquecimento, duracao);
+        }
+    }
+
+    private static void executar(int clientes, HttpRequest requisicao, Duration aquecimento, Duration duracao)
+            throws InterruptedException {
+        // vários HttpClient dividem as conexões entre mais de um seletor de I/O
+        HttpClient[] clientesHttp = new HttpClient[(clientes - 1) / CONEXOES_POR_CLIENTE_HTTP + 1];
+        for (int i = 0; i < clientesHttp.length; i++) {
+            clientesHttp[i] = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+        }
+        Recorder latencias = new Recorder(3);
+        LongAdder falhas = new LongAdder();
+        AtomicBoolean medindo = new AtomicBoolean();
+        AtomicBoolean parar = new AtomicBoolean();
+
+        Histogram medidas;
+        long duracaoMedidaNanos;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clientes; i++) {
+                HttpClient clienteHttp = clientesHttp[i % clientesHttp.length];
+                executor.execute(() -> {
+                    while (!parar.get()) {
+                        long inicio = System.nanoTime();
+                        boolean sucesso = enviar(clienteHttp, requisicao);
+                        if (medindo.get()) {
+                            if (sucesso) {
+                                latencias.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio));
+                            } else {
+                                falhas.increment();
+                            }
+                        }
+                    }
+                });
+            }
+            Thread.sleep(aquecimento.toMillis());
+            latencias.getIntervalHistogram();
+            falhas.reset();
+            medindo.set(true);
+            long inicioMedicao = System.nanoTime();
+            Thread.sleep(duracao.toMillis());
+            medidas = latencias.getIntervalHistogram();
+            duracaoMedidaNanos = System.nanoTime() - inicioMedicao;
+            parar.set(true);
+        }
+
+        double segundos = duracaoMedidaNanos / 1e9;
+        System.out.printf(Locale.ROOT, "%9d %12.0f %10.2f %10.2f %10.2f %10.2f %9d%n",
+                clientes,
+                medidas.getTotalCount() / segundos,
+                medidas.getValueAtPercentile(50) / 1000.0,
+                medidas.getValueAtPercentile(99) / 1000.0,
+                medidas.getValueAtPercentile(99.9) / 1000.0,
+                medidas.getMaxValue() / 1000.0,
+                falhas.sum());
+    }
+
+    private static boolean enviar(HttpClient clienteHttp, HttpRequest requisicao) {
+        try {
+            return clienteHttp.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Duration duracao(String valor) {
+        return Duration.parse("PT" + valor.toUpperCase(Locale.ROOT));
+    }
+}
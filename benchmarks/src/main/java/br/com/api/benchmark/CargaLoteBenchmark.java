@@ -0,0 +1,113 @@
+package br.com.api.benchmark;
+
+import br.com.api.busca.IndiceLivros;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.lote.ResultadoLote;
+import br.com.api.service.LivroLoteService;
+import br.com.api.service.LivroService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Vazão de gravação, em livros por segundo, da carga em lote ({@code POST /livro/lote}: blocos numa transação,
+ * inserções agrupadas em lotes JDBC e um evento por bloco) contra o cadastro um a um ({@code POST /livro/saveCreate}:
+ * uma transação e um evento por livro). Roda no H2 em arquivo e num PostgreSQL local em contêiner, que precisa de
+ * Docker; no PostgreSQL o driver reescreve cada lote num único {@code insert} com vários valores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CargaLoteBenchmark {
+
+    private static final int LIVROS_POR_CARGA = 10_000;
+    private static final int LIVROS_UM_A_UM = 1_000;
+
+    @Param({"h2", "postgresql"})
+    private String banco;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext contexto;
+    private LivroLoteService livroLoteService;
+    private LivroService livroService;
+    private JdbcTemplate jdbcTemplate;
+    private int proximo;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        if ("postgresql".equals(banco)) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            contexto = ContextoBenchmark.iniciar(postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                    postgres.getUsername(), postgres.getPassword(), "org.hibernate.dialect.PostgreSQLDialect");
+        } else {
+            contexto = ContextoBenchmark.iniciar("carga-lote");
+        }
+        livroLoteService = contexto.getBean(LivroLoteService.class);
+        livroService = contexto.getBean(LivroService.class);
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        limpar();
+    }
+
+    @TearDown(Level.Iteration)
+    public void limpar() {
+        jdbcTemplate.update("delete from tb_evento_outbox");
+        jdbcTemplate.update("delete from tb_livro");
+        // descarta do índice de busca os livros gravados na iteração
+        contexto.getBean(IndiceLivros.class).reconstruir();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LIVROS_POR_CARGA)
+    public ResultadoLote cargaEmLote() {
+        return livroLoteService.criar(livros(LIVROS_POR_CARGA));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LIVROS_UM_A_UM)
+    public long umPorTransacao() {
+        long soma = 0;
+        Iterator<LivroDto> livros = livros(LIVROS_UM_A_UM);
+        while (livros.hasNext()) {
+            LivroDto livroDto = livros.next();
+            Livro livro = new Livro();
+            livro.setTitulo(livroDto.getTitulo());
+            livro.setAutor(livroDto.getAutor());
+            livro.setIsbn(livroDto.getIsbn());
+            livro.setDisponivel(true);
+            soma += livroService.saveCreate(livro).getBody().getId();
+        }
+        return soma;
+    }
+
+    private Iterator<LivroDto> livros(int quantidade) {
+        int inicio = proximo;
+        proximo += quantidade;
+        return IntStream.range(inicio, inicio + quantidade)
+                .mapToObj(i -> {
+                    LivroDto livroDto = new LivroDto();
+                    livroDto.setTitulo(CatalogoBenchmark.titulo(i));
+                    livroDto.setAutor(CatalogoBenchmark.autor(i));
+                    livroDto.setIsbn(CatalogoBenchmark.isbn(i));
+                    return livroDto;
+                })
+                .iterator();
+    }
+}
@@ -0,0 +1,67 @@
+package br.com.api.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Popula o catálogo de livros do banco de benchmark via JDBC em lotes. Os títulos combinam palavras de uma
+ * lista fixa e os autores se repetem, como num acervo real, de forma determinística: o livro {@code i} é
+ * sempre o mesmo. Se o banco já tiver a quantidade pedida (execução anterior), nada é inserido.
+ */
+public final class CatalogoBenchmark {
+
+    static final String[] PALAVRAS = {"código", "limpo", "arquitetura", "dados", "sistemas", "distribuídos",
+            "história", "brasil", "romance", "noite", "mar", "cidade", "guerra", "paz", "tempo", "memórias",
+            "java", "programação", "algoritmos", "redes", "contos", "poemas", "viagem", "segredo"};
+    static final String[] NOMES = {"Ana", "João", "Maria", "Pedro", "Clarice", "Machado", "Jorge", "Cecília",
+            "Rubem", "Lygia", "Graciliano", "Rachel"};
+    static final String[] SOBRENOMES = {"Silva", "Souza", "Pequeno", "Lispector", "Amado", "Meireles",
+            "Fonseca", "Telles", "Ramos", "Queiroz", "Andrade", "Lima", "Costa"};
+
+    private static final int TAMANHO_LOTE = 5_000;
+
+    private CatalogoBenchmark() {
+    }
+
+    public static void popular(JdbcTemplate jdbcTemplate, int quantidade) {
+        Long existentes = jdbcTemplate.queryForObject("select count(*) from tb_livro", Long.class);
+        if (existentes != null && existentes == quantidade) {
+            return;
+        }
+        jdbcTemplate.update("delete from tb_livro");
+
+        List<Object[]> lote = new ArrayList<>(TAMANHO_LOTE);
+        for (int i = 0; i < quantidade; i++) {
+            lote.add(new Object[]{titulo(i), autor(i), isbn(i), i % 3 != 0});
+            if (lote.size() == TAMANHO_LOTE) {
+                inserir(jdbcTemplate, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            inserir(jdbcTemplate, lote);
+        }
+    }
+
+    public static String titulo(int i) {
+        return capitalizar(PALAVRAS[i % PALAVRAS.length]) + " " + PALAVRAS[(i / PALAVRAS.length) % PALAVRAS.length] + " " + i;
+    }
+
+    public static String autor(int i) {
+        return NOMES[(i / 7) % NOMES.length] + " " + SOBRENOMES[(i / 11) % SOBRENOMES.length];
+    }
+
+    public static String isbn(int i) {
+        return String.format("978%010d", i);
+    }
+
+    private static String capitalizar(String palavra) {
+        return Character.toUpperCase(palavra.charAt(0)) + palavra.substring(1);
+    }
+
+    private static void inserir(JdbcTemplate jdbcTemplate, List<Object[]> lote) {
+        jdbcTemplate.batchUpdate("insert into tb_livro (titulo, autor, isbn, disponivel) values (?, ?, ?, ?)", lote);
+    }
+}
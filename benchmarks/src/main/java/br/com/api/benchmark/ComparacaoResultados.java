@@ -0,0 +1,77 @@
+package br.com.api.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara dois resultados do JMH em JSON (o {@code target/jmh-result.json} gerado com o {@code jmh.args} padrão), por
+ * exemplo o da versão anterior guardado e o da versão atual, e termina com erro se algum benchmark piorou mais que o
+ * limite. Piorar é ter menos operações por tempo no modo {@code thrpt} e mais tempo por operação nos demais; os
+ * benchmarks são casados pelo nome e pelos parâmetros.
+ *
+ * <pre>
+ * ./mvnw -f benchmarks/pom.xml compile exec:java -Dexec.mainClass=br.com.api.benchmark.ComparacaoResultados \
+ *     -Dexec.args="resultados/v1.json target/jmh-result.json 10"
+ * </pre>
+ */
+public final class ComparacaoResultados {
+
+    private static final double LIMITE_PADRAO_PERCENTUAL = 10;
+
+    private ComparacaoResultados() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("uso: ComparacaoResultados <resultado-anterior.json> <resultado-atual.json> [limite %]");
+            System.exit(2);
+        }
+        double limite = args.length > 2 ? Double.parseDouble(args[2]) : LIMITE_PADRAO_PERCENTUAL;
+        Map<String, JsonNode> anteriores = ler(Path.of(args[0]));
+        Map<String, JsonNode> atuais = ler(Path.of(args[1]));
+
+        int regressoes = 0;
+        for (Map.Entry<String, JsonNode> atual : atuais.entrySet()) {
+            JsonNode anterior = anteriores.get(atual.getKey());
+            if (anterior == null) {
+                System.out.printf("%-90s novo%n", atual.getKey());
+                continue;
+            }
+            double antes = anterior.path("primaryMetric").path("score").asDouble();
+            double depois = atual.getValue().path("primaryMetric").path("score").asDouble();
+            boolean maiorMelhor = "thrpt".equals(atual.getValue().path("mode").asText());
+            double piora = (maiorMelhor ? antes - depois : depois - antes) / antes * 100;
+            boolean regrediu = piora > limite;
+            regressoes += regrediu ? 1 : 0;
+            System.out.printf("%-90s %12.3f -> %12.3f %s (%+.1f%%)%s%n", atual.getKey(), antes, depois,
+                    atual.getValue().path("primaryMetric").path("scoreUnit").asText(), (depois - antes) / antes * 100,
+                    regrediu ? "  REGRESSÃO" : "");
+        }
+        if (regressoes > 0) {
+            System.err.printf("%d benchmark(s) pioraram mais de %.0f%%%n", regressoes, limite);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonNode> ler(Path arquivo) throws IOException {
+        Map<String, JsonNode> porChave = new LinkedHashMap<>();
+        for (JsonNode resultado : new ObjectMapper().readTree(arquivo.toFile())) {
+            porChave.put(chave(resultado), resultado);
+        }
+        return porChave;
+    }
+
+    private static String chave(JsonNode resultado) {
+        Map<String, String> parametros = new TreeMap<>();
+        resultado.path("params").fields()
+                .forEachRemaining(parametro -> parametros.put(parametro.getKey(), parametro.getValue().asText()));
+        String nome = resultado.path("benchmark").asText().replace("br.com.api.benchmark.", "");
+        return parametros.isEmpty() ? nome : nome + parametros;
+    }
+}
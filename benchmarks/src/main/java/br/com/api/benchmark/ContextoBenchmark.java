@@ -0,0 +1,62 @@
+package br.com.api.benchmark;
+
+import br.com.api.busca.IndiceLivros;
+import br.com.api.cache.CanalInvalidacaoLocal;
+import br.com.api.cache.ContagemLivrosCache;
+import br.com.api.cache.LeiturasCompartilhadas;
+import br.com.api.cache.LivroCache;
+import br.com.api.model.emprestimo.RegistroEmprestimo;
+import br.com.api.model.evento.LivroEventoCodec;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.outbox.EventoOutbox;
+import br.com.api.repository.LivroRepository;
+import br.com.api.service.LivroExportacaoService;
+import br.com.api.service.LivroLoteService;
+import br.com.api.service.LivroService;
+import br.com.api.service.OutboxService;
+import br.com.api.service.RastreamentoEventos;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Contexto Spring reduzido usado pelos benchmarks: só a camada de persistência e os serviços medidos,
+ * sem web, segurança ou mensageria (o cache de livros é invalidado só localmente). Por padrão o banco é um H2 em
+ * arquivo dentro de {@code target/bench-db}, criado pelas migrações da API, para que catálogos grandes não ocupem o
+ * heap da JVM medida e possam ser reaproveitados entre execuções.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = {Livro.class, EventoOutbox.class, RegistroEmprestimo.class})
+@EnableJpaRepositories(basePackageClasses = LivroRepository.class)
+@Import({LivroExportacaoService.class, LivroService.class, LivroLoteService.class, OutboxService.class,
+        LivroEventoCodec.class, LivroCache.class, CanalInvalidacaoLocal.class, ContagemLivrosCache.class,
+        IndiceLivros.class, RastreamentoEventos.class, LeiturasCompartilhadas.class})
+public class ContextoBenchmark {
+
+    public static ConfigurableApplicationContext iniciar(String nomeBanco) {
+        return iniciar("jdbc:h2:file:./target/bench-db/" + nomeBanco + ";DB_CLOSE_ON_EXIT=FALSE", "sa", "",
+                "org.hibernate.dialect.H2Dialect");
+    }
+
+    public static ConfigurableApplicationContext iniciar(String url, String usuario, String senha, String dialeto) {
+        return new SpringApplicationBuilder(ContextoBenchmark.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                // argumentos de linha de comando têm precedência sobre o application.properties da API
+                .run("--spring.datasource.url=" + url,
+                        "--spring.datasource.username=" + usuario,
+                        "--spring.datasource.password=" + senha,
+                        "--spring.jpa.database-platform=" + dialeto,
+                        "--spring.jpa.open-in-view=false",
+                        "--livro.cache.invalidacao=local",
+                        "--logging.level.root=WARN");
+    }
+}
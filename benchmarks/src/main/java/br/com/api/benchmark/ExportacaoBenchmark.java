@@ -0,0 +1,141 @@
+package br.com.api.benchmark;
+
+import br.com.api.model.livro.LivroDto;
+import br.com.api.service.LivroExportacaoService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Exportação NDJSON do catálogo completo (o mesmo caminho do {@code GET /livro/getAll}) com heap fixo
+ * de 256 MB. O contador {@code heapVivoMaximoBytes} é o maior heap ocupado logo após uma coleta durante
+ * a exportação, ou seja, a memória realmente retida; ele deve ficar estável de 10 mil a 10 milhões de linhas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms256m", "-Xmx256m"})
+public class ExportacaoBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    private int linhas;
+
+    private ConfigurableApplicationContext contexto;
+    private LivroExportacaoService exportacaoService;
+    private ObjectWriter writer;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("exportacao-" + linhas);
+        CatalogoBenchmark.popular(contexto.getBean(JdbcTemplate.class), linhas);
+        exportacaoService = contexto.getBean(LivroExportacaoService.class);
+        writer = new ObjectMapper().writerFor(LivroDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public long exportarNdjson(HeapVivo heap) throws IOException {
+        ContadorBytes saida = new ContadorBytes();
+        try (JsonGenerator generator = writer.createGenerator(saida)) {
+            generator.setRootValueSeparator(null);
+            exportacaoService.exportarLivros(lote -> {
+                try {
+                    for (LivroDto livroDto : lote) {
+                        writer.writeValue(generator, livroDto);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return saida.bytes;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapVivo {
+
+        public long heapVivoMaximoBytes;
+
+        private final AtomicLong maximo = new AtomicLong();
+        private final Set<String> poolsHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(MemoryPoolMXBean::getName)
+                .collect(Collectors.toSet());
+        private final NotificationListener listener = (notificacao, handback) -> {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notificacao.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notificacao.getUserData());
+            long usado = info.getGcInfo().getMemoryUsageAfterGc().entrySet().stream()
+                    .filter(pool -> poolsHeap.contains(pool.getKey()))
+                    .map(pool -> pool.getValue())
+                    .mapToLong(MemoryUsage::getUsed)
+                    .sum();
+            maximo.accumulateAndGet(usado, Math::max);
+        };
+
+        @Setup(Level.Iteration)
+        public void iniciar() {
+            System.gc();
+            maximo.set(0);
+            heapVivoMaximoBytes = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void encerrar() throws Exception {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).removeNotificationListener(listener);
+            }
+            heapVivoMaximoBytes = maximo.get();
+        }
+    }
+
+    private static final class ContadorBytes extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package br.com.api.benchmark;
+
+import br.com.api.ApiLivrosApplication;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da instrumentação (métricas, {@code @Observed} nos serviços e tracing com amostragem de 100%, o pior caso)
+ * nas requisições mais baratas da API, em que ele pesa mais: o livro por ID, servido pelo cache, e uma página
+ * filtrada. A API completa sobe duas vezes, com a instrumentação ligada e desligada, sobre o mesmo catálogo no H2.
+ *
+ * <p>Orçamento: a instrumentação pode acrescentar no máximo {@value #ORCAMENTO_PERCENTUAL}% à latência média de cada
+ * requisição. Rodado pelo {@link #main}, o benchmark compara as duas configurações e termina com erro se o
+ * orçamento for ultrapassado:
+ *
+ * <pre>
+ * ./mvnw -f benchmarks/pom.xml package exec:exec -Djmh.main=br.com.api.benchmark.InstrumentacaoBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(16)
+@Fork(1)
+public class InstrumentacaoBenchmark {
+
+    static final int ORCAMENTO_PERCENTUAL = 5;
+
+    private static final int LIVROS = 100_000;
+
+    @Param({"desligada", "ligada"})
+    private String instrumentacao;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient clienteHttp;
+    private String base;
+    private String autorizacao;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws JOSEException, IOException {
+        RSAKey chave = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        Path arquivoChaves = Files.createTempFile(Files.createTempDirectory("instrumentacao"), "jwks", ".json");
+        Files.writeString(arquivoChaves, new JWKSet(chave.toPublicJWK()).toString(), StandardCharsets.UTF_8);
+        autorizacao = "Bearer " + PilhaWebBenchmark.token(chave);
+
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--livro.jwk.arquivo=" + arquivoChaves,
+                "--livro.jwk.uri=http://localhost:1/certs",
+                "--livro.cache.invalidacao=local",
+                "--livro.outbox.relay.atraso-inicial-ms=3600000",
+                "--livro.limite.habilitado=false",
+                "--spring.rabbitmq.listener.simple.auto-startup=false",
+                "--spring.jpa.open-in-view=false",
+                "--spring.datasource.url=jdbc:h2:file:./target/bench-db/instrumentacao;DB_CLOSE_ON_EXIT=FALSE",
+                "--logging.level.root=WARN"));
+        if ("ligada".equals(instrumentacao)) {
+            argumentos.add("--management.tracing.sampling.probability=1.0");
+        } else {
+            argumentos.addAll(List.of(
+                    "--management.metrics.enable.all=false",
+                    "--management.tracing.enabled=false",
+                    "--management.observations.annotations.enabled=false"));
+        }
+        contexto = new SpringApplicationBuilder(ApiLivrosApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(argumentos.toArray(String[]::new));
+        CatalogoBenchmark.popular(contexto.getBean(JdbcTemplate.class), LIVROS);
+
+        base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/api-livros/livro";
+        clienteHttp = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public int get() throws IOException, InterruptedException {
+        return enviar("/get/" + (ThreadLocalRandom.current().nextInt(LIVROS) + 1));
+    }
+
+    @Benchmark
+    public int getAllPage() throws IOException, InterruptedException {
+        return enviar("/getAllPage?page=" + ThreadLocalRandom.current().nextInt(100) + "&size=20");
+    }
+
+    private int enviar(String caminho) throws IOException, InterruptedException {
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(base + caminho))
+                .header("Authorization", autorizacao)
+                .GET()
+                .build();
+        HttpResponse<byte[]> resposta = clienteHttp.send(requisicao, HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() >= 400) {
+            throw new IllegalStateException(caminho + " respondeu " + resposta.statusCode());
+        }
+        return resposta.body().length;
+    }
+
+    /**
+     * Roda o benchmark com as opções do JMH recebidas em {@code args} (as do {@code jmh.args}) e confere o orçamento.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Collection<RunResult> resultados = new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(InstrumentacaoBenchmark.class.getSimpleName())
+                .build()).run();
+
+        Map<String, Map<String, Double>> mediaPorRequisicao = new HashMap<>();
+        for (RunResult resultado : resultados) {
+            String requisicao = resultado.getParams().getBenchmark();
+            mediaPorRequisicao.computeIfAbsent(requisicao, chave -> new HashMap<>())
+                    .put(resultado.getParams().getParam("instrumentacao"), resultado.getPrimaryResult().getScore());
+        }
+        boolean dentroDoOrcamento = true;
+        for (Map.Entry<String, Map<String, Double>> requisicao : mediaPorRequisicao.entrySet()) {
+            double desligada = requisicao.getValue().get("desligada");
+            double ligada = requisicao.getValue().get("ligada");
+            double acrescimo = (ligada - desligada) / desligada * 100;
+            System.out.printf("%s: %.1f µs sem instrumentação, %.1f µs com (%+.1f%%)%n",
+                    requisicao.getKey(), desligada, ligada, acrescimo);
+            dentroDoOrcamento &= acrescimo <= ORCAMENTO_PERCENTUAL;
+        }
+        if (!dentroDoOrcamento) {
+            System.err.printf("Instrumentação acima do orçamento de %d%%%n", ORCAMENTO_PERCENTUAL);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package br.com.api.benchmark;
+
+import br.com.api.ApiLivrosApplication;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clientes que consultam periodicamente os mesmos livros e páginas, como os aplicativos móveis, na API completa
+ * (servlet, H2 em arquivo), com e sem o {@code If-None-Match}. Com ETag, cada cliente reenvia a última ETag recebida
+ * de cada URL e, como os dados não mudam durante a medição, recebe 304. Os contadores {@code bytesRecebidos} e
+ * {@code naoModificadas} mostram, por segundo, o corpo transferido e as respostas 304; dividindo pelo total de
+ * requisições por segundo, obtém-se os bytes por requisição. Servidor e clientes rodam na mesma JVM, então
+ * {@code -prof gc} mostra a alocação por requisição dos dois lados.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(64)
+@Fork(1)
+public class LeituraCondicionalBenchmark {
+
+    private static final int LIVROS = 100_000;
+    private static final int LIVROS_ACOMPANHADOS = 1_000;
+    private static final int PAGINAS_ACOMPANHADAS = 10;
+
+    @Param({"false", "true"})
+    private boolean comEtag;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient clienteHttp;
+    private String base;
+    private String autorizacao;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws JOSEException, IOException {
+        RSAKey chave = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        Path arquivoChaves = Files.createTempFile(Files.createTempDirectory("leitura-condicional"), "jwks", ".json");
+        Files.writeString(arquivoChaves, new JWKSet(chave.toPublicJWK()).toString(), StandardCharsets.UTF_8);
+        autorizacao = "Bearer " + PilhaWebBenchmark.token(chave);
+
+        contexto = new SpringApplicationBuilder(ApiLivrosApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--server.port=0",
+                        "--livro.jwk.arquivo=" + arquivoChaves,
+                        "--livro.jwk.uri=http://localhost:1/certs",
+                        "--livro.cache.invalidacao=local",
+                        "--livro.outbox.relay.atraso-inicial-ms=3600000",
+                        "--livro.limite.habilitado=false",
+                        "--spring.rabbitmq.listener.simple.auto-startup=false",
+                        "--spring.jpa.open-in-view=false",
+                        "--spring.datasource.url=jdbc:h2:file:./target/bench-db/leitura-condicional;DB_CLOSE_ON_EXIT=FALSE",
+                        "--logging.level.root=WARN");
+        CatalogoBenchmark.popular(contexto.getBean(JdbcTemplate.class), LIVROS);
+
+        base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/api-livros/livro";
+        clienteHttp = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public int get(Cliente cliente) throws IOException, InterruptedException {
+        return enviar(cliente, "/get/" + (ThreadLocalRandom.current().nextInt(LIVROS_ACOMPANHADOS) + 1));
+    }
+
+    @Benchmark
+    public int getAllPage(Cliente cliente) throws IOException, InterruptedException {
+        return enviar(cliente, "/getAllPage?page=" + ThreadLocalRandom.current().nextInt(PAGINAS_ACOMPANHADAS)
+                + "&size=20");
+    }
+
+    private int enviar(Cliente cliente, String caminho) throws IOException, InterruptedException {
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create(base + caminho))
+                .header("Authorization", autorizacao)
+                .GET();
+        String etag = cliente.etags.get(caminho);
+        if (comEtag && etag != null) {
+            requisicao.header("If-None-Match", etag);
+        }
+        HttpResponse<byte[]> resposta = clienteHttp.send(requisicao.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() >= 400) {
+            throw new IllegalStateException(caminho + " respondeu " + resposta.statusCode());
+        }
+        if (resposta.statusCode() == 304) {
+            cliente.naoModificadas++;
+        }
+        resposta.headers().firstValue("ETag").ifPresent(recebida -> cliente.etags.put(caminho, recebida));
+        cliente.bytesRecebidos += resposta.body().length;
+        return resposta.statusCode();
+    }
+
+    /**
+     * Um aplicativo: guarda a última ETag de cada URL, entre as iterações, como o cache HTTP do cliente.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Cliente {
+
+        public long bytesRecebidos;
+        public long naoModificadas;
+
+        private final Map<String, String> etags = new HashMap<>();
+
+        @Setup(Level.Iteration)
+        public void zerarContadores() {
+            bytesRecebidos = 0;
+            naoModificadas = 0;
+        }
+    }
+}
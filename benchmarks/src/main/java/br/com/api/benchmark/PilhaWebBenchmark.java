@@ -0,0 +1,177 @@
+package br.com.api.benchmark;
+
+import br.com.api.ApiLivrosApplication;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência das mesmas requisições HTTP na API completa no modo servlet (Tomcat + JPA) e no perfil {@code reactive}
+ * (Netty + R2DBC), com 64 clientes simultâneos, sobre o mesmo catálogo no H2 em arquivo e num PostgreSQL local em
+ * contêiner (que precisa de Docker). Os tokens são assinados aqui e as chaves públicas vão pelo arquivo de chaves
+ * ({@code livro.jwk.arquivo}), então não é preciso Keycloak; o RabbitMQ também não é usado.
+ *
+ * <p>Para milhares de clientes, suba a API com e sem {@code --spring.profiles.active=reactive} e use o
+ * {@link CargaHttp}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Threads(64)
+@Fork(1)
+public class PilhaWebBenchmark {
+
+    private static final int LIVROS = 100_000;
+
+    @Param({"servlet", "reactive"})
+    private String pilha;
+
+    @Param({"h2", "postgresql"})
+    private String banco;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext contexto;
+    private HttpClient clienteHttp;
+    private String base;
+    private String autorizacao;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws JOSEException, IOException {
+        RSAKey chave = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        // a API só lê o arquivo de chaves num diretório sem escrita para outros usuários, e o /tmp tem
+        Path arquivoChaves = Files.createTempFile(Files.createTempDirectory("pilha-web"), "jwks", ".json");
+        Files.writeString(arquivoChaves, new JWKSet(chave.toPublicJWK()).toString(), StandardCharsets.UTF_8);
+        autorizacao = "Bearer " + token(chave);
+
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--livro.jwk.arquivo=" + arquivoChaves,
+                // sem Keycloak: a atualização periódica falha e as chaves do arquivo continuam valendo
+                "--livro.jwk.uri=http://localhost:1/certs",
+                "--livro.cache.invalidacao=local",
+                "--livro.outbox.relay.atraso-inicial-ms=3600000",
+                "--livro.limite.habilitado=false",
+                "--spring.rabbitmq.listener.simple.auto-startup=false",
+                "--spring.jpa.open-in-view=false",
+                "--logging.level.root=WARN"));
+        if ("reactive".equals(pilha)) {
+            argumentos.add("--spring.profiles.active=reactive");
+        }
+        if ("postgresql".equals(banco)) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            String r2dbc = "r2dbc:postgresql://" + postgres.getHost() + ":"
+                    + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName();
+            argumentos.addAll(List.of(
+                    "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                    "--spring.datasource.username=" + postgres.getUsername(),
+                    "--spring.datasource.password=" + postgres.getPassword(),
+                    "--spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+                    "--livro.reativo.r2dbc.url=" + r2dbc,
+                    "--livro.reativo.r2dbc.usuario=" + postgres.getUsername(),
+                    "--livro.reativo.r2dbc.senha=" + postgres.getPassword()));
+        } else {
+            argumentos.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:file:./target/bench-db/pilha-web;DB_CLOSE_ON_EXIT=FALSE",
+                    "--livro.reativo.r2dbc.url=r2dbc:h2:file:///./target/bench-db/pilha-web;DB_CLOSE_ON_EXIT=FALSE"));
+        }
+        contexto = new SpringApplicationBuilder(ApiLivrosApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(argumentos.toArray(String[]::new));
+        CatalogoBenchmark.popular(contexto.getBean(JdbcTemplate.class), LIVROS);
+
+        base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/api-livros/livro";
+        clienteHttp = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    /**
+     * Leitura por ID, quase sempre atendida pelo cache de livros.
+     */
+    @Benchmark
+    public int get() throws IOException, InterruptedException {
+        return enviar("/get/" + (ThreadLocalRandom.current().nextInt(LIVROS) + 1));
+    }
+
+    @Benchmark
+    public int getAllPage() throws IOException, InterruptedException {
+        return enviar("/getAllPage?page=" + ThreadLocalRandom.current().nextInt(100) + "&size=20");
+    }
+
+    @Benchmark
+    public int getAllCursorPorAutor() throws IOException, InterruptedException {
+        // %20 em vez de +, que o WebFlux não decodifica como espaço
+        String autor = URLEncoder.encode(CatalogoBenchmark.autor(ThreadLocalRandom.current().nextInt(LIVROS)),
+                StandardCharsets.UTF_8).replace("+", "%20");
+        return enviar("/getAllCursor?size=20&sort=titulo,asc&autor=" + autor);
+    }
+
+    private int enviar(String caminho) throws IOException, InterruptedException {
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(base + caminho))
+                .header("Authorization", autorizacao)
+                .GET()
+                .build();
+        HttpResponse<byte[]> resposta = clienteHttp.send(requisicao, HttpResponse.BodyHandlers.ofByteArray());
+        if (resposta.statusCode() >= 400) {
+            throw new IllegalStateException(caminho + " respondeu " + resposta.statusCode());
+        }
+        return resposta.body().length;
+    }
+
+    static String token(RSAKey chave) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(UUID.randomUUID().toString())
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plus(Duration.ofHours(2))))
+                .claim("email", "leitor@teste.com")
+                .claim("resource_access", Map.of("app-livros", Map.of("roles", List.of("Administrador"))))
+                .build();
+        SignedJWT assinado = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(chave.getKeyID()).build(), claims);
+        assinado.sign(new RSASSASigner(chave));
+        return assinado.serialize();
+    }
+}
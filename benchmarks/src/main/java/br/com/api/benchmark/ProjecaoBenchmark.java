@@ -0,0 +1,72 @@
+package br.com.api.benchmark;
+
+import br.com.api.mapper.LivroMapper;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.repository.LivroRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Página de livros como o {@code getAllPage} respondia antes (entidades gerenciadas copiadas para {@link LivroDto}
+ * pelo {@link LivroMapper}) e como responde agora ({@link LivroDto} lido direto pela expressão de construtor), em
+ * páginas de 100 e mil livros de um catálogo de 100 mil. Rode com {@code -prof gc} para comparar a alocação por página.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+public class ProjecaoBenchmark {
+
+    private static final int LIVROS = 100_000;
+    private static final int PAGINAS = 10;
+
+    @Param({"100", "1000"})
+    private int tamanhoPagina;
+
+    private ConfigurableApplicationContext contexto;
+    private LivroRepository livroRepository;
+    private final LivroFiltro filtro = new LivroFiltro(null, null, null, true);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar("projecao");
+        CatalogoBenchmark.popular(contexto.getBean(JdbcTemplate.class), LIVROS);
+        livroRepository = contexto.getBean(LivroRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Page<LivroDto> entidades() {
+        PageRequest pagina = pagina();
+        Page<Livro> livros = livroRepository.buscar(filtro, pagina);
+        List<LivroDto> dtos = LivroMapper.mapToDtoList(livros.getContent());
+        return new PageImpl<>(dtos, pagina, livros.getTotalElements());
+    }
+
+    @Benchmark
+    public Page<LivroDto> projecao() {
+        return livroRepository.buscarDto(filtro, pagina());
+    }
+
+    private PageRequest pagina() {
+        return PageRequest.of(ThreadLocalRandom.current().nextInt(PAGINAS), tamanhoPagina,
+                Sort.by(Sort.Direction.DESC, "id"));
+    }
+}
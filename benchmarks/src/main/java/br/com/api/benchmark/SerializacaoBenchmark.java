@@ -0,0 +1,62 @@
+package br.com.api.benchmark;
+
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.paginacao.PaginaCursor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização em JSON das respostas de {@code getAllPage} ({@link Page} de {@link LivroDto}, com total e metadados
+ * de paginação) e de {@code getAllCursor} ({@link PaginaCursor}), com o {@link ObjectMapper} configurado como o do
+ * Spring Boot, para 20, 100 e 2 mil livros por página. Rode com {@code -prof gc} para ver a alocação por resposta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+    private static final int TOTAL_CATALOGO = 1_000_000;
+
+    @Param({"20", "100", "2000"})
+    private int tamanhoPagina;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private Page<LivroDto> pagina;
+    private PaginaCursor<LivroDto> paginaCursor;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        List<LivroDto> livros = new ArrayList<>(tamanhoPagina);
+        for (int i = 0; i < tamanhoPagina; i++) {
+            livros.add(new LivroDto((long) i + 1, CatalogoBenchmark.titulo(i), CatalogoBenchmark.autor(i),
+                    CatalogoBenchmark.isbn(i), i % 3 != 0, i % 3 != 0 ? null : UUID.randomUUID().toString()));
+        }
+        pagina = new PageImpl<>(livros, PageRequest.of(0, tamanhoPagina, Sort.by(Sort.Direction.DESC, "id")),
+                TOTAL_CATALOGO);
+        paginaCursor = new PaginaCursor<>(livros, "aWQ6REVTQzoxMjM6MTIz");
+    }
+
+    @Benchmark
+    public byte[] paginaOffset() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(pagina);
+    }
+
+    @Benchmark
+    public byte[] paginaPorCursor() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(paginaCursor);
+    }
+}
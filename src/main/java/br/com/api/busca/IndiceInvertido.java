@@ -0,0 +1,301 @@
+package br.com.api.busca;
+
+import br.com.api.model.livro.LivroEncontrado;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice invertido em memória de títulos e autores. Cada livro recebe um número sequencial (ordinal) ao ser indexado e
+ * cada termo guarda a lista crescente dos ordinais em que aparece; uma alteração indexa o livro com um novo ordinal e
+ * descarta o anterior, então as listas só crescem no fim. Os ordinais descartados são ignorados nas buscas e somem
+ * quando o índice é reconstruído.
+ *
+ * <p>Escritas são serializadas; buscas não usam lock e podem rodar durante as escritas, vendo cada livro inteiro antes
+ * ou depois da alteração.
+ *
+ * <p>Todos os termos da busca precisam aparecer no título ou no autor. Com {@code prefixo}, o último termo também casa
+ * com termos que começam por ele (a partir de {@value #PREFIXO_MINIMO} letras), como numa busca enquanto se digita. A
+ * pontuação soma, por termo, o IDF de cada campo em que ele aparece, com peso maior para o título e menor para os
+ * termos completados pelo prefixo; empates ficam com o título mais curto.
+ */
+public final class IndiceInvertido {
+
+    static final float PESO_TITULO = 2f;
+    static final float PESO_AUTOR = 1f;
+    static final float PESO_PREFIXO = 0.5f;
+    static final int PREFIXO_MINIMO = 2;
+    /**
+     * Limite de termos completados por prefixo, por campo, para que prefixos curtos não percorram o dicionário todo.
+     */
+    static final int MAXIMO_EXPANSOES = 64;
+
+    private static final Comparator<Acerto> MELHOR_PRIMEIRO = Comparator.comparingDouble(Acerto::pontuacao).reversed()
+            .thenComparingInt(acerto -> acerto.documento().titulo().length())
+            .thenComparing(acerto -> acerto.documento().id());
+
+    private final ConcurrentSkipListMap<String, Postagens> titulos = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Postagens> autores = new ConcurrentSkipListMap<>();
+    private final Map<Long, Integer> ordinais = new HashMap<>();
+    private volatile DocumentoBusca[] documentos = new DocumentoBusca[1024];
+    private volatile int vivos;
+    private int proximoOrdinal;
+
+    public void adicionar(Long id, String titulo, String autor, String isbn) {
+        adicionar(preparar(id, titulo, autor, isbn));
+    }
+
+    /**
+     * Separa os termos fora do lock de escrita, para que a indexação em massa possa fazer isso em paralelo.
+     */
+    static Entrada preparar(Long id, String titulo, String autor, String isbn) {
+        return new Entrada(new DocumentoBusca(id, titulo, autor, isbn),
+                List.copyOf(new LinkedHashSet<>(TextoBusca.termos(titulo))),
+                List.copyOf(new LinkedHashSet<>(TextoBusca.termos(autor))));
+    }
+
+    synchronized void adicionar(Entrada entrada) {
+        remover(entrada.documento().id());
+        int ordinal = proximoOrdinal++;
+        DocumentoBusca[] atuais = documentos;
+        if (ordinal == atuais.length) {
+            atuais = Arrays.copyOf(atuais, atuais.length * 2);
+            documentos = atuais;
+        }
+        atuais[ordinal] = entrada.documento();
+        ordinais.put(entrada.documento().id(), ordinal);
+        // o livro fica visível às buscas quando o ordinal entra nas listas dos termos
+        for (String termo : entrada.termosTitulo()) {
+            titulos.computeIfAbsent(termo, t -> new Postagens()).adicionar(ordinal);
+        }
+        for (String termo : entrada.termosAutor()) {
+            autores.computeIfAbsent(termo, t -> new Postagens()).adicionar(ordinal);
+        }
+        vivos++;
+    }
+
+    public synchronized boolean remover(Long id) {
+        Integer ordinal = ordinais.remove(id);
+        if (ordinal == null) {
+            return false;
+        }
+        documentos[ordinal] = null;
+        vivos--;
+        return true;
+    }
+
+    public int tamanho() {
+        return vivos;
+    }
+
+    public List<LivroEncontrado> buscar(String consulta, boolean prefixo, int limite) {
+        List<String> termos = List.copyOf(new LinkedHashSet<>(TextoBusca.termos(consulta)));
+        if (termos.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        int total = Math.max(1, vivos);
+        List<Candidatos> porTermo = new ArrayList<>(termos.size());
+        for (int i = 0; i < termos.size(); i++) {
+            String termo = termos.get(i);
+            List<Fonte> fontes = new ArrayList<>();
+            adicionarFonte(fontes, titulos.get(termo), PESO_TITULO, total);
+            adicionarFonte(fontes, autores.get(termo), PESO_AUTOR, total);
+            if (prefixo && i == termos.size() - 1 && termo.length() >= PREFIXO_MINIMO) {
+                expandir(fontes, titulos, termo, PESO_TITULO * PESO_PREFIXO, total);
+                expandir(fontes, autores, termo, PESO_AUTOR * PESO_PREFIXO, total);
+            }
+            if (fontes.isEmpty()) {
+                return List.of();
+            }
+            porTermo.add(unir(fontes));
+        }
+
+        // intersecta a partir do termo mais raro, para que as listas intermediárias fiquem pequenas
+        porTermo.sort(Comparator.comparingInt(Candidatos::tamanho));
+        Candidatos candidatos = porTermo.get(0);
+        for (int i = 1; i < porTermo.size() && candidatos.tamanho() > 0; i++) {
+            candidatos = intersectar(candidatos, porTermo.get(i));
+        }
+        return melhores(candidatos, limite);
+    }
+
+    private List<LivroEncontrado> melhores(Candidatos candidatos, int limite) {
+        // lido depois das listas de termos: contém todos os livros que elas referenciam
+        DocumentoBusca[] atuais = documentos;
+        PriorityQueue<Acerto> melhores = new PriorityQueue<>(limite + 1, MELHOR_PRIMEIRO.reversed());
+        for (int i = 0; i < candidatos.tamanho(); i++) {
+            DocumentoBusca documento = atuais[candidatos.ordinais()[i]];
+            if (documento == null) {
+                continue;
+            }
+            Acerto acerto = new Acerto(documento, candidatos.ponto(i));
+            if (melhores.size() < limite) {
+                melhores.add(acerto);
+            } else if (MELHOR_PRIMEIRO.compare(acerto, melhores.peek()) < 0) {
+                melhores.poll();
+                melhores.add(acerto);
+            }
+        }
+        return melhores.stream()
+                .sorted(MELHOR_PRIMEIRO)
+                .map(acerto -> new LivroEncontrado(acerto.documento().id(), acerto.documento().titulo(),
+                        acerto.documento().autor(), acerto.documento().isbn(), acerto.pontuacao()))
+                .toList();
+    }
+
+    private static void expandir(List<Fonte> fontes, ConcurrentSkipListMap<String, Postagens> campo, String prefixo,
+                                 float peso, int total) {
+        int expandidos = 0;
+        for (Map.Entry<String, Postagens> entrada : campo.tailMap(prefixo, false).entrySet()) {
+            if (!entrada.getKey().startsWith(prefixo) || expandidos++ == MAXIMO_EXPANSOES) {
+                return;
+            }
+            adicionarFonte(fontes, entrada.getValue(), peso, total);
+        }
+    }
+
+    private static void adicionarFonte(List<Fonte> fontes, Postagens postagens, float peso, int total) {
+        if (postagens == null) {
+            return;
+        }
+        // o tamanho é lido antes do array: o array lido já contém todos os elementos contados
+        int tamanho = postagens.tamanho;
+        int[] ordinais = postagens.ordinais;
+        if (tamanho > 0) {
+            float idf = (float) Math.log(1 + (double) total / tamanho);
+            fontes.add(new Fonte(ordinais, tamanho, peso * idf));
+        }
+    }
+
+    /**
+     * Junta as listas de um termo (título, autor e completados pelo prefixo) numa lista crescente, somando os pesos
+     * dos livros que aparecem em mais de uma.
+     */
+    private static Candidatos unir(List<Fonte> fontes) {
+        if (fontes.size() == 1) {
+            // caso comum (termo só no título ou só no autor): usa a própria lista, sem copiar
+            Fonte fonte = fontes.get(0);
+            return new Candidatos(fonte.ordinais(), null, fonte.peso(), fonte.tamanho());
+        }
+        int soma = 0;
+        for (Fonte fonte : fontes) {
+            soma += fonte.tamanho();
+        }
+        int[] ordinais = new int[soma];
+        float[] pontos = new float[soma];
+        int tamanho = 0;
+        PriorityQueue<Cursor> cursores = new PriorityQueue<>(fontes.size(), Comparator.comparingInt(Cursor::atual));
+        for (Fonte fonte : fontes) {
+            cursores.add(new Cursor(fonte));
+        }
+        while (!cursores.isEmpty()) {
+            Cursor cursor = cursores.poll();
+            int ordinal = cursor.atual();
+            if (tamanho > 0 && ordinais[tamanho - 1] == ordinal) {
+                pontos[tamanho - 1] += cursor.fonte.peso();
+            } else {
+                ordinais[tamanho] = ordinal;
+                pontos[tamanho] = cursor.fonte.peso();
+                tamanho++;
+            }
+            if (cursor.avancar()) {
+                cursores.add(cursor);
+            }
+        }
+        return new Candidatos(ordinais, pontos, 0, tamanho);
+    }
+
+    private static Candidatos intersectar(Candidatos menor, Candidatos maior) {
+        int[] ordinais = new int[menor.tamanho()];
+        float[] pontos = new float[menor.tamanho()];
+        int tamanho = 0;
+        // lista bem menor: busca binária na maior em vez de percorrê-la inteira
+        boolean buscaBinaria = (long) menor.tamanho() * 16 < maior.tamanho();
+        int j = 0;
+        for (int i = 0; i < menor.tamanho() && j < maior.tamanho(); i++) {
+            int ordinal = menor.ordinais()[i];
+            if (buscaBinaria) {
+                int posicao = Arrays.binarySearch(maior.ordinais(), j, maior.tamanho(), ordinal);
+                j = posicao >= 0 ? posicao : -posicao - 1;
+            } else {
+                while (j < maior.tamanho() && maior.ordinais()[j] < ordinal) {
+                    j++;
+                }
+            }
+            if (j < maior.tamanho() && maior.ordinais()[j] == ordinal) {
+                ordinais[tamanho] = ordinal;
+                pontos[tamanho] = menor.ponto(i) + maior.ponto(j);
+                tamanho++;
+            }
+        }
+        return new Candidatos(ordinais, pontos, 0, tamanho);
+    }
+
+    record DocumentoBusca(Long id, String titulo, String autor, String isbn) {
+    }
+
+    record Entrada(DocumentoBusca documento, List<String> termosTitulo, List<String> termosAutor) {
+    }
+
+    private record Fonte(int[] ordinais, int tamanho, float peso) {
+    }
+
+    /**
+     * Ordinais crescentes e a pontuação de cada um; sem {@code pontos}, todos valem {@code pontoFixo}.
+     */
+    private record Candidatos(int[] ordinais, float[] pontos, float pontoFixo, int tamanho) {
+
+        float ponto(int i) {
+            return pontos == null ? pontoFixo : pontos[i];
+        }
+    }
+
+    private record Acerto(DocumentoBusca documento, float pontuacao) {
+    }
+
+    private static final class Cursor {
+
+        private final Fonte fonte;
+        private int posicao;
+
+        Cursor(Fonte fonte) {
+            this.fonte = fonte;
+        }
+
+        int atual() {
+            return fonte.ordinais()[posicao];
+        }
+
+        boolean avancar() {
+            return ++posicao < fonte.tamanho();
+        }
+    }
+
+    /**
+     * Ordinais de um termo. Só a thread de escrita acrescenta; o elemento é gravado antes do novo tamanho, então quem
+     * lê o tamanho e depois o array sempre vê elementos completos.
+     */
+    private static final class Postagens {
+
+        private volatile int[] ordinais = new int[4];
+        private volatile int tamanho;
+
+        void adicionar(int ordinal) {
+            int[] atuais = ordinais;
+            int n = tamanho;
+            if (n == atuais.length) {
+                atuais = Arrays.copyOf(atuais, n * 2);
+                ordinais = atuais;
+            }
+            atuais[n] = ordinal;
+            tamanho = n + 1;
+        }
+    }
+}
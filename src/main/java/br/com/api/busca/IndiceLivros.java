@@ -0,0 +1,243 @@
+package br.com.api.busca;
+
+import br.com.api.config.FabricaThreads;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroEncontrado;
+import br.com.api.repository.LivroRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Índice de busca textual dos livros deste nó. As escritas do serviço entram no índice depois do commit; o índice
+ * inteiro é reconstruído a partir do banco na inicialização e a cada {@code livro.busca.reconstrucao-ms}, o que
+ * descarta as versões antigas dos livros alterados e traz as alterações feitas por outros nós.
+ *
+ * <p>A reconstrução lê faixas de IDs em paralelo ({@code livro.busca.threads}) enquanto o índice atual continua
+ * respondendo; as escritas feitas durante a reconstrução são reaplicadas no índice novo antes da troca.
+ */
+@Slf4j
+@Component
+public class IndiceLivros {
+
+    private static final int TAMANHO_LOTE = 1000;
+
+    private final LivroRepository livroRepository;
+    private final int threads;
+    private final boolean threadsVirtuais;
+    private final Timer consultas;
+    private final ExecutorService reconstrucao;
+    private final AtomicBoolean reconstrucaoAgendada = new AtomicBoolean();
+    private volatile IndiceInvertido indice = new IndiceInvertido();
+    private volatile boolean pronto;
+    private List<Consumer<IndiceInvertido>> pendentes;
+
+    public IndiceLivros(LivroRepository livroRepository,
+                        @Value("${livro.busca.threads:0}") int threads,
+                        MeterRegistry meterRegistry,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.livroRepository = livroRepository;
+        // 0: uma thread por processador
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.threadsVirtuais = threadsVirtuais;
+        this.consultas = Timer.builder("livro.busca.consultas")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("livro.busca.livros", this, indiceLivros -> indiceLivros.indice.tamanho())
+                .register(meterRegistry);
+        this.reconstrucao = Executors.newSingleThreadExecutor(
+                FabricaThreads.criar("busca-reconstrucao-", threadsVirtuais));
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        reconstrucao.shutdownNow();
+    }
+
+    /**
+     * Falso até a primeira reconstrução terminar; antes disso as buscas não enxergam o catálogo inteiro.
+     */
+    public boolean pronto() {
+        return pronto;
+    }
+
+    public List<LivroEncontrado> buscar(String consulta, boolean prefixo, int limite) {
+        return consultas.record(() -> indice.buscar(consulta, prefixo, limite));
+    }
+
+    public void indexar(Livro livro) {
+        indexar(List.of(livro));
+    }
+
+    /**
+     * Indexa os livros depois do commit da transação atual, ou imediatamente se não houver transação. Os dados são
+     * copiados agora, então alterações posteriores nas entidades não afetam o índice.
+     */
+    public void indexar(Collection<Livro> livros) {
+        List<IndiceInvertido.Entrada> entradas = livros.stream()
+                .map(livro -> IndiceInvertido.preparar(livro.getId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn()))
+                .toList();
+        aposCommit(() -> aplicar(indiceAtual -> entradas.forEach(indiceAtual::adicionar)));
+    }
+
+    public void remover(Long id) {
+        remover(List.of(id));
+    }
+
+    public void remover(Collection<Long> ids) {
+        List<Long> copia = List.copyOf(ids);
+        aposCommit(() -> aplicar(indiceAtual -> copia.forEach(indiceAtual::remover)));
+    }
+
+    @Scheduled(initialDelayString = "${livro.busca.atraso-inicial-ms:0}",
+            fixedDelayString = "${livro.busca.reconstrucao-ms:1800000}")
+    public void agendarReconstrucao() {
+        // roda fora do agendador, que é compartilhado com o relay do outbox
+        if (reconstrucaoAgendada.compareAndSet(false, true)) {
+            reconstrucao.execute(() -> {
+                try {
+                    reconstruir();
+                } catch (RuntimeException e) {
+                    log.error("Falha ao reconstruir o índice de busca; o índice atual continua em uso", e);
+                } finally {
+                    reconstrucaoAgendada.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Monta um índice novo a partir do banco e o coloca no lugar do atual. Retorna falso se já houver uma
+     * reconstrução em andamento.
+     */
+    public boolean reconstruir() {
+        synchronized (this) {
+            if (pendentes != null) {
+                return false;
+            }
+            pendentes = new ArrayList<>();
+        }
+        try {
+            long inicio = System.nanoTime();
+            IndiceInvertido novo = construir();
+            synchronized (this) {
+                pendentes.forEach(alteracao -> alteracao.accept(novo));
+                indice = novo;
+                pronto = true;
+            }
+            log.info("Índice de busca reconstruído com {} livros em {} ms", novo.tamanho(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            return true;
+        } finally {
+            synchronized (this) {
+                pendentes = null;
+            }
+        }
+    }
+
+    private synchronized void aplicar(Consumer<IndiceInvertido> alteracao) {
+        alteracao.accept(indice);
+        if (pendentes != null) {
+            pendentes.add(alteracao);
+        }
+    }
+
+    /**
+     * Divide os IDs em faixas lidas em paralelo; cada leitor já separa os termos dos seus livros e entrega lotes
+     * prontos a esta thread, a única que escreve no índice novo. A fila limitada segura os leitores quando a escrita
+     * fica para trás, então a memória usada não depende do tamanho do catálogo.
+     */
+    private IndiceInvertido construir() {
+        IndiceInvertido novo = new IndiceInvertido();
+        Long menorId = livroRepository.findMenorId();
+        Long maiorId = livroRepository.findMaiorId();
+        if (menorId == null || maiorId == null) {
+            return novo;
+        }
+        int faixas = threads * 4;
+        long largura = Math.max(1, (maiorId - menorId) / faixas + 1);
+        ExecutorService leitores = Executors.newFixedThreadPool(threads,
+                FabricaThreads.criar("busca-indexacao-", threadsVirtuais));
+        BlockingQueue<List<IndiceInvertido.Entrada>> lotes = new ArrayBlockingQueue<>(threads * 2);
+        List<Future<?>> leituras = new ArrayList<>();
+        try {
+            for (long aposId = menorId - 1; aposId < maiorId; aposId += largura) {
+                long de = aposId;
+                long ate = Math.min(maiorId, aposId + largura);
+                leituras.add(leitores.submit(() -> {
+                    lerFaixa(de, ate, lotes);
+                    return null;
+                }));
+            }
+            while (!leituras.stream().allMatch(Future::isDone) || !lotes.isEmpty()) {
+                List<IndiceInvertido.Entrada> lote = lotes.poll(50, TimeUnit.MILLISECONDS);
+                if (lote != null) {
+                    lote.forEach(novo::adicionar);
+                }
+            }
+            for (Future<?> leitura : leituras) {
+                leitura.get();
+            }
+            return novo;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstrução do índice de busca interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao ler os livros para o índice de busca", e.getCause());
+        } finally {
+            leitores.shutdownNow();
+        }
+    }
+
+    private void lerFaixa(long aposId, long ateId, BlockingQueue<List<IndiceInvertido.Entrada>> lotes)
+            throws InterruptedException {
+        PageRequest lote = PageRequest.ofSize(TAMANHO_LOTE);
+        long ultimoId = aposId;
+        List<LivroDto> livros;
+        do {
+            livros = livroRepository.findLoteEntreIds(ultimoId, ateId, lote);
+            if (livros.isEmpty()) {
+                return;
+            }
+            lotes.put(livros.stream()
+                    .map(livro -> IndiceInvertido.preparar(livro.getId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn()))
+                    .toList());
+            ultimoId = livros.get(livros.size() - 1).getId();
+        } while (livros.size() == TAMANHO_LOTE);
+    }
+
+    private static void aposCommit(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+}
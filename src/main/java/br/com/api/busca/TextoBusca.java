@@ -0,0 +1,46 @@
+package br.com.api.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Quebra textos em termos para o índice de busca: minúsculas, sem acentos ("Código" e "codigo" são o mesmo termo) e
+ * separados por qualquer caractere que não seja letra ou dígito.
+ */
+public final class TextoBusca {
+
+    private TextoBusca() {
+    }
+
+    public static List<String> termos(String texto) {
+        List<String> termos = new ArrayList<>();
+        if (texto == null || texto.isEmpty()) {
+            return termos;
+        }
+        String normalizado = normalizar(texto);
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean letraOuDigito = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (letraOuDigito && inicio < 0) {
+                inicio = i;
+            } else if (!letraOuDigito && inicio >= 0) {
+                termos.add(normalizado.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return termos;
+    }
+
+    static String normalizar(String texto) {
+        String minusculo = texto.toLowerCase(Locale.ROOT);
+        // caminho rápido: texto só com ASCII não tem acentos para remover
+        for (int i = 0; i < minusculo.length(); i++) {
+            if (minusculo.charAt(i) > 0x7f) {
+                return Normalizer.normalize(minusculo, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+            }
+        }
+        return minusculo;
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.api.cache;
+
+import br.com.api.model.usuario.UsuarioAutenticado;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Autenticações dos tokens JWT já validados. A chave é o próprio token, então um acerto só acontece para um token
+ * idêntico a um cuja assinatura e claims já foram verificadas: a validação e a conversão das claims são feitas uma vez
+ * por token. Cada entrada expira no {@code exp} do token, limitado a {@code livro.cache.autenticacao.ttl-maximo}.
+ * As métricas são publicadas no Micrometer com o nome {@code livro.autenticacao}; a validação dos tokens que não
+ * estavam no cache (assinatura, claims e conversão) é medida em {@code livro.jwt.validacao}.
+ */
+@Component
+public class AutenticacaoJwtCache {
+
+    private final AsyncCache<String, UsuarioAutenticado> cache;
+    private final Timer validacao;
+
+    public AutenticacaoJwtCache(@Value("${livro.cache.autenticacao.tamanho-maximo:10000}") long tamanhoMaximo,
+                                @Value("${livro.cache.autenticacao.ttl-maximo:5m}") Duration ttlMaximo,
+                                MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfter(new ExpiracaoDoToken(ttlMaximo))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "livro.autenticacao");
+        this.validacao = Timer.builder("livro.jwt.validacao")
+                .description("Validação e conversão dos tokens JWT que não estavam no cache")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Autentica o token pelo cache ou, na primeira vez, pelo provedor. Falhas não são guardadas e chegam a quem
+     * chamou como a exceção do provedor.
+     */
+    public Authentication autenticar(BearerTokenAuthenticationToken bearer, AuthenticationProvider provedor) {
+        UsuarioAutenticado autenticacao = CarregamentoNoChamador.obter(cache, bearer.getToken(),
+                token -> validacao.record(
+                        () -> (UsuarioAutenticado) provedor.authenticate(new BearerTokenAuthenticationToken(token))));
+        return autenticacao.comDetalhes(bearer.getDetails());
+    }
+
+    private record ExpiracaoDoToken(Duration ttlMaximo) implements Expiry<String, UsuarioAutenticado> {
+
+        @Override
+        public long expireAfterCreate(String token, UsuarioAutenticado autenticacao, long agora) {
+            Instant expiraEm = autenticacao.getToken().getExpiresAt();
+            if (expiraEm == null) {
+                return ttlMaximo.toNanos();
+            }
+            Duration restante = Duration.between(Instant.now(), expiraEm);
+            return Math.max(0, Math.min(restante.toNanos(), ttlMaximo.toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, UsuarioAutenticado autenticacao, long agora, long duracaoAtual) {
+            return duracaoAtual;
+        }
+
+        @Override
+        public long expireAfterRead(String token, UsuarioAutenticado autenticacao, long agora, long duracaoAtual) {
+            return duracaoAtual;
+        }
+    }
+}
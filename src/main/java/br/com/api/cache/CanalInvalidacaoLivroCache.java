@@ -0,0 +1,11 @@
+package br.com.api.cache;
+
+/**
+ * Canal usado pelo {@link LivroCache} para avisar os demais nós que um livro mudou. É chamado dentro da transação
+ * de escrita. A implementação é escolhida pela propriedade {@code livro.cache.invalidacao}: {@code rabbitmq}
+ * (padrão) ou {@code local}, para um único nó.
+ */
+public interface CanalInvalidacaoLivroCache {
+
+    void publicar(Long livroId);
+}
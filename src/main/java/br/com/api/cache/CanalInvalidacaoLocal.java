@@ -0,0 +1,14 @@
+package br.com.api.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "livro.cache.invalidacao", havingValue = "local")
+public class CanalInvalidacaoLocal implements CanalInvalidacaoLivroCache {
+
+    @Override
+    public void publicar(Long livroId) {
+        // único nó: a invalidação local feita pelo LivroCache já basta
+    }
+}
@@ -0,0 +1,30 @@
+package br.com.api.cache;
+
+import br.com.api.service.OutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_CACHE_INVALIDACAO;
+
+/**
+ * Envia as invalidações pelo {@code livroExchange}, gravando-as no outbox na mesma transação da escrita; assim
+ * elas só saem se a escrita for confirmada. Cada nó recebe todas elas em uma fila própria e temporária
+ * (ver {@link LivroCacheInvalidacaoListener}).
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "livro.cache.invalidacao", havingValue = "rabbitmq", matchIfMissing = true)
+public class CanalInvalidacaoRabbitMQ implements CanalInvalidacaoLivroCache {
+
+    private final OutboxService outboxService;
+
+    @Override
+    public void publicar(Long livroId) {
+        outboxService.registrar(livroId, ROUTING_KEY_CACHE_INVALIDACAO, MediaType.TEXT_PLAIN_VALUE,
+                livroId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
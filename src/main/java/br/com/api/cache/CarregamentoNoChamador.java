@@ -0,0 +1,53 @@
+package br.com.api.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Leitura read-through de um {@link AsyncCache} em que o valor ausente é carregado pela própria thread que chamou,
+ * como num {@code Cache.get(chave, carregador)}, mas fora do lock do mapa: o {@code get} síncrono do Caffeine roda o
+ * carregador dentro de um bloco {@code synchronized} do {@code ConcurrentHashMap}, o que prende a thread portadora de
+ * uma thread virtual durante toda a consulta ao banco. Aqui o mapa só recebe um {@link CompletableFuture} vazio, que
+ * o chamador preenche depois; chamadas simultâneas para a mesma chave esperam esse futuro.
+ *
+ * <p>Como no cache síncrono, carregamentos que falham ou resultam em {@code null} não ficam no cache, e a exceção do
+ * carregador chega a todos que esperavam por ele.
+ */
+final class CarregamentoNoChamador {
+
+    private CarregamentoNoChamador() {
+    }
+
+    static <K, V> V obter(AsyncCache<K, V> cache, K chave, Function<? super K, ? extends V> carregador) {
+        CompletableFuture<V> novo = new CompletableFuture<>();
+        CompletableFuture<V> atual = cache.get(chave, (k, executor) -> novo);
+        if (atual != novo) {
+            return aguardar(atual);
+        }
+        try {
+            V valor = carregador.apply(chave);
+            novo.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            novo.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static <V> V aguardar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
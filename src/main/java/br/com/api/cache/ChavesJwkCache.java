@@ -0,0 +1,250 @@
+package br.com.api.cache;
+
+import br.com.api.config.FabricaThreads;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Chaves públicas do Keycloak usadas para validar os tokens. As chaves são buscadas no início, em segundo plano, e
+ * atualizadas a cada {@code livro.jwk.atualizacao}, então nenhuma requisição espera pelo Keycloak enquanto houver
+ * chaves. Se a atualização falhar, as últimas chaves obtidas continuam valendo e a busca é repetida a cada
+ * {@code livro.jwk.nova-tentativa}.
+ *
+ * <p>Um token assinado com uma chave desconhecida (rotação no Keycloak) força uma nova busca, no máximo uma a cada
+ * {@code livro.jwk.intervalo-minimo}; requisições simultâneas esperam a mesma busca.
+ *
+ * <p>Opcionalmente, a última resposta é gravada em {@code livro.jwk.arquivo} e lida na inicialização, para validar
+ * tokens logo após um reinício mesmo com o Keycloak fora do ar. Como quem troca esse arquivo passa a assinar tokens
+ * aceitos pela API, ele só é usado dentro de um diretório da própria aplicação: o arquivo e o diretório precisam
+ * pertencer ao usuário do processo e não podem ter escrita para o grupo nem para outros; caso contrário são ignorados.
+ */
+@Slf4j
+@Component
+public class ChavesJwkCache implements JWKSource<SecurityContext> {
+
+    private static final int TAMANHO_MAXIMO_RESPOSTA = 512 * 1024;
+
+    private final URI uri;
+    private final Duration atualizacao;
+    private final Duration novaTentativa;
+    private final long intervaloMinimoNanos;
+    private final int timeoutMs;
+    private final Path arquivo;
+    private final Counter buscas;
+    private final Counter falhas;
+    private final ScheduledExecutorService agendador;
+    private final AtomicReference<CompletableFuture<JWKSet>> buscaEmAndamento = new AtomicReference<>();
+    private volatile JWKSet chaves;
+    private volatile long ultimaBuscaForcada;
+
+    public ChavesJwkCache(@Value("${livro.jwk.uri:http://localhost:8080/realms/app-livros/protocol/openid-connect/certs}") String uri,
+                          @Value("${livro.jwk.atualizacao:5m}") Duration atualizacao,
+                          @Value("${livro.jwk.nova-tentativa:30s}") Duration novaTentativa,
+                          @Value("${livro.jwk.intervalo-minimo:10s}") Duration intervaloMinimo,
+                          @Value("${livro.jwk.timeout:5s}") Duration timeout,
+                          @Value("${livro.jwk.arquivo:}") String arquivo,
+                          MeterRegistry meterRegistry,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.uri = URI.create(uri);
+        this.atualizacao = atualizacao;
+        this.novaTentativa = novaTentativa;
+        this.intervaloMinimoNanos = intervaloMinimo.toNanos();
+        this.ultimaBuscaForcada = System.nanoTime() - intervaloMinimoNanos;
+        this.timeoutMs = (int) timeout.toMillis();
+        this.arquivo = arquivo.isBlank() ? null : Path.of(arquivo);
+        this.buscas = Counter.builder("livro.jwk.buscas").register(meterRegistry);
+        this.falhas = Counter.builder("livro.jwk.falhas")
+                .description("Buscas do conjunto de chaves que falharam; as chaves anteriores continuam valendo")
+                .register(meterRegistry);
+        Gauge.builder("livro.jwk.chaves", this, cache -> cache.chaves == null ? 0 : cache.chaves.size())
+                .register(meterRegistry);
+        this.agendador = Executors.newSingleThreadScheduledExecutor(
+                FabricaThreads.criar("jwk-atualizacao-", threadsVirtuais));
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        chaves = lerArquivo();
+        agendador.execute(this::atualizar);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        agendador.shutdownNow();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector seletor, SecurityContext contexto) throws KeySourceException {
+        JWKSet atuais = chaves;
+        if (atuais != null) {
+            List<JWK> encontradas = seletor.select(atuais);
+            if (!encontradas.isEmpty()) {
+                return encontradas;
+            }
+        }
+        // sem chaves ou com um kid desconhecido: busca agora, junto com quem mais estiver esperando
+        try {
+            return seletor.select(buscar(true).join());
+        } catch (CompletionException e) {
+            if (atuais != null) {
+                return seletor.select(atuais);
+            }
+            throw new KeySourceException("Não foi possível obter as chaves de " + uri, e.getCause());
+        }
+    }
+
+    private void atualizar() {
+        Duration proxima = atualizacao;
+        try {
+            buscar(false).join();
+        } catch (CompletionException e) {
+            log.warn("Falha ao atualizar as chaves de {}; mantendo as anteriores: {}", uri, e.getCause().toString());
+            proxima = novaTentativa;
+        }
+        if (!agendador.isShutdown()) {
+            agendador.schedule(this::atualizar, proxima.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Faz uma única busca por vez: quem chega enquanto há uma busca em andamento recebe o resultado dela. Uma busca
+     * forçada logo depois de outra devolve as chaves atuais, que já incluem o que a anterior trouxe.
+     */
+    private CompletableFuture<JWKSet> buscar(boolean forcada) {
+        CompletableFuture<JWKSet> busca = new CompletableFuture<>();
+        CompletableFuture<JWKSet> emAndamento = buscaEmAndamento.compareAndExchange(null, busca);
+        if (emAndamento != null) {
+            return emAndamento;
+        }
+        try {
+            if (forcada) {
+                long agora = System.nanoTime();
+                if (agora - ultimaBuscaForcada < intervaloMinimoNanos) {
+                    JWKSet atuais = chaves;
+                    if (atuais != null) {
+                        busca.complete(atuais);
+                    } else {
+                        busca.completeExceptionally(new IllegalStateException("Aguardando o intervalo mínimo entre buscas"));
+                    }
+                    return busca;
+                }
+                ultimaBuscaForcada = agora;
+            }
+            buscas.increment();
+            JWKSet novas = JWKSet.load(uri.toURL(), timeoutMs, timeoutMs, TAMANHO_MAXIMO_RESPOSTA);
+            chaves = novas;
+            gravarArquivo(novas);
+            busca.complete(novas);
+        } catch (IOException | ParseException | RuntimeException e) {
+            falhas.increment();
+            busca.completeExceptionally(e);
+        } finally {
+            buscaEmAndamento.set(null);
+        }
+        return busca;
+    }
+
+    private JWKSet lerArquivo() {
+        if (arquivo == null || !Files.exists(arquivo)) {
+            return null;
+        }
+        try {
+            verificarDono(arquivo.toAbsolutePath().getParent());
+            verificarDono(arquivo);
+            return JWKSet.parse(Files.readString(arquivo, StandardCharsets.UTF_8));
+        } catch (IOException | ParseException e) {
+            log.warn("Ignorando o arquivo de chaves {}: {}", arquivo, e.toString());
+            return null;
+        }
+    }
+
+    private void gravarArquivo(JWKSet novas) {
+        if (arquivo == null) {
+            return;
+        }
+        Path temporario = null;
+        try {
+            // grava ao lado e troca de uma vez, para que um reinício nunca leia um arquivo pela metade
+            Path diretorio = criarDiretorio(arquivo.toAbsolutePath().getParent());
+            verificarDono(diretorio);
+            // createTempFile cria o arquivo só com leitura e escrita para o dono
+            temporario = Files.createTempFile(diretorio, "jwks", ".tmp");
+            Files.writeString(temporario, novas.toString(true), StandardCharsets.UTF_8);
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            excluir(temporario);
+            log.warn("Não foi possível gravar as chaves em {}: {}", arquivo, e.toString());
+        }
+    }
+
+    private static Path criarDiretorio(Path diretorio) throws IOException {
+        if (Files.isDirectory(diretorio) || !FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return Files.createDirectories(diretorio);
+        }
+        return Files.createDirectories(diretorio,
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    }
+
+    /**
+     * Recusa caminhos que outro usuário possa ter criado ou possa alterar.
+     */
+    private static void verificarDono(Path caminho) throws IOException {
+        String usuario = System.getProperty("user.name");
+        String dono = Files.getOwner(caminho).getName();
+        // no Windows o dono vem com o domínio na frente do usuário
+        if (!dono.equals(usuario) && !dono.endsWith("\\" + usuario)) {
+            throw new IOException(caminho + " pertence a " + dono + ", não ao usuário da aplicação (" + usuario + ")");
+        }
+        PosixFileAttributeView posix = Files.getFileAttributeView(caminho, PosixFileAttributeView.class);
+        if (posix != null) {
+            Set<PosixFilePermission> permissoes = posix.readAttributes().permissions();
+            if (permissoes.contains(PosixFilePermission.GROUP_WRITE)
+                    || permissoes.contains(PosixFilePermission.OTHERS_WRITE)) {
+                throw new IOException(caminho + " tem permissão de escrita para o grupo ou para outros usuários");
+            }
+        }
+    }
+
+    private static void excluir(Path temporario) {
+        try {
+            if (temporario != null) {
+                Files.deleteIfExists(temporario);
+            }
+        } catch (IOException e) {
+            log.debug("Não foi possível excluir {}", temporario, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package br.com.api.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Total de registros das buscas paginadas, por filtro, guardado por pouco tempo. O total exibido pode ficar
+ * atrasado em até {@code livro.cache.contagem.ttl} em relação às escritas, em troca de não executar um
+ * {@code COUNT(*)} a cada página pedida.
+ */
+@Component
+public class ContagemLivrosCache {
+
+    private final AsyncCache<String, Long> cache;
+
+    public ContagemLivrosCache(@Value("${livro.cache.contagem.tamanho-maximo:1000}") long tamanhoMaximo,
+                               @Value("${livro.cache.contagem.ttl:30s}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "livro.contagem");
+    }
+
+    public long contar(String chave, LongSupplier contagem) {
+        return CarregamentoNoChamador.obter(cache, chave, k -> contagem.getAsLong());
+    }
+
+    /**
+     * Como {@link #contar}, para contagens assíncronas: chamadas simultâneas com a mesma chave recebem o mesmo futuro.
+     */
+    public CompletableFuture<Long> contarAssincrono(String chave, Supplier<CompletableFuture<Long>> contagem) {
+        return cache.get(chave, (k, executor) -> contagem.get());
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.api.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Leituras idênticas simultâneas executadas uma única vez (single-flight): a primeira chamada com uma chave executa a
+ * leitura na própria thread e as que chegam enquanto ela roda esperam o mesmo resultado, ou a mesma exceção. Ao
+ * contrário dos caches, nada é guardado depois que a leitura termina; a chamada seguinte consulta o banco de novo.
+ *
+ * <p>Quem espera desiste depois de {@code livro.leituras.espera-maxima} com 503, sem afetar a leitura em andamento.
+ * Dentro de uma transação a leitura nunca é compartilhada, porque poderia não ver as escritas ainda não confirmadas
+ * da própria transação. O resultado é entregue a todos que esperavam e deve ser tratado como somente leitura. As
+ * leituras aproveitadas e as desistências são contadas em {@code livro.leituras.compartilhadas} e
+ * {@code livro.leituras.expiradas}.
+ */
+@Component
+public class LeiturasCompartilhadas {
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> emAndamento = new ConcurrentHashMap<>();
+    private final long esperaMaximaNanos;
+    private final Counter compartilhadas;
+    private final Counter expiradas;
+
+    public LeiturasCompartilhadas(@Value("${livro.leituras.espera-maxima:5s}") Duration esperaMaxima,
+                                  MeterRegistry meterRegistry) {
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.compartilhadas = Counter.builder("livro.leituras.compartilhadas")
+                .description("Leituras respondidas com o resultado de uma leitura idêntica que já estava em andamento")
+                .register(meterRegistry);
+        this.expiradas = Counter.builder("livro.leituras.expiradas")
+                .description("Esperas por uma leitura em andamento que passaram de livro.leituras.espera-maxima")
+                .register(meterRegistry);
+        Gauge.builder("livro.leituras.em-andamento", emAndamento, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    /**
+     * Executa {@code leitura} ou espera a que já está em andamento com a mesma chave. A chave deve identificar a
+     * leitura por completo (o método e todos os parâmetros) e ter {@code equals} e {@code hashCode}, como um record.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(Object chave, Supplier<T> leitura) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return leitura.get();
+        }
+        CompletableFuture<Object> nova = new CompletableFuture<>();
+        CompletableFuture<Object> atual = emAndamento.putIfAbsent(chave, nova);
+        if (atual != null) {
+            compartilhadas.increment();
+            return (T) aguardar(atual);
+        }
+        try {
+            T valor = leitura.get();
+            emAndamento.remove(chave, nova);
+            nova.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            emAndamento.remove(chave, nova);
+            nova.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Object aguardar(CompletableFuture<Object> futuro) {
+        try {
+            return futuro.get(esperaMaximaNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            expiradas.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Tempo esgotado aguardando uma leitura idêntica em andamento", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando uma leitura em andamento", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package br.com.api.cache;
+
+import br.com.api.mapper.LivroMapper;
+import br.com.api.model.livro.Livro;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Cache em memória, read-through, dos livros buscados por ID. Tem tamanho máximo e expiração por tempo.
+ * Guarda cópias desanexadas das entidades e sempre devolve uma nova cópia, então quem chama pode alterar o
+ * objeto sem afetar o cache. As métricas (acertos, faltas e remoções) são publicadas no Micrometer com o nome {@code livro}.
+ */
+@Component
+public class LivroCache {
+
+    private final AsyncCache<Long, Livro> cache;
+    private final CanalInvalidacaoLivroCache canalInvalidacao;
+
+    public LivroCache(@Value("${livro.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+                      @Value("${livro.cache.ttl:10m}") Duration ttl,
+                      CanalInvalidacaoLivroCache canalInvalidacao,
+                      MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.canalInvalidacao = canalInvalidacao;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "livro");
+    }
+
+    public Optional<Livro> buscar(Long id, Function<Long, Optional<Livro>> carregador) {
+        Livro livro = CarregamentoNoChamador.obter(cache, id,
+                chave -> carregador.apply(chave).map(LivroMapper::copiar).orElse(null));
+        return Optional.ofNullable(livro).map(LivroMapper::copiar);
+    }
+
+    /**
+     * Como {@link #buscar}, para carregadores assíncronos (o acesso R2DBC do perfil {@code reactive}): o futuro do
+     * carregador fica no cache, então leituras simultâneas do mesmo livro esperam uma única consulta, sem bloquear
+     * nenhuma thread. O carregador completa com {@code null} quando o livro não existe.
+     */
+    public CompletableFuture<Optional<Livro>> buscarAssincrono(Long id,
+                                                               Function<Long, CompletableFuture<Livro>> carregador) {
+        return cache.get(id, (chave, executor) -> carregador.apply(chave)
+                        .thenApply(livro -> livro == null ? null : LivroMapper.copiar(livro)))
+                .thenApply(livro -> Optional.ofNullable(livro).map(LivroMapper::copiar));
+    }
+
+    /**
+     * Versão do livro se ele já estiver carregado no cache, sem consultar o banco nem copiar o livro.
+     */
+    public Optional<Long> versaoEmCache(Long id) {
+        CompletableFuture<Livro> livro = cache.getIfPresent(id);
+        if (livro == null || !livro.isDone() || livro.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(livro.getNow(null)).map(Livro::getVersao);
+    }
+
+    /**
+     * Coloca o livro no cache depois do commit da transação atual, ou imediatamente se não houver transação.
+     */
+    public void atualizar(Livro livro) {
+        Livro copia = LivroMapper.copiar(livro);
+        aposCommit(() -> cache.put(copia.getId(), CompletableFuture.completedFuture(copia)));
+    }
+
+    /**
+     * Remove o livro do cache já e de novo ao fim da transação, para descartar um valor antigo que outra thread
+     * tenha recarregado antes do commit. A invalidação dos demais nós é registrada na própria transação.
+     */
+    public void invalidar(Long id) {
+        cache.synchronous().invalidate(id);
+        canalInvalidacao.publicar(id);
+        aoFimDaTransacao(() -> cache.synchronous().invalidate(id));
+    }
+
+    /**
+     * Como {@link #invalidar}, para vários livros, mas só neste nó: nas cargas em lote os demais nós invalidam a
+     * partir do evento agregado do bloco, sem uma mensagem por livro.
+     */
+    public void invalidarLote(Collection<Long> ids) {
+        List<Long> copia = List.copyOf(ids);
+        cache.synchronous().invalidateAll(copia);
+        aoFimDaTransacao(() -> cache.synchronous().invalidateAll(copia));
+    }
+
+    /**
+     * Remove o livro apenas deste nó; usado ao receber invalidações de outros nós.
+     */
+    public void invalidarLocal(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public CacheStats estatisticas() {
+        return cache.synchronous().stats();
+    }
+
+    private void aoFimDaTransacao(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    acao.run();
+                }
+            });
+        }
+    }
+
+    private void aposCommit(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+}
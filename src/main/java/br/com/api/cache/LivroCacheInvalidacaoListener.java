@@ -0,0 +1,45 @@
+package br.com.api.cache;
+
+import br.com.api.model.evento.LivroEventoCodec;
+import br.com.api.model.evento.LoteLivrosEvento;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import static br.com.api.config.RabbitMQConfig.EXCHANGE_NAME;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_CACHE_INVALIDACAO;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LOTE_ATUALIZADO;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LOTE_REMOVIDO;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "livro.cache.invalidacao", havingValue = "rabbitmq", matchIfMissing = true)
+public class LivroCacheInvalidacaoListener {
+
+    private final LivroCache livroCache;
+    private final LivroEventoCodec livroEventoCodec;
+
+    // fila sem nome: exclusiva deste nó e removida quando ele desconecta
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(value = EXCHANGE_NAME, type = ExchangeTypes.TOPIC),
+            key = ROUTING_KEY_CACHE_INVALIDACAO))
+    public void invalidar(String livroId) {
+        livroCache.invalidarLocal(Long.valueOf(livroId));
+    }
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(value = EXCHANGE_NAME, type = ExchangeTypes.TOPIC),
+            key = {ROUTING_KEY_LOTE_ATUALIZADO, ROUTING_KEY_LOTE_REMOVIDO}))
+    public void invalidarLote(byte[] lote) {
+        livroCache.invalidarLote(livroEventoCodec.decodificarLote(lote).itens().stream()
+                .map(LoteLivrosEvento.Item::livroId)
+                .toList());
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.api.cache;
+
+import br.com.api.model.idempotencia.RespostaIdempotente;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Respostas das escritas com {@code Idempotency-Key} neste nó, na frente da {@code tb_chave_idempotencia}: as
+ * repetições de uma chave já concluída são respondidas sem ir ao banco, e as que chegam enquanto a primeira ainda
+ * executa esperam o mesmo futuro. Só o status, o content type e o corpo ficam em memória, por
+ * {@code livro.idempotencia.ttl}; o mapa do Caffeine já é particionado internamente, sem um lock global. As métricas
+ * são publicadas com o nome {@code livro.idempotencia}.
+ */
+@Component
+public class RespostasIdempotentesCache {
+
+    private final AsyncCache<String, RespostaIdempotente> cache;
+
+    public RespostasIdempotentesCache(@Value("${livro.idempotencia.tamanho-maximo:10000}") long tamanhoMaximo,
+                                      @Value("${livro.idempotencia.ttl:24h}") Duration ttl,
+                                      MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "livro.idempotencia");
+    }
+
+    /**
+     * Futuro da resposta da chave. Se for o próprio {@code nova}, a chave estava livre e quem chamou deve executar a
+     * escrita e completá-lo; completar com {@code null} remove a chave, e quem esperava tenta de novo.
+     */
+    public CompletableFuture<RespostaIdempotente> obter(String chave, CompletableFuture<RespostaIdempotente> nova) {
+        return cache.get(chave, (k, executor) -> nova);
+    }
+}
@@ -0,0 +1,122 @@
+package br.com.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Primário e réplica de leitura, ativado por {@code livro.datasource.replica.url}; sem ela o Spring Boot cria o
+ * {@code DataSource} único de sempre. Cada banco tem o seu pool do Hikari, configurado por
+ * {@code spring.datasource.hikari.*} e {@code livro.datasource.replica.hikari.*}.
+ *
+ * <p>O {@code DataSource} usado pelo JPA, pelo Flyway e pelo {@code JdbcTemplate} é um
+ * {@link LazyConnectionDataSourceProxy}: a conexão real só é obtida no primeiro comando, quando a transação já marcou
+ * a conexão como somente leitura. Transações {@code readOnly} (as consultas dos repositórios fora de uma transação de
+ * escrita, as buscas paginadas e por cursor) vão para a {@link ReplicaLeitura}; as demais, para o primário. Com
+ * {@code spring.jpa.open-in-view} ligado o {@code EntityManager} da requisição seguraria a primeira conexão, da
+ * réplica, para as escritas seguintes, então a aplicação não sobe se ele não estiver desligado.
+ *
+ * <p>Além das métricas {@code hikaricp.*} dos dois pools, {@code livro.datasource.saturacao} mostra, por pool, a
+ * fração das conexões em uso.
+ */
+@Configuration
+@ConditionalOnProperty(name = "livro.datasource.replica.url")
+public class DataSourceConfig {
+
+    /**
+     * Segundos desde a última transação aplicada numa réplica do PostgreSQL, se ainda há WAL recebido por aplicar; 0
+     * no primário e na réplica em dia. Sem escritas no primário, a última transação aplicada envelhece sem que a
+     * réplica esteja atrasada.
+     */
+    static final String ATRASO_REPLICA_POSTGRES = "select coalesce(case "
+            + "when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 "
+            + "else extract(epoch from now() - pg_last_xact_replay_timestamp()) end, 0)";
+
+    public DataSourceConfig(@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        if (openInView) {
+            throw new IllegalStateException("spring.jpa.open-in-view deve ser false com livro.datasource.replica.url: "
+                    + "o EntityManager da requisição manteria a conexão da réplica para as escritas");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primario = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primario.setPoolName("livro-primario");
+        return primario;
+    }
+
+    @Bean
+    @ConfigurationProperties("livro.datasource.replica.hikari")
+    public HikariDataSource dataSourceReplica(@Value("${livro.datasource.replica.url}") String url,
+                                              @Value("${livro.datasource.replica.usuario:}") String usuario,
+                                              @Value("${livro.datasource.replica.senha:}") String senha) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(usuario)
+                .password(senha)
+                .build();
+        replica.setPoolName("livro-replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReplicaLeitura replicaLeitura(@Qualifier("dataSourceReplica") HikariDataSource replica,
+                                         @Qualifier("dataSourcePrimario") HikariDataSource primario,
+                                         @Value("${livro.datasource.replica.consulta-atraso:"
+                                                 + ATRASO_REPLICA_POSTGRES + "}") String consultaAtraso,
+                                         @Value("${livro.datasource.replica.atraso-maximo:2s}") Duration atrasoMaximo,
+                                         MeterRegistry meterRegistry) {
+        return new ReplicaLeitura(replica, primario, consultaAtraso, atrasoMaximo, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimario") HikariDataSource primario,
+                                 ReplicaLeitura replicaLeitura) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primario);
+        dataSource.setReadOnlyDataSource(replicaLeitura);
+        return dataSource;
+    }
+
+    @Bean
+    public MeterBinder saturacaoPools(@Qualifier("dataSourcePrimario") HikariDataSource primario,
+                                      @Qualifier("dataSourceReplica") HikariDataSource replica) {
+        return registry -> {
+            saturacao(registry, primario);
+            saturacao(registry, replica);
+        };
+    }
+
+    private static void saturacao(MeterRegistry registry, HikariDataSource pool) {
+        Gauge.builder("livro.datasource.saturacao", pool, DataSourceConfig::emUso)
+                .description("Fração das conexões do pool em uso; perto de 1, as requisições esperam na fila do Hikari")
+                .tag("pool", pool.getPoolName())
+                .register(registry);
+    }
+
+    private static double emUso(HikariDataSource pool) {
+        HikariPoolMXBean estado = pool.getHikariPoolMXBean();
+        return estado == null ? 0 : (double) estado.getActiveConnections() / pool.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,25 @@
+package br.com.api.config;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads criadas pela própria API, fora do Tomcat e do agendador do Spring (faixas do consumidor de eventos, envio de
+ * e-mails, atualização das chaves JWK e reconstrução do índice de busca). Com {@code spring.threads.virtual.enabled}
+ * (perfil {@code virtual-threads}) elas também são virtuais; caso contrário, são threads de plataforma daemon.
+ */
+public final class FabricaThreads {
+
+    private FabricaThreads() {
+    }
+
+    public static ThreadFactory criar(String prefixo, boolean virtuais) {
+        if (virtuais) {
+            return Thread.ofVirtual().name(prefixo, 1).factory();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefixo);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
@@ -0,0 +1,168 @@
+package br.com.api.config;
+
+import br.com.api.cache.RespostasIdempotentesCache;
+import br.com.api.model.idempotencia.ChaveIdempotencia;
+import br.com.api.model.idempotencia.RespostaIdempotente;
+import br.com.api.service.IdempotenciaService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Idempotência das escritas em {@code /livro} (POST, PUT e DELETE) enviadas com o header {@code Idempotency-Key}.
+ * A primeira requisição com uma chave é executada e sua resposta fica gravada por {@code livro.idempotencia.ttl}; as
+ * repetições do mesmo usuário com a mesma chave recebem essa resposta, com o header {@code Idempotent-Replayed}, sem
+ * passar pelo controller. Repetições que chegam enquanto a primeira executa esperam por ela no mesmo nó e recebem
+ * 409 se ela estiver em outro nó. Respostas 5xx e exceções liberam a chave para uma nova tentativa.
+ *
+ * <p>Roda depois do filtro do Spring Security, então as chaves são separadas por usuário autenticado. Reaproveitar
+ * uma chave em outro método ou caminho resulta em 422.
+ */
+@Component
+@Profile("!reactive")
+public class FiltroIdempotencia extends OncePerRequestFilter {
+
+    public static final String HEADER_CHAVE = "Idempotency-Key";
+    public static final String HEADER_REPETIDA = "Idempotent-Replayed";
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 128;
+    private static final Set<String> METODOS = Set.of(HttpMethod.POST.name(), HttpMethod.PUT.name(),
+            HttpMethod.DELETE.name());
+
+    private final IdempotenciaService idempotenciaService;
+    private final RespostasIdempotentesCache respostasIdempotentesCache;
+
+    public FiltroIdempotencia(IdempotenciaService idempotenciaService,
+                              RespostasIdempotentesCache respostasIdempotentesCache) {
+        this.idempotenciaService = idempotenciaService;
+        this.respostasIdempotentesCache = respostasIdempotentesCache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(HEADER_CHAVE) == null
+                || !METODOS.contains(request.getMethod())
+                || !request.getRequestURI().startsWith(request.getContextPath() + "/livro/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String chaveCliente = request.getHeader(HEADER_CHAVE);
+        if (chaveCliente.isBlank() || chaveCliente.length() > TAMANHO_MAXIMO_CHAVE) {
+            erro(response, HttpStatus.BAD_REQUEST, HEADER_CHAVE + " deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE
+                    + " caracteres");
+            return;
+        }
+        String chave = usuario() + ":" + chaveCliente;
+        String requisicao = request.getMethod() + " " + request.getRequestURI();
+
+        while (true) {
+            CompletableFuture<RespostaIdempotente> nova = new CompletableFuture<>();
+            CompletableFuture<RespostaIdempotente> atual = respostasIdempotentesCache.obter(chave, nova);
+            if (atual == nova) {
+                executar(chave, requisicao, request, response, chain, nova);
+                return;
+            }
+            // a execução em andamento falhou ou não pôde ser feita: a chave foi removida e esta requisição tenta de novo
+            RespostaIdempotente resposta = atual.exceptionally(e -> null).join();
+            if (resposta != null) {
+                repetir(resposta, requisicao, response);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Executa a escrita, ou repete a resposta já gravada no banco por outro nó, e completa {@code nova} com o que pode
+     * ser repetido; {@code null} quando nada foi gravado.
+     */
+    private void executar(String chave, String requisicao, HttpServletRequest request, HttpServletResponse response,
+                          FilterChain chain, CompletableFuture<RespostaIdempotente> nova)
+            throws ServletException, IOException {
+        RespostaIdempotente resposta = null;
+        try {
+            Optional<ChaveIdempotencia> existente = idempotenciaService.reservar(chave, requisicao);
+            if (existente.isPresent()) {
+                if (existente.get().concluida()) {
+                    resposta = existente.get().resposta();
+                    repetir(resposta, requisicao, response);
+                } else {
+                    erro(response, HttpStatus.CONFLICT, "Requisição com esta " + HEADER_CHAVE + " ainda em execução");
+                }
+                return;
+            }
+            resposta = executarEscrita(chave, requisicao, request, response, chain);
+        } finally {
+            nova.complete(resposta);
+        }
+    }
+
+    private RespostaIdempotente executarEscrita(String chave, String requisicao, HttpServletRequest request,
+                                                HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper resposta = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, resposta);
+        } catch (ServletException | IOException | RuntimeException | Error e) {
+            idempotenciaService.liberar(chave);
+            throw e;
+        }
+        int status = resposta.getStatus();
+        RespostaIdempotente gravada = null;
+        if (status < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            gravada = new RespostaIdempotente(requisicao, status, resposta.getContentType(),
+                    resposta.getContentAsByteArray());
+            idempotenciaService.concluir(chave, gravada);
+        } else {
+            idempotenciaService.liberar(chave);
+        }
+        resposta.copyBodyToResponse();
+        return gravada;
+    }
+
+    private static void repetir(RespostaIdempotente resposta, String requisicao, HttpServletResponse response)
+            throws IOException {
+        if (!resposta.requisicao().equals(requisicao)) {
+            erro(response, HttpStatus.UNPROCESSABLE_ENTITY, HEADER_CHAVE + " já usada em " + resposta.requisicao());
+            return;
+        }
+        response.setStatus(resposta.status());
+        response.setHeader(HEADER_REPETIDA, "true");
+        if (resposta.contentType() != null) {
+            response.setContentType(resposta.contentType());
+        }
+        if (resposta.corpo() != null) {
+            response.setContentLength(resposta.corpo().length);
+            response.getOutputStream().write(resposta.corpo());
+        }
+    }
+
+    private static void erro(HttpServletResponse response, HttpStatus status, String mensagem) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(mensagem);
+    }
+
+    private static String usuario() {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        return autenticacao != null ? autenticacao.getName() : "";
+    }
+}
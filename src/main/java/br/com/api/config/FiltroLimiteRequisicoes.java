@@ -0,0 +1,66 @@
+package br.com.api.config;
+
+import br.com.api.limite.CategoriaLimite;
+import br.com.api.limite.LimitadorRequisicoes;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Aplica o {@link LimitadorRequisicoes} às requisições autenticadas de {@code /livro}: acima do limite, responde 429
+ * com {@code Retry-After} sem chegar ao controller. Roda depois do Spring Security, que já identificou o usuário, e
+ * antes do {@link FiltroIdempotencia}, para que as requisições recusadas não reservem chaves no banco.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class FiltroLimiteRequisicoes extends OncePerRequestFilter {
+
+    private final LimitadorRequisicoes limitadorRequisicoes;
+
+    public FiltroLimiteRequisicoes(LimitadorRequisicoes limitadorRequisicoes) {
+        this.limitadorRequisicoes = limitadorRequisicoes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !limitadorRequisicoes.isHabilitado();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        CategoriaLimite categoria = CategoriaLimite.de(request.getMethod(),
+                request.getRequestURI().substring(request.getContextPath().length()));
+        if (autenticacao == null || !autenticacao.isAuthenticated() || categoria == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Duration espera = limitadorRequisicoes.admitir(autenticacao.getName(), categoria);
+        if (!espera.isZero()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(LimitadorRequisicoes.segundos(espera)));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("Limite de requisições excedido");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.api.config;
+
+import br.com.api.limite.CategoriaLimite;
+import br.com.api.limite.LimitadorRequisicoes;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * O {@link FiltroLimiteRequisicoes} no perfil {@code reactive}. Roda depois da cadeia do Spring Security, então o
+ * usuário já está no {@code exchange}.
+ */
+@Component
+@Profile("reactive")
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class FiltroLimiteRequisicoesReativo implements WebFilter {
+
+    private final LimitadorRequisicoes limitadorRequisicoes;
+
+    public FiltroLimiteRequisicoesReativo(LimitadorRequisicoes limitadorRequisicoes) {
+        this.limitadorRequisicoes = limitadorRequisicoes;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        CategoriaLimite categoria = CategoriaLimite.de(request.getMethod().name(),
+                request.getPath().pathWithinApplication().value());
+        if (!limitadorRequisicoes.isHabilitado() || categoria == null) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .filter(principal -> principal instanceof Authentication autenticacao && autenticacao.isAuthenticated())
+                .map(principal -> limitadorRequisicoes.admitir(principal.getName(), categoria))
+                .defaultIfEmpty(Duration.ZERO)
+                .flatMap(espera -> espera.isZero() ? chain.filter(exchange) : recusar(exchange.getResponse(), espera));
+    }
+
+    private static Mono<Void> recusar(ServerHttpResponse response, Duration espera) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(LimitadorRequisicoes.segundos(espera)));
+        response.getHeaders().setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+        DataBuffer corpo = response.bufferFactory()
+                .wrap("Limite de requisições excedido".getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(corpo));
+    }
+}
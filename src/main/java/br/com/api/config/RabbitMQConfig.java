@@ -1,19 +1,50 @@
 package br.com.api.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.ExchangeBuilder;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
     public static final String EXCHANGE_NAME = "livroExchange";
     public static final String QUEUE_NAME = "livroQueue";
-    public static final String ROUTING_KEY = "livro.key";
+    public static final String DEAD_LETTER_EXCHANGE_NAME = "livroExchange.dlx";
+    public static final String DEAD_LETTER_QUEUE_NAME = "livroQueue.dlq";
+
+    // uma routing key por tipo de evento, para que cada consumidor assine só o que precisa
+    public static final String ROUTING_KEY_LIVRO_CRIADO = "livro.criado";
+    public static final String ROUTING_KEY_LIVRO_ATUALIZADO = "livro.atualizado";
+    public static final String ROUTING_KEY_LIVRO_REMOVIDO = "livro.removido";
+    public static final String ROUTING_KEY_LIVRO_ALUGADO = "livro.alugado";
+    public static final String ROUTING_KEY_LIVRO_DEVOLVIDO = "livro.devolvido";
+    public static final List<String> ROUTING_KEYS_EVENTOS_LIVRO = List.of(
+            ROUTING_KEY_LIVRO_CRIADO,
+            ROUTING_KEY_LIVRO_ATUALIZADO,
+            ROUTING_KEY_LIVRO_REMOVIDO,
+            ROUTING_KEY_LIVRO_ALUGADO,
+            ROUTING_KEY_LIVRO_DEVOLVIDO);
+
+    // um evento agregado por bloco das cargas em lote (/livro/lote)
+    public static final String ROUTING_KEY_LOTE_CRIADO = "livro.lote.criado";
+    public static final String ROUTING_KEY_LOTE_ATUALIZADO = "livro.lote.atualizado";
+    public static final String ROUTING_KEY_LOTE_REMOVIDO = "livro.lote.removido";
+
+    public static final String ROUTING_KEY_CACHE_INVALIDACAO = "livro.cache.invalidacao";
 
     @Bean
     public TopicExchange livroExchange() {
@@ -22,15 +53,69 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    /**
+     * Mensagens rejeitadas pelo consumidor (evento ilegível ou com erro no processamento) vão para a
+     * {@link #DEAD_LETTER_QUEUE_NAME}. Como os argumentos de uma fila não mudam depois de criada, num broker onde a
+     * livroQueue já existe sem dead-letter é preciso removê-la (ou aplicar uma policy) antes de subir esta versão.
+     * A fila tem um único consumidor ativo por vez: com vários nós, os demais ficam de reserva e a ordem por livro
+     * se mantém.
+     */
     @Bean
     public Queue livroQueue() {
-        return new Queue(QUEUE_NAME, true);
+        return QueueBuilder.durable(QUEUE_NAME)
+                .singleActiveConsumer()
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE_NAME)
+                .deadLetterRoutingKey(DEAD_LETTER_QUEUE_NAME)
+                .build();
+    }
+
+    @Bean
+    public DirectExchange livroDeadLetterExchange() {
+        return ExchangeBuilder.directExchange(DEAD_LETTER_EXCHANGE_NAME)
+                .durable(true)
+                .build();
+    }
+
+    @Bean
+    public Queue livroDeadLetterQueue() {
+        return QueueBuilder.durable(DEAD_LETTER_QUEUE_NAME).build();
+    }
+
+    @Bean
+    public Binding livroDeadLetterBinding(Queue livroDeadLetterQueue, DirectExchange livroDeadLetterExchange) {
+        return BindingBuilder.bind(livroDeadLetterQueue).to(livroDeadLetterExchange).with(DEAD_LETTER_QUEUE_NAME);
+    }
+
+    @Bean
+    public Declarables bindings(Queue livroQueue, TopicExchange livroExchange) {
+        return new Declarables(ROUTING_KEYS_EVENTOS_LIVRO.stream()
+                .map(routingKey -> BindingBuilder.bind(livroQueue).to(livroExchange).with(routingKey))
+                .toList());
     }
 
+    /**
+     * Fábrica dos containers que consomem os eventos de livro: entrega em lotes, prefetch alto e ack manual, feito
+     * pelo listener depois que o lote inteiro é processado. Um único consumidor recebe os lotes; o paralelismo fica nas
+     * faixas do listener, que preservam a ordem por livro.
+     */
     @Bean
-    public Binding binding(Queue livroQueue, TopicExchange livroExchange) {
-        return BindingBuilder.bind(livroQueue)
-                .to(livroExchange)
-                .with(ROUTING_KEY);
+    public SimpleRabbitListenerContainerFactory livroEventosContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${livro.eventos.consumidor.prefetch:1000}") int prefetch,
+            @Value("${livro.eventos.consumidor.tamanho-lote:500}") int tamanhoLote,
+            @Value("${livro.eventos.consumidor.espera-lote-ms:50}") long esperaLote) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(prefetch);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tamanhoLote);
+        factory.setReceiveTimeout(esperaLote);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setDefaultRequeueRejected(false);
+        return factory;
     }
 }
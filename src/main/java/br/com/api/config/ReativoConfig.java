@@ -0,0 +1,82 @@
+package br.com.api.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.ReactiveSortHandlerMethodArgumentResolver;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Infraestrutura do perfil {@code reactive}: servidor Netty, resolução de {@code Pageable} e {@code Sort} nos
+ * controllers do WebFlux e o pool de conexões R2DBC. O tamanho de página é limitado pela mesma propriedade do modo
+ * servlet, {@code spring.data.web.pageable.max-page-size}.
+ *
+ * <p>O pool não é registrado como {@code ConnectionFactory} nem ganha um {@code ReactiveTransactionManager} no
+ * contexto: o primeiro faria o Spring Boot desistir do {@code DataSource} JDBC e o segundo, do gerenciador de
+ * transações do JPA, que continuam em uso. Só o {@link DatabaseClient} é um bean; as transações reativas são abertas
+ * a partir dele pelo {@code LivroReativoService}.
+ */
+@Configuration
+@Profile("reactive")
+public class ReativoConfig implements WebFluxConfigurer {
+
+    private final int tamanhoMaximoPagina;
+    private ConnectionPool pool;
+
+    public ReativoConfig(@Value("${spring.data.web.pageable.max-page-size:2000}") int tamanhoMaximoPagina) {
+        this.tamanhoMaximoPagina = tamanhoMaximoPagina;
+    }
+
+    /**
+     * Com o Tomcat no classpath por causa do modo servlet, o Spring Boot o escolheria também para o WebFlux.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(@Value("${livro.reativo.r2dbc.url}") String url,
+                                         @Value("${livro.reativo.r2dbc.usuario:}") String usuario,
+                                         @Value("${livro.reativo.r2dbc.senha:}") String senha,
+                                         @Value("${livro.reativo.r2dbc.pool.tamanho-maximo:20}") int tamanhoMaximo,
+                                         @Value("${livro.reativo.r2dbc.pool.espera-maxima:5s}") Duration esperaMaxima) {
+        ConnectionFactoryOptions opcoes = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, usuario)
+                .option(ConnectionFactoryOptions.PASSWORD, senha)
+                .build();
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(opcoes))
+                .name("livro-r2dbc")
+                .initialSize(Math.min(2, tamanhoMaximo))
+                .maxSize(tamanhoMaximo)
+                .maxAcquireTime(esperaMaxima)
+                .build());
+        return DatabaseClient.create(pool);
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        ReactivePageableHandlerMethodArgumentResolver pageable = new ReactivePageableHandlerMethodArgumentResolver();
+        pageable.setMaxPageSize(tamanhoMaximoPagina);
+        configurer.addCustomResolver(new ReactiveSortHandlerMethodArgumentResolver(), pageable);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (pool != null) {
+            pool.dispose();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package br.com.api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Pool da réplica de leitura, usado pelas transações somente leitura, que passa a entregar conexões do primário
+ * enquanto a réplica estiver fora do ar ou atrasada mais que {@code livro.datasource.replica.atraso-maximo}. O atraso
+ * é medido a cada {@code livro.datasource.replica.verificacao-ms} pela {@code livro.datasource.replica.consulta-atraso},
+ * que devolve os segundos de atraso; uma falha ao obter conexão da réplica também a tira de uso até a verificação
+ * seguinte. As leituras desviadas são contadas em {@code livro.datasource.replica.desvios} e o último atraso medido
+ * fica em {@code livro.datasource.replica.atraso}.
+ */
+@Slf4j
+public class ReplicaLeitura extends DelegatingDataSource {
+
+    private final DataSource primario;
+    private final String consultaAtraso;
+    private final double atrasoMaximoSegundos;
+    private final Counter desvios;
+    private volatile boolean disponivel = true;
+    private volatile double atrasoSegundos;
+
+    public ReplicaLeitura(DataSource replica, DataSource primario, String consultaAtraso, Duration atrasoMaximo,
+                          MeterRegistry meterRegistry) {
+        super(replica);
+        this.primario = primario;
+        this.consultaAtraso = consultaAtraso;
+        this.atrasoMaximoSegundos = atrasoMaximo.toMillis() / 1000.0;
+        this.desvios = Counter.builder("livro.datasource.replica.desvios")
+                .description("Conexões somente leitura entregues pelo primário com a réplica atrasada ou fora do ar")
+                .register(meterRegistry);
+        Gauge.builder("livro.datasource.replica.atraso", this, r -> r.atrasoSegundos)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isDisponivel() {
+        return disponivel;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (disponivel) {
+            try {
+                return super.getConnection();
+            } catch (SQLException e) {
+                tirarDeUso("falha ao obter conexão", e);
+            }
+        }
+        desvios.increment();
+        return primario.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String senha) throws SQLException {
+        return getConnection();
+    }
+
+    @Scheduled(initialDelayString = "${livro.datasource.replica.verificacao-ms:5000}",
+            fixedDelayString = "${livro.datasource.replica.verificacao-ms:5000}")
+    public void verificar() {
+        try (Connection conexao = obtainTargetDataSource().getConnection();
+             Statement comando = conexao.createStatement();
+             ResultSet resultado = comando.executeQuery(consultaAtraso)) {
+            atrasoSegundos = resultado.next() ? resultado.getDouble(1) : 0;
+        } catch (SQLException e) {
+            tirarDeUso("falha ao medir o atraso", e);
+            return;
+        }
+        boolean emDia = atrasoSegundos <= atrasoMaximoSegundos;
+        if (emDia != disponivel) {
+            log.warn(emDia ? "Réplica de leitura em uso novamente (atraso de {} s)"
+                    : "Réplica de leitura atrasada em {} s; leituras enviadas ao primário", atrasoSegundos);
+        }
+        disponivel = emDia;
+    }
+
+    private void tirarDeUso(String motivo, SQLException e) {
+        if (disponivel) {
+            log.warn("Réplica de leitura fora de uso ({}); leituras enviadas ao primário", motivo, e);
+        }
+        disponivel = false;
+    }
+}
@@ -1,72 +1,150 @@
 package br.com.api.config;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.api.cache.AutenticacaoJwtCache;
+import br.com.api.cache.ChavesJwkCache;
+import br.com.api.model.usuario.UsuarioAutenticado;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.security.config.annotation.web.configurers.oauth2.server.resource.OAuth2ResourceServerConfigurer;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import com.nimbusds.jose.shaded.gson.internal.LinkedTreeMap;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 @Configuration
-@EnableWebSecurity
-@EnableMethodSecurity
 public class SecurityConfig {
 
-    @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        http
-                .authorizeHttpRequests((authorize) -> authorize
-                        .requestMatchers("/v3/api-docs/**", "/swagger-ui/**").permitAll()
-                        .requestMatchers("/h2-console/**").permitAll()
-                        .anyRequest().authenticated()
-                )
-                .csrf(csrf ->  csrf.disable())
-                .headers(headers -> headers.frameOptions().disable())
-                .oauth2ResourceServer(OAuth2ResourceServerConfigurer::jwt);
-        return http.build();
+    /**
+     * Uma instância por papel, reaproveitada por todos os tokens.
+     */
+    private static final ConcurrentMap<String, GrantedAuthority> AUTORIDADES = new ConcurrentHashMap<>();
+
+    /**
+     * Caminhos liberados sem token nos dois modos; todo o resto exige um token válido. O health e o prometheus ficam
+     * abertos para as sondas e para a coleta do Prometheus; o /actuator/metrics continua exigindo token.
+     */
+    private static final String[] ROTAS_PUBLICAS = {"/v3/api-docs/**", "/swagger-ui/**", "/h2-console/**",
+            "/actuator/health/**", "/actuator/prometheus"};
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @EnableWebSecurity
+    @EnableMethodSecurity
+    static class Servlet {
+
+        @Bean
+        public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                       JwtDecoder jwtDecoder,
+                                                       AutenticacaoJwtCache autenticacaoJwtCache) throws Exception {
+            JwtAuthenticationProvider provedor = provedor(jwtDecoder);
+            http
+                    .authorizeHttpRequests((authorize) -> authorize
+                            .requestMatchers(ROTAS_PUBLICAS).permitAll()
+                            .anyRequest().authenticated()
+                    )
+                    .csrf(csrf ->  csrf.disable())
+                    .headers(headers -> headers.frameOptions().disable())
+                    .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.authenticationManager(autenticacao ->
+                            autenticacaoJwtCache.autenticar((BearerTokenAuthenticationToken) autenticacao, provedor))));
+            return http.build();
+        }
     }
 
-    @Bean
-    JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withJwkSetUri("http://localhost:8080/realms/app-livros/protocol/openid-connect/certs").build();
+    /**
+     * Mesmas regras para o perfil {@code reactive}. A autenticação passa pelo mesmo {@link AutenticacaoJwtCache}; como
+     * a validação de um token novo pode esperar pelas chaves do Keycloak, ela roda no {@code boundedElastic}, fora das
+     * threads do Netty.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @EnableWebFluxSecurity
+    @EnableReactiveMethodSecurity
+    static class Reativo {
+
+        @Bean
+        public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                             JwtDecoder jwtDecoder,
+                                                             AutenticacaoJwtCache autenticacaoJwtCache) {
+            JwtAuthenticationProvider provedor = provedor(jwtDecoder);
+            http
+                    .authorizeExchange(authorize -> authorize
+                            .pathMatchers(ROTAS_PUBLICAS).permitAll()
+                            .anyExchange().authenticated()
+                    )
+                    .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                    .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt.authenticationManager(autenticacao ->
+                            Mono.fromCallable(() -> autenticacaoJwtCache.autenticar(
+                                            (BearerTokenAuthenticationToken) autenticacao, provedor))
+                                    .subscribeOn(Schedulers.boundedElastic()))));
+            return http.build();
+        }
     }
 
+    /**
+     * Valida a assinatura com as chaves do {@link ChavesJwkCache}, que nunca faz a requisição esperar pelo Keycloak
+     * enquanto houver chaves conhecidas.
+     */
     @Bean
-    public JwtAuthenticationConverter jwtAuthenticationConverterForKeycloak() {
-        Converter<Jwt, Collection<GrantedAuthority>> jwtGrantedAuthoritiesConverter = jwt -> {
-            Map<String, Object> resourceAccess = jwt.getClaim("resource_access");
-            Object client = resourceAccess.get("app-livros");
-            LinkedTreeMap<String, List<String>> clientRoleMap = (LinkedTreeMap<String, List<String>>) client;
-            if (clientRoleMap == null) {
-                return null;
-            }
-            List<String> clientRoles = new ArrayList<>(clientRoleMap.get("roles"));
-            return clientRoles.stream()
-                    .map(SimpleGrantedAuthority::new)
-                    .collect(Collectors.toList());
-        };
-
-        JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
-        jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwtGrantedAuthoritiesConverter);
-        return jwtAuthenticationConverter;
+    public JwtDecoder jwtDecoder(ChavesJwkCache chavesJwkCache) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, chavesJwkCache));
+        // exp, nbf e demais claims são validados pelo NimbusJwtDecoder
+        jwtProcessor.setJWTClaimsSetVerifier((claims, contexto) -> {
+        });
+        return new NimbusJwtDecoder(jwtProcessor);
+    }
+
+    private static JwtAuthenticationProvider provedor(JwtDecoder jwtDecoder) {
+        JwtAuthenticationProvider provedor = new JwtAuthenticationProvider(jwtDecoder);
+        provedor.setJwtAuthenticationConverter(jwtAuthenticationConverterForKeycloak());
+        return provedor;
+    }
+
+    /**
+     * Converte o token nas autoridades do cliente {@code app-livros} no Keycloak e no usuário logado. O resultado fica
+     * no {@link AutenticacaoJwtCache}, então a conversão acontece uma vez por token. Não é um bean para não ser
+     * registrado como conversor do Spring MVC.
+     */
+    public static Converter<Jwt, UsuarioAutenticado> jwtAuthenticationConverterForKeycloak() {
+        return jwt -> new UsuarioAutenticado(jwt, autoridades(jwt));
+    }
+
+    private static List<GrantedAuthority> autoridades(Jwt jwt) {
+        if (!(jwt.getClaims().get("resource_access") instanceof Map<?, ?> resourceAccess)
+                || !(resourceAccess.get("app-livros") instanceof Map<?, ?> cliente)
+                || !(cliente.get("roles") instanceof List<?> papeis)) {
+            return List.of();
+        }
+        return papeis.stream()
+                .map(papel -> AUTORIDADES.computeIfAbsent(papel.toString(), SimpleGrantedAuthority::new))
+                .toList();
     }
 
 }
@@ -0,0 +1,91 @@
+package br.com.api.controller;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * ETags e {@code Cache-Control} das leituras de livros, usados pelos dois controllers. Um livro tem ETag forte, formada
+ * pelo ID e pela versão ({@code @Version}), então a comparação com o {@code If-None-Match} dispensa carregar o livro.
+ * Páginas têm ETag fraca, um hash do conteúdo e do total: a página é consultada, mas não é serializada quando o
+ * cliente já a tem. O {@code Cache-Control} é privado e, com {@code livro.http.cache.max-age} zero (padrão), obriga o
+ * cliente a revalidar a cada uso.
+ */
+@Component
+public class CacheHttp {
+
+    private final CacheControl cacheControl;
+
+    public CacheHttp(@Value("${livro.http.cache.max-age:0s}") Duration maxAge) {
+        this.cacheControl = maxAge.isZero()
+                ? CacheControl.noCache().cachePrivate()
+                : CacheControl.maxAge(maxAge).cachePrivate().mustRevalidate();
+    }
+
+    public static String etag(Livro livro) {
+        return etag(livro.getId(), livro.getVersao());
+    }
+
+    public static String etag(Long id, Long versao) {
+        return "\"" + id + "-" + versao + "\"";
+    }
+
+    /**
+     * ETag fraca de uma página de livros; {@code extras} são os demais dados da resposta, como o total ou o próximo
+     * cursor.
+     */
+    public static String etagFraca(List<LivroDto> livros, Object... extras) {
+        long hash = 1125899906842597L;
+        for (LivroDto livro : livros) {
+            hash = misturar(hash, livro.getId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn(),
+                    livro.getDisponivel(), livro.getUuidUsuarioKeycloak());
+        }
+        hash = misturar(hash, extras);
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Comparação fraca do {@code If-None-Match} (RFC 9110, 13.1.2): vale qualquer ETag da lista, forte ou fraca, e
+     * {@code *}.
+     */
+    public static boolean naoModificado(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaca = semPrefixoFraco(etag);
+        for (String candidata : ifNoneMatch.split(",")) {
+            candidata = candidata.trim();
+            if (candidata.equals("*") || semPrefixoFraco(candidata).equals(opaca)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public <T> ResponseEntity<T> ok(T corpo, String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(corpo);
+    }
+
+    public <T> ResponseEntity<T> naoModificado(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+    }
+
+    private static long misturar(long hash, Object... valores) {
+        for (Object valor : valores) {
+            hash = (hash ^ Objects.hashCode(valor)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static String semPrefixoFraco(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
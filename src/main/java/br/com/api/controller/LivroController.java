@@ -1,74 +1,185 @@
 package br.com.api.controller;
 
 import br.com.api.mapper.LivroMapper;
+import br.com.api.model.emprestimo.RegistroEmprestimoDto;
 import br.com.api.model.livro.Livro;
 import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroEncontrado;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.lote.ResultadoLote;
+import br.com.api.model.paginacao.CursorLivro;
+import br.com.api.model.paginacao.PaginaCursor;
+import br.com.api.service.LivroExportacaoService;
+import br.com.api.service.LivroLoteService;
 import br.com.api.service.LivroService;
+import br.com.api.service.MetricasAluguel;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @RestController
 @RequestMapping(value = "/livro", path = "/livro")
 @RequiredArgsConstructor
+@Profile("!reactive")
 @Tag(description = "Dados do livro", name = "Dados de livro")
 public class LivroController {
 
+    private static final int TAMANHO_MAXIMO_PAGINA = 2000;
+    private static final int TAMANHO_MAXIMO_BUSCA = 100;
+
     private final LivroService livroService;
+    private final LivroExportacaoService livroExportacaoService;
+    private final LivroLoteService livroLoteService;
+    private final ObjectMapper objectMapper;
+    private final MetricasAluguel metricasAluguel;
+    private final CacheHttp cacheHttp;
 
     @GetMapping(path = "/getAll", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasAnyAuthority('Administrador')")
     @Operation(
-            summary = "Retorna a lista de municipios.",
-            description = "Retorna a lista de municipios"
+            summary = "Retorna a lista de livros.",
+            description = "Retorna todos os livros como um array JSON enviado em partes, lote a lote, sem montar a lista em memória."
+    )
+    public ResponseEntity<StreamingResponseBody> getAllLivros() {
+        StreamingResponseBody corpo = outputStream -> {
+            ObjectWriter writer = writerExportacao();
+            try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                livroExportacaoService.exportarLivros(lote -> escreverLote(writer, generator, lote, false));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corpo);
+    }
+
+    @GetMapping(path = "/getAll", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Exporta a lista de livros em NDJSON.",
+            description = "Retorna todos os livros, um JSON por linha, enviados lote a lote."
     )
-    public List<LivroDto> getAllLivros() {
-        return livroService.getAllLivros().stream()
-                .map(LivroMapper::mapToDto)
-                .collect(Collectors.toList());
+    public ResponseEntity<StreamingResponseBody> getAllLivrosNdjson() {
+        StreamingResponseBody corpo = outputStream -> {
+            ObjectWriter writer = writerExportacao();
+            try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                livroExportacaoService.exportarLivros(lote -> escreverLote(writer, generator, lote, true));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(corpo);
     }
 
     @GetMapping(path = "/getAllPage", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasAnyAuthority('Administrador')")
     @Operation(
-            summary = "Lista todos os Municipios.",
-            description = "Retorna a lista de todos os Municipios"
+            summary = "Lista os livros paginados.",
+            description = "Retorna uma página de livros filtrada por título, autor, ISBN e disponibilidade."
     )
-    public Page<LivroDto> getAllPage(
-            Livro livro,
+    public ResponseEntity<Page<LivroDto>> getAllPage(
+            LivroFiltro filtro,
             @PageableDefault
-            @SortDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
-        Page<Livro> page = livroService.getAllPage(livro, pageable);
-        List<LivroDto> livroDtoList = page.getContent().stream()
-                .map(LivroMapper::mapToDto)
-                .collect(Collectors.toList());
-        return new PageImpl<>(livroDtoList, pageable, page.getTotalElements());
+            @SortDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Page<LivroDto> pagina = livroService.getAllPage(filtro, pageable);
+        String etag = CacheHttp.etagFraca(pagina.getContent(), pagina.getTotalElements(), pagina.getNumber(),
+                pagina.getSize(), pagina.getSort());
+        return CacheHttp.naoModificado(ifNoneMatch, etag) ? cacheHttp.naoModificado(etag) : cacheHttp.ok(pagina, etag);
+    }
+
+    @GetMapping(path = "/getAllCursor", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Lista os livros por cursor.",
+            description = "Mesmos filtros e ordenação padrão do getAllPage, mas sem total de registros e sem OFFSET: "
+                    + "para a próxima página, envie o proximoCursor recebido. Ordenação aceita: id, titulo, autor ou isbn."
+    )
+    public ResponseEntity<PaginaCursor<LivroDto>> getAllCursor(
+            LivroFiltro filtro,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "20") int size,
+            @SortDefault(sort = "id", direction = Sort.Direction.DESC) Sort sort,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (size < 1 || size > TAMANHO_MAXIMO_PAGINA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA);
+        }
+        Sort.Order ordem = sort.iterator().next();
+        CursorLivro cursorLivro;
+        try {
+            CursorLivro.validarOrdenacao(ordem.getProperty());
+            cursorLivro = cursor == null || cursor.isBlank() ? null : CursorLivro.decodificar(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        PaginaCursor<LivroDto> pagina = livroService.getAllCursor(filtro, ordem, cursorLivro, size);
+        String etag = CacheHttp.etagFraca(pagina.conteudo(), pagina.proximoCursor());
+        return CacheHttp.naoModificado(ifNoneMatch, etag) ? cacheHttp.naoModificado(etag) : cacheHttp.ok(pagina, etag);
+    }
+
+    @GetMapping(path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Busca livros por título e autor.",
+            description = "Retorna os livros que contêm todas as palavras de q no título ou no autor, sem diferenciar "
+                    + "maiúsculas nem acentos, do mais ao menos relevante. Com prefixo=true a última palavra também casa "
+                    + "com palavras que começam por ela, para buscas enquanto se digita."
+    )
+    public List<LivroEncontrado> search(
+            @RequestParam("q") String q,
+            @RequestParam(name = "prefixo", defaultValue = "true") boolean prefixo,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (size < 1 || size > TAMANHO_MAXIMO_BUSCA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + TAMANHO_MAXIMO_BUSCA);
+        }
+        return livroService.buscarTexto(q, prefixo, size)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Índice de busca em construção"));
     }
 
     @GetMapping(path = "/get/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasAnyAuthority('Administrador')")
     @Operation(
             summary = "Retorna um Livro.",
-            description = "Retorna um Livro com base no seu ID."
+            description = "Retorna um Livro com base no seu ID. Com If-None-Match igual à ETag da versão atual, responde "
+                    + "304 sem carregar o livro."
     )
-    public ResponseEntity<LivroDto> get(@PathVariable("id") Long id) {
+    public ResponseEntity<LivroDto> get(@PathVariable("id") Long id,
+                                        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etagAtual = livroService.getVersao(id).map(versao -> CacheHttp.etag(id, versao));
+            if (etagAtual.isPresent() && CacheHttp.naoModificado(ifNoneMatch, etagAtual.get())) {
+                return cacheHttp.naoModificado(etagAtual.get());
+            }
+        }
         var livro = livroService.get(id);
-        return livro.map(value -> ResponseEntity.ok(LivroMapper.mapToDto(value))).orElseGet(() -> ResponseEntity.noContent().build());
+        return livro.map(value -> cacheHttp.ok(LivroMapper.mapToDto(value), CacheHttp.etag(value)))
+                .orElseGet(() -> ResponseEntity.noContent().build());
     }
 
     @PostMapping(path = "/save", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -108,6 +219,68 @@ public class LivroController {
                 .orElse(new ResponseEntity<>(HttpStatus.NO_CONTENT));
     }
 
+    @PostMapping(path = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Salvar Livros em lote.",
+            description = "Recebe um array JSON ou NDJSON (um livro por linha) e salva os livros em blocos, lendo o corpo aos "
+                    + "poucos. A resposta traz quantos foram gravados e o motivo de cada falha."
+    )
+    public ResultadoLote saveLote(InputStream corpo) throws IOException {
+        try (MappingIterator<JsonNode> livros = objectMapper.readerFor(JsonNode.class).readValues(corpo)) {
+            return livroLoteService.criar(comItensVazios(livros));
+        }
+    }
+
+    @PutMapping(path = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Alterar Livros em lote.",
+            description = "Recebe um array JSON ou NDJSON de livros, cada um com seu id, e os altera em blocos."
+    )
+    public ResultadoLote updateLote(InputStream corpo) throws IOException {
+        try (MappingIterator<JsonNode> livros = objectMapper.readerFor(JsonNode.class).readValues(corpo)) {
+            return livroLoteService.atualizar(comItensVazios(livros));
+        }
+    }
+
+    @DeleteMapping(path = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Deletar Livros em lote.",
+            description = "Recebe um array JSON ou NDJSON de IDs e remove os livros em blocos."
+    )
+    public ResultadoLote deleteLote(InputStream corpo) throws IOException {
+        try (MappingIterator<Long> ids = objectMapper.readerFor(Long.class).readValues(corpo)) {
+            return livroLoteService.remover(ids);
+        }
+    }
+
+    /**
+     * Converte cada item em {@link LivroDto}; um item {@code null} chega ao serviço como {@code null}, que o recusa como
+     * item vazio. Lido direto como {@link LivroDto}, um {@code null} seria conteúdo inválido e interromperia a leitura.
+     */
+    private Iterator<LivroDto> comItensVazios(Iterator<JsonNode> livros) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return livros.hasNext();
+            }
+
+            @Override
+            public LivroDto next() {
+                try {
+                    return objectMapper.treeToValue(livros.next(), LivroDto.class);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
     @PostMapping("/alugar/{id}")
     @PreAuthorize("hasAnyAuthority('Administrador')")
     @Operation(
@@ -115,7 +288,9 @@ public class LivroController {
             description = "Aluga um livro e envia uma confirmação por e-mail."
     )
     public ResponseEntity<String> alugarLivro(@PathVariable("id") Long id) {
-        return livroService.alugarLivro(id);
+        ResponseEntity<String> resposta = livroService.alugarLivro(id);
+        metricasAluguel.aluguel(resposta.getStatusCode());
+        return resposta;
     }
 
     @PutMapping("/devolver/{id}")
@@ -125,7 +300,56 @@ public class LivroController {
             description = "Devolve um livro e envia uma confirmação por e-mail."
     )
     public ResponseEntity<String> devolverLivro(@PathVariable("id") Long id) {
-        return livroService.devolverLivro(id);
+        ResponseEntity<String> resposta = livroService.devolverLivro(id);
+        metricasAluguel.devolucao(resposta.getStatusCode());
+        return resposta;
+    }
+
+    @GetMapping(path = "/alugados", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Livros alugados.",
+            description = "Retorna os livros alugados no momento pelo usuário informado em usuario (UUID no Keycloak) ou, "
+                    + "sem ele, pelo usuário logado."
+    )
+    public List<LivroDto> getAlugados(@RequestParam(name = "usuario", required = false) String usuario) {
+        return livroService.getAlugados(usuario);
+    }
+
+    @GetMapping(path = "/historico/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Histórico de aluguéis de um Livro.",
+            description = "Retorna os aluguéis e devoluções do livro, do mais recente ao mais antigo. Para a página "
+                    + "seguinte, envie em antesDe o menor id recebido."
+    )
+    public List<RegistroEmprestimoDto> getHistorico(
+            @PathVariable("id") Long id,
+            @RequestParam(name = "antesDe", required = false) Long antesDe,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (size < 1 || size > TAMANHO_MAXIMO_PAGINA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA);
+        }
+        return livroService.getHistorico(id, antesDe, size);
+    }
+
+    private ObjectWriter writerExportacao() {
+        return objectMapper.writerFor(LivroDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private void escreverLote(ObjectWriter writer, JsonGenerator generator, List<LivroDto> lote, boolean ndjson) {
+        try {
+            for (LivroDto livroDto : lote) {
+                writer.writeValue(generator, livroDto);
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            }
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+package br.com.api.controller;
+
+import br.com.api.mapper.LivroMapper;
+import br.com.api.model.emprestimo.RegistroEmprestimoDto;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroEncontrado;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.lote.ResultadoLote;
+import br.com.api.model.paginacao.CursorLivro;
+import br.com.api.model.paginacao.PaginaCursor;
+import br.com.api.service.LivroReativoService;
+import br.com.api.service.MetricasAluguel;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * A API de {@link LivroController} no perfil {@code reactive}: mesmos caminhos, parâmetros, respostas e permissões,
+ * servidos pelo WebFlux. As listagens completas são um {@link Flux} emitido lote a lote, conforme o cliente consome.
+ */
+@RestController
+@RequestMapping(value = "/livro", path = "/livro")
+@RequiredArgsConstructor
+@Profile("reactive")
+@Tag(description = "Dados do livro", name = "Dados de livro")
+public class LivroReativoController {
+
+    private static final int TAMANHO_MAXIMO_PAGINA = 2000;
+    private static final int TAMANHO_MAXIMO_BUSCA = 100;
+
+    private final LivroReativoService livroReativoService;
+    private final MetricasAluguel metricasAluguel;
+    private final CacheHttp cacheHttp;
+
+    @GetMapping(path = "/getAll", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Retorna a lista de livros.",
+            description = "Retorna todos os livros como um array JSON, ou um JSON por linha com Accept: application/x-ndjson, "
+                    + "enviados lote a lote e lidos do banco conforme o cliente consome."
+    )
+    public Flux<LivroDto> getAllLivros() {
+        return livroReativoService.exportarLivros();
+    }
+
+    @GetMapping(path = "/getAllPage", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Lista os livros paginados.",
+            description = "Retorna uma página de livros filtrada por título, autor, ISBN e disponibilidade."
+    )
+    public Mono<ResponseEntity<Page<LivroDto>>> getAllPage(
+            LivroFiltro filtro,
+            @PageableDefault
+            @SortDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return livroReativoService.getAllPage(filtro, pageable)
+                .map(page -> page.map(LivroMapper::mapToDto))
+                .map(pagina -> {
+                    String etag = CacheHttp.etagFraca(pagina.getContent(), pagina.getTotalElements(),
+                            pagina.getNumber(), pagina.getSize(), pagina.getSort());
+                    return CacheHttp.naoModificado(ifNoneMatch, etag)
+                            ? cacheHttp.naoModificado(etag)
+                            : cacheHttp.ok(pagina, etag);
+                });
+    }
+
+    @GetMapping(path = "/getAllCursor", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Lista os livros por cursor.",
+            description = "Mesmos filtros e ordenação padrão do getAllPage, mas sem total de registros e sem OFFSET: "
+                    + "para a próxima página, envie o proximoCursor recebido. Ordenação aceita: id, titulo, autor ou isbn."
+    )
+    public Mono<ResponseEntity<PaginaCursor<LivroDto>>> getAllCursor(
+            LivroFiltro filtro,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "20") int size,
+            @SortDefault(sort = "id", direction = Sort.Direction.DESC) Sort sort,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (size < 1 || size > TAMANHO_MAXIMO_PAGINA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA);
+        }
+        Sort.Order ordem = sort.iterator().next();
+        CursorLivro cursorLivro;
+        try {
+            CursorLivro.validarOrdenacao(ordem.getProperty());
+            cursorLivro = cursor == null || cursor.isBlank() ? null : CursorLivro.decodificar(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return livroReativoService.getAllCursor(filtro, ordem, cursorLivro, size)
+                .map(pagina -> pagina.map(LivroMapper::mapToDtoList))
+                .map(pagina -> {
+                    String etag = CacheHttp.etagFraca(pagina.conteudo(), pagina.proximoCursor());
+                    return CacheHttp.naoModificado(ifNoneMatch, etag)
+                            ? cacheHttp.naoModificado(etag)
+                            : cacheHttp.ok(pagina, etag);
+                });
+    }
+
+    @GetMapping(path = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Busca livros por título e autor.",
+            description = "Retorna os livros que contêm todas as palavras de q no título ou no autor, sem diferenciar "
+                    + "maiúsculas nem acentos, do mais ao menos relevante. Com prefixo=true a última palavra também casa "
+                    + "com palavras que começam por ela, para buscas enquanto se digita."
+    )
+    public Mono<List<LivroEncontrado>> search(
+            @RequestParam("q") String q,
+            @RequestParam(name = "prefixo", defaultValue = "true") boolean prefixo,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (size < 1 || size > TAMANHO_MAXIMO_BUSCA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + TAMANHO_MAXIMO_BUSCA);
+        }
+        // o índice fica em memória: a busca não bloqueia e roda na própria thread do Netty
+        return Mono.fromSupplier(() -> livroReativoService.buscarTexto(q, prefixo, size)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Índice de busca em construção")));
+    }
+
+    @GetMapping(path = "/get/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Retorna um Livro.",
+            description = "Retorna um Livro com base no seu ID. Com If-None-Match igual à ETag da versão atual, responde "
+                    + "304 sem carregar o livro."
+    )
+    public Mono<ResponseEntity<LivroDto>> get(@PathVariable("id") Long id,
+                                              @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false)
+                                              String ifNoneMatch) {
+        Mono<ResponseEntity<LivroDto>> leitura = livroReativoService.get(id)
+                .map(livro -> cacheHttp.ok(LivroMapper.mapToDto(livro), CacheHttp.etag(livro)))
+                .defaultIfEmpty(ResponseEntity.noContent().build());
+        if (ifNoneMatch == null) {
+            return leitura;
+        }
+        return livroReativoService.getVersao(id)
+                .map(versao -> CacheHttp.etag(id, versao))
+                .filter(etag -> CacheHttp.naoModificado(ifNoneMatch, etag))
+                .map(cacheHttp::<LivroDto>naoModificado)
+                .switchIfEmpty(leitura);
+    }
+
+    @PostMapping(path = "/save", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Salvar Livro.",
+            description = "Salva um novo Livro no sistema."
+    )
+    public Mono<ResponseEntity<LivroDto>> save(@RequestBody LivroDto livroDto, Authentication autenticacao) {
+        return livroReativoService.saveCreate(LivroMapper.mapToEntity(livroDto), autenticacao)
+                .map(livro -> ResponseEntity.ok(LivroMapper.mapToDto(livro)));
+    }
+
+    @PutMapping(path = "/update/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Alterar Livro.",
+            description = "Altera um Livro já existente no sistema."
+    )
+    public Mono<ResponseEntity<LivroDto>> update(@PathVariable("id") Long id, @RequestBody LivroDto livroDto,
+                                                 Authentication autenticacao) {
+        return livroReativoService.saveUpdate(LivroMapper.mapToEntity(livroDto), autenticacao)
+                .map(livro -> ResponseEntity.ok(LivroMapper.mapToDto(livro)))
+                .defaultIfEmpty(ResponseEntity.noContent().build());
+    }
+
+    @DeleteMapping(path = "/delete/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Deletar Livro.",
+            description = "Deleta um Livro já existente no sistema."
+    )
+    public Mono<ResponseEntity<String>> delete(@PathVariable("id") Long id, Authentication autenticacao) {
+        return livroReativoService.delete(id, autenticacao)
+                .map(livro -> new ResponseEntity<>("Livro " + livro.getTitulo() + " excluído", HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NO_CONTENT));
+    }
+
+    @PostMapping(path = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Salvar Livros em lote.",
+            description = "Recebe um array JSON ou NDJSON (um livro por linha) e salva os livros em blocos, lendo o corpo aos "
+                    + "poucos. A resposta traz quantos foram gravados e o motivo de cada falha."
+    )
+    public Mono<ResultadoLote> saveLote(@RequestBody Flux<LivroDto> livros, Authentication autenticacao) {
+        return livroReativoService.criarLote(livros, autenticacao);
+    }
+
+    @PutMapping(path = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Alterar Livros em lote.",
+            description = "Recebe um array JSON ou NDJSON de livros, cada um com seu id, e os altera em blocos."
+    )
+    public Mono<ResultadoLote> updateLote(@RequestBody Flux<LivroDto> livros, Authentication autenticacao) {
+        return livroReativoService.atualizarLote(livros, autenticacao);
+    }
+
+    @DeleteMapping(path = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Deletar Livros em lote.",
+            description = "Recebe um array JSON ou NDJSON de IDs e remove os livros em blocos."
+    )
+    public Mono<ResultadoLote> deleteLote(@RequestBody Flux<Long> ids, Authentication autenticacao) {
+        return livroReativoService.removerLote(ids, autenticacao);
+    }
+
+    @PostMapping("/alugar/{id}")
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Alugar Livro",
+            description = "Aluga um livro e envia uma confirmação por e-mail."
+    )
+    public Mono<ResponseEntity<String>> alugarLivro(@PathVariable("id") Long id, Authentication autenticacao) {
+        return livroReativoService.alugarLivro(id, autenticacao)
+                .doOnNext(resposta -> metricasAluguel.aluguel(resposta.getStatusCode()));
+    }
+
+    @PutMapping("/devolver/{id}")
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Devolve Livro",
+            description = "Devolve um livro e envia uma confirmação por e-mail."
+    )
+    public Mono<ResponseEntity<String>> devolverLivro(@PathVariable("id") Long id, Authentication autenticacao) {
+        return livroReativoService.devolverLivro(id, autenticacao)
+                .doOnNext(resposta -> metricasAluguel.devolucao(resposta.getStatusCode()));
+    }
+
+    @GetMapping(path = "/alugados", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Livros alugados.",
+            description = "Retorna os livros alugados no momento pelo usuário informado em usuario (UUID no Keycloak) ou, "
+                    + "sem ele, pelo usuário logado."
+    )
+    public Flux<LivroDto> getAlugados(@RequestParam(name = "usuario", required = false) String usuario,
+                                      Authentication autenticacao) {
+        return livroReativoService.getAlugados(usuario, autenticacao);
+    }
+
+    @GetMapping(path = "/historico/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAnyAuthority('Administrador')")
+    @Operation(
+            summary = "Histórico de aluguéis de um Livro.",
+            description = "Retorna os aluguéis e devoluções do livro, do mais recente ao mais antigo. Para a página "
+                    + "seguinte, envie em antesDe o menor id recebido."
+    )
+    public Flux<RegistroEmprestimoDto> getHistorico(
+            @PathVariable("id") Long id,
+            @RequestParam(name = "antesDe", required = false) Long antesDe,
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (size < 1 || size > TAMANHO_MAXIMO_PAGINA) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA);
+        }
+        return livroReativoService.getHistorico(id, antesDe, size);
+    }
+}
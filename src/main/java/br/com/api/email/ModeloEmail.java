@@ -0,0 +1,47 @@
+package br.com.api.email;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de texto com marcadores {@code {{nome}}}. O texto é dividido em trechos fixos e marcadores uma única vez,
+ * na criação; renderizar só concatena os trechos com os valores.
+ */
+public final class ModeloEmail {
+
+    private static final String ABRE = "{{";
+    private static final String FECHA = "}}";
+
+    private final List<String> trechos = new ArrayList<>();
+    private final List<String> marcadores = new ArrayList<>();
+    private final int tamanhoFixo;
+
+    public ModeloEmail(String texto) {
+        int inicio = 0;
+        int abre;
+        while ((abre = texto.indexOf(ABRE, inicio)) >= 0) {
+            int fecha = texto.indexOf(FECHA, abre + ABRE.length());
+            if (fecha < 0) {
+                throw new IllegalArgumentException("Marcador sem fechamento na posição " + abre);
+            }
+            trechos.add(texto.substring(inicio, abre));
+            marcadores.add(texto.substring(abre + ABRE.length(), fecha).trim());
+            inicio = fecha + FECHA.length();
+        }
+        trechos.add(texto.substring(inicio));
+        this.tamanhoFixo = trechos.stream().mapToInt(String::length).sum();
+    }
+
+    public String renderizar(Map<String, String> valores) {
+        StringBuilder texto = new StringBuilder(tamanhoFixo + 16 * marcadores.size());
+        for (int i = 0; i < marcadores.size(); i++) {
+            String valor = valores.get(marcadores.get(i));
+            if (valor == null) {
+                throw new IllegalArgumentException("Valor ausente para o marcador " + marcadores.get(i));
+            }
+            texto.append(trechos.get(i)).append(valor);
+        }
+        return texto.append(trechos.get(trechos.size() - 1)).toString();
+    }
+}
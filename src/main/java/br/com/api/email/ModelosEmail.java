@@ -0,0 +1,63 @@
+package br.com.api.email;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Modelos de e-mail em {@code classpath:email/<nome>.txt}: a primeira linha é o assunto e o restante o corpo. Cada
+ * arquivo é lido e compilado uma vez; os textos renderizados também ficam num cache limitado, já que as mesmas
+ * notificações (mesmo modelo e mesmos valores) se repetem.
+ */
+@Component
+public class ModelosEmail {
+
+    private final Map<String, Modelo> modelos = new ConcurrentHashMap<>();
+    private final Cache<Chave, EmailRenderizado> renderizados;
+
+    public ModelosEmail(@Value("${livro.email.modelos.cache-tamanho-maximo:10000}") long tamanhoMaximo) {
+        this.renderizados = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .build();
+    }
+
+    public EmailRenderizado renderizar(String nome, Map<String, String> valores) {
+        return renderizados.get(new Chave(nome, Map.copyOf(valores)), chave -> {
+            Modelo modelo = modelos.computeIfAbsent(chave.nome(), ModelosEmail::carregar);
+            return new EmailRenderizado(modelo.assunto().renderizar(chave.valores()), modelo.corpo().renderizar(chave.valores()));
+        });
+    }
+
+    private static Modelo carregar(String nome) {
+        String texto;
+        try {
+            texto = new ClassPathResource("email/" + nome + ".txt").getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Modelo de e-mail não encontrado: " + nome, e);
+        }
+        List<String> linhas = texto.lines().toList();
+        if (linhas.isEmpty()) {
+            throw new IllegalArgumentException("Modelo de e-mail vazio: " + nome);
+        }
+        String corpo = String.join("\n", linhas.subList(1, linhas.size()));
+        return new Modelo(new ModeloEmail(linhas.get(0)), new ModeloEmail(corpo));
+    }
+
+    public record EmailRenderizado(String assunto, String corpo) {
+    }
+
+    private record Modelo(ModeloEmail assunto, ModeloEmail corpo) {
+    }
+
+    private record Chave(String nome, Map<String, String> valores) {
+    }
+}
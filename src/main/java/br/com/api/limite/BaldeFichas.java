@@ -0,0 +1,40 @@
+package br.com.api.limite;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de fichas sem lock, na forma do GCRA: em vez das fichas restantes, guarda um único instante, o da próxima
+ * ficha ainda não consumida, e cada requisição admitida o adianta em {@code intervalo}. O balde está cheio quando o
+ * instante ficou para trás e vazio quando está {@code capacidade} intervalos à frente. Consumir é um
+ * {@code compareAndSet}, que só se repete quando outra thread consumiu ao mesmo tempo.
+ */
+final class BaldeFichas {
+
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final AtomicLong proximaFicha = new AtomicLong(Long.MIN_VALUE);
+
+    BaldeFichas(long intervaloNanos, int capacidade) {
+        this.intervaloNanos = intervaloNanos;
+        this.toleranciaNanos = intervaloNanos * capacidade;
+    }
+
+    /**
+     * Consome uma ficha no instante {@code agora} ({@link System#nanoTime()}).
+     *
+     * @return 0 se a ficha foi consumida; senão, quantos nanossegundos faltam para a próxima
+     */
+    long consumir(long agora) {
+        while (true) {
+            long atual = proximaFicha.get();
+            long seguinte = Math.max(atual, agora) + intervaloNanos;
+            long espera = seguinte - agora - toleranciaNanos;
+            if (espera > 0) {
+                return espera;
+            }
+            if (proximaFicha.compareAndSet(atual, seguinte)) {
+                return 0;
+            }
+        }
+    }
+}
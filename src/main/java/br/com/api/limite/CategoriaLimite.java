@@ -0,0 +1,65 @@
+package br.com.api.limite;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Grupos de endpoints de {@code /livro} com limites de requisições próprios, em ordem decrescente de custo. Os valores
+ * padrão podem ser trocados por {@code livro.limite.<nome>.por-segundo} e {@code livro.limite.<nome>.rajada}.
+ */
+public enum CategoriaLimite {
+
+    /**
+     * {@code GET /livro/getAll}: percorre o catálogo inteiro.
+     */
+    EXPORTACAO("exportacao", 0.2, 3),
+
+    /**
+     * {@code /livro/lote}: milhares de livros por requisição.
+     */
+    LOTE("lote", 1, 5),
+
+    ESCRITA("escrita", 20, 50),
+
+    LEITURA("leitura", 50, 100);
+
+    private static final String PREFIXO = "/livro/";
+
+    private final String nome;
+    private final double porSegundoPadrao;
+    private final int rajadaPadrao;
+
+    CategoriaLimite(String nome, double porSegundoPadrao, int rajadaPadrao) {
+        this.nome = nome;
+        this.porSegundoPadrao = porSegundoPadrao;
+        this.rajadaPadrao = rajadaPadrao;
+    }
+
+    /**
+     * Categoria de uma requisição pelo método e pelo caminho sem o context path; {@code null} fora de {@code /livro}.
+     */
+    public static CategoriaLimite de(String metodo, String caminho) {
+        if (!caminho.startsWith(PREFIXO)) {
+            return null;
+        }
+        String endpoint = caminho.substring(PREFIXO.length());
+        if (endpoint.equals("lote")) {
+            return LOTE;
+        }
+        if (!HttpMethod.GET.matches(metodo) && !HttpMethod.HEAD.matches(metodo)) {
+            return ESCRITA;
+        }
+        return endpoint.equals("getAll") ? EXPORTACAO : LEITURA;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public double getPorSegundoPadrao() {
+        return porSegundoPadrao;
+    }
+
+    public int getRajadaPadrao() {
+        return rajadaPadrao;
+    }
+}
@@ -0,0 +1,95 @@
+package br.com.api.limite;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limite de requisições por usuário (o {@code sub} do token do Keycloak) e por {@link CategoriaLimite}, aplicado pelos
+ * filtros antes de qualquer acesso ao banco. Cada par tem um {@link BaldeFichas} que se enche a
+ * {@code livro.limite.<categoria>.por-segundo} fichas por segundo, até {@code livro.limite.<categoria>.rajada}.
+ *
+ * <p>Os baldes ficam num cache do Caffeine, particionado internamente, limitado a {@code livro.limite.tamanho-maximo}
+ * entradas e que descarta os parados há {@code livro.limite.ocioso}; um balde descartado volta cheio. As requisições
+ * recusadas são contadas em {@code livro.limite.rejeitadas}, por categoria, e o cache publica suas métricas como
+ * {@code livro.limite}.
+ */
+@Component
+public class LimitadorRequisicoes {
+
+    private final boolean habilitado;
+    private final Cache<Chave, BaldeFichas> baldes;
+    private final Map<CategoriaLimite, Long> intervalos = new EnumMap<>(CategoriaLimite.class);
+    private final Map<CategoriaLimite, Integer> rajadas = new EnumMap<>(CategoriaLimite.class);
+    private final Map<CategoriaLimite, Counter> rejeitadas = new EnumMap<>(CategoriaLimite.class);
+
+    public LimitadorRequisicoes(@Value("${livro.limite.habilitado:true}") boolean habilitado,
+                                @Value("${livro.limite.tamanho-maximo:100000}") long tamanhoMaximo,
+                                @Value("${livro.limite.ocioso:10m}") Duration ocioso,
+                                Environment environment,
+                                MeterRegistry meterRegistry) {
+        this.habilitado = habilitado;
+        this.baldes = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterAccess(ocioso)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, baldes, "livro.limite");
+        for (CategoriaLimite categoria : CategoriaLimite.values()) {
+            String prefixo = "livro.limite." + categoria.getNome();
+            double porSegundo = environment.getProperty(prefixo + ".por-segundo", Double.class,
+                    categoria.getPorSegundoPadrao());
+            int rajada = environment.getProperty(prefixo + ".rajada", Integer.class, categoria.getRajadaPadrao());
+            if (porSegundo <= 0 || rajada < 1) {
+                throw new IllegalStateException(prefixo + ".por-segundo deve ser positivo e " + prefixo
+                        + ".rajada, ao menos 1");
+            }
+            intervalos.put(categoria, (long) (TimeUnit.SECONDS.toNanos(1) / porSegundo));
+            rajadas.put(categoria, rajada);
+            rejeitadas.put(categoria, Counter.builder("livro.limite.rejeitadas")
+                    .description("Requisições recusadas com 429 por excederem o limite do usuário")
+                    .tag("categoria", categoria.getNome())
+                    .register(meterRegistry));
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Consome uma ficha do usuário na categoria.
+     *
+     * @return zero se a requisição foi admitida; senão, por quanto tempo o usuário deve esperar
+     */
+    public Duration admitir(String usuario, CategoriaLimite categoria) {
+        BaldeFichas balde = baldes.get(new Chave(usuario, categoria),
+                chave -> new BaldeFichas(intervalos.get(categoria), rajadas.get(categoria)));
+        long espera = balde.consumir(System.nanoTime());
+        if (espera == 0) {
+            return Duration.ZERO;
+        }
+        rejeitadas.get(categoria).increment();
+        return Duration.ofNanos(espera);
+    }
+
+    /**
+     * Segundos para o header {@code Retry-After}, arredondados para cima.
+     */
+    public static long segundos(Duration espera) {
+        return Math.max(1, espera.plusNanos(999_999_999).toSeconds());
+    }
+
+    private record Chave(String usuario, CategoriaLimite categoria) {
+    }
+}
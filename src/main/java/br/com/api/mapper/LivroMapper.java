@@ -2,17 +2,76 @@ package br.com.api.mapper;
 
 import br.com.api.model.livro.Livro;
 import br.com.api.model.livro.LivroDto;
-import org.modelmapper.ModelMapper;
 
-public class LivroMapper {
+import java.util.ArrayList;
+import java.util.List;
 
-    private static ModelMapper modelMapper = new ModelMapper();
+/**
+ * Conversão entre {@link Livro} e {@link LivroDto} escrita à mão: cópia campo a campo, sem reflexão.
+ * Mantém o comportamento do ModelMapper usado anteriormente: origem nula é rejeitada e campos nulos
+ * permanecem nulos no destino.
+ */
+public class LivroMapper {
 
     public static Livro mapToEntity(LivroDto livroDto) {
-        return modelMapper.map(livroDto, Livro.class);
+        validarOrigem(livroDto);
+        Livro livro = new Livro();
+        livro.setId(livroDto.getId());
+        livro.setTitulo(livroDto.getTitulo());
+        livro.setAutor(livroDto.getAutor());
+        livro.setIsbn(livroDto.getIsbn());
+        livro.setDisponivel(livroDto.getDisponivel());
+        livro.setUuidUsuarioKeycloak(livroDto.getUuidUsuarioKeycloak());
+        return livro;
     }
 
     public static LivroDto mapToDto(Livro livro) {
-        return modelMapper.map(livro, LivroDto.class);
+        validarOrigem(livro);
+        return new LivroDto(
+                livro.getId(),
+                livro.getTitulo(),
+                livro.getAutor(),
+                livro.getIsbn(),
+                livro.getDisponivel(),
+                livro.getUuidUsuarioKeycloak());
+    }
+
+    public static Livro copiar(Livro livro) {
+        validarOrigem(livro);
+        Livro copia = new Livro();
+        copia.setId(livro.getId());
+        copia.setTitulo(livro.getTitulo());
+        copia.setAutor(livro.getAutor());
+        copia.setIsbn(livro.getIsbn());
+        copia.setDisponivel(livro.getDisponivel());
+        copia.setUuidUsuarioKeycloak(livro.getUuidUsuarioKeycloak());
+        copia.setVersao(livro.getVersao());
+        return copia;
+    }
+
+    /**
+     * Copia os dados editáveis de um livro (sem id e versão) para outro, normalmente a entidade gerenciada.
+     */
+    public static void copiarDados(Livro origem, Livro destino) {
+        validarOrigem(origem);
+        destino.setTitulo(origem.getTitulo());
+        destino.setAutor(origem.getAutor());
+        destino.setIsbn(origem.getIsbn());
+        destino.setDisponivel(origem.getDisponivel());
+        destino.setUuidUsuarioKeycloak(origem.getUuidUsuarioKeycloak());
+    }
+
+    public static List<LivroDto> mapToDtoList(List<Livro> livros) {
+        List<LivroDto> livroDtoList = new ArrayList<>(livros.size());
+        for (Livro livro : livros) {
+            livroDtoList.add(mapToDto(livro));
+        }
+        return livroDtoList;
+    }
+
+    private static void validarOrigem(Object origem) {
+        if (origem == null) {
+            throw new IllegalArgumentException("Origem não pode ser nula");
+        }
     }
 }
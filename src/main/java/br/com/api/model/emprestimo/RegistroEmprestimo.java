@@ -0,0 +1,44 @@
+package br.com.api.model.emprestimo;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+
+/**
+ * Um aluguel ou uma devolução, gravado na mesma transação da alteração do livro. Os registros nunca são alterados:
+ * o histórico só cresce, e os antigos saem da tabela pelo arquivamento.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+@Entity
+@Immutable
+@Table(name = "tb_emprestimo")
+public class RegistroEmprestimo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_registro", nullable = false)
+    private Long id;
+
+    @Column(name = "livro_id", nullable = false)
+    private Long livroId;
+
+    /**
+     * UUID no Keycloak do usuário que alugou ou devolveu o livro.
+     */
+    @Column(name = "uuid_usuario", nullable = false)
+    private String uuidUsuario;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false)
+    private TipoEmprestimo tipo;
+
+    @Column(name = "ocorrido_em", nullable = false)
+    private Instant ocorridoEm;
+
+}
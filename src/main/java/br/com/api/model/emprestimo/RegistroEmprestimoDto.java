@@ -0,0 +1,26 @@
+package br.com.api.model.emprestimo;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Aluguel ou devolução registrado no histórico de um livro.")
+public record RegistroEmprestimoDto(
+
+        @Schema(description = "ID do registro; para a página seguinte do histórico, envie o menor ID recebido em antesDe.",
+                example = "4821")
+        Long id,
+
+        @Schema(description = "ID do livro.", example = "123")
+        Long livroId,
+
+        @Schema(description = "UUID do usuário no Keycloak que alugou ou devolveu o livro.",
+                example = "123e4567-e89b-12d3-a456-426614174000")
+        String uuidUsuario,
+
+        @Schema(description = "ALUGUEL ou DEVOLUCAO.", example = "ALUGUEL")
+        TipoEmprestimo tipo,
+
+        @Schema(description = "Data e hora da operação.", example = "2024-05-01T14:30:00Z")
+        Instant ocorridoEm) {
+}
@@ -0,0 +1,6 @@
+package br.com.api.model.emprestimo;
+
+public enum TipoEmprestimo {
+    ALUGUEL,
+    DEVOLUCAO
+}
@@ -0,0 +1,50 @@
+package br.com.api.model.evento;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Evento publicado no {@code livroExchange} quando um livro muda. Cada tipo tem sua routing key
+ * ({@link TipoEventoLivro#getRoutingKey()}), para que os consumidores assinem apenas o que precisam.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "evento")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = LivroCriado.class, name = "LivroCriado"),
+        @JsonSubTypes.Type(value = LivroAtualizado.class, name = "LivroAtualizado"),
+        @JsonSubTypes.Type(value = LivroRemovido.class, name = "LivroRemovido"),
+        @JsonSubTypes.Type(value = LivroAlugado.class, name = "LivroAlugado"),
+        @JsonSubTypes.Type(value = LivroDevolvido.class, name = "LivroDevolvido")
+})
+public sealed interface LivroEvento permits LivroCriado, LivroAtualizado, LivroRemovido, LivroAlugado, LivroDevolvido {
+
+    /**
+     * Identificador único do evento, usado pelos consumidores para descartar entregas repetidas.
+     */
+    UUID eventoId();
+
+    Long livroId();
+
+    String isbn();
+
+    /**
+     * UUID, no Keycloak, do usuário que executou a operação.
+     */
+    String uuidUsuario();
+
+    /**
+     * E-mail do usuário que executou a operação, usado nas notificações; pode ser nulo.
+     */
+    String emailUsuario();
+
+    /**
+     * Versão do livro após a operação; cresce a cada alteração do mesmo livro.
+     */
+    long versao();
+
+    Instant ocorridoEm();
+
+    TipoEventoLivro tipo();
+}
@@ -0,0 +1,170 @@
+package br.com.api.model.evento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Serialização dos {@link LivroEvento}. O formato publicado é escolhido por {@code livro.eventos.formato}:
+ * {@code binario} (padrão) ou {@code json}. A leitura aceita os dois, conforme o content type da mensagem.
+ *
+ * <p>Formato binário, big-endian, versão 2:
+ * <pre>
+ * byte   versão do formato (2)
+ * byte   tipo do evento ({@link TipoEventoLivro#getCodigo()})
+ * long   eventoId (bits mais significativos), long eventoId (bits menos significativos)
+ * long   livroId
+ * long   versao
+ * long   ocorridoEm (segundos desde a época), int ocorridoEm (nanossegundos)
+ * string isbn, string uuidUsuario, string emailUsuario: short com o tamanho em bytes UTF-8 (-1 para nulo) seguido
+ *        dos bytes
+ * </pre>
+ * A versão 1, ainda aceita na leitura, não tem o emailUsuario.
+ *
+ * <p>Os eventos agregados das cargas em lote ({@link LoteLivrosEvento}) são sempre publicados em JSON.
+ */
+@Component
+public class LivroEventoCodec {
+
+    public static final String CONTENT_TYPE_BINARIO = "application/vnd.livro-evento.v1";
+
+    private static final byte VERSAO_FORMATO = 2;
+    private static final byte VERSAO_FORMATO_SEM_EMAIL = 1;
+    private static final int TAMANHO_FIXO = 1 + 1 + 16 + 8 + 8 + 8 + 4 + 2 + 2 + 2;
+
+    private final ObjectWriter jsonWriter;
+    private final ObjectReader jsonReader;
+    private final ObjectWriter loteWriter;
+    private final ObjectReader loteReader;
+    private final boolean binario;
+
+    public LivroEventoCodec(ObjectMapper objectMapper, @Value("${livro.eventos.formato:binario}") String formato) {
+        this.jsonWriter = objectMapper.writerFor(LivroEvento.class);
+        this.jsonReader = objectMapper.readerFor(LivroEvento.class);
+        this.loteWriter = objectMapper.writerFor(LoteLivrosEvento.class);
+        this.loteReader = objectMapper.readerFor(LoteLivrosEvento.class);
+        this.binario = !"json".equalsIgnoreCase(formato);
+    }
+
+    public String contentType() {
+        return binario ? CONTENT_TYPE_BINARIO : MediaType.APPLICATION_JSON_VALUE;
+    }
+
+    public byte[] codificar(LivroEvento evento) {
+        return binario ? codificarBinario(evento) : codificarJson(evento);
+    }
+
+    public LivroEvento decodificar(byte[] corpo, String contentType) {
+        if (contentType != null && contentType.startsWith(MediaType.APPLICATION_JSON_VALUE)) {
+            try {
+                return jsonReader.readValue(corpo);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Evento JSON inválido", e);
+            }
+        }
+        return decodificarBinario(corpo);
+    }
+
+    public byte[] codificarLote(LoteLivrosEvento lote) {
+        try {
+            return loteWriter.writeValueAsBytes(lote);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public LoteLivrosEvento decodificarLote(byte[] corpo) {
+        try {
+            return loteReader.readValue(corpo);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Evento de lote inválido", e);
+        }
+    }
+
+    private byte[] codificarJson(LivroEvento evento) {
+        try {
+            return jsonWriter.writeValueAsBytes(evento);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] codificarBinario(LivroEvento evento) {
+        byte[] isbn = bytes(evento.isbn());
+        byte[] uuidUsuario = bytes(evento.uuidUsuario());
+        byte[] emailUsuario = bytes(evento.emailUsuario());
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_FIXO + tamanho(isbn) + tamanho(uuidUsuario) + tamanho(emailUsuario));
+        buffer.put(VERSAO_FORMATO)
+                .put(evento.tipo().getCodigo())
+                .putLong(evento.eventoId().getMostSignificantBits())
+                .putLong(evento.eventoId().getLeastSignificantBits())
+                .putLong(evento.livroId())
+                .putLong(evento.versao())
+                .putLong(evento.ocorridoEm().getEpochSecond())
+                .putInt(evento.ocorridoEm().getNano());
+        escrever(buffer, isbn);
+        escrever(buffer, uuidUsuario);
+        escrever(buffer, emailUsuario);
+        return buffer.array();
+    }
+
+    private static LivroEvento decodificarBinario(byte[] corpo) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(corpo);
+            byte versaoFormato = buffer.get();
+            if (versaoFormato != VERSAO_FORMATO && versaoFormato != VERSAO_FORMATO_SEM_EMAIL) {
+                throw new IllegalArgumentException("Versão de formato de evento não suportada: " + versaoFormato);
+            }
+            TipoEventoLivro tipo = TipoEventoLivro.doCodigo(buffer.get());
+            UUID eventoId = new UUID(buffer.getLong(), buffer.getLong());
+            long livroId = buffer.getLong();
+            long versao = buffer.getLong();
+            Instant ocorridoEm = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            String isbn = ler(buffer);
+            String uuidUsuario = ler(buffer);
+            String emailUsuario = versaoFormato == VERSAO_FORMATO ? ler(buffer) : null;
+            return tipo.criar(eventoId, livroId, isbn, uuidUsuario, emailUsuario, versao, ocorridoEm);
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException("Evento binário inválido", e);
+        }
+    }
+
+    private static byte[] bytes(String valor) {
+        return valor == null ? null : valor.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int tamanho(byte[] valor) {
+        return valor == null ? 0 : valor.length;
+    }
+
+    private static void escrever(ByteBuffer buffer, byte[] valor) {
+        if (valor == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        buffer.putShort((short) valor.length).put(valor);
+    }
+
+    private static String ler(ByteBuffer buffer) {
+        short tamanho = buffer.getShort();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] valor = new byte[tamanho];
+        buffer.get(valor);
+        return new String(valor, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,13 @@
+package br.com.api.model.evento;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record LivroRemovido(UUID eventoId, Long livroId, String isbn, String uuidUsuario, String emailUsuario,
+                            long versao, Instant ocorridoEm) implements LivroEvento {
+
+    @Override
+    public TipoEventoLivro tipo() {
+        return TipoEventoLivro.REMOVIDO;
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.api.model.evento;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static br.com.api.config.RabbitMQConfig.*;
+
+/**
+ * Evento agregado de um bloco de uma carga em lote: um único evento para todos os livros criados, atualizados ou
+ * removidos na mesma transação, no lugar de um {@link LivroEvento} por livro.
+ */
+public record LoteLivrosEvento(UUID eventoId, TipoEventoLivro tipo, String uuidUsuario, List<Item> itens,
+                               Instant ocorridoEm) {
+
+    public LoteLivrosEvento {
+        routingKey(tipo);
+        itens = List.copyOf(itens);
+    }
+
+    public static LoteLivrosEvento de(TipoEventoLivro tipo, String uuidUsuario, List<Item> itens) {
+        return new LoteLivrosEvento(UUID.randomUUID(), tipo, uuidUsuario, itens, Instant.now());
+    }
+
+    public String routingKey() {
+        return routingKey(tipo);
+    }
+
+    private static String routingKey(TipoEventoLivro tipo) {
+        return switch (tipo) {
+            case CRIADO -> ROUTING_KEY_LOTE_CRIADO;
+            case ATUALIZADO -> ROUTING_KEY_LOTE_ATUALIZADO;
+            case REMOVIDO -> ROUTING_KEY_LOTE_REMOVIDO;
+            default -> throw new IllegalArgumentException("Tipo de evento sem carga em lote: " + tipo);
+        };
+    }
+
+    public record Item(Long livroId, String isbn, long versao) {
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.api.model.evento;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.usuario.UsuarioDto;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static br.com.api.config.RabbitMQConfig.*;
+
+public enum TipoEventoLivro {
+
+    CRIADO((byte) 1, ROUTING_KEY_LIVRO_CRIADO, LivroCriado::new),
+    ATUALIZADO((byte) 2, ROUTING_KEY_LIVRO_ATUALIZADO, LivroAtualizado::new),
+    REMOVIDO((byte) 3, ROUTING_KEY_LIVRO_REMOVIDO, LivroRemovido::new),
+    ALUGADO((byte) 4, ROUTING_KEY_LIVRO_ALUGADO, LivroAlugado::new),
+    DEVOLVIDO((byte) 5, ROUTING_KEY_LIVRO_DEVOLVIDO, LivroDevolvido::new);
+
+    /**
+     * Código do tipo no formato binário; não pode mudar depois de publicado.
+     */
+    @Getter
+    private final byte codigo;
+    @Getter
+    private final String routingKey;
+    private final Construtor construtor;
+
+    TipoEventoLivro(byte codigo, String routingKey, Construtor construtor) {
+        this.codigo = codigo;
+        this.routingKey = routingKey;
+        this.construtor = construtor;
+    }
+
+    public LivroEvento de(Livro livro, String uuidUsuario) {
+        return de(livro, uuidUsuario, null);
+    }
+
+    public LivroEvento de(Livro livro, UsuarioDto usuario) {
+        return de(livro, usuario.getUuidUsuarioKeyCloak(), usuario.getEmail());
+    }
+
+    private LivroEvento de(Livro livro, String uuidUsuario, String emailUsuario) {
+        long versao = livro.getVersao() == null ? 0 : livro.getVersao();
+        return construtor.criar(UUID.randomUUID(), livro.getId(), livro.getIsbn(), uuidUsuario, emailUsuario, versao,
+                Instant.now());
+    }
+
+    LivroEvento criar(UUID eventoId, Long livroId, String isbn, String uuidUsuario, String emailUsuario, long versao,
+                      Instant ocorridoEm) {
+        return construtor.criar(eventoId, livroId, isbn, uuidUsuario, emailUsuario, versao, ocorridoEm);
+    }
+
+    public static TipoEventoLivro doCodigo(byte codigo) {
+        for (TipoEventoLivro tipo : values()) {
+            if (tipo.codigo == codigo) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de evento desconhecido: " + codigo);
+    }
+
+    @FunctionalInterface
+    interface Construtor {
+        LivroEvento criar(UUID eventoId, Long livroId, String isbn, String uuidUsuario, String emailUsuario, long versao,
+                          Instant ocorridoEm);
+    }
+}
@@ -0,0 +1,57 @@
+package br.com.api.model.idempotencia;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Escrita recebida com {@code Idempotency-Key}. Enquanto a primeira requisição executa, só a chave, a requisição e a
+ * expiração estão preenchidas; depois ficam gravados o status e o corpo da resposta, devolvidos às repetições.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+@Entity
+@Table(name = "tb_chave_idempotencia")
+public class ChaveIdempotencia {
+
+    /**
+     * Usuário que enviou a requisição e o valor do header, separados por {@code :}.
+     */
+    @Id
+    @Column(name = "chave", nullable = false)
+    private String chave;
+
+    /**
+     * Método e caminho da requisição; a mesma chave não pode ser reaproveitada em outra requisição.
+     */
+    @Column(name = "requisicao", nullable = false)
+    private String requisicao;
+
+    @Column(name = "status")
+    private Integer status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "corpo")
+    private byte[] corpo;
+
+    @Column(name = "criado_em", nullable = false)
+    private Instant criadoEm;
+
+    @Column(name = "expira_em", nullable = false)
+    private Instant expiraEm;
+
+    public boolean concluida() {
+        return status != null;
+    }
+
+    public RespostaIdempotente resposta() {
+        return new RespostaIdempotente(requisicao, status, contentType, corpo);
+    }
+
+}
@@ -0,0 +1,7 @@
+package br.com.api.model.idempotencia;
+
+/**
+ * Resposta de uma escrita com {@code Idempotency-Key}, repetida para as requisições seguintes com a mesma chave.
+ */
+public record RespostaIdempotente(String requisicao, int status, String contentType, byte[] corpo) {
+}
@@ -15,9 +15,11 @@ import lombok.Setter;
 public class Livro {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sq_livro")
+    // reserva 50 IDs por acesso à sequência (otimizador pooled), o que permite inserções em lote via JDBC
+    @SequenceGenerator(name = "sq_livro", sequenceName = "sq_livro", allocationSize = 50)
     @Column(name = "id_livro", nullable = false)
-    @Schema(description = "Identificador único do Condicao. Gerado automaticamente pela estratégia de auto incremento.")
+    @Schema(description = "Identificador único do Condicao. Gerado automaticamente a partir da sequência sq_livro.")
     private Long id;
 
     @Column(name = "titulo", nullable = false)
@@ -43,4 +45,17 @@ public class Livro {
     @Schema(description = "UUID do usuário no Keycloak que registrou o livro.", example = "123e4567-e89b-12d3-a456-426614174000")
     private String uuidUsuarioKeycloak;
 
+    @Version
+    @Column(name = "versao", nullable = false)
+    @Schema(description = "Versão do livro, incrementada a cada alteração.", example = "3")
+    private Long versao;
+
+    @Column(name = "titulo_busca", insertable = false, updatable = false)
+    @Schema(hidden = true, description = "Título em minúsculas, calculado pelo banco e indexado para buscas.")
+    private String tituloBusca;
+
+    @Column(name = "autor_busca", insertable = false, updatable = false)
+    @Schema(hidden = true, description = "Autor em minúsculas, calculado pelo banco e indexado para buscas.")
+    private String autorBusca;
+
 }
@@ -0,0 +1,22 @@
+package br.com.api.model.livro;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Livro encontrado pela busca textual, com a pontuação usada na ordenação.")
+public record LivroEncontrado(
+
+        @Schema(description = "ID do livro.", example = "123")
+        Long id,
+
+        @Schema(description = "Título do livro.", example = "Código Limpo, Habilidades Práticas do Agile Software")
+        String titulo,
+
+        @Schema(description = "Nome do autor do livro.", example = "João Pequeno")
+        String autor,
+
+        @Schema(description = "Código ISBN do livro.", example = "9999999999")
+        String isbn,
+
+        @Schema(description = "Relevância do livro para a busca; maior é melhor.", example = "7.25")
+        float pontuacao) {
+}
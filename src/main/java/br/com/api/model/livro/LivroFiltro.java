@@ -0,0 +1,21 @@
+package br.com.api.model.livro;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Filtro da busca paginada de livros. Título e autor não diferenciam maiúsculas de minúsculas: "
+        + "'texto' busca o valor exato, 'texto*' busca pelo início e '*texto*' ou '*texto' busca em qualquer posição. "
+        + "'*' sozinho não restringe o campo; um '*' no meio do texto é buscado literalmente.")
+public record LivroFiltro(
+
+        @Schema(description = "Título do livro.", example = "código limpo*")
+        String titulo,
+
+        @Schema(description = "Nome do autor do livro.", example = "joão pequeno")
+        String autor,
+
+        @Schema(description = "Código ISBN do livro (valor exato).", example = "9999999999")
+        String isbn,
+
+        @Schema(description = "Indica se o livro está disponível para empréstimo.", example = "true")
+        Boolean disponivel) {
+}
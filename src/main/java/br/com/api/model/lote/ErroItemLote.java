@@ -0,0 +1,16 @@
+package br.com.api.model.lote;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Falha de um item de uma carga em lote.")
+public record ErroItemLote(
+
+        @Schema(description = "Posição do item no corpo da requisição, a partir de 0.", example = "42")
+        long indice,
+
+        @Schema(description = "ID do livro, quando informado.", example = "123")
+        Long id,
+
+        @Schema(description = "Motivo da falha.", example = "Livro não encontrado")
+        String mensagem) {
+}
@@ -0,0 +1,21 @@
+package br.com.api.model.lote;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Resultado de uma carga em lote: quantos itens foram recebidos e processados e o motivo de cada falha.")
+public record ResultadoLote(
+
+        @Schema(description = "Itens lidos do corpo da requisição.", example = "100000")
+        long recebidos,
+
+        @Schema(description = "Itens gravados com sucesso.", example = "99998")
+        long processados,
+
+        @Schema(description = "Itens que falharam.", example = "2")
+        long falhas,
+
+        @Schema(description = "Detalhe das falhas, limitado às primeiras livro.lote.maximo-erros.")
+        List<ErroItemLote> erros) {
+}
@@ -0,0 +1,52 @@
+package br.com.api.model.outbox;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@RequiredArgsConstructor
+@Entity
+@Table(name = "tb_evento_outbox")
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_evento", nullable = false)
+    private Long id;
+
+    /**
+     * Livro a que o evento se refere. Eventos do mesmo livro são publicados na ordem em que foram gravados.
+     */
+    @Column(name = "livro_id")
+    private Long livroId;
+
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    @Column(name = "criado_em", nullable = false)
+    private Instant criadoEm;
+
+    @Column(name = "tentativas", nullable = false)
+    private int tentativas;
+
+    @Column(name = "proxima_tentativa", nullable = false)
+    private Instant proximaTentativa;
+
+    /**
+     * Contexto de rastreamento W3C de quem gravou o evento, enviado no header {@code traceparent} da mensagem.
+     */
+    @Column(name = "traceparent")
+    private String traceparent;
+
+}
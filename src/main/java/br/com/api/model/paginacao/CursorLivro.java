@@ -0,0 +1,75 @@
+package br.com.api.model.paginacao;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Posição de uma paginação por cursor (keyset) de livros: a ordenação usada e os valores da chave de ordenação
+ * e do id do último livro entregue. A próxima página começa logo após {@code (valor, id)}, sem OFFSET.
+ * Só aceita ordenação por colunas não nulas, para que a comparação {@code (chave, id)} seja total.
+ */
+public record CursorLivro(String propriedade, Sort.Direction direcao, String valor, Long id) {
+
+    public static final Set<String> PROPRIEDADES_PERMITIDAS = Set.of("id", "titulo", "autor", "isbn");
+
+    private static final char SEPARADOR = ':';
+
+    public CursorLivro {
+        validarOrdenacao(propriedade);
+    }
+
+    public static void validarOrdenacao(String propriedade) {
+        if (!PROPRIEDADES_PERMITIDAS.contains(propriedade)) {
+            throw new IllegalArgumentException("Ordenação não suportada na paginação por cursor: " + propriedade);
+        }
+    }
+
+    public static CursorLivro apos(Livro livro, Sort.Order ordem) {
+        return apos(ordem, livro.getId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn());
+    }
+
+    public static CursorLivro apos(LivroDto livro, Sort.Order ordem) {
+        return apos(ordem, livro.getId(), livro.getTitulo(), livro.getAutor(), livro.getIsbn());
+    }
+
+    private static CursorLivro apos(Sort.Order ordem, Long id, String titulo, String autor, String isbn) {
+        String valor = switch (ordem.getProperty()) {
+            case "titulo" -> titulo;
+            case "autor" -> autor;
+            case "isbn" -> isbn;
+            default -> String.valueOf(id);
+        };
+        return new CursorLivro(ordem.getProperty(), ordem.getDirection(), valor, id);
+    }
+
+    public Sort.Order ordem() {
+        return new Sort.Order(direcao, propriedade);
+    }
+
+    /**
+     * Valor da chave de ordenação no tipo da coluna.
+     */
+    public Object valorTipado() {
+        return "id".equals(propriedade) ? Long.valueOf(valor) : valor;
+    }
+
+    public String codificar() {
+        // o valor vai por último porque pode conter o separador
+        String texto = propriedade + SEPARADOR + direcao.name() + SEPARADOR + id + SEPARADOR + valor;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorLivro decodificar(String cursor) {
+        String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] partes = texto.split(String.valueOf(SEPARADOR), 4);
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        return new CursorLivro(partes[0], Sort.Direction.valueOf(partes[1]), partes[3], Long.valueOf(partes[2]));
+    }
+}
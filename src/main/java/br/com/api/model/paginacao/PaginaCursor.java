@@ -0,0 +1,27 @@
+package br.com.api.model.paginacao;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Schema(description = "Página obtida por cursor: não traz o total de registros; para a próxima página, envie o proximoCursor.")
+public record PaginaCursor<T>(
+
+        @Schema(description = "Registros da página.")
+        List<T> conteudo,
+
+        @Schema(description = "Cursor da próxima página, ou nulo se esta for a última.", example = "aWQ6REVTQzoxMjM6MTIz")
+        String proximoCursor,
+
+        @Schema(description = "Indica se existe uma próxima página.", example = "true")
+        boolean temProximo) {
+
+    public PaginaCursor(List<T> conteudo, String proximoCursor) {
+        this(conteudo, proximoCursor, proximoCursor != null);
+    }
+
+    public <R> PaginaCursor<R> map(Function<List<T>, List<R>> conversor) {
+        return new PaginaCursor<>(conversor.apply(conteudo), proximoCursor);
+    }
+}
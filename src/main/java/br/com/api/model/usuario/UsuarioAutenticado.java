@@ -0,0 +1,45 @@
+package br.com.api.model.usuario;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Collection;
+
+/**
+ * Autenticação de um token do Keycloak já convertida: além do {@link Jwt} e das autoridades, guarda o
+ * {@link UsuarioDto} montado uma única vez a partir das claims. Instâncias em cache são compartilhadas entre
+ * requisições, então o usuário deve ser tratado como somente leitura.
+ */
+public class UsuarioAutenticado extends JwtAuthenticationToken {
+
+    private final transient UsuarioDto usuario;
+
+    public UsuarioAutenticado(Jwt jwt, Collection<? extends GrantedAuthority> authorities) {
+        this(jwt, authorities, usuario(jwt));
+    }
+
+    private UsuarioAutenticado(Jwt jwt, Collection<? extends GrantedAuthority> authorities, UsuarioDto usuario) {
+        super(jwt, authorities, jwt.getSubject());
+        this.usuario = usuario;
+    }
+
+    public static UsuarioDto usuario(Jwt jwt) {
+        return new UsuarioDto(jwt.getSubject(), jwt.getClaimAsString("email"),
+                jwt.getClaimAsString("given_name"), jwt.getClaimAsString("family_name"));
+    }
+
+    public UsuarioDto getUsuario() {
+        return usuario;
+    }
+
+    /**
+     * Cópia desta autenticação com os detalhes da requisição atual; o token, as autoridades e o usuário são
+     * reaproveitados.
+     */
+    public UsuarioAutenticado comDetalhes(Object detalhes) {
+        UsuarioAutenticado autenticacao = new UsuarioAutenticado(getToken(), getAuthorities(), usuario);
+        autenticacao.setDetails(detalhes);
+        return autenticacao;
+    }
+}
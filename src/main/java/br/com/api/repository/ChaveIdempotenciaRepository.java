@@ -0,0 +1,58 @@
+package br.com.api.repository;
+
+import br.com.api.model.idempotencia.ChaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, String> {
+
+    /**
+     * Fora de uma transação somente leitura, para ir ao primário mesmo com uma réplica de leitura configurada: a chave
+     * procurada acabou de ser inserida por outra requisição e pode ainda não ter chegado à réplica.
+     */
+    @Override
+    @Transactional
+    Optional<ChaveIdempotencia> findById(String chave);
+
+    /**
+     * Insere a chave ainda sem resposta. Se outra requisição, neste ou em outro nó, já a inseriu, a chave primária
+     * faz a inserção falhar com {@code DataIntegrityViolationException}.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into tb_chave_idempotencia (chave, requisicao, criado_em, expira_em) "
+            + "values (:chave, :requisicao, :criadoEm, :expiraEm)", nativeQuery = true)
+    int reservar(@Param("chave") String chave, @Param("requisicao") String requisicao,
+                 @Param("criadoEm") Instant criadoEm, @Param("expiraEm") Instant expiraEm);
+
+    /**
+     * Grava a resposta e estende a expiração, até então a da reserva, para o ttl das chaves concluídas.
+     */
+    @Transactional
+    @Modifying
+    @Query("update ChaveIdempotencia c set c.status = :status, c.contentType = :contentType, c.corpo = :corpo, "
+            + "c.expiraEm = :expiraEm where c.chave = :chave")
+    int concluir(@Param("chave") String chave, @Param("status") int status, @Param("contentType") String contentType,
+                 @Param("corpo") byte[] corpo, @Param("expiraEm") Instant expiraEm);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChaveIdempotencia c where c.chave = :chave")
+    int liberar(@Param("chave") String chave);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChaveIdempotencia c where c.chave = :chave and c.expiraEm <= :agora")
+    int removerSeExpirada(@Param("chave") String chave, @Param("agora") Instant agora);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChaveIdempotencia c where c.expiraEm <= :agora")
+    int removerExpiradas(@Param("agora") Instant agora);
+}
@@ -0,0 +1,39 @@
+package br.com.api.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Gravação no outbox pelo R2DBC, na transação reativa da escrita do livro. A publicação continua com o
+ * {@code OutboxRelay}, como para as mensagens gravadas pelo JPA.
+ */
+@Repository
+@Profile("reactive")
+public class EventoOutboxReativoRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public EventoOutboxReativoRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> inserir(Long livroId, String routingKey, String contentType, byte[] payload) {
+        OffsetDateTime agora = OffsetDateTime.now(ZoneOffset.UTC);
+        DatabaseClient.GenericExecuteSpec consulta = databaseClient.sql("insert into tb_evento_outbox "
+                + "(livro_id, routing_key, content_type, payload, criado_em, tentativas, proxima_tentativa) "
+                + "values (:livroId, :routingKey, :contentType, :payload, :criadoEm, 0, :proximaTentativa)");
+        consulta = livroId == null ? consulta.bindNull("livroId", Long.class) : consulta.bind("livroId", livroId);
+        return consulta.bind("routingKey", routingKey)
+                .bind("contentType", contentType)
+                // byte[] vira VARBINARY/bytea; um ByteBuffer seria tratado como BLOB, lido de forma bloqueante pelo H2
+                .bind("payload", payload)
+                .bind("criadoEm", agora)
+                .bind("proximaTentativa", agora)
+                .then();
+    }
+}
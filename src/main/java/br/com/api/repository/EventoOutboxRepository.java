@@ -0,0 +1,26 @@
+package br.com.api.repository;
+
+import br.com.api.model.outbox.EventoOutbox;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    /**
+     * Próximo lote de eventos prontos para publicação, em ordem de gravação, bloqueados até o fim da transação.
+     * Um evento não é entregue enquanto houver um evento anterior do mesmo livro aguardando nova tentativa,
+     * o que preserva a ordem por livro mesmo com falhas.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from EventoOutbox e where e.proximaTentativa <= :agora and not exists ("
+            + "select a.id from EventoOutbox a where a.livroId = e.livroId and a.id < e.id and a.proximaTentativa > :agora) "
+            + "order by e.id")
+    List<EventoOutbox> findLotePendente(@Param("agora") Instant agora, Pageable pageable);
+}
@@ -0,0 +1,33 @@
+package br.com.api.repository;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.paginacao.CursorLivro;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface LivroBuscaRepository {
+
+    Page<Livro> buscar(LivroFiltro filtro, Pageable pageable);
+
+    /**
+     * Como {@link #buscar}, mas já projetado em {@link LivroDto}: lê só as colunas da resposta e não carrega
+     * entidades gerenciadas no contexto de persistência.
+     */
+    Page<LivroDto> buscarDto(LivroFiltro filtro, Pageable pageable);
+
+    /**
+     * Busca até {@code limite} livros na ordem {@code (ordem, id)}, começando logo após o cursor
+     * (ou do início, se ele for nulo). Não executa contagem.
+     */
+    List<Livro> buscarAposCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int limite);
+
+    /**
+     * Como {@link #buscarAposCursor}, projetado em {@link LivroDto}.
+     */
+    List<LivroDto> buscarDtoAposCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int limite);
+}
@@ -0,0 +1,98 @@
+package br.com.api.repository;
+
+import br.com.api.cache.ContagemLivrosCache;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.paginacao.CursorLivro;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Buscas filtradas de livros, em transações somente leitura: com o Hibernate, o Spring desliga o flush automático e
+ * não guarda cópias das entidades para a verificação de alterações. As variantes {@code Dto} vão além e selecionam só
+ * as colunas da resposta numa expressão de construtor, sem criar entidades nem registrá-las no contexto de
+ * persistência; são as usadas pelas listagens da API.
+ */
+@Transactional(readOnly = true)
+public class LivroBuscaRepositoryImpl implements LivroBuscaRepository {
+
+    private static final String SELECT_ENTIDADE = "select l from Livro l";
+    private static final String SELECT_DTO = "select new br.com.api.model.livro.LivroDto(l.id, l.titulo, l.autor, "
+            + "l.isbn, l.disponivel, l.uuidUsuarioKeycloak) from Livro l";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ContagemLivrosCache contagemLivrosCache;
+
+    public LivroBuscaRepositoryImpl(ContagemLivrosCache contagemLivrosCache) {
+        this.contagemLivrosCache = contagemLivrosCache;
+    }
+
+    @Override
+    public Page<Livro> buscar(LivroFiltro filtro, Pageable pageable) {
+        return pagina(SELECT_ENTIDADE, Livro.class, filtro, pageable);
+    }
+
+    @Override
+    public Page<LivroDto> buscarDto(LivroFiltro filtro, Pageable pageable) {
+        return pagina(SELECT_DTO, LivroDto.class, filtro, pageable);
+    }
+
+    @Override
+    public List<Livro> buscarAposCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int limite) {
+        return aposCursor(SELECT_ENTIDADE, Livro.class, filtro, ordem, cursor, limite);
+    }
+
+    @Override
+    public List<LivroDto> buscarDtoAposCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int limite) {
+        return aposCursor(SELECT_DTO, LivroDto.class, filtro, ordem, cursor, limite);
+    }
+
+    private <T> Page<T> pagina(String select, Class<T> tipo, LivroFiltro filtro, Pageable pageable) {
+        PlanoBuscaLivro plano = PlanoBuscaLivro.planejar(filtro);
+
+        TypedQuery<T> query = entityManager.createQuery(
+                select + plano.where() + PlanoBuscaLivro.orderBy(pageable.getSort()), tipo);
+        plano.aplicarParametros(query);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<T> conteudo = query.getResultList();
+
+        // o count só é executado quando não dá para deduzir o total a partir da própria página
+        return PageableExecutionUtils.getPage(conteudo, pageable, () -> contar(plano));
+    }
+
+    private <T> List<T> aposCursor(String select, Class<T> tipo, LivroFiltro filtro, Sort.Order ordem,
+                                   CursorLivro cursor, int limite) {
+        PlanoBuscaLivro plano = PlanoBuscaLivro.planejar(filtro);
+        if (cursor != null) {
+            plano.aposCursor(cursor);
+        }
+
+        TypedQuery<T> query = entityManager.createQuery(
+                select + plano.where() + PlanoBuscaLivro.orderByCursor(ordem), tipo);
+        plano.aplicarParametros(query);
+        query.setMaxResults(limite);
+        return query.getResultList();
+    }
+
+    private long contar(PlanoBuscaLivro plano) {
+        return contagemLivrosCache.contar(plano.chave(), () -> {
+            TypedQuery<Long> query = entityManager.createQuery("select count(l) from Livro l" + plano.where(), Long.class);
+            plano.aplicarParametros(query);
+            return query.getSingleResult();
+        });
+    }
+}
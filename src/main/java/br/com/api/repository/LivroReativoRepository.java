@@ -0,0 +1,288 @@
+package br.com.api.repository;
+
+import br.com.api.cache.ContagemLivrosCache;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.paginacao.CursorLivro;
+import br.com.api.repository.PlanoBuscaLivro.Linguagem;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Acesso reativo (R2DBC) à {@code tb_livro} do perfil {@code reactive}, com as mesmas consultas do
+ * {@link LivroRepository}: os filtros e a paginação por cursor vêm do {@link PlanoBuscaLivro}, em SQL, o total das
+ * páginas passa pelo {@link ContagemLivrosCache} e aluguel e devolução são atualizações condicionais.
+ *
+ * <p>Os IDs vêm da mesma sequência {@code sq_livro} usada pelo Hibernate e com o mesmo otimizador pooled: cada
+ * {@code nextval} reserva um bloco de {@value #TAMANHO_BLOCO_IDS} IDs, que termina no valor lido.
+ */
+@Repository
+@Profile("reactive")
+public class LivroReativoRepository {
+
+    /**
+     * Igual ao {@code allocationSize} do {@code @SequenceGenerator} de {@link Livro} e ao incremento da sequência.
+     */
+    static final int TAMANHO_BLOCO_IDS = 50;
+
+    private static final String SELECT_LIVRO =
+            "select id_livro, titulo, autor, isbn, disponivel, uuid_usuario_keycloak, versao from tb_livro";
+
+    private final DatabaseClient databaseClient;
+    private final ContagemLivrosCache contagemLivrosCache;
+    private final String sqlProximoBlocoIds;
+
+    private final Object travaIds = new Object();
+    private long proximoId = 1;
+    private long ultimoIdReservado = 0;
+
+    public LivroReativoRepository(DatabaseClient databaseClient, ContagemLivrosCache contagemLivrosCache) {
+        this.databaseClient = databaseClient;
+        this.contagemLivrosCache = contagemLivrosCache;
+        String banco = databaseClient.getConnectionFactory().getMetadata().getName().toLowerCase(Locale.ROOT);
+        this.sqlProximoBlocoIds = banco.contains("postgres")
+                ? "select nextval('sq_livro')"
+                : "select next value for sq_livro";
+    }
+
+    public Mono<Livro> findById(Long id) {
+        return databaseClient.sql(SELECT_LIVRO + " where id_livro = :id")
+                .bind("id", id)
+                .map(LivroReativoRepository::livro)
+                .one();
+    }
+
+    /**
+     * Como {@link LivroRepository#findVersaoById}.
+     */
+    public Mono<Long> findVersaoById(Long id) {
+        return databaseClient.sql("select versao from tb_livro where id_livro = :id")
+                .bind("id", id)
+                .map(linha -> linha.get("versao", Long.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("select 1 from tb_livro where id_livro = :id")
+                .bind("id", id)
+                .map(linha -> Boolean.TRUE)
+                .first()
+                .hasElement();
+    }
+
+    public Mono<Page<Livro>> buscar(LivroFiltro filtro, Pageable pageable) {
+        PlanoBuscaLivro plano = PlanoBuscaLivro.planejar(filtro, Linguagem.SQL);
+        String sql = SELECT_LIVRO + plano.where() + PlanoBuscaLivro.orderBy(pageable.getSort(), Linguagem.SQL);
+        if (pageable.isPaged()) {
+            sql += " limit :limite offset :deslocamento";
+        }
+        DatabaseClient.GenericExecuteSpec consulta = plano.aplicarParametros(databaseClient.sql(sql));
+        if (pageable.isPaged()) {
+            consulta = consulta.bind("limite", pageable.getPageSize()).bind("deslocamento", pageable.getOffset());
+        }
+        return consulta.map(LivroReativoRepository::livro)
+                .all()
+                .collectList()
+                .flatMap(conteudo -> pagina(conteudo, pageable, plano));
+    }
+
+    public Flux<Livro> buscarAposCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int limite) {
+        PlanoBuscaLivro plano = PlanoBuscaLivro.planejar(filtro, Linguagem.SQL);
+        if (cursor != null) {
+            plano.aposCursor(cursor);
+        }
+        return plano.aplicarParametros(databaseClient.sql(
+                        SELECT_LIVRO + plano.where() + PlanoBuscaLivro.orderByCursor(ordem, Linguagem.SQL) + " limit :limite"))
+                .bind("limite", limite)
+                .map(LivroReativoRepository::livro)
+                .all();
+    }
+
+    /**
+     * Mesmo lote da exportação de {@link LivroRepository#findLoteAposId}, já em {@link LivroDto}.
+     */
+    public Flux<LivroDto> findLoteAposId(Long ultimoId, int tamanho) {
+        return databaseClient.sql("select id_livro, titulo, autor, isbn, disponivel, uuid_usuario_keycloak from tb_livro "
+                        + "where id_livro > :ultimoId order by id_livro asc limit :limite")
+                .bind("ultimoId", ultimoId)
+                .bind("limite", tamanho)
+                .map(LivroReativoRepository::livroDto)
+                .all();
+    }
+
+    /**
+     * Como {@link LivroRepository#findAlugadosPorUsuario}.
+     */
+    public Flux<LivroDto> findAlugadosPorUsuario(String uuidUsuario) {
+        return databaseClient.sql("select id_livro, titulo, autor, isbn, disponivel, uuid_usuario_keycloak from tb_livro "
+                        + "where uuid_usuario_keycloak = :uuidUsuario and disponivel = false order by id_livro asc")
+                .bind("uuidUsuario", uuidUsuario)
+                .map(LivroReativoRepository::livroDto)
+                .all();
+    }
+
+    /**
+     * Insere o livro com um novo ID e a versão inicial, preenchidos no próprio objeto.
+     */
+    public Mono<Livro> inserir(Livro livro) {
+        return proximoId().flatMap(id -> dados(databaseClient.sql("insert into tb_livro "
+                                + "(id_livro, titulo, autor, isbn, disponivel, uuid_usuario_keycloak, versao) "
+                                + "values (:id, :titulo, :autor, :isbn, :disponivel, :uuidUsuario, 0)"), livro)
+                        .bind("id", id)
+                        .fetch()
+                        .rowsUpdated()
+                        .then(Mono.fromSupplier(() -> {
+                            livro.setId(id);
+                            livro.setVersao(0L);
+                            return livro;
+                        })));
+    }
+
+    /**
+     * Grava os dados do livro se a versão no banco ainda for a do objeto, incrementando-a como o {@code @Version} do
+     * JPA; caso contrário, falha com {@link OptimisticLockingFailureException}.
+     */
+    public Mono<Livro> atualizar(Livro livro) {
+        return dados(databaseClient.sql("update tb_livro set titulo = :titulo, autor = :autor, isbn = :isbn, "
+                        + "disponivel = :disponivel, uuid_usuario_keycloak = :uuidUsuario, versao = versao + 1 "
+                        + "where id_livro = :id and versao = :versao"), livro)
+                .bind("id", livro.getId())
+                .bind("versao", livro.getVersao())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(linhas -> {
+                    if (linhas == 0) {
+                        return Mono.error(new OptimisticLockingFailureException(
+                                "Livro " + livro.getId() + " alterado ou removido por outra transação"));
+                    }
+                    livro.setVersao(livro.getVersao() + 1);
+                    return Mono.just(livro);
+                });
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql("delete from tb_livro where id_livro = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Como {@link LivroRepository#alugar}: retorna 0 quando o livro não existe ou já está alugado.
+     */
+    public Mono<Long> alugar(Long id, String uuidUsuario) {
+        return vincular(databaseClient.sql("update tb_livro set disponivel = false, uuid_usuario_keycloak = :uuidUsuario, "
+                        + "versao = versao + 1 where id_livro = :id and disponivel = true"), "uuidUsuario", uuidUsuario)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Como {@link LivroRepository#devolver}: retorna 0 quando o livro não existe ou não está alugado.
+     */
+    public Mono<Long> devolver(Long id) {
+        return databaseClient.sql("update tb_livro set disponivel = true, uuid_usuario_keycloak = null, "
+                        + "versao = versao + 1 where id_livro = :id and disponivel = false")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Próximo ID do bloco reservado. Só a troca de bloco consulta o banco; se duas trocas acontecerem ao mesmo tempo,
+     * a que chegar depois usa o primeiro ID do seu bloco e descarta o resto, como acontece com IDs de transações
+     * desfeitas.
+     */
+    private Mono<Long> proximoId() {
+        return Mono.defer(() -> {
+            synchronized (travaIds) {
+                if (proximoId <= ultimoIdReservado) {
+                    return Mono.just(proximoId++);
+                }
+            }
+            return databaseClient.sql(sqlProximoBlocoIds)
+                    .map(linha -> linha.get(0, Long.class))
+                    .one()
+                    .map(fimBloco -> {
+                        long inicioBloco = fimBloco - TAMANHO_BLOCO_IDS + 1;
+                        synchronized (travaIds) {
+                            if (proximoId > ultimoIdReservado) {
+                                proximoId = inicioBloco + 1;
+                                ultimoIdReservado = fimBloco;
+                            }
+                        }
+                        return inicioBloco;
+                    });
+        });
+    }
+
+    /**
+     * Mesma regra do {@code PageableExecutionUtils}: o count só é executado quando não dá para deduzir o total a partir
+     * da própria página.
+     */
+    private Mono<Page<Livro>> pagina(List<Livro> conteudo, Pageable pageable, PlanoBuscaLivro plano) {
+        if (pageable.isUnpaged() || pageable.getOffset() == 0 && conteudo.size() < pageable.getPageSize()) {
+            return Mono.just(new PageImpl<>(conteudo, pageable, conteudo.size()));
+        }
+        if (!conteudo.isEmpty() && conteudo.size() < pageable.getPageSize()) {
+            return Mono.just(new PageImpl<>(conteudo, pageable, pageable.getOffset() + conteudo.size()));
+        }
+        // o futuro pode estar sendo esperado por outras requisições, então o cancelamento desta não o cancela
+        return Mono.fromFuture(() -> contagemLivrosCache.contarAssincrono(plano.chave(), () -> contar(plano).toFuture()),
+                        true)
+                .map(total -> new PageImpl<>(conteudo, pageable, total));
+    }
+
+    private Mono<Long> contar(PlanoBuscaLivro plano) {
+        return plano.aplicarParametros(databaseClient.sql("select count(*) from tb_livro" + plano.where()))
+                .map(linha -> linha.get(0, Long.class))
+                .one();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec dados(DatabaseClient.GenericExecuteSpec consulta, Livro livro) {
+        consulta = vincular(consulta, "titulo", livro.getTitulo());
+        consulta = vincular(consulta, "autor", livro.getAutor());
+        consulta = vincular(consulta, "isbn", livro.getIsbn());
+        consulta = livro.getDisponivel() == null
+                ? consulta.bindNull("disponivel", Boolean.class)
+                : consulta.bind("disponivel", livro.getDisponivel());
+        return vincular(consulta, "uuidUsuario", livro.getUuidUsuarioKeycloak());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec vincular(DatabaseClient.GenericExecuteSpec consulta, String nome,
+                                                               String valor) {
+        return valor == null ? consulta.bindNull(nome, String.class) : consulta.bind(nome, valor);
+    }
+
+    private static LivroDto livroDto(Readable linha) {
+        return new LivroDto(linha.get("id_livro", Long.class), linha.get("titulo", String.class),
+                linha.get("autor", String.class), linha.get("isbn", String.class),
+                linha.get("disponivel", Boolean.class), linha.get("uuid_usuario_keycloak", String.class));
+    }
+
+    private static Livro livro(Readable linha) {
+        Livro livro = new Livro();
+        livro.setId(linha.get("id_livro", Long.class));
+        livro.setTitulo(linha.get("titulo", String.class));
+        livro.setAutor(linha.get("autor", String.class));
+        livro.setIsbn(linha.get("isbn", String.class));
+        livro.setDisponivel(linha.get("disponivel", Boolean.class));
+        livro.setUuidUsuarioKeycloak(linha.get("uuid_usuario_keycloak", String.class));
+        livro.setVersao(linha.get("versao", Long.class));
+        return livro;
+    }
+}
@@ -1,7 +1,80 @@
 package br.com.api.repository;
 
 import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface LivroRepository extends JpaRepository<Livro, Long> {
+import java.util.List;
+import java.util.Optional;
+
+public interface LivroRepository extends JpaRepository<Livro, Long>, LivroBuscaRepository {
+
+    /**
+     * Fora de uma transação somente leitura, para ir ao primário mesmo com uma réplica de leitura configurada: os livros
+     * lidos por ID entram no cache de livros, onde uma versão antiga vinda de uma réplica atrasada ficaria até expirar.
+     */
+    @Override
+    @Transactional
+    Optional<Livro> findById(Long id);
+
+    /**
+     * Leitura por cursor (keyset) para a exportação do catálogo: busca o próximo lote de livros
+     * com id maior que {@code ultimoId}, já projetado em {@link LivroDto}, sem carregar entidades
+     * gerenciadas no contexto de persistência.
+     */
+    @Query("select new br.com.api.model.livro.LivroDto(l.id, l.titulo, l.autor, l.isbn, l.disponivel, l.uuidUsuarioKeycloak) "
+            + "from Livro l where l.id > :ultimoId order by l.id asc")
+    List<LivroDto> findLoteAposId(@Param("ultimoId") Long ultimoId, Pageable pageable);
+
+    /**
+     * Como {@link #findLoteAposId}, limitado aos IDs até {@code ateId}: cada faixa de IDs pode ser lida em paralelo.
+     */
+    @Query("select new br.com.api.model.livro.LivroDto(l.id, l.titulo, l.autor, l.isbn, l.disponivel, l.uuidUsuarioKeycloak) "
+            + "from Livro l where l.id > :ultimoId and l.id <= :ateId order by l.id asc")
+    List<LivroDto> findLoteEntreIds(@Param("ultimoId") Long ultimoId, @Param("ateId") Long ateId, Pageable pageable);
+
+    /**
+     * Livros alugados no momento pelo usuário, pelo índice de {@code uuid_usuario_keycloak}: o estado atual
+     * do aluguel está no próprio livro, sem percorrer o histórico de empréstimos.
+     */
+    @Query("select new br.com.api.model.livro.LivroDto(l.id, l.titulo, l.autor, l.isbn, l.disponivel, l.uuidUsuarioKeycloak) "
+            + "from Livro l where l.uuidUsuarioKeycloak = :uuidUsuario and l.disponivel = false order by l.id asc")
+    List<LivroDto> findAlugadosPorUsuario(@Param("uuidUsuario") String uuidUsuario);
+
+    /**
+     * Só a versão do livro, lida do índice {@code ix_livro_versao} sem acessar a linha, para responder 304 às
+     * leituras condicionais.
+     */
+    @Query("select l.versao from Livro l where l.id = :id")
+    Optional<Long> findVersaoById(@Param("id") Long id);
+
+    @Query("select min(l.id) from Livro l")
+    Long findMenorId();
+
+    @Query("select max(l.id) from Livro l")
+    Long findMaiorId();
+
+    /**
+     * Aluga o livro numa única instrução, apenas se ele estiver disponível. Retorna 0 quando o livro não existe ou
+     * já está alugado; como a condição é verificada pelo banco na própria atualização, dois aluguéis simultâneos do
+     * mesmo livro nunca dão certo ao mesmo tempo.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Livro l set l.disponivel = false, l.uuidUsuarioKeycloak = :uuidUsuario, l.versao = l.versao + 1 "
+            + "where l.id = :id and l.disponivel = true")
+    int alugar(@Param("id") Long id, @Param("uuidUsuario") String uuidUsuario);
+
+    /**
+     * Devolve o livro numa única instrução, apenas se ele estiver alugado. Retorna 0 quando o livro não existe ou
+     * não está alugado.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Livro l set l.disponivel = true, l.uuidUsuarioKeycloak = null, l.versao = l.versao + 1 "
+            + "where l.id = :id and l.disponivel = false")
+    int devolver(@Param("id") Long id);
 }
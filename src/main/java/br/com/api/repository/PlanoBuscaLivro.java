@@ -0,0 +1,251 @@
+package br.com.api.repository;
+
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.paginacao.CursorLivro;
+import jakarta.persistence.Query;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Traduz um {@link LivroFiltro} em JPQL que usa os índices das colunas de busca em minúsculas
+ * ({@code titulo_busca}, {@code autor_busca}) e de {@code isbn}. Para cada texto, escolhe a estratégia
+ * mais barata: igualdade, prefixo ({@code LIKE 'x%'}, também atendido por índice) ou "contém"
+ * ({@code LIKE '%x%'}, atendido pelos índices de trigramas no PostgreSQL). Um curinga no início, com ou sem outro no
+ * fim, busca em qualquer posição; um curinga sozinho não restringe o campo. Curingas em outras posições são texto.
+ *
+ * <p>Filtros com os mesmos campos e estratégias geram sempre o mesmo JPQL, então o Hibernate reaproveita
+ * a consulta já interpretada no seu cache de planos.
+ *
+ * <p>O mesmo plano também é gerado em SQL, com as colunas da tabela e parâmetros nomeados, para o
+ * {@link LivroReativoRepository}.
+ */
+final class PlanoBuscaLivro {
+
+    enum Estrategia { QUALQUER, IGUALDADE, PREFIXO, CONTEM }
+
+    /**
+     * Nomes dos campos e marcadores de parâmetro de cada linguagem de consulta.
+     */
+    enum Linguagem {
+        JPQL(Map.of(
+                "id", "l.id",
+                "titulo", "l.titulo",
+                "autor", "l.autor",
+                "isbn", "l.isbn",
+                "disponivel", "l.disponivel",
+                "tituloBusca", "l.tituloBusca",
+                "autorBusca", "l.autorBusca")),
+        SQL(Map.of(
+                "id", "id_livro",
+                "titulo", "titulo",
+                "autor", "autor",
+                "isbn", "isbn",
+                "disponivel", "disponivel",
+                "tituloBusca", "titulo_busca",
+                "autorBusca", "autor_busca"));
+
+        private final Map<String, String> campos;
+
+        Linguagem(Map<String, String> campos) {
+            this.campos = campos;
+        }
+
+        String campo(String propriedade) {
+            return campos.get(propriedade);
+        }
+
+        String marcador(int posicao) {
+            return this == JPQL ? "?" + posicao : ":p" + posicao;
+        }
+    }
+
+    private static final String CURINGA = "*";
+    private static final char ESCAPE = '!';
+
+    private static final List<String> ORDENACOES_PERMITIDAS = List.of("id", "titulo", "autor", "isbn", "disponivel");
+
+    private final Linguagem linguagem;
+    private final StringBuilder where = new StringBuilder();
+    private final List<Object> parametros = new ArrayList<>(4);
+
+    private PlanoBuscaLivro(Linguagem linguagem) {
+        this.linguagem = linguagem;
+    }
+
+    static PlanoBuscaLivro planejar(LivroFiltro filtro) {
+        return planejar(filtro, Linguagem.JPQL);
+    }
+
+    static PlanoBuscaLivro planejar(LivroFiltro filtro, Linguagem linguagem) {
+        PlanoBuscaLivro plano = new PlanoBuscaLivro(linguagem);
+        if (filtro == null) {
+            return plano;
+        }
+        plano.texto(linguagem.campo("tituloBusca"), filtro.titulo());
+        plano.texto(linguagem.campo("autorBusca"), filtro.autor());
+        if (temValor(filtro.isbn())) {
+            plano.condicao(linguagem.campo("isbn") + " = ", filtro.isbn().trim());
+        }
+        if (filtro.disponivel() != null) {
+            plano.condicao(linguagem.campo("disponivel") + " = ", filtro.disponivel());
+        }
+        return plano;
+    }
+
+    static Estrategia estrategia(String valor) {
+        if (semCuringas(valor).isEmpty()) {
+            return Estrategia.QUALQUER;
+        }
+        if (valor.startsWith(CURINGA)) {
+            return Estrategia.CONTEM;
+        }
+        return valor.endsWith(CURINGA) ? Estrategia.PREFIXO : Estrategia.IGUALDADE;
+    }
+
+    /**
+     * Restringe aos livros posteriores ao cursor na ordem {@code (chave, id)}, o que permite ao banco buscar
+     * a página pelo índice em vez de descartar linhas com OFFSET. A condição é uma comparação de linhas,
+     * {@code (chave, id) > (?, ?)}, que o banco resolve como o início de um intervalo nos índices
+     * {@code (chave, id_livro)}; o Hibernate a expande em {@code or}/{@code and} nos dialetos que não a suportam.
+     */
+    PlanoBuscaLivro aposCursor(CursorLivro cursor) {
+        String operador = cursor.direcao().isAscending() ? " > " : " < ";
+        String campoId = linguagem.campo("id");
+        if ("id".equals(cursor.propriedade())) {
+            condicao(campoId + operador, cursor.id());
+            return this;
+        }
+        String caminho = linguagem.campo(cursor.propriedade());
+        String valor = linguagem.marcador(adicionarParametro(cursor.valorTipado()));
+        String id = linguagem.marcador(adicionarParametro(cursor.id()));
+        iniciarCondicao()
+                .append('(').append(caminho).append(", ").append(campoId).append(')').append(operador)
+                .append('(').append(valor).append(", ").append(id).append(')');
+        return this;
+    }
+
+    String where() {
+        return where.toString();
+    }
+
+    /**
+     * Chave que identifica a consulta (condições e valores), usada para cachear o total de registros.
+     */
+    String chave() {
+        return where + parametros.toString();
+    }
+
+    void aplicarParametros(Query query) {
+        for (int i = 0; i < parametros.size(); i++) {
+            query.setParameter(i + 1, parametros.get(i));
+        }
+    }
+
+    DatabaseClient.GenericExecuteSpec aplicarParametros(DatabaseClient.GenericExecuteSpec consulta) {
+        for (int i = 0; i < parametros.size(); i++) {
+            consulta = consulta.bind("p" + (i + 1), parametros.get(i));
+        }
+        return consulta;
+    }
+
+    static String orderBy(Sort sort) {
+        return orderBy(sort, Linguagem.JPQL);
+    }
+
+    static String orderBy(Sort sort, Linguagem linguagem) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        StringBuilder orderBy = new StringBuilder(" order by ");
+        String separador = "";
+        for (Sort.Order order : sort) {
+            if (!ORDENACOES_PERMITIDAS.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Ordenação não suportada: " + order.getProperty());
+            }
+            String caminho = linguagem.campo(order.getProperty());
+            orderBy.append(separador).append(caminho).append(order.isAscending() ? " asc" : " desc");
+            separador = ", ";
+        }
+        return orderBy.toString();
+    }
+
+    /**
+     * Ordenação da paginação por cursor: a chave pedida seguida do id, na mesma direção, como desempate.
+     */
+    static String orderByCursor(Sort.Order ordem) {
+        return orderByCursor(ordem, Linguagem.JPQL);
+    }
+
+    static String orderByCursor(Sort.Order ordem, Linguagem linguagem) {
+        CursorLivro.validarOrdenacao(ordem.getProperty());
+        String direcao = ordem.isAscending() ? " asc" : " desc";
+        String campoId = linguagem.campo("id");
+        if ("id".equals(ordem.getProperty())) {
+            return " order by " + campoId + direcao;
+        }
+        return " order by " + linguagem.campo(ordem.getProperty()) + direcao + ", " + campoId + direcao;
+    }
+
+    private void texto(String caminho, String valor) {
+        if (!temValor(valor)) {
+            return;
+        }
+        String normalizado = valor.trim().toLowerCase(Locale.ROOT);
+        switch (estrategia(normalizado)) {
+            case QUALQUER -> {
+            }
+            case IGUALDADE -> condicao(caminho + " = ", normalizado);
+            case PREFIXO -> like(caminho, escaparLike(semCuringas(normalizado)) + "%");
+            case CONTEM -> like(caminho, "%" + escaparLike(semCuringas(normalizado)) + "%");
+        }
+    }
+
+    private void like(String caminho, String padrao) {
+        condicao(caminho + " like ", padrao);
+        where.append(" escape '").append(ESCAPE).append('\'');
+    }
+
+    private void condicao(String expressao, Object valor) {
+        int posicao = adicionarParametro(valor);
+        iniciarCondicao().append(expressao).append(linguagem.marcador(posicao));
+    }
+
+    private StringBuilder iniciarCondicao() {
+        return where.append(where.isEmpty() ? " where " : " and ");
+    }
+
+    private int adicionarParametro(Object valor) {
+        parametros.add(valor);
+        return parametros.size();
+    }
+
+    /**
+     * O valor sem o curinga inicial e sem o final; os demais ficam como texto.
+     */
+    private static String semCuringas(String valor) {
+        int inicio = valor.startsWith(CURINGA) ? 1 : 0;
+        int fim = valor.length() > inicio && valor.endsWith(CURINGA) ? valor.length() - 1 : valor.length();
+        return valor.substring(inicio, fim);
+    }
+
+    static String escaparLike(String valor) {
+        StringBuilder escapado = new StringBuilder(valor.length() + 4);
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                escapado.append(ESCAPE);
+            }
+            escapado.append(c);
+        }
+        return escapado.toString();
+    }
+
+    private static boolean temValor(String valor) {
+        return valor != null && !valor.isBlank();
+    }
+}
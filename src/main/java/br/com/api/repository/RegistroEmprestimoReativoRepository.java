@@ -0,0 +1,53 @@
+package br.com.api.repository;
+
+import br.com.api.model.emprestimo.RegistroEmprestimoDto;
+import br.com.api.model.emprestimo.TipoEmprestimo;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Histórico de empréstimos pelo R2DBC, com as mesmas operações do {@link RegistroEmprestimoRepository}: a gravação
+ * entra na transação reativa do aluguel ou da devolução.
+ */
+@Repository
+@Profile("reactive")
+public class RegistroEmprestimoReativoRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public RegistroEmprestimoReativoRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> inserir(Long livroId, TipoEmprestimo tipo, String uuidUsuario) {
+        return databaseClient.sql("insert into tb_emprestimo (livro_id, uuid_usuario, tipo, ocorrido_em) "
+                        + "values (:livroId, :uuidUsuario, :tipo, :ocorridoEm)")
+                .bind("livroId", livroId)
+                .bind("uuidUsuario", uuidUsuario)
+                .bind("tipo", tipo.name())
+                .bind("ocorridoEm", OffsetDateTime.now(ZoneOffset.UTC))
+                .then();
+    }
+
+    /**
+     * Como {@link RegistroEmprestimoRepository#findHistorico}.
+     */
+    public Flux<RegistroEmprestimoDto> findHistorico(Long livroId, Long antesDe, int limite) {
+        return databaseClient.sql("select id_registro, livro_id, uuid_usuario, tipo, ocorrido_em from tb_emprestimo "
+                        + "where livro_id = :livroId and id_registro < :antesDe order by id_registro desc limit :limite")
+                .bind("livroId", livroId)
+                .bind("antesDe", antesDe)
+                .bind("limite", limite)
+                .map(linha -> new RegistroEmprestimoDto(linha.get("id_registro", Long.class),
+                        linha.get("livro_id", Long.class), linha.get("uuid_usuario", String.class),
+                        TipoEmprestimo.valueOf(linha.get("tipo", String.class)),
+                        linha.get("ocorrido_em", OffsetDateTime.class).toInstant()))
+                .all();
+    }
+}
@@ -0,0 +1,22 @@
+package br.com.api.repository;
+
+import br.com.api.model.emprestimo.RegistroEmprestimo;
+import br.com.api.model.emprestimo.RegistroEmprestimoDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface RegistroEmprestimoRepository extends JpaRepository<RegistroEmprestimo, Long> {
+
+    /**
+     * Histórico de um livro, do registro mais recente ao mais antigo, a partir dos anteriores a {@code antesDe}
+     * (keyset pelo índice {@code (livro_id, id_registro)}).
+     */
+    @Query("select new br.com.api.model.emprestimo.RegistroEmprestimoDto(r.id, r.livroId, r.uuidUsuario, r.tipo, "
+            + "r.ocorridoEm) from RegistroEmprestimo r where r.livroId = :livroId and r.id < :antesDe order by r.id desc")
+    List<RegistroEmprestimoDto> findHistorico(@Param("livroId") Long livroId, @Param("antesDe") Long antesDe,
+                                              Pageable pageable);
+}
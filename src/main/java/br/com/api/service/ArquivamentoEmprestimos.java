@@ -0,0 +1,150 @@
+package br.com.api.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Manutenção do histórico de empréstimos ({@code tb_emprestimo}), que só recebe inserções.
+ *
+ * <p>No PostgreSQL a tabela é particionada por mês: o job cria as partições dos próximos
+ * {@code livro.emprestimos.particoes-futuras} meses e passa as partições anteriores à retenção
+ * ({@code livro.emprestimos.retencao-meses}) para {@code tb_emprestimo_arquivo} com DETACH/ATTACH, sem copiar linhas.
+ * Só um nó executa por vez, pelo advisory lock da transação. Nos demais bancos as linhas antigas são copiadas para o
+ * arquivo e removidas em lotes de {@code livro.emprestimos.arquivamento.tamanho-lote}.
+ */
+@Slf4j
+@Service
+public class ArquivamentoEmprestimos {
+
+    /**
+     * Chave do {@code pg_advisory_xact_lock} do arquivamento.
+     */
+    private static final long TRAVA_ARQUIVAMENTO = "tb_emprestimo".hashCode();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int retencaoMeses;
+    private final int particoesFuturas;
+    private final int tamanhoLote;
+
+    public ArquivamentoEmprestimos(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${livro.emprestimos.retencao-meses:12}") int retencaoMeses,
+                                   @Value("${livro.emprestimos.particoes-futuras:3}") int particoesFuturas,
+                                   @Value("${livro.emprestimos.arquivamento.tamanho-lote:10000}") int tamanhoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retencaoMeses = retencaoMeses;
+        this.particoesFuturas = particoesFuturas;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    /**
+     * Na inicialização só garante as partições futuras, para que nenhuma linha caia na partição padrão.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        if (postgres()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (travar()) {
+                    criarParticoes();
+                }
+            });
+        }
+    }
+
+    @Scheduled(cron = "${livro.emprestimos.arquivamento.cron:0 30 3 * * *}")
+    public void arquivar() {
+        if (postgres()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (travar()) {
+                    criarParticoes();
+                    arquivarParticoes();
+                }
+            });
+        } else {
+            arquivarEmLotes();
+        }
+    }
+
+    private void criarParticoes() {
+        List<String> criacoes = jdbcTemplate.queryForList("select format('create table if not exists tb_emprestimo_%s "
+                        + "partition of tb_emprestimo for values from (%L) to (%L)', to_char(mes, 'YYYYMM'), mes, "
+                        + "mes + interval '1 month') from generate_series(date_trunc('month', now()), "
+                        + "date_trunc('month', now()) + make_interval(months => ?), interval '1 month') mes",
+                String.class, particoesFuturas);
+        criacoes.forEach(jdbcTemplate::execute);
+    }
+
+    /**
+     * As partições mensais têm o mês no nome, então as anteriores ao corte são as de nome menor.
+     */
+    private void arquivarParticoes() {
+        List<Map<String, Object>> antigas = jdbcTemplate.queryForList("select c.relname as nome, "
+                        + "pg_get_expr(c.relpartbound, c.oid) as limites from pg_inherits i "
+                        + "join pg_class c on c.oid = i.inhrelid "
+                        + "where i.inhparent = 'tb_emprestimo'::regclass and c.relname ~ '^tb_emprestimo_[0-9]{6}$' "
+                        + "and c.relname < 'tb_emprestimo_' || to_char(date_trunc('month', now()) "
+                        + "- make_interval(months => ?), 'YYYYMM') order by c.relname",
+                retencaoMeses);
+        for (Map<String, Object> particao : antigas) {
+            String nome = (String) particao.get("nome");
+            jdbcTemplate.execute("alter table tb_emprestimo detach partition " + nome);
+            jdbcTemplate.execute("alter table tb_emprestimo_arquivo attach partition " + nome + " "
+                    + particao.get("limites"));
+            log.info("Partição {} do histórico de empréstimos arquivada", nome);
+        }
+    }
+
+    private void arquivarEmLotes() {
+        Timestamp corte = Timestamp.from(LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).minusMonths(retencaoMeses)
+                .atStartOfDay(ZoneOffset.UTC).toInstant());
+        long total = 0;
+        int movidas;
+        do {
+            movidas = transactionTemplate.execute(status -> {
+                Long ultimoId = jdbcTemplate.queryForObject("select max(id_registro) from (select id_registro "
+                        + "from tb_emprestimo where ocorrido_em < ? order by id_registro limit ?) lote",
+                        Long.class, corte, tamanhoLote);
+                if (ultimoId == null) {
+                    return 0;
+                }
+                jdbcTemplate.update("insert into tb_emprestimo_arquivo "
+                        + "(id_registro, livro_id, uuid_usuario, tipo, ocorrido_em) "
+                        + "select id_registro, livro_id, uuid_usuario, tipo, ocorrido_em from tb_emprestimo "
+                        + "where id_registro <= ? and ocorrido_em < ?", ultimoId, corte);
+                return jdbcTemplate.update("delete from tb_emprestimo where id_registro <= ? and ocorrido_em < ?",
+                        ultimoId, corte);
+            });
+            total += movidas;
+        } while (movidas == tamanhoLote);
+        if (total > 0) {
+            log.info("{} registros do histórico de empréstimos arquivados", total);
+        }
+    }
+
+    private boolean travar() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class,
+                TRAVA_ARQUIVAMENTO));
+    }
+
+    private boolean postgres() {
+        String banco = jdbcTemplate.execute((ConnectionCallback<String>) conexao ->
+                conexao.getMetaData().getDatabaseProductName());
+        return banco != null && banco.toLowerCase(Locale.ROOT).contains("postgres");
+    }
+}
@@ -1,22 +1,184 @@
 package br.com.api.service;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import br.com.api.config.FabricaThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envio assíncrono de e-mails. {@link #enviarEmail} só coloca a mensagem numa fila limitada; uma thread de envio
+ * retira as mensagens em lotes e manda cada lote numa única sessão SMTP, respeitando o limite de mensagens por
+ * segundo. Falhas temporárias (conexão, autenticação ou destinatários recusados) são repetidas com backoff
+ * exponencial, apenas para as mensagens que falharam.
+ *
+ * <p>Com a fila cheia, {@link #enviarEmail} espera até {@code livro.email.espera-fila} e então lança
+ * {@link IllegalStateException}; quem chama decide se descarta ou tenta de novo.
+ */
+@Slf4j
 @Service
 public class EmailService {
 
-    @Autowired
-    private JavaMailSender mailSender;
+    private final JavaMailSender mailSender;
+    private final BlockingQueue<SimpleMailMessage> fila;
+    private final String remetente;
+    private final int tamanhoLote;
+    private final Duration esperaFila;
+    private final long intervaloEntreMensagensNanos;
+    private final int maximoTentativas;
+    private final Duration backoffInicial;
+    private final Duration backoffMaximo;
+    private final Counter enviados;
+    private final Counter descartados;
+    private final Thread envio;
+    private long proximoEnvioPermitido = System.nanoTime();
+
+    public EmailService(JavaMailSender mailSender,
+                        MeterRegistry meterRegistry,
+                        @Value("${livro.email.remetente:email@gmail.com.br}") String remetente,
+                        @Value("${livro.email.capacidade-fila:10000}") int capacidadeFila,
+                        @Value("${livro.email.tamanho-lote:50}") int tamanhoLote,
+                        @Value("${livro.email.espera-fila:5s}") Duration esperaFila,
+                        @Value("${livro.email.limite-por-segundo:20}") double limitePorSegundo,
+                        @Value("${livro.email.maximo-tentativas:5}") int maximoTentativas,
+                        @Value("${livro.email.backoff-inicial:1s}") Duration backoffInicial,
+                        @Value("${livro.email.backoff-maximo:1m}") Duration backoffMaximo,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.mailSender = mailSender;
+        this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+        this.remetente = remetente;
+        this.tamanhoLote = tamanhoLote;
+        this.esperaFila = esperaFila;
+        // limite 0 ou negativo desliga a limitação
+        this.intervaloEntreMensagensNanos = limitePorSegundo > 0 ? (long) (1_000_000_000L / limitePorSegundo) : 0;
+        this.maximoTentativas = maximoTentativas;
+        this.backoffInicial = backoffInicial;
+        this.backoffMaximo = backoffMaximo;
+        this.enviados = Counter.builder("livro.email.enviados").register(meterRegistry);
+        this.descartados = Counter.builder("livro.email.descartados")
+                .description("E-mails abandonados depois de esgotar as tentativas")
+                .register(meterRegistry);
+        Gauge.builder("livro.email.fila", fila, BlockingQueue::size).register(meterRegistry);
+        this.envio = FabricaThreads.criar("email-envio-", threadsVirtuais).newThread(this::enviarPendentes);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        envio.start();
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        envio.interrupt();
+        envio.join(TimeUnit.SECONDS.toMillis(10));
+        if (!fila.isEmpty()) {
+            log.warn("{} e-mails pendentes não foram enviados no encerramento", fila.size());
+        }
+    }
 
     public void enviarEmail(String to, String subject, String text) {
         SimpleMailMessage mensagem = new SimpleMailMessage();
         mensagem.setTo(to);
         mensagem.setSubject(subject);
         mensagem.setText(text);
-        mensagem.setFrom("email@gmail.com.br");
-        mailSender.send(mensagem);
+        mensagem.setFrom(remetente);
+        try {
+            if (!fila.offer(mensagem, esperaFila.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Fila de e-mails cheia");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido ao enfileirar o e-mail", e);
+        }
+    }
+
+    private void enviarPendentes() {
+        List<SimpleMailMessage> lote = new ArrayList<>(tamanhoLote);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                lote.add(fila.take());
+                fila.drainTo(lote, tamanhoLote - 1);
+                aguardarLimite(lote.size());
+                enviarComTentativas(lote);
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Limita a vazão média: cada lote reserva o tempo de envio das suas mensagens e o próximo lote espera esse tempo.
+     */
+    private void aguardarLimite(int mensagens) throws InterruptedException {
+        long agora = System.nanoTime();
+        long espera = proximoEnvioPermitido - agora;
+        if (espera > 0) {
+            TimeUnit.NANOSECONDS.sleep(espera);
+        }
+        proximoEnvioPermitido = Math.max(proximoEnvioPermitido, agora) + mensagens * intervaloEntreMensagensNanos;
+    }
+
+    private void enviarComTentativas(List<SimpleMailMessage> lote) throws InterruptedException {
+        List<SimpleMailMessage> pendentes = lote;
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                // JavaMailSender abre uma única conexão para todas as mensagens do array
+                mailSender.send(pendentes.toArray(SimpleMailMessage[]::new));
+                enviados.increment(pendentes.size());
+                return;
+            } catch (MailSendException e) {
+                List<SimpleMailMessage> falhas = falhas(e, pendentes);
+                enviados.increment(pendentes.size() - falhas.size());
+                if (falhas.isEmpty()) {
+                    return;
+                }
+                pendentes = falhas;
+                log.warn("Falha ao enviar {} e-mails (tentativa {})", falhas.size(), tentativa, e);
+            } catch (MailAuthenticationException e) {
+                log.warn("Falha de autenticação no servidor de e-mail (tentativa {})", tentativa, e);
+            } catch (MailException e) {
+                log.error("{} e-mails descartados por erro não recuperável", pendentes.size(), e);
+                descartados.increment(pendentes.size());
+                return;
+            }
+            if (tentativa >= maximoTentativas) {
+                log.error("{} e-mails descartados depois de {} tentativas", pendentes.size(), tentativa);
+                descartados.increment(pendentes.size());
+                return;
+            }
+            Thread.sleep(backoff(tentativa).toMillis());
+        }
+    }
+
+    private static List<SimpleMailMessage> falhas(MailSendException e, List<SimpleMailMessage> enviadas) {
+        if (e.getFailedMessages().isEmpty()) {
+            // falha sem mensagens associadas (por exemplo, ao fechar a conexão): nada a repetir
+            return List.of();
+        }
+        return enviadas.stream()
+                .filter(e.getFailedMessages()::containsKey)
+                .toList();
+    }
+
+    private Duration backoff(int tentativas) {
+        Duration atraso = backoffInicial.multipliedBy(1L << Math.min(tentativas - 1, 20));
+        return atraso.compareTo(backoffMaximo) > 0 ? backoffMaximo : atraso;
     }
 }
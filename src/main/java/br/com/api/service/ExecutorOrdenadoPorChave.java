@@ -0,0 +1,44 @@
+package br.com.api.service;
+
+import br.com.api.config.FabricaThreads;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Distribui tarefas por faixas de execução de uma thread cada (virtual, se {@code virtuais}). Tarefas com a mesma
+ * chave caem sempre na mesma faixa e rodam na ordem em que foram enviadas; chaves diferentes rodam em paralelo.
+ */
+class ExecutorOrdenadoPorChave implements AutoCloseable {
+
+    private final ExecutorService[] faixas;
+
+    ExecutorOrdenadoPorChave(int quantidadeFaixas, String prefixoThread, boolean virtuais) {
+        if (quantidadeFaixas < 1) {
+            throw new IllegalArgumentException("quantidadeFaixas deve ser positivo");
+        }
+        ThreadFactory threadFactory = FabricaThreads.criar(prefixoThread, virtuais);
+        this.faixas = new ExecutorService[quantidadeFaixas];
+        for (int i = 0; i < quantidadeFaixas; i++) {
+            faixas[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+    }
+
+    <T> CompletableFuture<T> executar(long chave, Supplier<T> tarefa) {
+        return CompletableFuture.supplyAsync(tarefa, faixas[Math.floorMod(Long.hashCode(chave), faixas.length)]);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (ExecutorService faixa : faixas) {
+            faixa.shutdown();
+        }
+        for (ExecutorService faixa : faixas) {
+            faixa.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.api.service;
+
+import br.com.api.model.idempotencia.ChaveIdempotencia;
+import br.com.api.model.idempotencia.RespostaIdempotente;
+import br.com.api.repository.ChaveIdempotenciaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Registro das chaves de idempotência no banco, compartilhado entre os nós: a primeira requisição com uma chave a
+ * reserva, e as seguintes encontram a reserva (ainda em execução) ou a resposta gravada. As chaves concluídas valem por
+ * {@code livro.idempotencia.ttl} e as expiradas são removidas a cada {@code livro.idempotencia.limpeza-ms}.
+ *
+ * <p>A reserva, enquanto a escrita executa, vale só por {@code livro.idempotencia.reserva}. Se o nó cair no meio da
+ * escrita, ou se a conclusão ou a liberação falharem, a chave volta a ficar livre depois desse prazo, em vez de
+ * responder 409 até o fim do ttl. O prazo deve ser maior que a duração de qualquer escrita: passado ele, uma repetição
+ * executa a escrita de novo.
+ */
+@Service
+public class IdempotenciaService {
+
+    private final ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+    private final Duration ttl;
+    private final Duration reserva;
+
+    public IdempotenciaService(ChaveIdempotenciaRepository chaveIdempotenciaRepository,
+                               @Value("${livro.idempotencia.ttl:24h}") Duration ttl,
+                               @Value("${livro.idempotencia.reserva:5m}") Duration reserva) {
+        this.chaveIdempotenciaRepository = chaveIdempotenciaRepository;
+        this.ttl = ttl;
+        this.reserva = reserva;
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    /**
+     * Reserva a chave para esta requisição. Vazio quando a reserva deu certo e a escrita deve ser executada; caso
+     * contrário, a chave já registrada por outra requisição, concluída ou não.
+     */
+    public Optional<ChaveIdempotencia> reservar(String chave, String requisicao) {
+        while (true) {
+            Instant agora = Instant.now();
+            chaveIdempotenciaRepository.removerSeExpirada(chave, agora);
+            try {
+                chaveIdempotenciaRepository.reservar(chave, requisicao, agora, agora.plus(reserva));
+                return Optional.empty();
+            } catch (DataIntegrityViolationException e) {
+                // se a outra requisição falhou e liberou a chave nesse meio-tempo, tenta reservar de novo
+                Optional<ChaveIdempotencia> existente = chaveIdempotenciaRepository.findById(chave);
+                if (existente.isPresent()) {
+                    return existente;
+                }
+            }
+        }
+    }
+
+    public void concluir(String chave, RespostaIdempotente resposta) {
+        chaveIdempotenciaRepository.concluir(chave, resposta.status(), resposta.contentType(), resposta.corpo(),
+                Instant.now().plus(ttl));
+    }
+
+    /**
+     * Remove a reserva de uma escrita que falhou, para que a próxima tentativa com a mesma chave seja executada.
+     */
+    public void liberar(String chave) {
+        chaveIdempotenciaRepository.liberar(chave);
+    }
+
+    @Scheduled(initialDelayString = "${livro.idempotencia.limpeza-ms:600000}",
+            fixedDelayString = "${livro.idempotencia.limpeza-ms:600000}")
+    public void removerExpiradas() {
+        chaveIdempotenciaRepository.removerExpiradas(Instant.now());
+    }
+}
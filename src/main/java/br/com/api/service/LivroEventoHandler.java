@@ -0,0 +1,12 @@
+package br.com.api.service;
+
+import br.com.api.model.evento.LivroEvento;
+
+/**
+ * Trata os eventos de livro recebidos da livroQueue. Eventos do mesmo livro chegam em ordem, um de cada vez; eventos
+ * de livros diferentes podem ser tratados em paralelo. Uma exceção manda a mensagem para a fila de dead-letter.
+ */
+public interface LivroEventoHandler {
+
+    void tratar(LivroEvento evento);
+}
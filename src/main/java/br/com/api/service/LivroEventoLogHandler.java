@@ -0,0 +1,15 @@
+package br.com.api.service;
+
+import br.com.api.model.evento.LivroEvento;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class LivroEventoLogHandler implements LivroEventoHandler {
+
+    @Override
+    public void tratar(LivroEvento evento) {
+        log.debug("Evento recebido: {}", evento);
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.api.service;
+
+import br.com.api.model.livro.LivroDto;
+import br.com.api.repository.LivroRepository;
+import io.micrometer.observation.annotation.Observed;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+@Observed(name = "livro.servico")
+@RequiredArgsConstructor
+public class LivroExportacaoService {
+
+    public static final int TAMANHO_LOTE = 1000;
+
+    private final LivroRepository livroRepository;
+
+    @Operation(summary = "Exporta o catálogo de livros",
+            description = "Percorre todos os livros em lotes ordenados por ID (keyset), entregando cada lote ao consumidor. "
+                    + "Cada lote é lido em sua própria transação curta, então a memória usada não depende do tamanho do catálogo.")
+    public void exportarLivros(Consumer<List<LivroDto>> consumidor) {
+        PageRequest lote = PageRequest.ofSize(TAMANHO_LOTE);
+        long ultimoId = Long.MIN_VALUE;
+        List<LivroDto> livros;
+        do {
+            livros = livroRepository.findLoteAposId(ultimoId, lote);
+            if (livros.isEmpty()) {
+                return;
+            }
+            consumidor.accept(livros);
+            ultimoId = livros.get(livros.size() - 1).getId();
+        } while (livros.size() == TAMANHO_LOTE);
+    }
+}
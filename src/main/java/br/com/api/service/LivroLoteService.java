@@ -0,0 +1,279 @@
+package br.com.api.service;
+
+import br.com.api.busca.IndiceLivros;
+import br.com.api.cache.LivroCache;
+import br.com.api.mapper.LivroMapper;
+import br.com.api.model.evento.LoteLivrosEvento;
+import br.com.api.model.evento.TipoEventoLivro;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.lote.ErroItemLote;
+import br.com.api.model.lote.ResultadoLote;
+import br.com.api.repository.LivroRepository;
+import io.micrometer.observation.annotation.Observed;
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cargas em lote do catálogo. Os itens são lidos aos poucos de um iterador (normalmente o corpo da requisição) e
+ * gravados em blocos de {@code livro.lote.tamanho-bloco}, cada bloco na sua transação e com as instruções agrupadas
+ * em lotes JDBC. Um item inválido é reportado sem impedir a gravação dos demais; se o banco recusar o bloco, ele é
+ * refeito item a item para apontar quais falharam. Cada bloco confirmado gera um único {@link LoteLivrosEvento}.
+ */
+@Service
+@Observed(name = "livro.servico")
+public class LivroLoteService {
+
+    private final LivroRepository livroRepository;
+    private final OutboxService outboxService;
+    private final LivroCache livroCache;
+    private final IndiceLivros indiceLivros;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final int tamanhoBloco;
+    private final int maximoErros;
+
+    public LivroLoteService(LivroRepository livroRepository,
+                            OutboxService outboxService,
+                            LivroCache livroCache,
+                            IndiceLivros indiceLivros,
+                            TransactionTemplate transactionTemplate,
+                            EntityManager entityManager,
+                            Validator validator,
+                            @Value("${livro.lote.tamanho-bloco:1000}") int tamanhoBloco,
+                            @Value("${livro.lote.maximo-erros:1000}") int maximoErros) {
+        this.livroRepository = livroRepository;
+        this.outboxService = outboxService;
+        this.livroCache = livroCache;
+        this.indiceLivros = indiceLivros;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.tamanhoBloco = tamanhoBloco;
+        this.maximoErros = maximoErros;
+    }
+
+    @Operation(summary = "Cria livros em lote",
+            description = "Cadastra os livros em blocos, cada um com um único evento agregado no outbox.")
+    public ResultadoLote criar(Iterator<LivroDto> livros) {
+        String uuidUsuario = LivroService.uuidUsuarioLogado();
+        return processar(livros, LivroLoteService::id, (itens, erros) -> criarBloco(itens, erros, uuidUsuario));
+    }
+
+    @Operation(summary = "Atualiza livros em lote",
+            description = "Atualiza os livros informados em blocos; cada bloco lê todos os seus livros numa única consulta.")
+    public ResultadoLote atualizar(Iterator<LivroDto> livros) {
+        String uuidUsuario = LivroService.uuidUsuarioLogado();
+        return processar(livros, LivroLoteService::id, (itens, erros) -> atualizarBloco(itens, erros, uuidUsuario));
+    }
+
+    @Operation(summary = "Remove livros em lote",
+            description = "Remove os livros pelos IDs informados em blocos, com uma única instrução de remoção por bloco.")
+    public ResultadoLote remover(Iterator<Long> ids) {
+        String uuidUsuario = LivroService.uuidUsuarioLogado();
+        return processar(ids, Function.identity(), (itens, erros) -> removerBloco(itens, erros, uuidUsuario));
+    }
+
+    private void criarBloco(List<Item<LivroDto>> itens, List<ErroItemLote> erros, String uuidUsuario) {
+        List<Livro> livros = new ArrayList<>(itens.size());
+        for (Item<LivroDto> item : itens) {
+            if (item.valor() == null) {
+                erros.add(new ErroItemLote(item.indice(), null, "Item vazio"));
+                continue;
+            }
+            Livro livro = LivroMapper.mapToEntity(item.valor());
+            livro.setId(null);
+            livro.setDisponivel(true);
+            if (valido(item, livro, erros)) {
+                livros.add(livro);
+            }
+        }
+        if (livros.isEmpty()) {
+            return;
+        }
+        livroRepository.saveAll(livros);
+        indiceLivros.indexar(livros);
+        outboxService.registrar(LoteLivrosEvento.de(TipoEventoLivro.CRIADO, uuidUsuario, itensEvento(livros)));
+    }
+
+    private void atualizarBloco(List<Item<LivroDto>> itens, List<ErroItemLote> erros, String uuidUsuario) {
+        Map<Long, Livro> existentes = buscarExistentes(itens.stream().map(item -> id(item.valor())).toList());
+        Map<Long, Livro> alterados = new LinkedHashMap<>();
+        for (Item<LivroDto> item : itens) {
+            Long id = id(item.valor());
+            Livro existente = id == null ? null : existentes.get(id);
+            if (existente == null) {
+                erros.add(new ErroItemLote(item.indice(), id, id == null ? "ID do livro é obrigatório" : "Livro não encontrado"));
+                continue;
+            }
+            Livro dados = LivroMapper.mapToEntity(item.valor());
+            if (valido(item, dados, erros)) {
+                LivroMapper.copiarDados(dados, existente);
+                alterados.put(id, existente);
+            }
+        }
+        if (alterados.isEmpty()) {
+            return;
+        }
+        // grava agora para que as versões do evento já sejam as incrementadas
+        livroRepository.flush();
+        livroCache.invalidarLote(alterados.keySet());
+        indiceLivros.indexar(alterados.values());
+        outboxService.registrar(LoteLivrosEvento.de(TipoEventoLivro.ATUALIZADO, uuidUsuario, itensEvento(alterados.values())));
+    }
+
+    private void removerBloco(List<Item<Long>> itens, List<ErroItemLote> erros, String uuidUsuario) {
+        Map<Long, Livro> existentes = buscarExistentes(itens.stream().map(Item::valor).toList());
+        for (Item<Long> item : itens) {
+            if (item.valor() == null || !existentes.containsKey(item.valor())) {
+                erros.add(new ErroItemLote(item.indice(), item.valor(),
+                        item.valor() == null ? "ID do livro é obrigatório" : "Livro não encontrado"));
+            }
+        }
+        if (existentes.isEmpty()) {
+            return;
+        }
+        livroRepository.deleteAllByIdInBatch(existentes.keySet());
+        livroCache.invalidarLote(existentes.keySet());
+        indiceLivros.remover(existentes.keySet());
+        outboxService.registrar(LoteLivrosEvento.de(TipoEventoLivro.REMOVIDO, uuidUsuario, itensEvento(existentes.values())));
+    }
+
+    private <T> ResultadoLote processar(Iterator<T> itens, Function<T, Long> id, OperacaoBloco<T> operacao) {
+        Resultado resultado = new Resultado();
+        List<Item<T>> bloco = new ArrayList<>(tamanhoBloco);
+        long indice = 0;
+        while (true) {
+            T valor;
+            try {
+                if (!itens.hasNext()) {
+                    break;
+                }
+                valor = itens.next();
+            } catch (RuntimeException e) {
+                // conteúdo malformado: o restante do corpo não pode mais ser lido
+                resultado.falhas(List.of(new ErroItemLote(indice, null, "Conteúdo inválido: " + mensagem(e))));
+                break;
+            }
+            bloco.add(new Item<>(indice++, valor));
+            if (bloco.size() == tamanhoBloco) {
+                gravarBloco(bloco, id, operacao, resultado);
+                bloco.clear();
+            }
+        }
+        if (!bloco.isEmpty()) {
+            gravarBloco(bloco, id, operacao, resultado);
+        }
+        return resultado.resultado(indice);
+    }
+
+    private <T> void gravarBloco(List<Item<T>> bloco, Function<T, Long> id, OperacaoBloco<T> operacao, Resultado resultado) {
+        try {
+            resultado.registrar(bloco.size(), gravar(bloco, operacao));
+        } catch (RuntimeException e) {
+            // o bloco foi desfeito: refaz item a item para separar os itens com problema dos demais
+            for (Item<T> item : bloco) {
+                try {
+                    resultado.registrar(1, gravar(List.of(item), operacao));
+                } catch (RuntimeException erroItem) {
+                    resultado.registrar(1, List.of(new ErroItemLote(item.indice(), id.apply(item.valor()), mensagem(erroItem))));
+                }
+            }
+        }
+    }
+
+    private <T> List<ErroItemLote> gravar(List<Item<T>> itens, OperacaoBloco<T> operacao) {
+        List<ErroItemLote> erros = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> operacao.executar(itens, erros));
+        } finally {
+            // com open-in-view o contexto de persistência dura a requisição inteira: solta as entidades de cada bloco
+            entityManager.clear();
+        }
+        return erros;
+    }
+
+    private Map<Long, Livro> buscarExistentes(List<Long> ids) {
+        List<Long> informados = ids.stream().filter(Objects::nonNull).distinct().toList();
+        return livroRepository.findAllById(informados).stream()
+                .collect(Collectors.toMap(Livro::getId, Function.identity()));
+    }
+
+    private boolean valido(Item<?> item, Livro livro, List<ErroItemLote> erros) {
+        Set<ConstraintViolation<Livro>> violacoes = validator.validate(livro);
+        if (violacoes.isEmpty()) {
+            return true;
+        }
+        erros.add(new ErroItemLote(item.indice(), livro.getId(), violacoes.stream()
+                .map(violacao -> violacao.getPropertyPath() + ": " + violacao.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "))));
+        return false;
+    }
+
+    private static List<LoteLivrosEvento.Item> itensEvento(Iterable<Livro> livros) {
+        List<LoteLivrosEvento.Item> itens = new ArrayList<>();
+        for (Livro livro : livros) {
+            itens.add(new LoteLivrosEvento.Item(livro.getId(), livro.getIsbn(), livro.getVersao() == null ? 0 : livro.getVersao()));
+        }
+        return itens;
+    }
+
+    private static Long id(LivroDto livroDto) {
+        return livroDto == null ? null : livroDto.getId();
+    }
+
+    private static String mensagem(Throwable erro) {
+        return NestedExceptionUtils.getMostSpecificCause(erro).getMessage();
+    }
+
+    @FunctionalInterface
+    private interface OperacaoBloco<T> {
+        void executar(List<Item<T>> itens, List<ErroItemLote> erros);
+    }
+
+    private record Item<T>(long indice, T valor) {
+    }
+
+    private final class Resultado {
+
+        private final List<ErroItemLote> erros = new ArrayList<>();
+        private long processados;
+        private long falhas;
+
+        void registrar(int itens, List<ErroItemLote> errosDoBloco) {
+            processados += itens - errosDoBloco.size();
+            falhas(errosDoBloco);
+        }
+
+        void falhas(List<ErroItemLote> errosDoBloco) {
+            falhas += errosDoBloco.size();
+            for (ErroItemLote erro : errosDoBloco) {
+                if (erros.size() < maximoErros) {
+                    erros.add(erro);
+                }
+            }
+        }
+
+        ResultadoLote resultado(long recebidos) {
+            return new ResultadoLote(recebidos, processados, falhas, List.copyOf(erros));
+        }
+    }
+}
@@ -1,15 +1,186 @@
 package br.com.api.service;
 
 import br.com.api.config.RabbitMQConfig;
+import br.com.api.model.evento.LivroEvento;
+import br.com.api.model.evento.LivroEventoCodec;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consome os eventos de livro da livroQueue em lotes. Cada evento é enviado à faixa do seu livro, então eventos do
+ * mesmo livro são tratados em ordem e livros diferentes em paralelo. O lote só é confirmado ao broker depois que
+ * todas as faixas terminam; eventos que não puderem ser lidos ou tratados são rejeitados e vão para a
+ * {@link RabbitMQConfig#DEAD_LETTER_QUEUE_NAME}.
+ *
+ * <p>Como a entrega é "ao menos uma vez", os IDs dos eventos já tratados ficam guardados por um tempo e as
+ * repetições são confirmadas sem chamar os handlers de novo.
+ *
+ * <p>Métricas: {@code livro.eventos.consumidos} (por resultado), {@code livro.eventos.atraso} (tempo entre a
+ * operação e o tratamento), {@code livro.eventos.lote} (duração de cada lote) e {@code livro.eventos.pendentes}
+ * (mensagens na fila). O tratamento de cada evento é um span filho do {@code traceparent} recebido na mensagem.
+ */
+@Slf4j
 @Service
 public class LivroMessageListener {
 
-    //TODO caso queira consumir a mensagem, basta remover os comentários
-//    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME)
-//    public void mensagem(String mensagem) {
-//        System.out.println("############################ TESTEEEEEEE #############################\n" + mensagem);
-//    }
+    private final LivroEventoCodec codec;
+    private final List<LivroEventoHandler> handlers;
+    private final ExecutorOrdenadoPorChave faixas;
+    private final Cache<UUID, Boolean> eventosTratados;
+    private final Counter tratados;
+    private final Counter duplicados;
+    private final Counter rejeitados;
+    private final Timer atraso;
+    private final Timer duracaoLote;
+    private final RastreamentoEventos rastreamentoEventos;
+
+    public LivroMessageListener(LivroEventoCodec codec,
+                                List<LivroEventoHandler> handlers,
+                                AmqpAdmin amqpAdmin,
+                                MeterRegistry meterRegistry,
+                                RastreamentoEventos rastreamentoEventos,
+                                @Value("${livro.eventos.consumidor.faixas:16}") int faixas,
+                                @Value("${livro.eventos.consumidor.deduplicacao.tamanho-maximo:1000000}") long tamanhoDeduplicacao,
+                                @Value("${livro.eventos.consumidor.deduplicacao.ttl:1h}") Duration ttlDeduplicacao,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.codec = codec;
+        this.handlers = List.copyOf(handlers);
+        this.rastreamentoEventos = rastreamentoEventos;
+        this.faixas = new ExecutorOrdenadoPorChave(faixas, "livro-eventos-", threadsVirtuais);
+        this.eventosTratados = Caffeine.newBuilder()
+                .maximumSize(tamanhoDeduplicacao)
+                .expireAfterWrite(ttlDeduplicacao)
+                .build();
+        this.tratados = contador(meterRegistry, "tratado");
+        this.duplicados = contador(meterRegistry, "duplicado");
+        this.rejeitados = contador(meterRegistry, "rejeitado");
+        this.atraso = Timer.builder("livro.eventos.atraso")
+                .description("Tempo entre a operação no livro e o tratamento do evento")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.duracaoLote = Timer.builder("livro.eventos.lote")
+                .description("Duração do tratamento de cada lote recebido da livroQueue")
+                .register(meterRegistry);
+        Gauge.builder("livro.eventos.pendentes", amqpAdmin, LivroMessageListener::mensagensNaFila)
+                .description("Mensagens aguardando na livroQueue")
+                .register(meterRegistry);
+    }
+
+    @RabbitListener(id = "livroEventos", queues = RabbitMQConfig.QUEUE_NAME,
+            containerFactory = "livroEventosContainerFactory")
+    public void receber(List<Message> mensagens, Channel channel) throws IOException {
+        long inicio = System.nanoTime();
+        List<CompletableFuture<Boolean>> resultados = new ArrayList<>(mensagens.size());
+        for (Message mensagem : mensagens) {
+            resultados.add(despachar(mensagem));
+        }
+        CompletableFuture.allOf(resultados.toArray(CompletableFuture[]::new)).join();
+        confirmar(mensagens, resultados, channel);
+        duracaoLote.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void encerrar() throws InterruptedException {
+        faixas.close();
+    }
+
+    private CompletableFuture<Boolean> despachar(Message mensagem) {
+        LivroEvento evento;
+        try {
+            evento = codec.decodificar(mensagem.getBody(), mensagem.getMessageProperties().getContentType());
+        } catch (IllegalArgumentException e) {
+            log.warn("Mensagem {} ilegível, enviada para a dead-letter", mensagem.getMessageProperties().getMessageId(), e);
+            rejeitados.increment();
+            return CompletableFuture.completedFuture(false);
+        }
+        MessageProperties propriedades = mensagem.getMessageProperties();
+        return faixas.executar(evento.livroId(), () -> tratar(evento, propriedades));
+    }
+
+    private boolean tratar(LivroEvento evento, MessageProperties propriedades) {
+        if (eventosTratados.getIfPresent(evento.eventoId()) != null) {
+            duplicados.increment();
+            return true;
+        }
+        Span span = rastreamentoEventos.iniciar("livro.eventos tratar", Span.Kind.CONSUMER, propriedades)
+                .tag("livro.evento.tipo", evento.tipo().name());
+        try (Tracer.SpanInScope escopo = rastreamentoEventos.emEscopo(span)) {
+            for (LivroEventoHandler handler : handlers) {
+                handler.tratar(evento);
+            }
+        } catch (RuntimeException e) {
+            span.error(e);
+            log.error("Falha ao tratar o evento {}, enviado para a dead-letter", evento, e);
+            rejeitados.increment();
+            return false;
+        } finally {
+            span.end();
+        }
+        eventosTratados.put(evento.eventoId(), Boolean.TRUE);
+        tratados.increment();
+        atraso.record(Duration.between(evento.ocorridoEm(), Instant.now()));
+        return true;
+    }
+
+    /**
+     * Sem falhas, um único ack confirma o lote inteiro; caso contrário cada mensagem é confirmada ou rejeitada.
+     * Os acks ficam na thread do container, já que o canal não pode ser usado por várias threads ao mesmo tempo.
+     */
+    private static void confirmar(List<Message> mensagens, List<CompletableFuture<Boolean>> resultados,
+                                  Channel channel) throws IOException {
+        if (resultados.stream().allMatch(CompletableFuture::join)) {
+            channel.basicAck(mensagens.get(mensagens.size() - 1).getMessageProperties().getDeliveryTag(), true);
+            return;
+        }
+        for (int i = 0; i < mensagens.size(); i++) {
+            long deliveryTag = mensagens.get(i).getMessageProperties().getDeliveryTag();
+            if (resultados.get(i).join()) {
+                channel.basicAck(deliveryTag, false);
+            } else {
+                channel.basicNack(deliveryTag, false, false);
+            }
+        }
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("livro.eventos.consumidos")
+                .description("Eventos recebidos da livroQueue")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    private static double mensagensNaFila(AmqpAdmin amqpAdmin) {
+        try {
+            QueueInformation fila = amqpAdmin.getQueueInfo(RabbitMQConfig.QUEUE_NAME);
+            return fila == null ? Double.NaN : fila.getMessageCount();
+        } catch (AmqpException e) {
+            return Double.NaN;
+        }
+    }
 }
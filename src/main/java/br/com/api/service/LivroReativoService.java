@@ -0,0 +1,323 @@
+package br.com.api.service;
+
+import br.com.api.busca.IndiceLivros;
+import br.com.api.cache.LivroCache;
+import br.com.api.mapper.LivroMapper;
+import br.com.api.model.emprestimo.RegistroEmprestimoDto;
+import br.com.api.model.emprestimo.TipoEmprestimo;
+import br.com.api.model.evento.LivroEvento;
+import br.com.api.model.evento.LivroEventoCodec;
+import br.com.api.model.evento.TipoEventoLivro;
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroEncontrado;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.lote.ResultadoLote;
+import br.com.api.model.paginacao.CursorLivro;
+import br.com.api.model.paginacao.PaginaCursor;
+import br.com.api.model.usuario.UsuarioDto;
+import br.com.api.repository.EventoOutboxReativoRepository;
+import br.com.api.repository.LivroReativoRepository;
+import br.com.api.repository.RegistroEmprestimoReativoRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_CACHE_INVALIDACAO;
+
+/**
+ * Regras do {@link LivroService} para o perfil {@code reactive}, sobre o {@link LivroReativoRepository}. Cada escrita
+ * grava o livro e o evento no outbox numa única transação R2DBC, e o {@code OutboxRelay} publica o evento no RabbitMQ
+ * depois do commit, como no modo servlet; o cache de livros e o índice de busca são atualizados só depois do commit.
+ *
+ * <p>As cargas em lote continuam no {@link LivroLoteService}, com JDBC, numa thread do {@code boundedElastic}.
+ */
+@Service
+@Profile("reactive")
+public class LivroReativoService {
+
+    private final LivroReativoRepository livroReativoRepository;
+    private final EventoOutboxReativoRepository eventoOutboxReativoRepository;
+    private final RegistroEmprestimoReativoRepository registroEmprestimoReativoRepository;
+    private final LivroEventoCodec livroEventoCodec;
+    private final LivroCache livroCache;
+    private final IndiceLivros indiceLivros;
+    private final LivroLoteService livroLoteService;
+    private final TransactionalOperator transacao;
+    private final boolean invalidarOutrosNos;
+
+    public LivroReativoService(LivroReativoRepository livroReativoRepository,
+                               EventoOutboxReativoRepository eventoOutboxReativoRepository,
+                               RegistroEmprestimoReativoRepository registroEmprestimoReativoRepository,
+                               LivroEventoCodec livroEventoCodec,
+                               LivroCache livroCache,
+                               IndiceLivros indiceLivros,
+                               LivroLoteService livroLoteService,
+                               DatabaseClient databaseClient,
+                               @Value("${livro.cache.invalidacao:rabbitmq}") String invalidacao) {
+        this.livroReativoRepository = livroReativoRepository;
+        this.eventoOutboxReativoRepository = eventoOutboxReativoRepository;
+        this.registroEmprestimoReativoRepository = registroEmprestimoReativoRepository;
+        this.livroEventoCodec = livroEventoCodec;
+        this.livroCache = livroCache;
+        this.indiceLivros = indiceLivros;
+        this.livroLoteService = livroLoteService;
+        // gerenciador próprio, fora do contexto, para não concorrer com o do JPA nos @Transactional
+        this.transacao = TransactionalOperator.create(new R2dbcTransactionManager(databaseClient.getConnectionFactory()));
+        this.invalidarOutrosNos = "rabbitmq".equals(invalidacao);
+    }
+
+    @Operation(summary = "Cria um novo livro",
+            description = "Cadastra um novo livro e registra a notificação no outbox, na mesma transação R2DBC.")
+    public Mono<Livro> saveCreate(Livro livro, Authentication autenticacao) {
+        livro.setId(null);
+        livro.setDisponivel(true);
+        return livroReativoRepository.inserir(livro)
+                .flatMap(criado -> registrar(TipoEventoLivro.CRIADO.de(criado, LivroService.uuidUsuario(autenticacao)))
+                        .thenReturn(criado))
+                .as(transacao::transactional)
+                .doOnNext(criado -> {
+                    livroCache.atualizar(criado);
+                    indiceLivros.indexar(criado);
+                });
+    }
+
+    @Operation(summary = "Atualiza um livro existente",
+            description = "Atualiza um livro a partir da versão lida na própria transação e registra a notificação no "
+                    + "outbox. Vazio se o livro não existir.")
+    public Mono<Livro> saveUpdate(Livro livro, Authentication autenticacao) {
+        return livroReativoRepository.findById(livro.getId())
+                .flatMap(existente -> {
+                    LivroMapper.copiarDados(livro, existente);
+                    return livroReativoRepository.atualizar(existente);
+                })
+                .flatMap(atualizado -> registrar(TipoEventoLivro.ATUALIZADO.de(atualizado, LivroService.uuidUsuario(autenticacao)))
+                        .then(invalidarOutrosNos(atualizado.getId()))
+                        .thenReturn(atualizado))
+                .as(transacao::transactional)
+                .doOnNext(atualizado -> {
+                    livroCache.invalidarLocal(atualizado.getId());
+                    indiceLivros.indexar(atualizado);
+                });
+    }
+
+    @Operation(summary = "Remove um livro",
+            description = "Remove um livro pelo ID e registra a notificação no outbox. Retorna o livro removido, ou vazio "
+                    + "se ele não existir.")
+    public Mono<Livro> delete(Long id, Authentication autenticacao) {
+        return livroReativoRepository.findById(id)
+                .flatMap(livro -> livroReativoRepository.deleteById(id)
+                        .then(registrar(TipoEventoLivro.REMOVIDO.de(livro, LivroService.uuidUsuario(autenticacao))))
+                        .then(invalidarOutrosNos(id))
+                        .thenReturn(livro))
+                .as(transacao::transactional)
+                .doOnNext(livro -> {
+                    livroCache.invalidarLocal(id);
+                    indiceLivros.remover(id);
+                });
+    }
+
+    @Operation(summary = "Busca um livro pelo ID",
+            description = "Busca um livro específico pelo seu ID, passando pelo cache de livros.")
+    public Mono<Livro> get(Long id) {
+        // o futuro do cache pode estar sendo esperado por outras requisições, então o cancelamento desta não o cancela
+        return Mono.fromFuture(() -> livroCache.buscarAssincrono(id, chave -> livroReativoRepository.findById(chave).toFuture()),
+                        true)
+                .flatMap(livro -> Mono.justOrEmpty(livro));
+    }
+
+    @Operation(summary = "Busca a versão de um livro",
+            description = "Retorna a versão atual do livro, do cache de livros ou do índice de versões, sem carregar o "
+                    + "livro. Usada para responder 304 às leituras com If-None-Match.")
+    public Mono<Long> getVersao(Long id) {
+        return Mono.justOrEmpty(livroCache.versaoEmCache(id))
+                .switchIfEmpty(Mono.defer(() -> livroReativoRepository.findVersaoById(id)));
+    }
+
+    @Operation(summary = "Busca livros por palavras do título e do autor",
+            description = "Consulta o índice de busca em memória, sem acessar o banco. Vazio enquanto o índice é montado "
+                    + "pela primeira vez.")
+    public Optional<List<LivroEncontrado>> buscarTexto(String consulta, boolean prefixo, int limite) {
+        if (!indiceLivros.pronto()) {
+            return Optional.empty();
+        }
+        return Optional.of(indiceLivros.buscar(consulta, prefixo, limite));
+    }
+
+    @Operation(summary = "Busca livros com paginação",
+            description = "Retorna uma página de livros que correspondem ao filtro fornecido, usando os índices de busca.")
+    public Mono<Page<Livro>> getAllPage(LivroFiltro filtro, Pageable pageable) {
+        return livroReativoRepository.buscar(filtro, pageable);
+    }
+
+    @Operation(summary = "Busca livros por cursor",
+            description = "Retorna a próxima página de livros após o cursor, sem contar o total e sem OFFSET.")
+    public Mono<PaginaCursor<Livro>> getAllCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int tamanho) {
+        Sort.Order ordemEfetiva = cursor != null ? cursor.ordem() : ordem;
+        // busca um a mais para saber se existe próxima página
+        return livroReativoRepository.buscarAposCursor(filtro, ordemEfetiva, cursor, tamanho + 1)
+                .collectList()
+                .map(livros -> LivroService.paginaCursor(livros, ordemEfetiva, tamanho));
+    }
+
+    @Operation(summary = "Exporta o catálogo de livros",
+            description = "Emite todos os livros em lotes ordenados por ID (keyset); o próximo lote só é lido quando o "
+                    + "cliente consome o anterior.")
+    public Flux<LivroDto> exportarLivros() {
+        int tamanhoLote = LivroExportacaoService.TAMANHO_LOTE;
+        return livroReativoRepository.findLoteAposId(Long.MIN_VALUE, tamanhoLote)
+                .collectList()
+                .expand(lote -> lote.size() < tamanhoLote
+                        ? Mono.empty()
+                        : livroReativoRepository.findLoteAposId(lote.get(lote.size() - 1).getId(), tamanhoLote).collectList())
+                .concatMapIterable(Function.identity());
+    }
+
+    @Operation(summary = "Lista os livros alugados por um usuário",
+            description = "Retorna os livros alugados no momento pelo usuário informado ou, sem ele, pelo usuário logado.")
+    public Flux<LivroDto> getAlugados(String uuidUsuario, Authentication autenticacao) {
+        return livroReativoRepository.findAlugadosPorUsuario(
+                uuidUsuario != null ? uuidUsuario : LivroService.uuidUsuario(autenticacao));
+    }
+
+    @Operation(summary = "Busca o histórico de aluguéis de um livro",
+            description = "Retorna os aluguéis e devoluções do livro, do mais recente ao mais antigo, anteriores ao "
+                    + "registro antesDe quando informado.")
+    public Flux<RegistroEmprestimoDto> getHistorico(Long livroId, Long antesDe, int tamanho) {
+        return registroEmprestimoReativoRepository.findHistorico(livroId, antesDe != null ? antesDe : Long.MAX_VALUE,
+                tamanho);
+    }
+
+    @Operation(summary = "Aluga um livro",
+            description = "Marca um livro como indisponivel e setta o UUID do usuário ao livro, numa atualização condicional.")
+    public Mono<ResponseEntity<String>> alugarLivro(Long livroId, Authentication autenticacao) {
+        UsuarioDto usuarioDto = LivroService.usuario(autenticacao);
+        return livroReativoRepository.alugar(livroId, usuarioDto.getUuidUsuarioKeyCloak())
+                .flatMap(linhas -> linhas == 0
+                        ? semAlteracao(livroId, "Livro indisponível")
+                        : registrarAluguel(livroId, TipoEventoLivro.ALUGADO, TipoEmprestimo.ALUGUEL, usuarioDto)
+                                .thenReturn(new ResponseEntity<>("Livro alugado com sucesso", HttpStatus.OK)))
+                .as(transacao::transactional)
+                .doOnNext(resposta -> invalidarLocalSeAlterado(livroId, resposta));
+    }
+
+    @Operation(summary = "Devolve um livro",
+            description = "Marca um livro como disponivel e remove o UUID do usuário do livro, numa atualização condicional.")
+    public Mono<ResponseEntity<String>> devolverLivro(Long livroId, Authentication autenticacao) {
+        UsuarioDto usuarioDto = LivroService.usuario(autenticacao);
+        return livroReativoRepository.devolver(livroId)
+                .flatMap(linhas -> linhas == 0
+                        ? semAlteracao(livroId, "Livro não está alugado")
+                        : registrarAluguel(livroId, TipoEventoLivro.DEVOLVIDO, TipoEmprestimo.DEVOLUCAO, usuarioDto)
+                                .thenReturn(new ResponseEntity<>("Livro devolvido!", HttpStatus.OK)))
+                .as(transacao::transactional)
+                .doOnNext(resposta -> invalidarLocalSeAlterado(livroId, resposta));
+    }
+
+    @Operation(summary = "Salva livros em lote",
+            description = "Lê os livros do corpo conforme chegam e os entrega ao LivroLoteService, que grava em blocos.")
+    public Mono<ResultadoLote> criarLote(Flux<LivroDto> livros, Authentication autenticacao) {
+        return emLote(autenticacao, () -> livroLoteService.criar(iterador(livros)));
+    }
+
+    @Operation(summary = "Altera livros em lote",
+            description = "Lê os livros do corpo conforme chegam e os entrega ao LivroLoteService, que altera em blocos.")
+    public Mono<ResultadoLote> atualizarLote(Flux<LivroDto> livros, Authentication autenticacao) {
+        return emLote(autenticacao, () -> livroLoteService.atualizar(iterador(livros)));
+    }
+
+    @Operation(summary = "Remove livros em lote",
+            description = "Lê os IDs do corpo conforme chegam e os entrega ao LivroLoteService, que remove em blocos.")
+    public Mono<ResultadoLote> removerLote(Flux<Long> ids, Authentication autenticacao) {
+        return emLote(autenticacao, () -> livroLoteService.remover(iterador(ids)));
+    }
+
+    /**
+     * Depois da atualização condicional a linha está bloqueada por esta transação, então a leitura traz exatamente a
+     * versão gravada, usada no evento. O registro no histórico de empréstimos entra na mesma transação.
+     */
+    private Mono<Void> registrarAluguel(Long livroId, TipoEventoLivro tipo, TipoEmprestimo tipoEmprestimo,
+                                        UsuarioDto usuarioDto) {
+        // a confirmação por e-mail é enviada pelo NotificacaoAluguelHandler ao consumir o evento
+        return registroEmprestimoReativoRepository.inserir(livroId, tipoEmprestimo, usuarioDto.getUuidUsuarioKeyCloak())
+                .then(livroReativoRepository.findById(livroId))
+                .flatMap(livro -> registrar(tipo.de(livro, usuarioDto)))
+                .then(invalidarOutrosNos(livroId));
+    }
+
+    private Mono<ResponseEntity<String>> semAlteracao(Long livroId, String motivoConflito) {
+        return livroReativoRepository.existsById(livroId)
+                .map(existe -> existe
+                        ? new ResponseEntity<>(motivoConflito, HttpStatus.CONFLICT)
+                        : new ResponseEntity<>("Livro não encontrado", HttpStatus.NO_CONTENT));
+    }
+
+    private void invalidarLocalSeAlterado(Long livroId, ResponseEntity<String> resposta) {
+        if (resposta.getStatusCode() == HttpStatus.OK) {
+            livroCache.invalidarLocal(livroId);
+        }
+    }
+
+    private Mono<Void> registrar(LivroEvento evento) {
+        return eventoOutboxReativoRepository.inserir(evento.livroId(), evento.tipo().getRoutingKey(),
+                livroEventoCodec.contentType(), livroEventoCodec.codificar(evento));
+    }
+
+    /**
+     * Mesma mensagem do {@code CanalInvalidacaoRabbitMQ}, gravada na transação reativa.
+     */
+    private Mono<Void> invalidarOutrosNos(Long livroId) {
+        if (!invalidarOutrosNos) {
+            return Mono.empty();
+        }
+        return eventoOutboxReativoRepository.inserir(livroId, ROUTING_KEY_CACHE_INVALIDACAO, MediaType.TEXT_PLAIN_VALUE,
+                livroId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * O {@link LivroLoteService} é bloqueante e lê o usuário do {@link SecurityContextHolder}, então roda numa thread
+     * do {@code boundedElastic} com a autenticação da requisição.
+     */
+    private static Mono<ResultadoLote> emLote(Authentication autenticacao, Supplier<ResultadoLote> carga) {
+        return Mono.fromCallable(() -> {
+            SecurityContext contexto = SecurityContextHolder.createEmptyContext();
+            contexto.setAuthentication(autenticacao);
+            SecurityContextHolder.setContext(contexto);
+            try {
+                return carga.get();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Consome o corpo conforme o {@link LivroLoteService} avança, com só um pequeno buffer de itens lidos à frente.
+     */
+    private static <T> Iterator<T> iterador(Flux<T> corpo) {
+        return corpo.toIterable().iterator();
+    }
+}
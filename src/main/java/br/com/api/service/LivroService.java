@@ -1,15 +1,30 @@
 package br.com.api.service;
 
+import br.com.api.busca.IndiceLivros;
+import br.com.api.cache.LeiturasCompartilhadas;
+import br.com.api.cache.LivroCache;
+import br.com.api.mapper.LivroMapper;
+import br.com.api.model.emprestimo.RegistroEmprestimo;
+import br.com.api.model.emprestimo.RegistroEmprestimoDto;
+import br.com.api.model.emprestimo.TipoEmprestimo;
+import br.com.api.model.evento.TipoEventoLivro;
 import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroEncontrado;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.paginacao.CursorLivro;
+import br.com.api.model.paginacao.PaginaCursor;
+import br.com.api.model.usuario.UsuarioAutenticado;
 import br.com.api.model.usuario.UsuarioDto;
 import br.com.api.repository.LivroRepository;
+import br.com.api.repository.RegistroEmprestimoRepository;
+import io.micrometer.observation.annotation.Observed;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -19,145 +34,233 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
-
-import static br.com.api.config.RabbitMQConfig.EXCHANGE_NAME;
-import static br.com.api.config.RabbitMQConfig.ROUTING_KEY;
+import java.util.function.Function;
 
 @Service
+@Observed(name = "livro.servico")
 @RequiredArgsConstructor
 public class LivroService {
 
     private final LivroRepository livroRepository;
-    private final RabbitTemplate rabbitTemplate;
-    private final EmailService emailService;
-
-    @Operation(summary = "Busca todos os livros",
-            description = "Retorna uma lista com todos os livros cadastrados.")
-    public List<Livro> getAllLivros() {
-        return livroRepository.findAll();
-    }
+    private final OutboxService outboxService;
+    private final LivroCache livroCache;
+    private final IndiceLivros indiceLivros;
+    private final RegistroEmprestimoRepository registroEmprestimoRepository;
+    private final LeiturasCompartilhadas leiturasCompartilhadas;
 
     @Operation(summary = "Cria um novo livro",
-            description = "Cadastra um novo livro no sistema e notifica via RabbitMQ.")
+            description = "Cadastra um novo livro no sistema e registra a notificação no outbox para o RabbitMQ.")
     @Transactional(rollbackFor = Throwable.class)
     public ResponseEntity<Livro> saveCreate(Livro livro) {
         livro.setId(null);
         livro.setDisponivel(true);
         Livro createdLivro = livroRepository.save(livro);
-        rabbitTemplate.convertAndSend(EXCHANGE_NAME, ROUTING_KEY, "Livro criado: " + createdLivro.getTitulo());
+        livroCache.atualizar(createdLivro);
+        indiceLivros.indexar(createdLivro);
+        outboxService.registrar(TipoEventoLivro.CRIADO.de(createdLivro, uuidUsuarioLogado()));
         return new ResponseEntity<>(createdLivro, HttpStatus.CREATED);
     }
 
     @Operation(summary = "Atualiza um livro existente",
-            description = "Atualiza as informações de um livro já cadastrado e notifica via RabbitMQ.")
+            description = "Atualiza as informações de um livro já cadastrado e registra a notificação no outbox para o RabbitMQ.")
     @Transactional(rollbackFor = Throwable.class)
     public ResponseEntity<Livro> saveUpdate(Livro livro) {
+        // a atualização parte da linha gerenciada, para que a versão incrementada seja a do banco
         return livroRepository.findById(livro.getId())
                 .map(existingLivro -> {
-                    Livro updatedLivro = livroRepository.save(livro);
-                    rabbitTemplate.convertAndSend(EXCHANGE_NAME, ROUTING_KEY,"Livro atualizado: " + updatedLivro.getTitulo());
+                    LivroMapper.copiarDados(livro, existingLivro);
+                    Livro updatedLivro = livroRepository.saveAndFlush(existingLivro);
+                    livroCache.invalidar(updatedLivro.getId());
+                    indiceLivros.indexar(updatedLivro);
+                    outboxService.registrar(TipoEventoLivro.ATUALIZADO.de(updatedLivro, uuidUsuarioLogado()));
                     return new ResponseEntity<>(updatedLivro, HttpStatus.OK);
                 })
                 .orElse(new ResponseEntity<>(HttpStatus.NO_CONTENT));
     }
 
     @Operation(summary = "Remove um livro",
-            description = "Remove um livro do sistema pelo ID e notifica via RabbitMQ.")
+            description = "Remove um livro do sistema pelo ID e registra a notificação no outbox para o RabbitMQ.")
     @Transactional(rollbackFor = Throwable.class)
     public void delete(Long id) {
-        livroRepository.findById(id).ifPresent(livro -> {
+        buscarLivro(id).ifPresent(livro -> {
             livroRepository.deleteById(id);
-            rabbitTemplate.convertAndSend(EXCHANGE_NAME, ROUTING_KEY, "Livro removido: " + livro.getTitulo());
+            livroCache.invalidar(id);
+            indiceLivros.remover(id);
+            outboxService.registrar(TipoEventoLivro.REMOVIDO.de(livro, uuidUsuarioLogado()));
         });
     }
 
     @Operation(summary = "Busca um livro pelo ID",
-            description = "Busca um livro específico pelo seu ID.")
+            description = "Busca um livro específico pelo seu ID, passando pelo cache de livros.")
     public Optional<Livro> get(@PathVariable("id") Long id) {
-        return livroRepository.findById(id);
+        return buscarLivro(id);
+    }
+
+    @Operation(summary = "Busca a versão de um livro",
+            description = "Retorna a versão atual do livro, do cache de livros ou do índice de versões, sem carregar o "
+                    + "livro. Usada para responder 304 às leituras com If-None-Match.")
+    @Transactional(readOnly = true)
+    public Optional<Long> getVersao(Long id) {
+        return livroCache.versaoEmCache(id).or(() -> livroRepository.findVersaoById(id));
+    }
+
+    @Operation(summary = "Busca livros por palavras do título e do autor",
+            description = "Consulta o índice de busca em memória, sem acessar o banco. Vazio enquanto o índice é montado "
+                    + "pela primeira vez.")
+    public Optional<List<LivroEncontrado>> buscarTexto(String consulta, boolean prefixo, int limite) {
+        if (!indiceLivros.pronto()) {
+            return Optional.empty();
+        }
+        return Optional.of(indiceLivros.buscar(consulta, prefixo, limite));
     }
 
     @Operation(summary = "Busca livros com paginação",
-            description = "Retorna uma página de livros que correspondem ao filtro fornecido.")
-    public Page<Livro> getAllPage(Livro filter, Pageable pageable) {
-        return livroRepository.findAll(createExample(filter), pageable);
+            description = "Retorna uma página de livros que correspondem ao filtro fornecido, usando os índices de busca. "
+                    + "Os livros já vêm do banco como LivroDto, sem carregar entidades. Pedidos simultâneos da mesma "
+                    + "página compartilham uma única consulta.")
+    public Page<LivroDto> getAllPage(LivroFiltro filtro, Pageable pageable) {
+        // sem transação aqui: quem espera a leitura compartilhada não deve segurar uma conexão
+        return leiturasCompartilhadas.executar(new LeituraPagina(filtro, pageable),
+                () -> livroRepository.buscarDto(filtro, pageable));
+    }
+
+    @Operation(summary = "Busca livros por cursor",
+            description = "Retorna a próxima página de livros após o cursor, sem contar o total e sem OFFSET. Pedidos "
+                    + "simultâneos da mesma página compartilham uma única consulta.")
+    public PaginaCursor<LivroDto> getAllCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int tamanho) {
+        Sort.Order ordemEfetiva = cursor != null ? cursor.ordem() : ordem;
+        return leiturasCompartilhadas.executar(new LeituraCursor(filtro, ordemEfetiva, cursor, tamanho), () -> {
+            // busca um a mais para saber se existe próxima página
+            List<LivroDto> livros = livroRepository.buscarDtoAposCursor(filtro, ordemEfetiva, cursor, tamanho + 1);
+            return paginaCursor(livros, tamanho, ultimo -> CursorLivro.apos(ultimo, ordemEfetiva));
+        });
     }
 
-    @Operation(summary = "Cria um filtro de busca",
-            description = "Cria um exemplo de correspondência insensível a maiúsculas e minúsculas.")
-    private Example<Livro> createExample(Livro filter) {
-        ExampleMatcher caseInsensitiveExampleMatcher = ExampleMatcher.matchingAll().withIgnoreCase();
-        return Example.of(filter, caseInsensitiveExampleMatcher);
+    /**
+     * Monta a página a partir de até {@code tamanho + 1} livros lidos após o cursor; o excedente só indica que existe
+     * uma próxima página.
+     */
+    static PaginaCursor<Livro> paginaCursor(List<Livro> livros, Sort.Order ordem, int tamanho) {
+        return paginaCursor(livros, tamanho, ultimo -> CursorLivro.apos(ultimo, ordem));
+    }
+
+    private static <T> PaginaCursor<T> paginaCursor(List<T> livros, int tamanho, Function<T, CursorLivro> cursorApos) {
+        if (livros.size() <= tamanho) {
+            return new PaginaCursor<>(livros, null);
+        }
+        List<T> pagina = livros.subList(0, tamanho);
+        return new PaginaCursor<>(pagina, cursorApos.apply(pagina.get(tamanho - 1)).codificar());
+    }
+
+    @Operation(summary = "Lista os livros alugados por um usuário",
+            description = "Retorna os livros alugados no momento pelo usuário informado ou, sem ele, pelo usuário logado.")
+    @Transactional(readOnly = true)
+    public List<LivroDto> getAlugados(String uuidUsuario) {
+        return livroRepository.findAlugadosPorUsuario(uuidUsuario != null ? uuidUsuario : uuidUsuarioLogado());
+    }
+
+    @Operation(summary = "Busca o histórico de aluguéis de um livro",
+            description = "Retorna os aluguéis e devoluções do livro, do mais recente ao mais antigo, anteriores ao "
+                    + "registro antesDe quando informado.")
+    @Transactional(readOnly = true)
+    public List<RegistroEmprestimoDto> getHistorico(Long livroId, Long antesDe, int tamanho) {
+        return registroEmprestimoRepository.findHistorico(livroId, antesDe != null ? antesDe : Long.MAX_VALUE,
+                PageRequest.of(0, tamanho));
     }
 
     @Transactional
     @Operation(summary = "Aluga um livro",
-              description = "Marca um livro como indisponivel e setta o UUID do usuário ao livro.")
+              description = "Marca um livro como indisponivel e setta o UUID do usuário ao livro, numa atualização condicional.")
     public ResponseEntity<String> alugarLivro(Long livroId) {
-        Optional<Livro> livroOptional = livroRepository.findById(livroId);
-
         var usuarioDto = getUsuarioLogado();
 
-        if (livroOptional.isEmpty()) {
-            return new ResponseEntity<>("Livro não encontrado", HttpStatus.NO_CONTENT);
-        }
-
-        Livro livro = livroOptional.get();
-        if (!livro.getDisponivel()) {
-            return new ResponseEntity<>("Livro indisponível", HttpStatus.CONFLICT);
+        if (livroRepository.alugar(livroId, usuarioDto.getUuidUsuarioKeyCloak()) == 0) {
+            return livroRepository.existsById(livroId)
+                    ? new ResponseEntity<>("Livro indisponível", HttpStatus.CONFLICT)
+                    : new ResponseEntity<>("Livro não encontrado", HttpStatus.NO_CONTENT);
         }
-        livro.setDisponivel(false);
-        livro.setUuidUsuarioKeycloak(usuarioDto.getUuidUsuarioKeyCloak());
-        livroRepository.save(livro);
-
-        String menssagem = "O livro '" + livro.getTitulo() + "' foi alugado com sucesso!";
-        rabbitTemplate.convertAndSend(EXCHANGE_NAME, ROUTING_KEY, menssagem + livro.getTitulo());
-
-        //TODO Comentando para não ser chamado, pois o servico precisa ser configurado com credenciais reais para que funcione.
-        //TODO As configurações são manipuladas no application.properties.
-        //emailService.enviarEmail(usuarioDto.getEmail(), "Confirmação de Aluguel de livro", menssagem);
+        registrarAluguel(livroId, TipoEventoLivro.ALUGADO, TipoEmprestimo.ALUGUEL, usuarioDto);
 
         return new ResponseEntity<>("Livro alugado com sucesso", HttpStatus.OK);
     }
 
     @Transactional
     @Operation(summary = "Devolve um livro",
-            description = "Marca um livro como disponivel e remove o UUID do usuário do livro.")
+            description = "Marca um livro como disponivel e remove o UUID do usuário do livro, numa atualização condicional.")
     public ResponseEntity<String> devolverLivro(Long livroId) {
-        Optional<Livro> livroOptional = livroRepository.findById(livroId);
-
         var usuarioDto = getUsuarioLogado();
 
-        if (livroOptional.isEmpty()) {
-            return new ResponseEntity<>("Livro não encontrado", HttpStatus.NO_CONTENT);
+        if (livroRepository.devolver(livroId) == 0) {
+            return livroRepository.existsById(livroId)
+                    ? new ResponseEntity<>("Livro não está alugado", HttpStatus.CONFLICT)
+                    : new ResponseEntity<>("Livro não encontrado", HttpStatus.NO_CONTENT);
         }
+        registrarAluguel(livroId, TipoEventoLivro.DEVOLVIDO, TipoEmprestimo.DEVOLUCAO, usuarioDto);
 
-        Livro livro = livroOptional.get();
-        if (livro.getDisponivel()) {
-            return new ResponseEntity<>("Livro não está alugado", HttpStatus.CONFLICT);
-        }
+        return new ResponseEntity<>("Livro devolvido!", HttpStatus.OK);
+    }
 
-        livro.setDisponivel(true);
-        livro.setUuidUsuarioKeycloak(null);
-        livroRepository.save(livro);
+    /**
+     * Depois da atualização condicional a linha está bloqueada por esta transação, então a leitura traz exatamente a
+     * versão gravada, usada no evento. O registro no histórico de empréstimos entra na mesma transação.
+     */
+    private void registrarAluguel(Long livroId, TipoEventoLivro tipo, TipoEmprestimo tipoEmprestimo,
+                                  UsuarioDto usuarioDto) {
+        livroCache.invalidar(livroId);
+        registroEmprestimoRepository.save(registro(livroId, tipoEmprestimo, usuarioDto.getUuidUsuarioKeyCloak()));
+        // a confirmação por e-mail é enviada pelo NotificacaoAluguelHandler ao consumir o evento
+        livroRepository.findById(livroId)
+                .ifPresent(livro -> outboxService.registrar(tipo.de(livro, usuarioDto)));
+    }
 
-        String menssagem = "O livro '" + livro.getTitulo() + "' foi devolvido com sucesso!";
-        rabbitTemplate.convertAndSend(EXCHANGE_NAME, ROUTING_KEY, menssagem + livro.getTitulo());
+    private static RegistroEmprestimo registro(Long livroId, TipoEmprestimo tipo, String uuidUsuario) {
+        RegistroEmprestimo registro = new RegistroEmprestimo();
+        registro.setLivroId(livroId);
+        registro.setTipo(tipo);
+        registro.setUuidUsuario(uuidUsuario);
+        registro.setOcorridoEm(Instant.now());
+        return registro;
+    }
 
-        //TODO Comentando para não ser chamado, pois o servico precisa ser configurado com credenciais reais para que funcione.
-        //TODO As configurações são manipuladas no application.properties.
-        //emailService.enviarEmail(usuarioDto.getEmail(), "Confirmação de devolução do livro", menssagem);
+    /**
+     * Chaves das leituras compartilhadas pelo {@link LeiturasCompartilhadas}.
+     */
+    private record LeituraPagina(LivroFiltro filtro, Pageable pageable) {
+    }
 
-        return new ResponseEntity<>("Livro devolvido!", HttpStatus.OK);
+    private record LeituraCursor(LivroFiltro filtro, Sort.Order ordem, CursorLivro cursor, int tamanho) {
+    }
+
+    private Optional<Livro> buscarLivro(Long id) {
+        return livroCache.buscar(id, livroRepository::findById);
+    }
+
+    static String uuidUsuarioLogado() {
+        return uuidUsuario(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    static String uuidUsuario(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return null;
+        }
+        return jwt.getSubject();
     }
 
     private UsuarioDto getUsuarioLogado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return usuario(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    static UsuarioDto usuario(Authentication authentication) {
+        // o usuário já vem montado da autenticação em cache; os demais tokens são convertidos aqui
+        if (authentication instanceof UsuarioAutenticado usuarioAutenticado) {
+            return usuarioAutenticado.getUsuario();
+        }
 
         Jwt jwt = (Jwt) authentication.getPrincipal();
 
-        return new UsuarioDto(jwt.getClaim("sub"), jwt.getClaim("email"), jwt.getClaim("given_name"), jwt.getClaim("family_name"));
+        return UsuarioAutenticado.usuario(jwt);
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package br.com.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Contadores de negócio dos aluguéis e devoluções, registrados pelos controllers depois da resposta do serviço (e
+ * portanto do commit): {@code livro.alugueis} e {@code livro.devolucoes}, por resultado ({@code sucesso},
+ * {@code conflito} quando o livro não estava no estado esperado, {@code nao_encontrado}).
+ */
+@Component
+public class MetricasAluguel {
+
+    private final Resultados alugueis;
+    private final Resultados devolucoes;
+
+    public MetricasAluguel(MeterRegistry meterRegistry) {
+        this.alugueis = new Resultados(meterRegistry, "livro.alugueis", "Tentativas de aluguel de livros");
+        this.devolucoes = new Resultados(meterRegistry, "livro.devolucoes", "Tentativas de devolução de livros");
+    }
+
+    public void aluguel(HttpStatusCode status) {
+        alugueis.registrar(status);
+    }
+
+    public void devolucao(HttpStatusCode status) {
+        devolucoes.registrar(status);
+    }
+
+    private static final class Resultados {
+
+        private final Counter sucesso;
+        private final Counter conflito;
+        private final Counter naoEncontrado;
+
+        Resultados(MeterRegistry meterRegistry, String nome, String descricao) {
+            this.sucesso = contador(meterRegistry, nome, descricao, "sucesso");
+            this.conflito = contador(meterRegistry, nome, descricao, "conflito");
+            this.naoEncontrado = contador(meterRegistry, nome, descricao, "nao_encontrado");
+        }
+
+        void registrar(HttpStatusCode status) {
+            if (status.is2xxSuccessful() && status.value() != HttpStatus.NO_CONTENT.value()) {
+                sucesso.increment();
+            } else if (status.value() == HttpStatus.CONFLICT.value()) {
+                conflito.increment();
+            } else {
+                naoEncontrado.increment();
+            }
+        }
+
+        private static Counter contador(MeterRegistry meterRegistry, String nome, String descricao, String resultado) {
+            return Counter.builder(nome)
+                    .description(descricao)
+                    .tag("resultado", resultado)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.api.service;
+
+import br.com.api.cache.LivroCache;
+import br.com.api.email.ModelosEmail;
+import br.com.api.email.ModelosEmail.EmailRenderizado;
+import br.com.api.model.evento.LivroAlugado;
+import br.com.api.model.evento.LivroDevolvido;
+import br.com.api.model.evento.LivroEvento;
+import br.com.api.model.livro.Livro;
+import br.com.api.repository.LivroRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Envia a confirmação por e-mail dos aluguéis e devoluções a partir dos eventos consumidos da livroQueue, fora da
+ * requisição que alterou o livro. Desligado por padrão, pois depende de um servidor SMTP configurado.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "livro.email.habilitado", havingValue = "true")
+public class NotificacaoAluguelHandler implements LivroEventoHandler {
+
+    private final EmailService emailService;
+    private final ModelosEmail modelosEmail;
+    private final LivroCache livroCache;
+    private final LivroRepository livroRepository;
+
+    @Override
+    public void tratar(LivroEvento evento) {
+        String modelo;
+        if (evento instanceof LivroAlugado) {
+            modelo = "livro-alugado";
+        } else if (evento instanceof LivroDevolvido) {
+            modelo = "livro-devolvido";
+        } else {
+            return;
+        }
+        if (evento.emailUsuario() == null) {
+            return;
+        }
+        String titulo = livroCache.buscar(evento.livroId(), livroRepository::findById)
+                .map(Livro::getTitulo)
+                .orElse(evento.isbn());
+        EmailRenderizado email = modelosEmail.renderizar(modelo, Map.of("titulo", titulo, "isbn", evento.isbn()));
+        emailService.enviarEmail(evento.emailUsuario(), email.assunto(), email.corpo());
+    }
+}
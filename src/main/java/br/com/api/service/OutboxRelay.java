@@ -0,0 +1,185 @@
+package br.com.api.service;
+
+import br.com.api.model.outbox.EventoOutbox;
+import br.com.api.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.api.config.RabbitMQConfig.EXCHANGE_NAME;
+
+/**
+ * Publica no RabbitMQ os eventos gravados na tabela de outbox. Cada lote é lido com bloqueio, enviado por um único
+ * canal e só é removido da tabela depois que o broker confirma todas as mensagens (publisher confirms). Se a
+ * publicação falhar, o lote inteiro é reagendado com backoff exponencial; a entrega é "ao menos uma vez".
+ *
+ * <p>Cada mensagem leva no header {@code traceparent} um span filho do trace que gravou o evento. Métricas:
+ * {@code livro.outbox.publicacao} (envio e confirmação de cada lote, por resultado), {@code livro.outbox.eventos}
+ * (eventos publicados e com falha) e {@code livro.outbox.atraso} (tempo entre a gravação e a confirmação do broker).
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanhoLote;
+    private final Duration timeoutConfirmacao;
+    private final Duration backoffInicial;
+    private final Duration backoffMaximo;
+    private final RastreamentoEventos rastreamentoEventos;
+    private final Timer publicacaoConfirmada;
+    private final Timer publicacaoFalha;
+    private final Counter eventosPublicados;
+    private final Counter eventosComFalha;
+    private final Timer atrasoConfirmacao;
+
+    public OutboxRelay(EventoOutboxRepository eventoOutboxRepository,
+                       RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       RastreamentoEventos rastreamentoEventos,
+                       MeterRegistry meterRegistry,
+                       @Value("${livro.outbox.relay.tamanho-lote:500}") int tamanhoLote,
+                       @Value("${livro.outbox.relay.timeout-confirmacao:5s}") Duration timeoutConfirmacao,
+                       @Value("${livro.outbox.relay.backoff-inicial:1s}") Duration backoffInicial,
+                       @Value("${livro.outbox.relay.backoff-maximo:5m}") Duration backoffMaximo) {
+        this.eventoOutboxRepository = eventoOutboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanhoLote = tamanhoLote;
+        this.timeoutConfirmacao = timeoutConfirmacao;
+        this.backoffInicial = backoffInicial;
+        this.backoffMaximo = backoffMaximo;
+        this.rastreamentoEventos = rastreamentoEventos;
+        this.publicacaoConfirmada = publicacao(meterRegistry, "confirmado");
+        this.publicacaoFalha = publicacao(meterRegistry, "falha");
+        this.eventosPublicados = eventos(meterRegistry, "publicado");
+        this.eventosComFalha = eventos(meterRegistry, "falha");
+        this.atrasoConfirmacao = Timer.builder("livro.outbox.atraso")
+                .description("Tempo entre a gravação do evento no outbox e a confirmação do broker")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${livro.outbox.relay.atraso-inicial-ms:1000}",
+            fixedDelayString = "${livro.outbox.relay.intervalo-ms:200}")
+    public void drenar() {
+        int confirmados;
+        do {
+            confirmados = publicarLote();
+        } while (confirmados == tamanhoLote);
+    }
+
+    /**
+     * Publica um lote de eventos pendentes e retorna quantos foram confirmados pelo broker.
+     */
+    public int publicarLote() {
+        Integer confirmados = transactionTemplate.execute(status -> {
+            Instant agora = Instant.now();
+            List<EventoOutbox> eventos = eventoOutboxRepository.findLotePendente(agora, PageRequest.ofSize(tamanhoLote));
+            if (eventos.isEmpty()) {
+                return 0;
+            }
+            long inicio = System.nanoTime();
+            try {
+                publicar(eventos);
+            } catch (AmqpException e) {
+                publicacaoFalha.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                eventosComFalha.increment(eventos.size());
+                log.warn("Falha ao publicar {} eventos do outbox; nova tentativa agendada", eventos.size(), e);
+                agendarNovaTentativa(eventos, agora);
+                return 0;
+            }
+            publicacaoConfirmada.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            eventosPublicados.increment(eventos.size());
+            Instant confirmadoEm = Instant.now();
+            for (EventoOutbox evento : eventos) {
+                atrasoConfirmacao.record(Duration.between(evento.getCriadoEm(), confirmadoEm));
+            }
+            eventoOutboxRepository.deleteAllInBatch(eventos);
+            return eventos.size();
+        });
+        return confirmados == null ? 0 : confirmados;
+    }
+
+    /**
+     * Os spans de publicação terminam junto com o lote: só a confirmação do broker encerra o envio de cada mensagem.
+     */
+    private void publicar(List<EventoOutbox> eventos) {
+        List<Span> spans = new ArrayList<>(eventos.size());
+        try {
+            rabbitTemplate.invoke(operacoes -> {
+                for (EventoOutbox evento : eventos) {
+                    Span span = rastreamentoEventos.iniciar("livro.outbox publicar", Span.Kind.PRODUCER,
+                            evento.getTraceparent());
+                    spans.add(span.tag("messaging.rabbitmq.routing_key", evento.getRoutingKey()));
+                    operacoes.send(EXCHANGE_NAME, evento.getRoutingKey(), mensagem(evento, span));
+                }
+                operacoes.waitForConfirmsOrDie(timeoutConfirmacao.toMillis());
+                return null;
+            });
+        } catch (AmqpException e) {
+            spans.forEach(span -> span.error(e));
+            throw e;
+        } finally {
+            spans.forEach(Span::end);
+        }
+    }
+
+    private Message mensagem(EventoOutbox evento, Span span) {
+        MessageProperties propriedades = new MessageProperties();
+        propriedades.setContentType(evento.getContentType());
+        propriedades.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        propriedades.setMessageId("outbox-" + evento.getId());
+        propriedades.setTimestamp(Date.from(evento.getCriadoEm()));
+        rastreamentoEventos.propagar(span, propriedades);
+        return new Message(evento.getPayload(), propriedades);
+    }
+
+    private void agendarNovaTentativa(List<EventoOutbox> eventos, Instant agora) {
+        for (EventoOutbox evento : eventos) {
+            int tentativas = evento.getTentativas() + 1;
+            evento.setTentativas(tentativas);
+            evento.setProximaTentativa(agora.plus(backoff(tentativas)));
+        }
+    }
+
+    private Duration backoff(int tentativas) {
+        Duration atraso = backoffInicial.multipliedBy(1L << Math.min(tentativas - 1, 20));
+        return atraso.compareTo(backoffMaximo) > 0 ? backoffMaximo : atraso;
+    }
+
+    private static Timer publicacao(MeterRegistry meterRegistry, String resultado) {
+        return Timer.builder("livro.outbox.publicacao")
+                .description("Envio de um lote do outbox ao RabbitMQ, até a confirmação do broker")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    private static Counter eventos(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("livro.outbox.eventos")
+                .description("Eventos do outbox enviados ao RabbitMQ")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+}
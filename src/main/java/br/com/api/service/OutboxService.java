@@ -0,0 +1,54 @@
+package br.com.api.service;
+
+import br.com.api.model.evento.LivroEvento;
+import br.com.api.model.evento.LivroEventoCodec;
+import br.com.api.model.evento.LoteLivrosEvento;
+import br.com.api.model.outbox.EventoOutbox;
+import br.com.api.repository.EventoOutboxRepository;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final LivroEventoCodec livroEventoCodec;
+    private final RastreamentoEventos rastreamentoEventos;
+
+    @Operation(summary = "Registra um evento de livro para publicação",
+            description = "Serializa o evento e o grava no outbox com a routing key do seu tipo.")
+    @Transactional(rollbackFor = Throwable.class)
+    public void registrar(LivroEvento evento) {
+        registrar(evento.livroId(), evento.tipo().getRoutingKey(), livroEventoCodec.contentType(), livroEventoCodec.codificar(evento));
+    }
+
+    @Operation(summary = "Registra o evento agregado de um bloco de carga em lote",
+            description = "Grava no outbox um único evento, em JSON, para todos os livros do bloco.")
+    @Transactional(rollbackFor = Throwable.class)
+    public void registrar(LoteLivrosEvento lote) {
+        registrar(null, lote.routingKey(), MediaType.APPLICATION_JSON_VALUE, livroEventoCodec.codificarLote(lote));
+    }
+
+    @Operation(summary = "Registra uma mensagem para publicação",
+            description = "Grava a mensagem na tabela de outbox dentro da transação corrente. Ela só é publicada no RabbitMQ, "
+                    + "pelo OutboxRelay, se a transação for confirmada.")
+    @Transactional(rollbackFor = Throwable.class)
+    public void registrar(Long livroId, String routingKey, String contentType, byte[] payload) {
+        Instant agora = Instant.now();
+        EventoOutbox evento = new EventoOutbox();
+        evento.setLivroId(livroId);
+        evento.setRoutingKey(routingKey);
+        evento.setContentType(contentType);
+        evento.setPayload(payload);
+        evento.setCriadoEm(agora);
+        evento.setProximaTentativa(agora);
+        evento.setTraceparent(rastreamentoEventos.traceparentAtual());
+        eventoOutboxRepository.save(evento);
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.api.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Leva o trace da requisição até o consumo dos eventos. Como a publicação é assíncrona, feita pelo
+ * {@link OutboxRelay} em outra thread e às vezes muito depois, o contexto W3C ({@code traceparent}) é gravado junto
+ * com o evento no outbox, repassado no header da mensagem e retomado pelo {@link LivroMessageListener}.
+ */
+@Component
+public class RastreamentoEventos {
+
+    static final String TRACEPARENT = "traceparent";
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    /**
+     * Com {@code management.tracing.enabled=false} não há tracer nem propagador e nada é propagado.
+     */
+    @Autowired
+    public RastreamentoEventos(ObjectProvider<Tracer> tracer, ObjectProvider<Propagator> propagator) {
+        this(tracer.getIfAvailable(() -> Tracer.NOOP), propagator.getIfAvailable(() -> Propagator.NOOP));
+    }
+
+    public RastreamentoEventos(Tracer tracer, Propagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    /**
+     * O {@code traceparent} do span corrente, ou {@code null} fora de um trace.
+     */
+    public String traceparentAtual() {
+        Span atual = tracer.currentSpan();
+        if (atual == null) {
+            return null;
+        }
+        Map<String, String> headers = new HashMap<>(2);
+        propagator.inject(atual.context(), headers, Map::put);
+        return headers.get(TRACEPARENT);
+    }
+
+    /**
+     * Inicia um span filho do {@code traceparent} informado; sem ele, o span começa um trace novo.
+     */
+    public Span iniciar(String nome, Span.Kind tipo, String traceparent) {
+        return propagator.extract(traceparent, (valor, chave) -> TRACEPARENT.equals(chave) ? valor : null)
+                .name(nome)
+                .kind(tipo)
+                .start();
+    }
+
+    public Span iniciar(String nome, Span.Kind tipo, MessageProperties propriedades) {
+        Object traceparent = propriedades.getHeader(TRACEPARENT);
+        return iniciar(nome, tipo, traceparent == null ? null : traceparent.toString());
+    }
+
+    public void propagar(Span span, MessageProperties propriedades) {
+        propagator.inject(span.context(), propriedades, MessageProperties::setHeader);
+    }
+
+    public Tracer.SpanInScope emEscopo(Span span) {
+        return tracer.withSpan(span);
+    }
+}
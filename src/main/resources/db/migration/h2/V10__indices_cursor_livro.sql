@@ -0,0 +1,6 @@
+-- Paginação por cursor ordenada por título, autor ou ISBN: a página seguinte começa em (chave, id_livro) > (?, ?)
+-- e é lida em ordem direto do índice, sem ordenar o resultado. O índice de ISBN passa a ser o composto.
+CREATE INDEX ix_livro_titulo_id ON tb_livro (titulo, id_livro);
+CREATE INDEX ix_livro_autor_id ON tb_livro (autor, id_livro);
+CREATE INDEX ix_livro_isbn_id ON tb_livro (isbn, id_livro);
+DROP INDEX ix_livro_isbn;
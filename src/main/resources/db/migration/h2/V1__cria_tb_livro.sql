@@ -0,0 +1,8 @@
+CREATE TABLE tb_livro (
+    id_livro              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    titulo                VARCHAR(255) NOT NULL,
+    autor                 VARCHAR(255) NOT NULL,
+    isbn                  VARCHAR(255) NOT NULL,
+    disponivel            BOOLEAN,
+    uuid_usuario_keycloak VARCHAR(255)
+);
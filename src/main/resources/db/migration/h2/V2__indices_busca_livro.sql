@@ -0,0 +1,8 @@
+-- Colunas de busca em minúsculas, calculadas pelo banco, com índices comuns.
+-- O H2 usa o índice para igualdade e para LIKE 'prefixo%'; buscas por "contém" percorrem a tabela.
+ALTER TABLE tb_livro ADD COLUMN titulo_busca VARCHAR(255) GENERATED ALWAYS AS (LOWER(titulo));
+ALTER TABLE tb_livro ADD COLUMN autor_busca VARCHAR(255) GENERATED ALWAYS AS (LOWER(autor));
+
+CREATE INDEX ix_livro_titulo_busca ON tb_livro (titulo_busca);
+CREATE INDEX ix_livro_autor_busca ON tb_livro (autor_busca);
+CREATE INDEX ix_livro_isbn ON tb_livro (isbn);
@@ -0,0 +1,15 @@
+-- Eventos a publicar no RabbitMQ, gravados na mesma transação da alteração que os gerou
+-- e removidos pelo OutboxRelay depois da confirmação do broker.
+CREATE TABLE tb_evento_outbox (
+    id_evento         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    livro_id          BIGINT,
+    routing_key       VARCHAR(255) NOT NULL,
+    content_type      VARCHAR(100) NOT NULL,
+    payload           VARBINARY NOT NULL,
+    criado_em         TIMESTAMP WITH TIME ZONE NOT NULL,
+    tentativas        INTEGER NOT NULL DEFAULT 0,
+    proxima_tentativa TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX ix_evento_outbox_pendente ON tb_evento_outbox (proxima_tentativa, id_evento);
+CREATE INDEX ix_evento_outbox_livro ON tb_evento_outbox (livro_id, id_evento);
@@ -0,0 +1,2 @@
+-- Versão do livro, incrementada a cada alteração (controle otimista do JPA) e enviada nos eventos.
+ALTER TABLE tb_livro ADD COLUMN versao BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,5 @@
+-- IDs de livro passam a vir de uma sequência com incremento 50 (otimizador pooled do Hibernate), o que permite
+-- inserções em lote via JDBC. Com o pooled, o valor da sequência é o fim do bloco de IDs reservado, então ela
+-- recomeça 50 acima do maior ID existente.
+CREATE SEQUENCE sq_livro START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE sq_livro RESTART WITH (SELECT COALESCE(MAX(id_livro), 0) + 50 FROM tb_livro);
@@ -0,0 +1,3 @@
+-- Contexto de rastreamento (W3C traceparent) da requisição que gravou o evento, repassado pelo OutboxRelay nos
+-- headers da mensagem para que o consumo apareça no mesmo trace. Nulo quando não havia span ativo.
+ALTER TABLE tb_evento_outbox ADD COLUMN traceparent VARCHAR(55);
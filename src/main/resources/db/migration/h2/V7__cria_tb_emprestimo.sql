@@ -0,0 +1,24 @@
+-- Histórico de aluguéis e devoluções: uma linha por operação, só com inserções. No PostgreSQL a tabela é
+-- particionada por mês; aqui é uma tabela comum, e o ArquivamentoEmprestimos move as linhas antigas para o arquivo.
+CREATE TABLE tb_emprestimo (
+    id_registro  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    livro_id     BIGINT NOT NULL,
+    uuid_usuario VARCHAR(255) NOT NULL,
+    tipo         VARCHAR(20) NOT NULL,
+    ocorrido_em  TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX ix_emprestimo_livro ON tb_emprestimo (livro_id, id_registro);
+CREATE INDEX ix_emprestimo_usuario ON tb_emprestimo (uuid_usuario, id_registro);
+CREATE INDEX ix_emprestimo_ocorrido ON tb_emprestimo (ocorrido_em);
+
+CREATE TABLE tb_emprestimo_arquivo (
+    id_registro  BIGINT PRIMARY KEY,
+    livro_id     BIGINT NOT NULL,
+    uuid_usuario VARCHAR(255) NOT NULL,
+    tipo         VARCHAR(20) NOT NULL,
+    ocorrido_em  TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- livros alugados por um usuário, sem percorrer a tabela
+CREATE INDEX ix_livro_usuario ON tb_livro (uuid_usuario_keycloak);
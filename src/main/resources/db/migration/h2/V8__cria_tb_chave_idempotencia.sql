@@ -0,0 +1,13 @@
+-- Respostas das escritas enviadas com Idempotency-Key, para que as repetições recebam a mesma resposta sem executar
+-- a escrita de novo. status nulo: a primeira requisição ainda está em execução. Removidas depois de expira_em.
+CREATE TABLE tb_chave_idempotencia (
+    chave        VARCHAR(400) PRIMARY KEY,
+    requisicao   VARCHAR(300) NOT NULL,
+    status       INTEGER,
+    content_type VARCHAR(100),
+    corpo        VARBINARY,
+    criado_em    TIMESTAMP WITH TIME ZONE NOT NULL,
+    expira_em    TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX ix_chave_idempotencia_expira ON tb_chave_idempotencia (expira_em);
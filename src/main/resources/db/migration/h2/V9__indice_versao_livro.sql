@@ -0,0 +1,2 @@
+-- Versão de cada livro lida só do índice, para as leituras condicionais (If-None-Match).
+CREATE INDEX ix_livro_versao ON tb_livro (id_livro, versao);
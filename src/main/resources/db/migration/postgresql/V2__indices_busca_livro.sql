@@ -0,0 +1,13 @@
+-- Colunas de busca em minúsculas, calculadas pelo banco.
+-- varchar_pattern_ops atende igualdade e LIKE 'prefixo%' independentemente da collation;
+-- os índices GIN de trigramas atendem LIKE '%trecho%'.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE tb_livro ADD COLUMN titulo_busca VARCHAR(255) GENERATED ALWAYS AS (lower(titulo)) STORED;
+ALTER TABLE tb_livro ADD COLUMN autor_busca VARCHAR(255) GENERATED ALWAYS AS (lower(autor)) STORED;
+
+CREATE INDEX ix_livro_titulo_busca ON tb_livro (titulo_busca varchar_pattern_ops);
+CREATE INDEX ix_livro_autor_busca ON tb_livro (autor_busca varchar_pattern_ops);
+CREATE INDEX ix_livro_titulo_busca_trgm ON tb_livro USING gin (titulo_busca gin_trgm_ops);
+CREATE INDEX ix_livro_autor_busca_trgm ON tb_livro USING gin (autor_busca gin_trgm_ops);
+CREATE INDEX ix_livro_isbn ON tb_livro (isbn);
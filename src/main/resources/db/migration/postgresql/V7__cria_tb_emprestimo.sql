@@ -0,0 +1,41 @@
+-- Histórico de aluguéis e devoluções: uma linha por operação, só com inserções, particionado por mês de
+-- ocorrido_em. As partições dos próximos meses são criadas com antecedência pelo ArquivamentoEmprestimos, que também
+-- move as partições mais antigas que a retenção para tb_emprestimo_arquivo; a partição padrão só recebe linhas se
+-- nenhuma partição mensal cobrir a data.
+CREATE TABLE tb_emprestimo (
+    id_registro  BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    livro_id     BIGINT NOT NULL,
+    uuid_usuario VARCHAR(255) NOT NULL,
+    tipo         VARCHAR(20) NOT NULL,
+    ocorrido_em  TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id_registro, ocorrido_em)
+) PARTITION BY RANGE (ocorrido_em);
+
+CREATE INDEX ix_emprestimo_livro ON tb_emprestimo (livro_id, id_registro);
+CREATE INDEX ix_emprestimo_usuario ON tb_emprestimo (uuid_usuario, id_registro);
+
+CREATE TABLE tb_emprestimo_padrao PARTITION OF tb_emprestimo DEFAULT;
+
+DO $$
+DECLARE
+    mes TIMESTAMP WITH TIME ZONE;
+BEGIN
+    FOR mes IN SELECT generate_series(date_trunc('month', now()), date_trunc('month', now()) + interval '3 months',
+                                      interval '1 month') LOOP
+        EXECUTE format('CREATE TABLE tb_emprestimo_%s PARTITION OF tb_emprestimo FOR VALUES FROM (%L) TO (%L)',
+                       to_char(mes, 'YYYYMM'), mes, mes + interval '1 month');
+    END LOOP;
+END
+$$;
+
+CREATE TABLE tb_emprestimo_arquivo (
+    id_registro  BIGINT NOT NULL,
+    livro_id     BIGINT NOT NULL,
+    uuid_usuario VARCHAR(255) NOT NULL,
+    tipo         VARCHAR(20) NOT NULL,
+    ocorrido_em  TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id_registro, ocorrido_em)
+) PARTITION BY RANGE (ocorrido_em);
+
+-- livros alugados por um usuário, sem percorrer a tabela; só os livros alugados entram no índice
+CREATE INDEX ix_livro_usuario ON tb_livro (uuid_usuario_keycloak) WHERE uuid_usuario_keycloak IS NOT NULL;
@@ -0,0 +1,115 @@
+package br.com.api.busca;
+
+import br.com.api.model.livro.LivroEncontrado;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IndiceInvertidoTest {
+
+    private final IndiceInvertido indice = new IndiceInvertido();
+
+    @Test
+    void deveIgnorarAcentosEMaiusculas() {
+        indice.adicionar(1L, "Código Limpo", "Robert C. Martin", "978-1");
+
+        Assertions.assertEquals(List.of(1L), ids(indice.buscar("codigo", false, 10)));
+        Assertions.assertEquals(List.of(1L), ids(indice.buscar("CÓDIGO   limpo!", false, 10)));
+        Assertions.assertEquals(List.of(1L), ids(indice.buscar("martin", false, 10)));
+    }
+
+    @Test
+    void deveExigirTodasAsPalavras() {
+        indice.adicionar(1L, "Código Limpo", "Robert C. Martin", "978-1");
+        indice.adicionar(2L, "Código de Conduta", "Ana Souza", "978-2");
+
+        Assertions.assertEquals(List.of(1L), ids(indice.buscar("codigo limpo", false, 10)));
+        Assertions.assertEquals(List.of(2L), ids(indice.buscar("codigo souza", false, 10)));
+        Assertions.assertTrue(indice.buscar("codigo inexistente", true, 10).isEmpty());
+    }
+
+    @Test
+    void deveCompletarAUltimaPalavraPeloPrefixo() {
+        indice.adicionar(1L, "Código Limpo", "Robert C. Martin", "978-1");
+        indice.adicionar(2L, "Arquitetura Limpa", "Robert C. Martin", "978-2");
+
+        Assertions.assertEquals(List.of(1L), ids(indice.buscar("cod", true, 10)));
+        Assertions.assertTrue(indice.buscar("cod", false, 10).isEmpty());
+        Assertions.assertEquals(List.of(1L, 2L), ids(indice.buscar("robert lim", true, 10)));
+        // só a última palavra é completada
+        Assertions.assertTrue(indice.buscar("cod limpo", true, 10).isEmpty());
+        // prefixos de uma letra não são completados
+        Assertions.assertTrue(indice.buscar("l", true, 10).isEmpty());
+    }
+
+    @Test
+    void deveOrdenarPorRelevancia() {
+        indice.adicionar(1L, "Memórias de um programador", "Java Silva", "978-1");
+        indice.adicionar(2L, "Java Efetivo", "Joshua Bloch", "978-2");
+        indice.adicionar(3L, "Java Efetivo e Concorrente na Prática", "Brian Goetz", "978-3");
+        indice.adicionar(4L, "Javascript", "Douglas Crockford", "978-4");
+        indice.adicionar(5L, "Javascript Moderno", "Ana Souza", "978-5");
+
+        // título antes de autor; com a mesma pontuação, o título mais curto primeiro; prefixo por último
+        Assertions.assertEquals(List.of(2L, 3L, 1L, 4L, 5L), ids(indice.buscar("java", true, 10)));
+        Assertions.assertEquals(List.of(2L, 3L), ids(indice.buscar("java", true, 2)));
+    }
+
+    @Test
+    void deveRefletirAlteracoesERemocoes() {
+        indice.adicionar(1L, "Título antigo", "Autor", "978-1");
+        indice.adicionar(1L, "Título novo", "Autor", "978-1");
+
+        Assertions.assertTrue(indice.buscar("antigo", false, 10).isEmpty());
+        Assertions.assertEquals(List.of(1L), ids(indice.buscar("novo", false, 10)));
+        Assertions.assertEquals(1, indice.tamanho());
+
+        Assertions.assertTrue(indice.remover(1L));
+        Assertions.assertFalse(indice.remover(1L));
+        Assertions.assertTrue(indice.buscar("titulo", true, 10).isEmpty());
+        Assertions.assertEquals(0, indice.tamanho());
+    }
+
+    @Test
+    void deveBuscarDuranteAsEscritas() throws Exception {
+        int livros = 50_000;
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> leitores = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            leitores.add(executor.submit(() -> {
+                int buscas = 0;
+                while (escrevendo.get()) {
+                    for (LivroEncontrado livro : indice.buscar("livro pa", true, 20)) {
+                        // cada livro aparece inteiro: título e autor da mesma versão
+                        Assertions.assertEquals("Autor " + livro.id(), livro.autor());
+                    }
+                    buscas++;
+                }
+                return buscas;
+            }));
+        }
+        for (long id = 0; id < livros; id++) {
+            indice.adicionar(id, "Livro " + (id % 2 == 0 ? "par" : "impar") + " " + id, "Autor " + id, "978-" + id);
+        }
+        escrevendo.set(false);
+        for (Future<Integer> leitor : leitores) {
+            Assertions.assertTrue(leitor.get(30, TimeUnit.SECONDS) > 0);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(livros, indice.tamanho());
+        Assertions.assertEquals(20, indice.buscar("livro par", false, 20).size());
+    }
+
+    private static List<Long> ids(List<LivroEncontrado> livros) {
+        return livros.stream().map(LivroEncontrado::id).toList();
+    }
+}
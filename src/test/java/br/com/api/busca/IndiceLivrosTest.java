@@ -0,0 +1,99 @@
+package br.com.api.busca;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroEncontrado;
+import br.com.api.repository.LivroRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+/**
+ * Reconstrói o índice a partir de um repositório simulado, com IDs esparsos lidos em faixas paralelas, e confere que
+ * uma escrita feita durante a reconstrução não se perde na troca do índice.
+ */
+public class IndiceLivrosTest {
+
+    private static final int TOTAL_LIVROS = 20_000;
+
+    private final NavigableMap<Long, LivroDto> livros = new TreeMap<>();
+    private final LivroRepository livroRepository = Mockito.mock(LivroRepository.class);
+    private final IndiceLivros indiceLivros = new IndiceLivros(livroRepository, 4, new SimpleMeterRegistry(), false);
+
+    @AfterEach
+    public void encerrar() {
+        indiceLivros.encerrar();
+    }
+
+    @Test
+    void deveReconstruirEmParalelo() {
+        popular();
+
+        Assertions.assertFalse(indiceLivros.pronto());
+        Assertions.assertTrue(indiceLivros.reconstruir());
+
+        Assertions.assertTrue(indiceLivros.pronto());
+        Assertions.assertEquals(TOTAL_LIVROS, indiceLivros.buscar("livro", false, 100_000).size());
+        Assertions.assertEquals(List.of(7L * 3), indiceLivros.buscar("livro 7", false, 1).stream()
+                .map(LivroEncontrado::id).toList());
+    }
+
+    @Test
+    void naoDevePerderEscritasDuranteAReconstrucao() throws Exception {
+        popular();
+        CountDownLatch lendo = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Mockito.when(livroRepository.findMenorId()).thenAnswer(invocacao -> {
+            lendo.countDown();
+            liberar.await();
+            return livros.firstKey();
+        });
+
+        CompletableFuture<Boolean> reconstrucao = CompletableFuture.supplyAsync(indiceLivros::reconstruir);
+        Assertions.assertTrue(lendo.await(10, TimeUnit.SECONDS));
+        Livro novo = new Livro();
+        novo.setId(1_000_000L);
+        novo.setTitulo("Acrescentado durante a reconstrução");
+        novo.setAutor("Autor");
+        novo.setIsbn("978");
+        indiceLivros.indexar(novo);
+        indiceLivros.remover(3L);
+        liberar.countDown();
+
+        Assertions.assertTrue(reconstrucao.get(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, indiceLivros.buscar("acrescentado", false, 10).size());
+        Assertions.assertTrue(indiceLivros.buscar("livro 1", false, 1000).stream().noneMatch(livro -> livro.id() == 3L));
+    }
+
+    /**
+     * IDs múltiplos de 3, para que as faixas tenham buracos; o livro de ID {@code 3 * i} tem o título "Livro i".
+     */
+    private void popular() {
+        for (long i = 1; i <= TOTAL_LIVROS; i++) {
+            livros.put(i * 3, new LivroDto(i * 3, "Livro " + i, "Autor " + (i % 100), "978" + i, true, null));
+        }
+        Mockito.when(livroRepository.findMenorId()).thenReturn(livros.firstKey());
+        Mockito.when(livroRepository.findMaiorId()).thenReturn(livros.lastKey());
+        Mockito.when(livroRepository.findLoteEntreIds(anyLong(), anyLong(), any(Pageable.class))).thenAnswer(invocacao -> {
+            long aposId = invocacao.getArgument(0);
+            long ateId = invocacao.getArgument(1);
+            Pageable pagina = invocacao.getArgument(2);
+            return livros.subMap(aposId, false, ateId, true).values().stream()
+                    .limit(pagina.getPageSize())
+                    .toList();
+        });
+    }
+}
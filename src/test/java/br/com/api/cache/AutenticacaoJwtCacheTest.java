@@ -0,0 +1,106 @@
+package br.com.api.cache;
+
+import br.com.api.config.SecurityConfig;
+import br.com.api.model.usuario.UsuarioAutenticado;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Usa um decodificador simulado que conta as validações: um token repetido é validado uma vez, um token vencido ou
+ * inválido nunca fica em cache e as autoridades são as mesmas instâncias em todos os tokens.
+ */
+public class AutenticacaoJwtCacheTest {
+
+    private final AtomicInteger validacoes = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AutenticacaoJwtCache cache = new AutenticacaoJwtCache(1000, Duration.ofMinutes(5), meterRegistry);
+    private final JwtAuthenticationProvider provedor = provedor(Instant.now().plusSeconds(300));
+
+    @Test
+    void deveValidarCadaTokenUmaVez() {
+        UsuarioAutenticado primeira = autenticar("token-1", "detalhes-1");
+        UsuarioAutenticado segunda = autenticar("token-1", "detalhes-2");
+
+        Assertions.assertEquals(1, validacoes.get());
+        Assertions.assertNotSame(primeira, segunda);
+        Assertions.assertEquals("detalhes-1", primeira.getDetails());
+        Assertions.assertEquals("detalhes-2", segunda.getDetails());
+        Assertions.assertSame(primeira.getUsuario(), segunda.getUsuario());
+        Assertions.assertEquals("usuario-token-1", segunda.getUsuario().getUuidUsuarioKeyCloak());
+        Assertions.assertEquals("token-1@teste.com", segunda.getUsuario().getEmail());
+        Assertions.assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "livro.autenticacao")
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void deveReaproveitarAsAutoridades() {
+        List<GrantedAuthority> primeiro = List.copyOf(autenticar("token-1", null).getAuthorities());
+        List<GrantedAuthority> segundo = List.copyOf(autenticar("token-2", null).getAuthorities());
+
+        Assertions.assertEquals(List.of("ADMIN", "USER"), primeiro.stream().map(GrantedAuthority::getAuthority).toList());
+        Assertions.assertSame(primeiro.get(0), segundo.get(0));
+        Assertions.assertSame(primeiro.get(1), segundo.get(1));
+    }
+
+    @Test
+    void naoDeveGuardarTokenVencido() {
+        JwtAuthenticationProvider provedorVencido = provedor(Instant.now().minusSeconds(1));
+
+        cache.autenticar(new BearerTokenAuthenticationToken("token-1"), provedorVencido);
+        cache.autenticar(new BearerTokenAuthenticationToken("token-1"), provedorVencido);
+
+        Assertions.assertEquals(2, validacoes.get());
+    }
+
+    @Test
+    void naoDeveGuardarFalhas() {
+        BearerTokenAuthenticationToken invalido = new BearerTokenAuthenticationToken("invalido");
+
+        Assertions.assertThrows(InvalidBearerTokenException.class, () -> cache.autenticar(invalido, provedor));
+        Assertions.assertThrows(InvalidBearerTokenException.class, () -> cache.autenticar(invalido, provedor));
+
+        Assertions.assertEquals(2, validacoes.get());
+    }
+
+    private UsuarioAutenticado autenticar(String token, Object detalhes) {
+        BearerTokenAuthenticationToken bearer = new BearerTokenAuthenticationToken(token);
+        bearer.setDetails(detalhes);
+        Authentication autenticacao = cache.autenticar(bearer, provedor);
+        return (UsuarioAutenticado) autenticacao;
+    }
+
+    private JwtAuthenticationProvider provedor(Instant expiraEm) {
+        JwtDecoder decoder = token -> {
+            validacoes.incrementAndGet();
+            if (token.equals("invalido")) {
+                throw new BadJwtException("assinatura inválida");
+            }
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("usuario-" + token)
+                    .claim("email", token + "@teste.com")
+                    .claim("resource_access", Map.of("app-livros", Map.of("roles", List.of("ADMIN", "USER"))))
+                    .issuedAt(expiraEm.minusSeconds(600))
+                    .expiresAt(expiraEm)
+                    .build();
+        };
+        JwtAuthenticationProvider provedor = new JwtAuthenticationProvider(decoder);
+        provedor.setJwtAuthenticationConverter(SecurityConfig.jwtAuthenticationConverterForKeycloak());
+        return provedor;
+    }
+}
@@ -0,0 +1,237 @@
+package br.com.api.cache;
+
+import br.com.api.config.SecurityConfig;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Valida tokens RS256 contra um servidor JWKS local que conta as requisições e pode demorar ou falhar: as chaves são
+ * buscadas no início, uma chave nova é buscada uma única vez mesmo com muitas requisições simultâneas, as chaves
+ * antigas continuam valendo com o servidor fora do ar e um reinício usa as chaves gravadas em disco, desde que outros
+ * usuários não possam alterá-las.
+ */
+public class ChavesJwkCacheTest {
+
+    @TempDir
+    Path diretorio;
+
+    private final AtomicReference<JWKSet> publicadas = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicLong atrasoMs = new AtomicLong();
+    private final AtomicInteger requisicoes = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ChavesJwkCache> caches = new ArrayList<>();
+    private HttpServer servidor;
+    private RSAKey chaveA;
+    private RSAKey chaveB;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        chaveA = new RSAKeyGenerator(2048).keyID("chave-a").generate();
+        chaveB = new RSAKeyGenerator(2048).keyID("chave-b").generate();
+        publicadas.set(new JWKSet(chaveA));
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.setExecutor(Executors.newCachedThreadPool());
+        servidor.createContext("/certs", troca -> {
+            requisicoes.incrementAndGet();
+            try {
+                Thread.sleep(atrasoMs.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] corpo = publicadas.get().toString(true).getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().set("Content-Type", "application/json");
+            troca.sendResponseHeaders(status.get(), corpo.length);
+            troca.getResponseBody().write(corpo);
+            troca.close();
+        });
+        servidor.start();
+    }
+
+    @AfterEach
+    public void encerrar() {
+        caches.forEach(ChavesJwkCache::encerrar);
+        servidor.stop(0);
+    }
+
+    @Test
+    void deveBuscarAsChavesNoInicio() throws Exception {
+        JwtDecoder decoder = decoder(iniciar(Duration.ofHours(1), null));
+        aguardarChaves();
+
+        for (int i = 0; i < 100; i++) {
+            decoder.decode(token(chaveA));
+        }
+
+        Assertions.assertEquals(1, requisicoes.get());
+    }
+
+    @Test
+    void deveBuscarUmaVezUmaChaveNova() throws Exception {
+        JwtDecoder decoder = decoder(iniciar(Duration.ofHours(1), null));
+        aguardarChaves();
+        publicadas.set(new JWKSet(List.of(chaveA, chaveB)));
+        atrasoMs.set(200);
+        String token = token(chaveB);
+
+        int threads = 32;
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                return decoder.decode(token);
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(2, requisicoes.get());
+    }
+
+    @Test
+    void deveLimitarBuscasDeChavesDesconhecidas() throws Exception {
+        JwtDecoder decoder = decoder(iniciar(Duration.ofHours(1), null));
+        aguardarChaves();
+        RSAKey desconhecida = new RSAKeyGenerator(2048).keyID("desconhecida").generate();
+
+        for (int i = 0; i < 20; i++) {
+            String token = token(desconhecida);
+            Assertions.assertThrows(JwtException.class, () -> decoder.decode(token));
+        }
+
+        // a primeira força uma busca; as demais caem no intervalo mínimo
+        Assertions.assertEquals(2, requisicoes.get());
+        decoder.decode(token(chaveA));
+    }
+
+    @Test
+    void deveManterAsChavesComOServidorFalhando() throws Exception {
+        ChavesJwkCache cache = new ChavesJwkCache(uri(), Duration.ofMillis(50), Duration.ofMillis(50),
+                Duration.ofSeconds(10), Duration.ofSeconds(1), "", meterRegistry, false);
+        caches.add(cache);
+        cache.iniciar();
+        JwtDecoder decoder = decoder(cache);
+        aguardarChaves();
+        decoder.decode(token(chaveA));
+
+        status.set(500);
+        aguardar(() -> meterRegistry.get("livro.jwk.falhas").counter().count() >= 3);
+
+        decoder.decode(token(chaveA));
+    }
+
+    @Test
+    void deveUsarAsChavesGravadasAposReiniciar() throws Exception {
+        Path arquivo = diretorio.resolve("jwks.json");
+        ChavesJwkCache primeiro = iniciar(Duration.ofHours(1), arquivo);
+        aguardar(() -> arquivo.toFile().exists());
+        primeiro.encerrar();
+        status.set(500);
+
+        // o servidor está fora: a chave só pode ter vindo do arquivo
+        JwtDecoder decoder = decoder(iniciar(Duration.ofHours(1), arquivo));
+
+        decoder.decode(token(chaveA));
+    }
+
+    @Test
+    void deveIgnorarArquivoQueOutrosUsuariosPodemAlterar() throws Exception {
+        Assumptions.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        status.set(500);
+        Path arquivo = diretorio.resolve("jwks.json");
+        Files.writeString(arquivo, new JWKSet(chaveA).toString(true), StandardCharsets.UTF_8);
+        Files.setPosixFilePermissions(arquivo, PosixFilePermissions.fromString("rw-rw-rw-"));
+        String token = token(chaveA);
+
+        Assertions.assertThrows(JwtException.class, () -> decoder(iniciar(Duration.ofHours(1), arquivo)).decode(token));
+
+        // arquivo só do dono, mas num diretório em que qualquer um escreve, como o /tmp
+        Files.setPosixFilePermissions(arquivo, PosixFilePermissions.fromString("rw-------"));
+        Files.setPosixFilePermissions(diretorio, PosixFilePermissions.fromString("rwxrwxrwx"));
+        Assertions.assertThrows(JwtException.class, () -> decoder(iniciar(Duration.ofHours(1), arquivo)).decode(token));
+
+        Files.setPosixFilePermissions(diretorio, PosixFilePermissions.fromString("rwx------"));
+        decoder(iniciar(Duration.ofHours(1), arquivo)).decode(token);
+    }
+
+    private ChavesJwkCache iniciar(Duration atualizacao, Path arquivo) {
+        ChavesJwkCache cache = new ChavesJwkCache(uri(), atualizacao, atualizacao, Duration.ofSeconds(10),
+                Duration.ofSeconds(1), arquivo == null ? "" : arquivo.toString(), meterRegistry, false);
+        caches.add(cache);
+        cache.iniciar();
+        return cache;
+    }
+
+    private String uri() {
+        return "http://localhost:" + servidor.getAddress().getPort() + "/certs";
+    }
+
+    private static JwtDecoder decoder(ChavesJwkCache cache) {
+        return new SecurityConfig().jwtDecoder(cache);
+    }
+
+    private static String token(RSAKey chave) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("usuario")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(chave.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(chave));
+        return jwt.serialize();
+    }
+
+    private void aguardarChaves() throws InterruptedException {
+        aguardar(() -> meterRegistry.get("livro.jwk.chaves").gauge().value() > 0);
+    }
+
+    private static void aguardar(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicao.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < limite, "condição não atendida em 5 segundos");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package br.com.api.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Leituras simultâneas com a mesma chave executam uma vez e recebem o mesmo resultado ou a mesma falha; quem espera
+ * demais desiste sem afetar a leitura, e nada fica guardado depois dela.
+ */
+public class LeiturasCompartilhadasTest {
+
+    private static final int LEITURAS = 200;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LeiturasCompartilhadas leiturasCompartilhadas =
+            new LeiturasCompartilhadas(Duration.ofSeconds(10), meterRegistry);
+    private final AtomicInteger execucoes = new AtomicInteger();
+
+    @Test
+    void deveExecutarUmaVezComLeiturasSimultaneas() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<Future<String>> leituras = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < LEITURAS; i++) {
+                leituras.add(executor.submit(() -> leiturasCompartilhadas.executar("pagina", () -> {
+                    execucoes.incrementAndGet();
+                    aguardar(liberar);
+                    return "resultado";
+                })));
+            }
+            // a primeira leitura só termina quando todas as outras já estão esperando por ela
+            aguardarCompartilhadas(LEITURAS - 1);
+            liberar.countDown();
+            for (Future<String> leitura : leituras) {
+                Assertions.assertEquals("resultado", leitura.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        Assertions.assertEquals(1, execucoes.get());
+        Assertions.assertEquals("outro", leiturasCompartilhadas.executar("pagina", () -> "outro"));
+    }
+
+    @Test
+    void deveEntregarAFalhaATodosSemGuardarANenhum() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<Future<String>> leituras = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10; i++) {
+                leituras.add(executor.submit(() -> leiturasCompartilhadas.executar("pagina", () -> {
+                    execucoes.incrementAndGet();
+                    aguardar(liberar);
+                    throw new IllegalStateException("banco fora do ar");
+                })));
+            }
+            aguardarCompartilhadas(9);
+            liberar.countDown();
+            for (Future<String> leitura : leituras) {
+                ExecutionException falha = Assertions.assertThrows(ExecutionException.class,
+                        () -> leitura.get(10, TimeUnit.SECONDS));
+                Assertions.assertInstanceOf(IllegalStateException.class, falha.getCause());
+            }
+        }
+
+        Assertions.assertEquals(1, execucoes.get());
+        Assertions.assertEquals("recuperado", leiturasCompartilhadas.executar("pagina", () -> "recuperado"));
+    }
+
+    @Test
+    void deveDesistirDeEsperarSemInterromperALeitura() throws Exception {
+        LeiturasCompartilhadas comEsperaCurta = new LeiturasCompartilhadas(Duration.ofMillis(50), meterRegistry);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch lendo = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> primeira = executor.submit(() -> comEsperaCurta.executar("pagina", () -> {
+                lendo.countDown();
+                aguardar(liberar);
+                return "lenta";
+            }));
+            Assertions.assertTrue(lendo.await(10, TimeUnit.SECONDS));
+
+            ResponseStatusException expirada = Assertions.assertThrows(ResponseStatusException.class,
+                    () -> comEsperaCurta.executar("pagina", () -> "não deveria executar"));
+            Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, expirada.getStatusCode());
+
+            liberar.countDown();
+            Assertions.assertEquals("lenta", primeira.get(10, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1.0, meterRegistry.get("livro.leituras.expiradas").counter().count());
+    }
+
+    @Test
+    void naoDeveCompartilharDentroDeTransacao() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            leiturasCompartilhadas.executar("pagina", () -> {
+                // uma leitura idêntica na mesma thread, que fora de uma transação esperaria por si mesma
+                return leiturasCompartilhadas.executar("pagina", execucoes::incrementAndGet);
+            });
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        Assertions.assertEquals(1, execucoes.get());
+    }
+
+    private void aguardarCompartilhadas(int esperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meterRegistry.get("livro.leituras.compartilhadas").counter().count() < esperadas) {
+            Assertions.assertTrue(System.nanoTime() < limite, "as leituras não chegaram a esperar");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void aguardar(CountDownLatch liberar) {
+        try {
+            Assertions.assertTrue(liberar.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package br.com.api.cache;
+
+import br.com.api.model.evento.LivroEventoCodec;
+import br.com.api.model.evento.LoteLivrosEvento;
+import br.com.api.model.evento.TipoEventoLivro;
+import br.com.api.model.livro.Livro;
+import br.com.api.repository.EventoOutboxRepository;
+import br.com.api.repository.LivroRepository;
+import br.com.api.service.LivroService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_CACHE_INVALIDACAO;
+
+/**
+ * Escritas pelo {@link LivroService} tiram o livro do cache de livros e registram a invalidação dos demais nós no
+ * outbox, só se forem confirmadas; as mensagens recebidas pelo {@link LivroCacheInvalidacaoListener} tiram do cache
+ * os livros alterados em outro nó. As alterações "de outro nó" são feitas direto no banco, sem passar pelo cache, e
+ * a leitura seguinte mostra se o valor em cache foi descartado. Sem RabbitMQ, o relay do outbox fica parado e o
+ * listener é chamado diretamente.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=rabbitmq"
+})
+public class LivroCacheInvalidacaoTest {
+
+    @Autowired
+    private LivroService livroService;
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private LivroCacheInvalidacaoListener livroCacheInvalidacaoListener;
+
+    @Autowired
+    private LivroEventoCodec livroEventoCodec;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void autenticar() {
+        Jwt jwt = Jwt.withTokenValue("token-cache")
+                .header("alg", "none")
+                .subject("usuario-cache")
+                .claim("email", "usuario-cache@teste.com")
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+
+    @AfterEach
+    void sair() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void deveInvalidarAoAtualizarERemover() {
+        Long id = gravar("Original");
+        alterarEmOutroNo(id, "Alterado em outro nó");
+        Assertions.assertEquals("Original", titulo(id));
+
+        Livro alteracao = livroService.get(id).orElseThrow();
+        alteracao.setTitulo("Atualizado");
+        Assertions.assertEquals(HttpStatus.OK, livroService.saveUpdate(alteracao).getStatusCode());
+        Assertions.assertEquals("Atualizado", titulo(id));
+        Assertions.assertEquals(1, invalidacoes(id));
+
+        livroService.delete(id);
+        Assertions.assertTrue(livroService.get(id).isEmpty());
+        Assertions.assertEquals(2, invalidacoes(id));
+    }
+
+    @Test
+    void deveInvalidarAoAlugarEDevolver() {
+        Long id = gravar("Livro alugado");
+        Assertions.assertTrue(livroService.get(id).orElseThrow().getDisponivel());
+
+        Assertions.assertEquals(HttpStatus.OK, livroService.alugarLivro(id).getStatusCode());
+        Livro alugado = livroService.get(id).orElseThrow();
+        Assertions.assertFalse(alugado.getDisponivel());
+        Assertions.assertEquals("usuario-cache", alugado.getUuidUsuarioKeycloak());
+
+        Assertions.assertEquals(HttpStatus.OK, livroService.devolverLivro(id).getStatusCode());
+        Assertions.assertTrue(livroService.get(id).orElseThrow().getDisponivel());
+        Assertions.assertEquals(2, invalidacoes(id));
+    }
+
+    @Test
+    void naoDeveGuardarNemPublicarUmaEscritaDesfeita() {
+        Long id = gravar("Antes do rollback");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Livro alteracao = livroService.get(id).orElseThrow();
+            alteracao.setTitulo("Desfeito");
+            livroService.saveUpdate(alteracao);
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertEquals("Antes do rollback", titulo(id));
+        Assertions.assertEquals("Antes do rollback", livroRepository.findById(id).orElseThrow().getTitulo());
+        Assertions.assertEquals(0, invalidacoes(id));
+    }
+
+    @Test
+    void deveDescartarOValorRecarregadoAntesDoCommit() throws Exception {
+        Long id = gravar("Antes do commit");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Livro alteracao = livroService.get(id).orElseThrow();
+            alteracao.setTitulo("Depois do commit");
+            livroService.saveUpdate(alteracao);
+            // outra thread ainda lê o valor confirmado e o devolve ao cache antes do commit
+            String lidoPorOutraThread = CompletableFuture.supplyAsync(() -> titulo(id)).orTimeout(10, TimeUnit.SECONDS)
+                    .join();
+            Assertions.assertEquals("Antes do commit", lidoPorOutraThread);
+        });
+
+        Assertions.assertEquals("Depois do commit", titulo(id));
+    }
+
+    @Test
+    void deveInvalidarAoReceberMensagemDeOutroNo() {
+        Long id = gravar("Original");
+        alterarEmOutroNo(id, "Alterado em outro nó");
+        Assertions.assertEquals("Original", titulo(id));
+
+        livroCacheInvalidacaoListener.invalidar(id.toString());
+
+        Assertions.assertEquals("Alterado em outro nó", titulo(id));
+    }
+
+    @Test
+    void deveInvalidarOsLivrosDeUmLoteRecebidoDeOutroNo() {
+        Long primeiro = gravar("Primeiro");
+        Long segundo = gravar("Segundo");
+        Long foraDoLote = gravar("Fora do lote");
+        for (Long id : List.of(primeiro, segundo, foraDoLote)) {
+            alterarEmOutroNo(id, "Alterado em outro nó");
+        }
+
+        LoteLivrosEvento lote = LoteLivrosEvento.de(TipoEventoLivro.ATUALIZADO, "usuario-cache", List.of(
+                new LoteLivrosEvento.Item(primeiro, "isbn-cache", 1),
+                new LoteLivrosEvento.Item(segundo, "isbn-cache", 1)));
+        livroCacheInvalidacaoListener.invalidarLote(livroEventoCodec.codificarLote(lote));
+
+        Assertions.assertEquals("Alterado em outro nó", titulo(primeiro));
+        Assertions.assertEquals("Alterado em outro nó", titulo(segundo));
+        Assertions.assertEquals("Fora do lote", titulo(foraDoLote));
+    }
+
+    /**
+     * Grava o livro pelo serviço, que o deixa no cache depois do commit.
+     */
+    private Long gravar(String titulo) {
+        Livro livro = new Livro();
+        livro.setTitulo(titulo);
+        livro.setAutor("Autor do cache " + UUID.randomUUID());
+        livro.setIsbn("isbn-cache");
+        return livroService.saveCreate(livro).getBody().getId();
+    }
+
+    private void alterarEmOutroNo(Long id, String titulo) {
+        jdbcTemplate.update("update tb_livro set titulo = ? where id_livro = ?", titulo, id);
+    }
+
+    private String titulo(Long id) {
+        return livroService.get(id).orElseThrow().getTitulo();
+    }
+
+    private long invalidacoes(Long id) {
+        return eventoOutboxRepository.findAll().stream()
+                .filter(evento -> id.equals(evento.getLivroId()))
+                .filter(evento -> ROUTING_KEY_CACHE_INVALIDACAO.equals(evento.getRoutingKey()))
+                .count();
+    }
+}
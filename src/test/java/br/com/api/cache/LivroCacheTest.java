@@ -0,0 +1,117 @@
+package br.com.api.cache;
+
+import br.com.api.model.livro.Livro;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carrega livros em threads virtuais: leituras simultâneas do mesmo livro consultam o banco uma vez, falhas e livros
+ * inexistentes não ficam em cache e carregadores bloqueados não prendem as threads portadoras.
+ */
+public class LivroCacheTest {
+
+    private final LivroCache cache = new LivroCache(1000, Duration.ofMinutes(10), new CanalInvalidacaoLocal(),
+            new SimpleMeterRegistry());
+    private final AtomicInteger carregamentos = new AtomicInteger();
+
+    @Test
+    void deveCarregarUmaVezComLeiturasSimultaneas() throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Optional<Livro>>> leituras = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 500; i++) {
+                leituras.add(executor.submit(() -> {
+                    largada.await();
+                    return cache.buscar(1L, id -> {
+                        carregamentos.incrementAndGet();
+                        dormir(100);
+                        return Optional.of(livro(id));
+                    });
+                }));
+            }
+            largada.countDown();
+            for (Future<Optional<Livro>> leitura : leituras) {
+                Assertions.assertEquals("Livro 1", leitura.get(10, TimeUnit.SECONDS).orElseThrow().getTitulo());
+            }
+        }
+
+        Assertions.assertEquals(1, carregamentos.get());
+    }
+
+    @Test
+    void naoDeveGuardarFalhasNemLivrosInexistentes() {
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.buscar(1L, id -> {
+            carregamentos.incrementAndGet();
+            throw new IllegalStateException("banco fora do ar");
+        }));
+        Assertions.assertTrue(cache.buscar(1L, id -> {
+            carregamentos.incrementAndGet();
+            return Optional.empty();
+        }).isEmpty());
+        Assertions.assertTrue(cache.buscar(1L, id -> {
+            carregamentos.incrementAndGet();
+            return Optional.of(livro(id));
+        }).isPresent());
+
+        Assertions.assertEquals(3, carregamentos.get());
+    }
+
+    @Test
+    void naoDevePrenderAsThreadsPortadoras() throws Exception {
+        // mais carregadores bloqueados ao mesmo tempo do que threads portadoras: se cada um prendesse a sua, o último
+        // nunca rodaria e a contagem não chegaria a zero
+        int carregadores = Runtime.getRuntime().availableProcessors() + 4;
+        CountDownLatch todosCarregando = new CountDownLatch(carregadores);
+        List<Future<Optional<Livro>>> leituras = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < carregadores; i++) {
+                long livroId = i;
+                leituras.add(executor.submit(() -> cache.buscar(livroId, id -> {
+                    todosCarregando.countDown();
+                    aguardar(todosCarregando);
+                    return Optional.of(livro(id));
+                })));
+            }
+            for (Future<Optional<Livro>> leitura : leituras) {
+                Assertions.assertTrue(leitura.get(10, TimeUnit.SECONDS).isPresent());
+            }
+        }
+    }
+
+    private static Livro livro(Long id) {
+        Livro livro = new Livro();
+        livro.setId(id);
+        livro.setTitulo("Livro " + id);
+        return livro;
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("carregadores não rodaram ao mesmo tempo");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
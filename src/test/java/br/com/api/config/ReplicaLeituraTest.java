@@ -0,0 +1,200 @@
+package br.com.api.config;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.service.LivroService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Dois bancos H2 em memória no papel de primário e réplica. Como não há replicação entre eles, cada livro fica só no
+ * banco em que foi gravado, o que mostra de onde veio cada leitura: as escritas vão ao primário, as buscas paginadas à
+ * réplica e, com a réplica atrasada, também ao primário.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=local",
+        "spring.datasource.url=" + ReplicaLeituraTest.URL_PRIMARIO,
+        "livro.datasource.replica.url=" + ReplicaLeituraTest.URL_REPLICA,
+        "livro.datasource.replica.usuario=sa",
+        "livro.datasource.replica.consulta-atraso=select segundos from tb_atraso_replica",
+        "livro.datasource.replica.atraso-maximo=2s",
+        "livro.datasource.replica.verificacao-ms=3600000",
+        "spring.jpa.open-in-view=false"
+})
+public class ReplicaLeituraTest {
+
+    static final String URL_PRIMARIO = "jdbc:h2:mem:livros_primario;DB_CLOSE_DELAY=-1";
+    static final String URL_REPLICA = "jdbc:h2:mem:livros_replica;DB_CLOSE_DELAY=-1";
+
+    // posição do WAL e última transação aplicada vistas pela réplica, devolvidas pelas funções do PostgreSQL
+    // emuladas na réplica H2
+    static volatile String lsnRecebido = "0/3000060";
+    static volatile String lsnAplicado = "0/3000060";
+    static volatile OffsetDateTime ultimaTransacaoAplicada = OffsetDateTime.now();
+
+    @Autowired
+    private LivroService livroService;
+
+    @Autowired
+    private ReplicaLeitura replicaLeitura;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("dataSourcePrimario")
+    private DataSource dataSourcePrimario;
+
+    @Autowired
+    @Qualifier("dataSourceReplica")
+    private DataSource dataSourceReplica;
+
+    /**
+     * A réplica recebe o mesmo esquema do primário antes de a aplicação subir, como uma réplica real já teria.
+     */
+    @BeforeAll
+    static void criarReplica() {
+        Flyway.configure()
+                .dataSource(URL_REPLICA, "sa", "")
+                .locations("classpath:db/migration/h2")
+                .load()
+                .migrate();
+        JdbcTemplate replica = replica();
+        replica.execute("create table tb_atraso_replica (segundos double precision)");
+        replica.update("insert into tb_atraso_replica values (0)");
+        String funcoes = ReplicaLeituraTest.class.getName();
+        replica.execute("create alias pg_last_wal_receive_lsn for \"" + funcoes + ".pgLastWalReceiveLsn\"");
+        replica.execute("create alias pg_last_wal_replay_lsn for \"" + funcoes + ".pgLastWalReplayLsn\"");
+        replica.execute("create alias pg_last_xact_replay_timestamp for \"" + funcoes
+                + ".pgLastXactReplayTimestamp\"");
+    }
+
+    public static String pgLastWalReceiveLsn() {
+        return lsnRecebido;
+    }
+
+    public static String pgLastWalReplayLsn() {
+        return lsnAplicado;
+    }
+
+    public static OffsetDateTime pgLastXactReplayTimestamp() {
+        return ultimaTransacaoAplicada;
+    }
+
+    @Test
+    void deveEscreverNoPrimarioELerDaReplica() {
+        String autorPrimario = "Autor primário " + UUID.randomUUID();
+        Livro gravado = livroService.saveCreate(livro(autorPrimario)).getBody();
+        String autorReplica = "Autor réplica " + UUID.randomUUID();
+        replica().update(
+                "insert into tb_livro (titulo, autor, isbn, disponivel) values ('Só na réplica', ?, '1', true)",
+                autorReplica);
+
+        Assertions.assertEquals(1, contar(dataSourcePrimario, autorPrimario));
+        Assertions.assertEquals(0, contar(dataSourceReplica, autorPrimario));
+        Assertions.assertEquals(1, buscar(autorReplica).getTotalElements());
+        Assertions.assertEquals(0, buscar(autorPrimario).getTotalElements());
+        // a leitura por ID alimenta o cache de livros e por isso vai ao primário
+        Assertions.assertTrue(livroService.get(gravado.getId()).isPresent());
+    }
+
+    @Test
+    void deveLerDoPrimarioComAReplicaAtrasada() {
+        String autor = "Autor atrasado " + UUID.randomUUID();
+        livroService.saveCreate(livro(autor));
+        JdbcTemplate replica = replica();
+        double desviosAntes = meterRegistry.get("livro.datasource.replica.desvios").counter().count();
+
+        replica.update("update tb_atraso_replica set segundos = 30");
+        try {
+            replicaLeitura.verificar();
+            Assertions.assertFalse(replicaLeitura.isDisponivel());
+            Page<LivroDto> doPrimario = buscar(autor);
+            Assertions.assertEquals(1, doPrimario.getTotalElements());
+            Assertions.assertEquals(autor, doPrimario.getContent().get(0).getAutor());
+            Assertions.assertTrue(
+                    meterRegistry.get("livro.datasource.replica.desvios").counter().count() > desviosAntes);
+        } finally {
+            replica.update("update tb_atraso_replica set segundos = 0");
+        }
+
+        replicaLeitura.verificar();
+        Assertions.assertTrue(replicaLeitura.isDisponivel());
+        // outro filtro, para não reaproveitar o total em cache da busca anterior
+        Assertions.assertEquals(0, livroService.getAllPage(new LivroFiltro("Livro roteado", autor, null, null),
+                PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    /**
+     * Com o primário sem escritas, a última transação aplicada envelhece, mas a réplica já aplicou tudo o que
+     * recebeu: a consulta padrão mede atraso zero e a réplica continua em uso até chegar WAL por aplicar.
+     */
+    @Test
+    void deveConsiderarEmDiaAReplicaOciosa() {
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        ReplicaLeitura ociosa = new ReplicaLeitura(new DriverManagerDataSource(URL_REPLICA, "sa", ""),
+                dataSourcePrimario, DataSourceConfig.ATRASO_REPLICA_POSTGRES, Duration.ofSeconds(2), registro);
+        ultimaTransacaoAplicada = OffsetDateTime.now().minusHours(1);
+        try {
+            ociosa.verificar();
+            Assertions.assertTrue(ociosa.isDisponivel());
+            Assertions.assertEquals(0.0, registro.get("livro.datasource.replica.atraso").gauge().value());
+
+            lsnRecebido = "0/3000100";
+            ociosa.verificar();
+            Assertions.assertFalse(ociosa.isDisponivel());
+            Assertions.assertTrue(registro.get("livro.datasource.replica.atraso").gauge().value() >= 3600);
+        } finally {
+            lsnRecebido = lsnAplicado;
+            ultimaTransacaoAplicada = OffsetDateTime.now();
+        }
+    }
+
+    @Test
+    void naoDeveSubirComOpenInViewLigado() {
+        Assertions.assertThrows(IllegalStateException.class, () -> new DataSourceConfig(true));
+    }
+
+    private Page<LivroDto> buscar(String autor) {
+        return livroService.getAllPage(new LivroFiltro(null, autor, null, null), PageRequest.of(0, 10));
+    }
+
+    /**
+     * Acesso direto à réplica, fora do pool somente leitura da aplicação, no papel da replicação.
+     */
+    private static JdbcTemplate replica() {
+        return new JdbcTemplate(new DriverManagerDataSource(URL_REPLICA, "sa", ""));
+    }
+
+    private static int contar(DataSource dataSource, String autor) {
+        Integer total = new JdbcTemplate(dataSource).queryForObject("select count(*) from tb_livro where autor = ?",
+                Integer.class, autor);
+        return total == null ? 0 : total;
+    }
+
+    private static Livro livro(String autor) {
+        Livro livro = new Livro();
+        livro.setTitulo("Livro roteado");
+        livro.setAutor(autor);
+        livro.setIsbn("9780000000000");
+        return livro;
+    }
+}
@@ -1,9 +1,17 @@
 package br.com.api.controller;
 
+import br.com.api.config.FiltroIdempotencia;
+import br.com.api.model.idempotencia.ChaveIdempotencia;
 import br.com.api.model.livro.Livro;
 import br.com.api.model.livro.LivroDto;
+import br.com.api.model.paginacao.CursorLivro;
+import br.com.api.model.paginacao.PaginaCursor;
+import br.com.api.repository.ChaveIdempotenciaRepository;
+import br.com.api.service.IdempotenciaService;
+import br.com.api.service.LivroExportacaoService;
 import br.com.api.service.LivroService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -11,16 +19,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
-import java.util.Arrays;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -34,9 +62,18 @@ public class LivroControllerTest {
     @MockBean
     private LivroService livroService;
 
+    @MockBean
+    private LivroExportacaoService livroExportacaoService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+
     private Livro livro;
     private LivroDto livroDto;
 
@@ -48,6 +85,7 @@ public class LivroControllerTest {
         livro.setAutor("Gabriel Pequeno");
         livro.setIsbn("111222333444");
         livro.setDisponivel(true);
+        livro.setVersao(3L);
 
         livroDto = new LivroDto();
         livroDto.setId(1L);
@@ -60,13 +98,70 @@ public class LivroControllerTest {
     @Test
     @WithMockUser(username = "gabriel", authorities = {"Administrador"})
     void testGetAllLivros() throws Exception {
-        Mockito.when(livroService.getAllLivros()).thenReturn(Arrays.asList(livro));
+        mockExportacao();
 
-        mockMvc.perform(get("/livro/getAll")
+        MvcResult resultado = mockMvc.perform(get("/livro/getAll")
                         .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].titulo").value("Livro 1234"))
-                .andExpect(jsonPath("$[0].autor").value("Gabriel Pequeno"));
+                .andExpect(jsonPath("$[0].autor").value("Gabriel Pequeno"))
+                .andExpect(jsonPath("$[1].titulo").value("Livro 1234"));
+    }
+
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testGetAllLivrosNdjson() throws Exception {
+        mockExportacao();
+
+        MvcResult resultado = mockMvc.perform(get("/livro/getAll")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String corpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] linhas = corpo.split("\n");
+        Assertions.assertEquals(2, linhas.length);
+        Assertions.assertEquals("Livro 1234", objectMapper.readValue(linhas[1], LivroDto.class).getTitulo());
+    }
+
+    private void mockExportacao() {
+        Mockito.doAnswer(invocation -> {
+            Consumer<List<LivroDto>> consumidor = invocation.getArgument(0);
+            consumidor.accept(List.of(livroDto));
+            consumidor.accept(List.of(livroDto));
+            return null;
+        }).when(livroExportacaoService).exportarLivros(any());
+    }
+
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testGetAllCursor() throws Exception {
+        String proximoCursor = new CursorLivro("id", Sort.Direction.DESC, "1", 1L).codificar();
+        Mockito.when(livroService.getAllCursor(any(), eq(Sort.Order.desc("id")), isNull(), eq(1)))
+                .thenReturn(new PaginaCursor<>(List.of(livroDto), proximoCursor));
+
+        mockMvc.perform(get("/livro/getAllCursor")
+                        .param("size", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.conteudo[0].titulo").value("Livro 1234"))
+                .andExpect(jsonPath("$.proximoCursor").value(proximoCursor))
+                .andExpect(jsonPath("$.temProximo").value(true));
+    }
+
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testGetAllCursorInvalido() throws Exception {
+        mockMvc.perform(get("/livro/getAllCursor")
+                        .param("cursor", "nao-e-um-cursor")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -81,6 +176,33 @@ public class LivroControllerTest {
                 .andExpect(jsonPath("autor").value("Gabriel Pequeno"));
     }
 
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testGetLivroByIdComEtag() throws Exception {
+        Mockito.when(livroService.get(1L)).thenReturn(Optional.of(livro));
+
+        mockMvc.perform(get("/livro/get/{id}", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+    }
+
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testGetLivroByIdNaoModificado() throws Exception {
+        Mockito.when(livroService.getVersao(1L)).thenReturn(Optional.of(3L));
+
+        mockMvc.perform(get("/livro/get/{id}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\", \"1-3\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""))
+                .andExpect(content().string(""));
+
+        Mockito.verify(livroService, Mockito.never()).get(1L);
+    }
+
     @Test
     @WithMockUser(username = "gabriel", authorities = {"Administrador"})
     void testGetLivroByIdNotFound() throws Exception {
@@ -139,4 +261,123 @@ public class LivroControllerTest {
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testSaveLivroRepetidoComIdempotencyKey() throws Exception {
+        Mockito.when(livroService.saveCreate(any(Livro.class))).thenReturn(ResponseEntity.ok(livro));
+        String chave = UUID.randomUUID().toString();
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/livro/save")
+                            .header(FiltroIdempotencia.HEADER_CHAVE, chave)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(livroDto))
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.titulo").value("Livro 1234"));
+        }
+        mockMvc.perform(MockMvcRequestBuilders.put("/livro/update/{id}", 1L)
+                        .header(FiltroIdempotencia.HEADER_CHAVE, chave)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(livroDto)))
+                .andExpect(status().isUnprocessableEntity());
+
+        Mockito.verify(livroService, Mockito.times(1)).saveCreate(any(Livro.class));
+        Mockito.verify(livroService, Mockito.never()).saveUpdate(any(Livro.class));
+    }
+
+    @Test
+    void testAlugarSimultaneoComIdempotencyKey() throws Exception {
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        Mockito.when(livroService.alugarLivro(1L)).thenAnswer(invocation -> {
+            emExecucao.countDown();
+            // segura a primeira execução para que as repetições cheguem enquanto ela está em andamento
+            Thread.sleep(300);
+            return new ResponseEntity<>("Livro alugado com sucesso", HttpStatus.OK);
+        });
+        String chave = UUID.randomUUID().toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> respostas = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            respostas.add(executor.submit(() -> mockMvc.perform(MockMvcRequestBuilders.post("/livro/alugar/{id}", 1L)
+                            .header(FiltroIdempotencia.HEADER_CHAVE, chave)
+                            .with(user("gabriel").authorities(new SimpleGrantedAuthority("Administrador"))))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString()));
+        }
+        for (Future<String> resposta : respostas) {
+            Assertions.assertEquals("Livro alugado com sucesso", resposta.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        Assertions.assertTrue(emExecucao.await(0, TimeUnit.SECONDS));
+        Mockito.verify(livroService, Mockito.times(1)).alugarLivro(1L);
+    }
+
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testReservaAbandonadaComIdempotencyKey() throws Exception {
+        Mockito.when(livroService.alugarLivro(1L))
+                .thenReturn(new ResponseEntity<>("Livro alugado com sucesso", HttpStatus.OK));
+        String chave = UUID.randomUUID().toString();
+        String chaveGravada = "gabriel:" + chave;
+        // reserva de uma instância que caiu no meio da escrita: nunca é concluída nem liberada
+        idempotenciaService.reservar(chaveGravada, "POST /livro/alugar/1");
+        ChaveIdempotencia reserva = chaveIdempotenciaRepository.findById(chaveGravada).orElseThrow();
+        Assertions.assertTrue(reserva.getExpiraEm().isBefore(Instant.now().plus(Duration.ofHours(1))),
+                "a reserva deve expirar antes do ttl das respostas");
+        mockMvc.perform(MockMvcRequestBuilders.post("/livro/alugar/{id}", 1L)
+                        .header(FiltroIdempotencia.HEADER_CHAVE, chave))
+                .andExpect(status().isConflict());
+
+        reserva.setExpiraEm(Instant.now().minusSeconds(1));
+        chaveIdempotenciaRepository.save(reserva);
+        mockMvc.perform(MockMvcRequestBuilders.post("/livro/alugar/{id}", 1L)
+                        .header(FiltroIdempotencia.HEADER_CHAVE, chave))
+                .andExpect(status().isOk());
+
+        Mockito.verify(livroService, Mockito.times(1)).alugarLivro(1L);
+        Assertions.assertTrue(chaveIdempotenciaRepository.findById(chaveGravada).orElseThrow().getExpiraEm()
+                .isAfter(Instant.now().plus(Duration.ofHours(1))), "a resposta concluída vale pelo ttl");
+    }
+
+    @Test
+    void testGetAllLivrosAcimaDoLimite() throws Exception {
+        mockExportacao();
+        Mockito.when(livroService.get(1L)).thenReturn(Optional.of(livro));
+        // usuário próprio, para não dividir o balde com os demais testes; a exportação aceita rajadas de 3
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/livro/getAll")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .with(user("limitado").authorities(new SimpleGrantedAuthority("Administrador"))))
+                    .andExpect(request().asyncStarted());
+        }
+
+        mockMvc.perform(get("/livro/getAll")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .with(user("limitado").authorities(new SimpleGrantedAuthority("Administrador"))))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+
+        // as leituras têm balde próprio
+        mockMvc.perform(get("/livro/get/{id}", 1L)
+                        .with(user("limitado").authorities(new SimpleGrantedAuthority("Administrador"))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(username = "gabriel", authorities = {"Administrador"})
+    void testGetAllPageLimitaTamanho() throws Exception {
+        Mockito.when(livroService.getAllPage(any(), any()))
+                .thenAnswer(invocation -> new PageImpl<>(List.of(livroDto), invocation.getArgument(1), 1));
+
+        mockMvc.perform(get("/livro/getAllPage")
+                        .param("size", "100000")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(2000));
+    }
 }
@@ -0,0 +1,204 @@
+package br.com.api.controller;
+
+import br.com.api.model.livro.LivroDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LIVRO_ALUGADO;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LIVRO_CRIADO;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LIVRO_REMOVIDO;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.mockJwt;
+
+/**
+ * A API /livro no perfil {@code reactive}, de ponta a ponta no H2: WebFlux, segurança reativa, R2DBC e outbox.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=local"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+public class LivroReativoControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deveCriarAlterarERemoverLivro() {
+        LivroDto criado = criar("Livro reativo");
+        Assertions.assertNotNull(criado.getId());
+        Assertions.assertTrue(criado.getDisponivel());
+        Assertions.assertEquals(1, contarEventos(criado.getId(), ROUTING_KEY_LIVRO_CRIADO));
+
+        criado.setTitulo("Livro reativo alterado");
+        administrador().put().uri("/livro/update/{id}", criado.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(criado)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.titulo").isEqualTo("Livro reativo alterado");
+        administrador().get().uri("/livro/get/{id}", criado.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.titulo").isEqualTo("Livro reativo alterado");
+
+        administrador().delete().uri("/livro/delete/{id}", criado.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Livro Livro reativo alterado excluído");
+        Assertions.assertEquals(1, contarEventos(criado.getId(), ROUTING_KEY_LIVRO_REMOVIDO));
+        administrador().get().uri("/livro/get/{id}", criado.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void deveAlugarUmaUnicaVez() {
+        LivroDto livro = criar("Livro para alugar");
+
+        administrador().post().uri("/livro/alugar/{id}", livro.getId())
+                .exchange()
+                .expectStatus().isOk();
+        administrador().post().uri("/livro/alugar/{id}", livro.getId())
+                .exchange()
+                .expectStatus().isEqualTo(409);
+
+        Assertions.assertEquals(1, contarEventos(livro.getId(), ROUTING_KEY_LIVRO_ALUGADO));
+    }
+
+    @Test
+    void deveListarPorPaginaCursorEStream() {
+        String autor = "Autor " + UUID.randomUUID();
+        for (int i = 0; i < 5; i++) {
+            criar("Livro listado " + i, autor);
+        }
+
+        administrador().get().uri(uri -> uri.path("/livro/getAllPage")
+                        .queryParam("autor", autor)
+                        .queryParam("size", 2)
+                        .queryParam("sort", "titulo,asc")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalElements").isEqualTo(5)
+                .jsonPath("$.content[0].titulo").isEqualTo("Livro listado 0");
+
+        PaginaResposta primeira = paginaCursor(autor, null);
+        Assertions.assertEquals(3, primeira.conteudo().size());
+        Assertions.assertTrue(primeira.temProximo());
+        PaginaResposta segunda = paginaCursor(autor, primeira.proximoCursor());
+        Assertions.assertEquals(List.of("Livro listado 3", "Livro listado 4"),
+                segunda.conteudo().stream().map(LivroDto::getTitulo).toList());
+        Assertions.assertFalse(segunda.temProximo());
+
+        List<LivroDto> exportados = administrador().get().uri("/livro/getAll")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(LivroDto.class)
+                .getResponseBody()
+                .filter(livro -> autor.equals(livro.getAutor()))
+                .collectList()
+                .block();
+        Assertions.assertEquals(5, exportados.size());
+    }
+
+    @Test
+    void deveResponderNaoModificadoAteOLivroMudar() {
+        LivroDto livro = criar("Livro com ETag");
+
+        String etag = administrador().get().uri("/livro/get/{id}", livro.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache, private")
+                .returnResult(LivroDto.class)
+                .getResponseHeaders().getETag();
+        Assertions.assertNotNull(etag);
+        administrador().get().uri("/livro/get/{id}", livro.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        administrador().post().uri("/livro/alugar/{id}", livro.getId())
+                .exchange()
+                .expectStatus().isOk();
+        administrador().get().uri("/livro/get/{id}", livro.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.disponivel").isEqualTo(false);
+    }
+
+    @Test
+    void deveExigirToken() {
+        webTestClient.get().uri("/livro/getAllPage")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    private PaginaResposta paginaCursor(String autor, String cursor) {
+        return administrador().get().uri(uri -> uri.path("/livro/getAllCursor")
+                        .queryParam("autor", autor)
+                        .queryParam("size", 3)
+                        .queryParam("sort", "titulo,asc")
+                        .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PaginaResposta.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private LivroDto criar(String titulo) {
+        return criar(titulo, "Autor reativo");
+    }
+
+    private LivroDto criar(String titulo, String autor) {
+        LivroDto livro = new LivroDto(null, titulo, autor, "isbn-" + UUID.randomUUID(), null, null);
+        return administrador().post().uri("/livro/save")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(livro)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LivroDto.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private WebTestClient administrador() {
+        return webTestClient.mutateWith(mockJwt().authorities(new SimpleGrantedAuthority("Administrador")));
+    }
+
+    private int contarEventos(Long livroId, String routingKey) {
+        Integer eventos = jdbcTemplate.queryForObject(
+                "select count(*) from tb_evento_outbox where livro_id = ? and routing_key = ?",
+                Integer.class, livroId, routingKey);
+        return eventos == null ? 0 : eventos;
+    }
+
+    record PaginaResposta(List<LivroDto> conteudo, String proximoCursor, boolean temProximo) {
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.api.repository;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.paginacao.CursorLivro;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Percorre por cursor, em páginas pequenas, livros com muitos títulos, autores e ISBNs repetidos: a comparação
+ * {@code (chave, id)} com o último livro de cada página entrega todos os livros uma única vez, na ordem
+ * {@code (chave, id)}, nas duas direções.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=local"
+})
+public class PaginacaoCursorTest {
+
+    private static final int LIVROS = 60;
+    private static final int TAMANHO_PAGINA = 7;
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    private LivroFiltro filtro;
+    private List<Livro> gravados;
+
+    @BeforeEach
+    void gravarLivros() {
+        String autor = "Autor cursor " + UUID.randomUUID();
+        List<Livro> livros = new ArrayList<>();
+        for (int i = 0; i < LIVROS; i++) {
+            Livro livro = new Livro();
+            // poucos valores distintos, para que cada página termine no meio de um grupo de empates
+            livro.setTitulo("Título " + (i % 4));
+            livro.setAutor(autor + " " + (i % 3));
+            livro.setIsbn("isbn-" + (i % 5));
+            livro.setDisponivel(true);
+            livros.add(livro);
+        }
+        gravados = livroRepository.saveAll(livros);
+        filtro = new LivroFiltro(null, autor + "*", null, null);
+    }
+
+    @Test
+    void devePercorrerTodosOsLivrosUmaVezPorChave() {
+        for (String propriedade : List.of("titulo", "autor", "isbn", "id")) {
+            for (Sort.Direction direcao : Sort.Direction.values()) {
+                Sort.Order ordem = new Sort.Order(direcao, propriedade);
+                Assertions.assertEquals(esperados(ordem), percorrer(ordem), "ordem " + ordem);
+            }
+        }
+    }
+
+    private List<Long> percorrer(Sort.Order ordem) {
+        List<Long> ids = new ArrayList<>();
+        CursorLivro cursor = null;
+        while (true) {
+            List<LivroDto> pagina = livroRepository.buscarDtoAposCursor(filtro, ordem, cursor, TAMANHO_PAGINA);
+            pagina.forEach(livro -> ids.add(livro.getId()));
+            if (pagina.size() < TAMANHO_PAGINA) {
+                return ids;
+            }
+            cursor = CursorLivro.apos(pagina.get(pagina.size() - 1), ordem);
+        }
+    }
+
+    private List<Long> esperados(Sort.Order ordem) {
+        Comparator<Livro> porChave = switch (ordem.getProperty()) {
+            case "titulo" -> Comparator.comparing(Livro::getTitulo);
+            case "autor" -> Comparator.comparing(Livro::getAutor);
+            case "isbn" -> Comparator.comparing(Livro::getIsbn);
+            default -> (a, b) -> 0;
+        };
+        Comparator<Livro> comparador = porChave.thenComparing(Livro::getId);
+        return gravados.stream()
+                .sorted(ordem.isAscending() ? comparador : comparador.reversed())
+                .map(Livro::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,125 @@
+package br.com.api.repository;
+
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.model.paginacao.CursorLivro;
+import br.com.api.repository.PlanoBuscaLivro.Estrategia;
+import br.com.api.repository.PlanoBuscaLivro.Linguagem;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Escolha da estratégia de cada texto, escape dos padrões LIKE e o JPQL/SQL gerado, com os parâmetros na ordem dos
+ * marcadores.
+ */
+public class PlanoBuscaLivroTest {
+
+    @Test
+    void deveEscolherAEstrategiaPelaPosicaoDoCuringa() {
+        Assertions.assertEquals(Estrategia.IGUALDADE, PlanoBuscaLivro.estrategia("texto"));
+        Assertions.assertEquals(Estrategia.PREFIXO, PlanoBuscaLivro.estrategia("texto*"));
+        Assertions.assertEquals(Estrategia.CONTEM, PlanoBuscaLivro.estrategia("*texto*"));
+        Assertions.assertEquals(Estrategia.CONTEM, PlanoBuscaLivro.estrategia("*texto"));
+        Assertions.assertEquals(Estrategia.QUALQUER, PlanoBuscaLivro.estrategia("*"));
+        Assertions.assertEquals(Estrategia.QUALQUER, PlanoBuscaLivro.estrategia("**"));
+        // só o início e o fim são curingas
+        Assertions.assertEquals(Estrategia.IGUALDADE, PlanoBuscaLivro.estrategia("tex*to"));
+    }
+
+    @Test
+    void deveEscaparOsCaracteresEspeciaisDoLike() {
+        Assertions.assertEquals("100!% certo", PlanoBuscaLivro.escaparLike("100% certo"));
+        Assertions.assertEquals("snake!_case", PlanoBuscaLivro.escaparLike("snake_case"));
+        Assertions.assertEquals("oi!!", PlanoBuscaLivro.escaparLike("oi!"));
+        Assertions.assertEquals("sem especiais", PlanoBuscaLivro.escaparLike("sem especiais"));
+    }
+
+    @Test
+    void deveGerarJpqlComOsParametrosNaOrdem() {
+        PlanoBuscaLivro plano = PlanoBuscaLivro.planejar(
+                new LivroFiltro(" Código_Limpo* ", "*100%*", " 978 ", true));
+
+        Assertions.assertEquals(" where l.tituloBusca like ?1 escape '!' and l.autorBusca like ?2 escape '!'"
+                + " and l.isbn = ?3 and l.disponivel = ?4", plano.where());
+        Query query = Mockito.mock(Query.class);
+        plano.aplicarParametros(query);
+        InOrder ordem = Mockito.inOrder(query);
+        ordem.verify(query).setParameter(1, "código!_limpo%");
+        ordem.verify(query).setParameter(2, "%100!%%");
+        ordem.verify(query).setParameter(3, "978");
+        ordem.verify(query).setParameter(4, true);
+        Mockito.verifyNoMoreInteractions(query);
+    }
+
+    @Test
+    void deveGerarSqlComParametrosNomeados() {
+        PlanoBuscaLivro plano = PlanoBuscaLivro.planejar(new LivroFiltro("Título", "*pequeno", null, null),
+                Linguagem.SQL);
+
+        Assertions.assertEquals(" where titulo_busca = :p1 and autor_busca like :p2 escape '!'", plano.where());
+        DatabaseClient.GenericExecuteSpec consulta =
+                Mockito.mock(DatabaseClient.GenericExecuteSpec.class, Mockito.RETURNS_SELF);
+        plano.aplicarParametros(consulta);
+        InOrder ordem = Mockito.inOrder(consulta);
+        ordem.verify(consulta).bind("p1", "título");
+        ordem.verify(consulta).bind("p2", "%pequeno%");
+        Mockito.verifyNoMoreInteractions(consulta);
+    }
+
+    @Test
+    void naoDeveRestringirCamposVaziosNemCuringaSozinho() {
+        Assertions.assertEquals("", PlanoBuscaLivro.planejar(null).where());
+        Assertions.assertEquals("", PlanoBuscaLivro.planejar(new LivroFiltro(" ", "*", "", null)).where());
+        Assertions.assertEquals(PlanoBuscaLivro.planejar(new LivroFiltro(null, null, null, null)).chave(),
+                PlanoBuscaLivro.planejar(new LivroFiltro("**", "*", null, null)).chave());
+    }
+
+    @Test
+    void deveContinuarAposOCursorNaOrdemDaChaveEDoId() {
+        PlanoBuscaLivro porId = PlanoBuscaLivro.planejar(null)
+                .aposCursor(new CursorLivro("id", Sort.Direction.DESC, "42", 42L));
+        Assertions.assertEquals(" where l.id < ?1", porId.where());
+
+        PlanoBuscaLivro porTitulo = PlanoBuscaLivro.planejar(new LivroFiltro(null, null, null, true))
+                .aposCursor(new CursorLivro("titulo", Sort.Direction.ASC, "Dom Casmurro", 7L));
+        Assertions.assertEquals(" where l.disponivel = ?1 and (l.titulo, l.id) > (?2, ?3)", porTitulo.where());
+        Query query = Mockito.mock(Query.class);
+        porTitulo.aplicarParametros(query);
+        InOrder ordem = Mockito.inOrder(query);
+        ordem.verify(query).setParameter(1, true);
+        ordem.verify(query).setParameter(2, "Dom Casmurro");
+        ordem.verify(query).setParameter(3, 7L);
+
+        PlanoBuscaLivro porAutor = PlanoBuscaLivro.planejar(null, Linguagem.SQL)
+                .aposCursor(new CursorLivro("autor", Sort.Direction.DESC, "Machado", 3L));
+        Assertions.assertEquals(" where (autor, id_livro) < (:p1, :p2)", porAutor.where());
+    }
+
+    @Test
+    void deveOrdenarSoPorPropriedadesConhecidas() {
+        Assertions.assertEquals("", PlanoBuscaLivro.orderBy(Sort.unsorted()));
+        Assertions.assertEquals(" order by l.titulo asc, l.id desc",
+                PlanoBuscaLivro.orderBy(Sort.by(Sort.Order.asc("titulo"), Sort.Order.desc("id"))));
+        Assertions.assertEquals(" order by autor desc",
+                PlanoBuscaLivro.orderBy(Sort.by(Sort.Direction.DESC, "autor"), Linguagem.SQL));
+        IllegalArgumentException desconhecida = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> PlanoBuscaLivro.orderBy(Sort.by("uuidUsuarioKeycloak")));
+        Assertions.assertEquals("Ordenação não suportada: uuidUsuarioKeycloak", desconhecida.getMessage());
+        // o nome da propriedade nunca chega ao JPQL sem passar pela lista
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> PlanoBuscaLivro.orderBy(Sort.by("titulo; drop table tb_livro")));
+    }
+
+    @Test
+    void deveDesempatarOCursorPeloId() {
+        Assertions.assertEquals(" order by l.id desc", PlanoBuscaLivro.orderByCursor(Sort.Order.desc("id")));
+        Assertions.assertEquals(" order by isbn asc, id_livro asc",
+                PlanoBuscaLivro.orderByCursor(Sort.Order.asc("isbn"), Linguagem.SQL));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> PlanoBuscaLivro.orderByCursor(Sort.Order.asc("disponivel")));
+    }
+}
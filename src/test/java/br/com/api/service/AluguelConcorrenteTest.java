@@ -0,0 +1,141 @@
+package br.com.api.service;
+
+import br.com.api.model.emprestimo.TipoEmprestimo;
+import br.com.api.model.livro.Livro;
+import br.com.api.repository.EventoOutboxRepository;
+import br.com.api.repository.LivroRepository;
+import br.com.api.repository.RegistroEmprestimoRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LIVRO_ALUGADO;
+
+/**
+ * Centenas de threads alugam e devolvem os mesmos livros ao mesmo tempo, metade das tentativas concentrada num único
+ * livro. Cada thread só devolve o que alugou e, enquanto segura o livro, confere que ninguém mais o alugou. No fim,
+ * todos os livros estão disponíveis e há um evento de aluguel e um registro de aluguel e de devolução no histórico
+ * para cada aluguel bem-sucedido.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=local"
+})
+public class AluguelConcorrenteTest {
+
+    private static final int THREADS = 200;
+    private static final int TENTATIVAS_POR_THREAD = 50;
+    private static final int TOTAL_LIVROS = 20;
+
+    @Autowired
+    private LivroService livroService;
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private RegistroEmprestimoRepository registroEmprestimoRepository;
+
+    @Test
+    void naoDeveAlugarOMesmoLivroDuasVezes() throws Exception {
+        List<Long> livros = new ArrayList<>();
+        for (int i = 0; i < TOTAL_LIVROS; i++) {
+            Livro livro = new Livro();
+            livro.setTitulo("Livro concorrente " + i);
+            livro.setAutor("Autor");
+            livro.setIsbn("isbn-" + i);
+            livro.setDisponivel(true);
+            livros.add(livroRepository.save(livro).getId());
+        }
+        long eventosAntes = contarEventosAluguel();
+
+        Map<Long, AtomicInteger> locatarios = new ConcurrentHashMap<>();
+        livros.forEach(id -> locatarios.put(id, new AtomicInteger()));
+        LongAdder alugueis = new LongAdder();
+        LongAdder conflitos = new LongAdder();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String usuario = "usuario-" + t;
+            tarefas.add(executor.submit(() -> {
+                autenticar(usuario);
+                largada.await();
+                for (int i = 0; i < TENTATIVAS_POR_THREAD; i++) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Long id = livros.get(random.nextBoolean() ? 0 : random.nextInt(TOTAL_LIVROS));
+                    ResponseEntity<String> resposta = livroService.alugarLivro(id);
+                    if (resposta.getStatusCode() == HttpStatus.CONFLICT) {
+                        conflitos.increment();
+                        continue;
+                    }
+                    Assertions.assertEquals(HttpStatus.OK, resposta.getStatusCode());
+                    alugueis.increment();
+                    Assertions.assertEquals(1, locatarios.get(id).incrementAndGet(), "livro " + id + " alugado duas vezes");
+                    // libera o controle antes de devolver: o próximo aluguel só acontece depois do commit da devolução
+                    locatarios.get(id).decrementAndGet();
+                    Assertions.assertEquals(HttpStatus.OK, livroService.devolverLivro(id).getStatusCode());
+                }
+                return null;
+            }));
+        }
+
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        Assertions.assertTrue(livroRepository.findAllById(livros).stream().allMatch(Livro::getDisponivel));
+        Assertions.assertEquals(alugueis.sum(), contarEventosAluguel() - eventosAntes);
+        Assertions.assertEquals(alugueis.sum(), contarRegistros(livros, TipoEmprestimo.ALUGUEL));
+        Assertions.assertEquals(alugueis.sum(), contarRegistros(livros, TipoEmprestimo.DEVOLUCAO));
+        // cada tentativa termina em aluguel ou em conflito, nunca em erro
+        Assertions.assertEquals((long) THREADS * TENTATIVAS_POR_THREAD, alugueis.sum() + conflitos.sum());
+    }
+
+    private long contarEventosAluguel() {
+        return eventoOutboxRepository.findAll().stream()
+                .filter(evento -> ROUTING_KEY_LIVRO_ALUGADO.equals(evento.getRoutingKey()))
+                .count();
+    }
+
+    private long contarRegistros(List<Long> livros, TipoEmprestimo tipo) {
+        return livros.stream()
+                .flatMap(id -> registroEmprestimoRepository.findHistorico(id, Long.MAX_VALUE, Pageable.unpaged()).stream())
+                .filter(registro -> registro.tipo() == tipo)
+                .count();
+    }
+
+    private static void autenticar(String usuario) {
+        Jwt jwt = Jwt.withTokenValue("token-" + usuario)
+                .header("alg", "none")
+                .subject(usuario)
+                .claim("email", usuario + "@teste.com")
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+}
@@ -0,0 +1,134 @@
+package br.com.api.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.Mockito;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Exercita o envio assíncrono contra um servidor SMTP em memória (GreenMail) e contra um servidor simulado lento ou
+ * com falhas.
+ */
+public class EmailServiceTest {
+
+    @RegisterExtension
+    static final GreenMailExtension GREEN_MAIL = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private EmailService emailService;
+
+    @AfterEach
+    public void encerrar() throws InterruptedException {
+        emailService.encerrar();
+    }
+
+    @Test
+    public void deveEntregarTodosOsEmails() throws Exception {
+        emailService = iniciar(greenMail(), 0, 50);
+
+        for (int i = 0; i < 200; i++) {
+            emailService.enviarEmail("leitor" + i + "@teste.com", "Assunto " + i, "Corpo " + i);
+        }
+
+        Assertions.assertTrue(GREEN_MAIL.waitForIncomingEmail(10_000, 200));
+        MimeMessage[] recebidos = GREEN_MAIL.getReceivedMessages();
+        Assertions.assertEquals(200, recebidos.length);
+        Assertions.assertEquals("Assunto 0", recebidos[0].getSubject());
+        Assertions.assertEquals("Corpo 0", GreenMailUtil.getBody(recebidos[0]).trim());
+    }
+
+    @Test
+    public void deveRespeitarLimiteDeEnvio() {
+        emailService = iniciar(greenMail(), 100, 10);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            emailService.enviarEmail("leitor@teste.com", "Assunto", "Corpo");
+        }
+        Assertions.assertTrue(GREEN_MAIL.waitForIncomingEmail(10_000, 50));
+        long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        // 50 mensagens a 100/s: o primeiro lote sai na hora e os outros quatro esperam 100 ms cada
+        Assertions.assertTrue(duracaoMs >= 400, "enviado em " + duracaoMs + " ms");
+    }
+
+    @Test
+    public void deveManterLatenciaDeQuemEnviaComSmtpLento() {
+        Duration atrasoSmtp = Duration.ofMillis(200);
+        JavaMailSender smtpLento = Mockito.mock(JavaMailSender.class);
+        Mockito.doAnswer(invocacao -> {
+            Thread.sleep(atrasoSmtp.toMillis());
+            return null;
+        }).when(smtpLento).send(any(SimpleMailMessage[].class));
+        emailService = iniciar(smtpLento, 0, 50);
+
+        long maiorLatenciaNanos = 0;
+        for (int i = 0; i < 500; i++) {
+            long inicio = System.nanoTime();
+            emailService.enviarEmail("leitor@teste.com", "Assunto", "Corpo");
+            maiorLatenciaNanos = Math.max(maiorLatenciaNanos, System.nanoTime() - inicio);
+        }
+
+        Assertions.assertTrue(maiorLatenciaNanos < atrasoSmtp.toNanos() / 4);
+    }
+
+    @Test
+    public void deveRepetirApenasOsEmailsQueFalharam() {
+        List<List<String>> envios = new CopyOnWriteArrayList<>();
+        JavaMailSender smtpInstavel = Mockito.mock(JavaMailSender.class);
+        Mockito.doAnswer(invocacao -> {
+            // send(SimpleMailMessage...): getArgument(0) devolveria só a primeira mensagem do array
+            SimpleMailMessage[] mensagens = (SimpleMailMessage[]) invocacao.getRawArguments()[0];
+            envios.add(Arrays.stream(mensagens).map(mensagem -> mensagem.getTo()[0]).toList());
+            if (envios.size() == 1) {
+                throw new MailSendException("destinatário recusado", null, Map.of(mensagens[1], new RuntimeException()));
+            }
+            return null;
+        }).when(smtpInstavel).send(any(SimpleMailMessage[].class));
+        // a thread de envio só começa com as três mensagens na fila, para que saiam no mesmo lote
+        emailService = criar(smtpInstavel, 0, 50);
+        emailService.enviarEmail("a@teste.com", "Assunto", "Corpo");
+        emailService.enviarEmail("b@teste.com", "Assunto", "Corpo");
+        emailService.enviarEmail("c@teste.com", "Assunto", "Corpo");
+        emailService.iniciar();
+
+        Mockito.verify(smtpInstavel, Mockito.timeout(5_000).atLeast(2)).send(any(SimpleMailMessage[].class));
+        Assertions.assertEquals(List.of("b@teste.com"), envios.get(envios.size() - 1));
+    }
+
+    private static JavaMailSender greenMail() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost(GREEN_MAIL.getSmtp().getBindTo());
+        mailSender.setPort(GREEN_MAIL.getSmtp().getPort());
+        return mailSender;
+    }
+
+    private static EmailService iniciar(JavaMailSender mailSender, double limitePorSegundo, int tamanhoLote) {
+        EmailService emailService = criar(mailSender, limitePorSegundo, tamanhoLote);
+        emailService.iniciar();
+        return emailService;
+    }
+
+    private static EmailService criar(JavaMailSender mailSender, double limitePorSegundo, int tamanhoLote) {
+        return new EmailService(mailSender, new SimpleMeterRegistry(), "api-livros@teste.com", 1_000, tamanhoLote,
+                Duration.ofSeconds(1), limitePorSegundo, 3, Duration.ofMillis(10), Duration.ofMillis(50), false);
+    }
+}
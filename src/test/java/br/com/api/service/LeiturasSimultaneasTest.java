@@ -0,0 +1,113 @@
+package br.com.api.service;
+
+import br.com.api.model.livro.Livro;
+import br.com.api.model.livro.LivroDto;
+import br.com.api.model.livro.LivroFiltro;
+import br.com.api.repository.LivroRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rajadas de leituras idênticas da mesma página, como quando um livro entra em alta: centenas de threads pedem a
+ * página ao mesmo tempo e a busca no repositório roda uma vez por rajada. A busca da rajada só termina quando todas
+ * as outras leituras já estão esperando por ela, como em {@code LeiturasCompartilhadasTest}.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=local",
+        "livro.leituras.espera-maxima=1m"
+})
+public class LeiturasSimultaneasTest {
+
+    private static final int LEITURAS_POR_RAJADA = 500;
+    private static final int RAJADAS = 5;
+    private static final int LIVROS = 200;
+
+    @Autowired
+    private LivroService livroService;
+
+    @SpyBean
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void deveConsultarOBancoUmaVezPorRajada() throws Exception {
+        String autor = "Autor em alta " + UUID.randomUUID();
+        List<Livro> livros = new ArrayList<>();
+        for (int i = 0; i < LIVROS; i++) {
+            Livro livro = new Livro();
+            livro.setTitulo("Livro em alta " + i);
+            livro.setAutor(autor);
+            livro.setIsbn("alta-" + i);
+            livro.setDisponivel(true);
+            livros.add(livro);
+        }
+        livroRepository.saveAll(livros);
+        LivroFiltro filtro = new LivroFiltro(null, "*" + autor.substring("Autor ".length()) + "*", null, true);
+        PageRequest pagina = PageRequest.of(3, 50, Sort.by(Sort.Direction.DESC, "id"));
+        AtomicInteger buscas = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int rajada = 0; rajada < RAJADAS; rajada++) {
+                double compartilhadasAntes = compartilhadas();
+                buscas.set(0);
+                // a busca da rajada só continua quando todas as outras leituras já estão esperando por ela; o
+                // proxy do repositório não tem instância própria, então a chamada segue pela resposta padrão do spy
+                Mockito.doAnswer(invocacao -> {
+                    buscas.incrementAndGet();
+                    aguardarCompartilhadas(compartilhadasAntes + LEITURAS_POR_RAJADA - 1);
+                    return Mockito.mockingDetails(livroRepository).getMockCreationSettings().getDefaultAnswer()
+                            .answer(invocacao);
+                }).when(livroRepository).buscarDto(filtro, pagina);
+
+                CountDownLatch largada = new CountDownLatch(1);
+                List<Future<Page<LivroDto>>> leituras = new ArrayList<>();
+                for (int i = 0; i < LEITURAS_POR_RAJADA; i++) {
+                    leituras.add(executor.submit(() -> {
+                        largada.await();
+                        return livroService.getAllPage(filtro, pagina);
+                    }));
+                }
+                largada.countDown();
+                for (Future<Page<LivroDto>> leitura : leituras) {
+                    Page<LivroDto> resultado = leitura.get(1, TimeUnit.MINUTES);
+                    Assertions.assertEquals(LIVROS, resultado.getTotalElements());
+                    Assertions.assertEquals(50, resultado.getNumberOfElements());
+                }
+                Assertions.assertEquals(1, buscas.get(), "buscas no repositório na rajada " + rajada);
+            }
+        }
+    }
+
+    private double compartilhadas() {
+        return meterRegistry.get("livro.leituras.compartilhadas").counter().count();
+    }
+
+    private void aguardarCompartilhadas(double esperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (compartilhadas() < esperadas) {
+            Assertions.assertTrue(System.nanoTime() < limite, "as leituras não chegaram a esperar");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package br.com.api.service;
+
+import br.com.api.model.evento.LivroEventoCodec;
+import br.com.api.model.evento.LoteLivrosEvento;
+import br.com.api.model.lote.ErroItemLote;
+import br.com.api.model.lote.ResultadoLote;
+import br.com.api.model.outbox.EventoOutbox;
+import br.com.api.repository.EventoOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LOTE_ATUALIZADO;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LOTE_CRIADO;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LOTE_REMOVIDO;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cargas em {@code /livro/lote} com itens válidos, inválidos, vazios e com IDs repetidos, em blocos de quatro itens.
+ * Confere a contagem e os índices das falhas na resposta, os livros gravados e um evento agregado no outbox por bloco
+ * confirmado. Um ISBN maior que a coluna passa pela validação e só é recusado pelo banco ao gravar o bloco, que então
+ * é refeito item a item.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=local",
+        "livro.limite.habilitado=false",
+        "livro.lote.tamanho-bloco=4",
+        "livro.lote.maximo-erros=3"
+})
+@AutoConfigureMockMvc
+@WithMockUser(username = "gabriel", authorities = {"Administrador"})
+public class LivroLoteServiceTest {
+
+    private static final String ISBN_LONGO = "9".repeat(300);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private LivroEventoCodec livroEventoCodec;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String autor;
+
+    @BeforeEach
+    void prepararOutbox() {
+        // só os eventos deste teste ficam no outbox, com o relay parado
+        eventoOutboxRepository.deleteAllInBatch();
+        autor = "Autor lote " + UUID.randomUUID();
+    }
+
+    @Test
+    void deveGravarOsItensValidosDeUmArrayJson() throws Exception {
+        String corpo = "["
+                + livro("A", null) + ","
+                + "{\"titulo\": \"\", \"autor\": \"" + autor + "\", \"isbn\": \"1\"},"
+                + livro("B", null) + ","
+                + livro("C", null) + ","
+                // segundo bloco: recusado pelo banco por causa do ISBN e refeito item a item
+                + livro("D", 999L) + ","
+                + "{\"titulo\": \"X\", \"autor\": \"" + autor + "\", \"isbn\": \"" + ISBN_LONGO + "\"},"
+                + livro("E", 999L) + ","
+                + "null,"
+                + livro("F", null)
+                + "]";
+
+        ResultadoLote resultado = enviar(post("/livro/lote"), MediaType.APPLICATION_JSON, corpo);
+
+        Assertions.assertEquals(9, resultado.recebidos());
+        Assertions.assertEquals(6, resultado.processados());
+        Assertions.assertEquals(3, resultado.falhas());
+        Assertions.assertEquals(List.of(1L, 5L, 7L), indices(resultado));
+        Assertions.assertEquals("titulo: O título do livro é obrigatório.", resultado.erros().get(0).mensagem());
+        Assertions.assertTrue(resultado.erros().get(1).mensagem().toUpperCase().contains("ISBN"),
+                resultado.erros().get(1).mensagem());
+        Assertions.assertEquals("Item vazio", resultado.erros().get(2).mensagem());
+        // o ID informado é ignorado na criação: os dois livros com o mesmo ID são criados
+        Assertions.assertEquals(List.of("A", "B", "C", "D", "E", "F"), titulosGravados());
+
+        // primeiro bloco inteiro; do segundo, refeito item a item, D e E; do terceiro, F
+        List<LoteLivrosEvento> eventos = eventos(ROUTING_KEY_LOTE_CRIADO);
+        Assertions.assertEquals(List.of(3, 1, 1, 1), eventos.stream().map(evento -> evento.itens().size()).toList());
+        Assertions.assertEquals(idsGravados(), eventos.stream()
+                .flatMap(evento -> evento.itens().stream())
+                .map(LoteLivrosEvento.Item::livroId)
+                .toList());
+    }
+
+    @Test
+    void deveLimitarOsErrosDetalhadosEPararNoConteudoMalformadoEmNdjson() throws Exception {
+        String corpo = String.join("\n",
+                "{\"titulo\": \"Sem autor\", \"autor\": \" \", \"isbn\": \"1\"}",
+                livro("A", null),
+                "{\"titulo\": \"Sem ISBN\", \"autor\": \"" + autor + "\"}",
+                "{\"autor\": \"" + autor + "\", \"isbn\": \"1\"}",
+                "{\"titulo\": \"\", \"autor\": \"\", \"isbn\": \"\"}",
+                livro("B", null),
+                "{\"titulo\": \"Malformado\", ",
+                livro("Depois do erro", null));
+
+        ResultadoLote resultado = enviar(post("/livro/lote"), MediaType.APPLICATION_NDJSON, corpo);
+
+        Assertions.assertEquals(6, resultado.recebidos());
+        Assertions.assertEquals(2, resultado.processados());
+        // quatro itens inválidos e o conteúdo malformado, mas só os três primeiros detalhados
+        Assertions.assertEquals(5, resultado.falhas());
+        Assertions.assertEquals(List.of(0L, 2L, 3L), indices(resultado));
+        Assertions.assertEquals(List.of("A", "B"), titulosGravados());
+        Assertions.assertEquals(List.of(1, 1), eventos(ROUTING_KEY_LOTE_CRIADO).stream()
+                .map(evento -> evento.itens().size())
+                .toList());
+    }
+
+    @Test
+    void devePararDeLerNoItemMalformadoDeUmArrayJson() throws Exception {
+        String corpo = "[" + livro("A", null) + "," + livro("B", null) + ",{\"titulo\": }," + livro("C", null) + "]";
+
+        ResultadoLote resultado = enviar(post("/livro/lote"), MediaType.APPLICATION_JSON, corpo);
+
+        Assertions.assertEquals(2, resultado.recebidos());
+        Assertions.assertEquals(2, resultado.processados());
+        Assertions.assertEquals(1, resultado.falhas());
+        ErroItemLote erro = resultado.erros().get(0);
+        Assertions.assertEquals(2, erro.indice());
+        Assertions.assertTrue(erro.mensagem().startsWith("Conteúdo inválido: "), erro.mensagem());
+        Assertions.assertEquals(List.of("A", "B"), titulosGravados());
+        Assertions.assertEquals(1, eventos(ROUTING_KEY_LOTE_CRIADO).size());
+    }
+
+    @Test
+    void deveAtualizarERemoverComIdsRepetidosEAusentes() throws Exception {
+        enviar(post("/livro/lote"), MediaType.APPLICATION_JSON, "[" + livro("A", null) + "," + livro("B", null) + "]");
+        List<Long> ids = idsGravados();
+        eventoOutboxRepository.deleteAllInBatch();
+
+        String alteracoes = String.join("\n",
+                livro("A1", ids.get(0)),
+                livro("B1", ids.get(1)),
+                livro("Sem ID", null),
+                livro("Inexistente", Long.MAX_VALUE),
+                // o mesmo livro de novo no bloco seguinte
+                livro("A2", ids.get(0)));
+        ResultadoLote atualizacao = enviar(put("/livro/lote"), MediaType.APPLICATION_NDJSON, alteracoes);
+
+        Assertions.assertEquals(5, atualizacao.recebidos());
+        Assertions.assertEquals(3, atualizacao.processados());
+        Assertions.assertEquals(List.of(2L, 3L), indices(atualizacao));
+        Assertions.assertEquals("ID do livro é obrigatório", atualizacao.erros().get(0).mensagem());
+        Assertions.assertEquals("Livro não encontrado", atualizacao.erros().get(1).mensagem());
+        Assertions.assertEquals(List.of("A2", "B1"), titulosGravados());
+        Assertions.assertEquals(List.of(2, 1), eventos(ROUTING_KEY_LOTE_ATUALIZADO).stream()
+                .map(evento -> evento.itens().size())
+                .toList());
+
+        ResultadoLote remocao = enviar(delete("/livro/lote"), MediaType.APPLICATION_JSON,
+                objectMapper.writeValueAsString(List.of(ids.get(0), ids.get(1), ids.get(0), Long.MAX_VALUE)));
+
+        Assertions.assertEquals(4, remocao.recebidos());
+        Assertions.assertEquals(List.of(3L), indices(remocao));
+        Assertions.assertTrue(titulosGravados().isEmpty());
+        List<LoteLivrosEvento> remocoes = eventos(ROUTING_KEY_LOTE_REMOVIDO);
+        Assertions.assertEquals(1, remocoes.size());
+        Assertions.assertEquals(ids, remocoes.get(0).itens().stream().map(LoteLivrosEvento.Item::livroId).sorted().toList());
+    }
+
+    private ResultadoLote enviar(MockHttpServletRequestBuilder requisicao, MediaType tipo, String corpo)
+            throws Exception {
+        byte[] resposta = mockMvc.perform(requisicao.contentType(tipo).content(corpo))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        return objectMapper.readValue(resposta, ResultadoLote.class);
+    }
+
+    private String livro(String titulo, Long id) {
+        return "{" + (id == null ? "" : "\"id\": " + id + ", ") + "\"titulo\": \"" + titulo + "\", \"autor\": \""
+                + autor + "\", \"isbn\": \"9780000000000\"}";
+    }
+
+    private static List<Long> indices(ResultadoLote resultado) {
+        return resultado.erros().stream().map(ErroItemLote::indice).toList();
+    }
+
+    private List<String> titulosGravados() {
+        return jdbcTemplate.queryForList("select titulo from tb_livro where autor = ? order by id_livro", String.class,
+                autor);
+    }
+
+    private List<Long> idsGravados() {
+        return jdbcTemplate.queryForList("select id_livro from tb_livro where autor = ? order by id_livro", Long.class,
+                autor);
+    }
+
+    private List<LoteLivrosEvento> eventos(String routingKey) {
+        List<LoteLivrosEvento> eventos = new ArrayList<>();
+        for (EventoOutbox evento : eventoOutboxRepository.findAll(Sort.by("id"))) {
+            if (routingKey.equals(evento.getRoutingKey())) {
+                eventos.add(livroEventoCodec.decodificarLote(evento.getPayload()));
+            }
+        }
+        return eventos;
+    }
+}
@@ -0,0 +1,138 @@
+package br.com.api.service;
+
+import br.com.api.model.evento.LivroAtualizado;
+import br.com.api.model.evento.LivroEvento;
+import br.com.api.model.evento.LivroEventoCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+/**
+ * Entrega lotes diretamente ao listener, com um canal simulado, e confere a ordem por livro, o descarte de eventos
+ * repetidos e o envio à dead-letter de mensagens ilegíveis ou com erro no handler.
+ */
+public class LivroMessageListenerTest {
+
+    private static final int TOTAL_LIVROS = 100;
+    private static final int EVENTOS_POR_LIVRO = 500;
+    private static final int TAMANHO_LOTE = 500;
+    private static final long LIVRO_COM_ERRO = -1L;
+
+    private final Map<Long, List<Long>> versoesPorLivro = new ConcurrentHashMap<>();
+    private final AtomicLong deliveryTag = new AtomicLong();
+    private final LivroEventoCodec codec = new LivroEventoCodec(new ObjectMapper().registerModule(new JavaTimeModule()), "binario");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Channel channel = Mockito.mock(Channel.class);
+
+    private LivroMessageListener listener;
+
+    @BeforeEach
+    public void setup() {
+        LivroEventoHandler handler = evento -> {
+            if (evento.livroId() == LIVRO_COM_ERRO) {
+                throw new IllegalStateException("falha simulada");
+            }
+            versoesPorLivro.computeIfAbsent(evento.livroId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(evento.versao());
+        };
+        listener = new LivroMessageListener(codec, List.of(handler), Mockito.mock(AmqpAdmin.class), meterRegistry,
+                new RastreamentoEventos(Tracer.NOOP, Propagator.NOOP), 8, 100_000, Duration.ofHours(1), true);
+    }
+
+    @AfterEach
+    public void encerrar() throws InterruptedException {
+        listener.encerrar();
+    }
+
+    @Test
+    public void deveTratarEventosEmOrdemPorLivro() throws Exception {
+        List<Message> mensagens = new ArrayList<>();
+        for (int versao = 0; versao < EVENTOS_POR_LIVRO; versao++) {
+            for (long livroId = 1; livroId <= TOTAL_LIVROS; livroId++) {
+                mensagens.add(mensagem(evento(UUID.randomUUID(), livroId, versao)));
+            }
+        }
+
+        for (int i = 0; i < mensagens.size(); i += TAMANHO_LOTE) {
+            listener.receber(mensagens.subList(i, i + TAMANHO_LOTE), channel);
+        }
+
+        Assertions.assertEquals(TOTAL_LIVROS, versoesPorLivro.size());
+        versoesPorLivro.forEach((livroId, versoes) -> {
+            Assertions.assertEquals(EVENTOS_POR_LIVRO, versoes.size(), "livro " + livroId);
+            for (int i = 0; i < versoes.size(); i++) {
+                Assertions.assertEquals(i, versoes.get(i), "livro " + livroId);
+            }
+        });
+        Mockito.verify(channel, Mockito.times(mensagens.size() / TAMANHO_LOTE)).basicAck(anyLong(), Mockito.eq(true));
+        Mockito.verify(channel, Mockito.never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        Assertions.assertEquals(mensagens.size(), meterRegistry.get("livro.eventos.consumidos")
+                .tag("resultado", "tratado").counter().count());
+    }
+
+    @Test
+    public void deveDescartarEventoRepetido() throws Exception {
+        LivroEvento evento = evento(UUID.randomUUID(), 1L, 0);
+
+        listener.receber(List.of(mensagem(evento), mensagem(evento)), channel);
+        listener.receber(List.of(mensagem(evento)), channel);
+
+        Assertions.assertEquals(List.of(0L), versoesPorLivro.get(1L));
+        Assertions.assertEquals(2, meterRegistry.get("livro.eventos.consumidos")
+                .tag("resultado", "duplicado").counter().count());
+    }
+
+    @Test
+    public void deveRejeitarMensagemIlegivelOuComErro() throws Exception {
+        Message valida = mensagem(evento(UUID.randomUUID(), 1L, 0));
+        Message ilegivel = mensagem(new byte[]{42});
+        Message comErro = mensagem(evento(UUID.randomUUID(), LIVRO_COM_ERRO, 0));
+
+        listener.receber(List.of(valida, ilegivel, comErro), channel);
+
+        Mockito.verify(channel).basicAck(valida.getMessageProperties().getDeliveryTag(), false);
+        Mockito.verify(channel).basicNack(ilegivel.getMessageProperties().getDeliveryTag(), false, false);
+        Mockito.verify(channel).basicNack(comErro.getMessageProperties().getDeliveryTag(), false, false);
+        Assertions.assertEquals(2, meterRegistry.get("livro.eventos.consumidos")
+                .tag("resultado", "rejeitado").counter().count());
+    }
+
+    private static LivroEvento evento(UUID eventoId, long livroId, long versao) {
+        return new LivroAtualizado(eventoId, livroId, "isbn-" + livroId, null, null, versao, Instant.now());
+    }
+
+    private Message mensagem(LivroEvento evento) {
+        return mensagem(codec.codificar(evento));
+    }
+
+    private Message mensagem(byte[] corpo) {
+        MessageProperties propriedades = new MessageProperties();
+        propriedades.setContentType(codec.contentType());
+        propriedades.setDeliveryTag(deliveryTag.incrementAndGet());
+        return new Message(corpo, propriedades);
+    }
+}
@@ -0,0 +1,172 @@
+package br.com.api.service;
+
+import br.com.api.model.outbox.EventoOutbox;
+import br.com.api.repository.EventoOutboxRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.AmqpNackReceivedException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Falhas de publicação do {@link OutboxRelay} sem broker: o {@code RabbitTemplate} é substituído por um mock que
+ * recusa as confirmações (nack) ou não consegue conectar. Os eventos continuam no outbox, com a nova tentativa
+ * adiada pelo backoff, e são publicados, em ordem, na drenagem seguinte em que o broker confirma.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.outbox.relay.backoff-inicial=1m",
+        "livro.cache.invalidacao=local"
+})
+public class OutboxRelayFalhaTest {
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final RabbitOperations operacoes = Mockito.mock(RabbitOperations.class);
+
+    @BeforeEach
+    void prepararOutbox() {
+        // só os eventos deste teste ficam pendentes, para que caibam num único lote
+        eventoOutboxRepository.deleteAllInBatch();
+        Mockito.when(rabbitTemplate.invoke(any())).thenAnswer(invocacao ->
+                invocacao.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operacoes));
+    }
+
+    @Test
+    void deveManterOsEventosRecusadosEPublicarNaProximaDrenagem() {
+        List<Long> ids = registrar(3);
+        Mockito.doThrow(new AmqpNackReceivedException("nack", new Message(new byte[0])))
+                .when(operacoes).waitForConfirmsOrDie(anyLong());
+
+        Instant antes = Instant.now();
+        outboxRelay.drenar();
+
+        List<EventoOutbox> pendentes = eventoOutboxRepository.findAllById(ids);
+        Assertions.assertEquals(3, pendentes.size());
+        for (EventoOutbox evento : pendentes) {
+            Assertions.assertEquals(1, evento.getTentativas());
+            Assertions.assertTrue(evento.getProximaTentativa().isAfter(antes.plusSeconds(30)));
+        }
+
+        // antes do fim do backoff a drenagem não tenta de novo
+        Mockito.clearInvocations(rabbitTemplate, operacoes);
+        outboxRelay.drenar();
+        Mockito.verifyNoInteractions(rabbitTemplate);
+
+        Mockito.doNothing().when(operacoes).waitForConfirmsOrDie(anyLong());
+        antecipar(ids);
+        outboxRelay.drenar();
+
+        Assertions.assertTrue(eventoOutboxRepository.findAllById(ids).isEmpty());
+        Assertions.assertEquals(ids.stream().map(id -> "outbox-" + id).toList(), idsPublicados());
+    }
+
+    @Test
+    void deveManterOsEventosQuandoOBrokerEstaForaDoAr() {
+        List<Long> ids = registrar(2);
+        Mockito.doThrow(new AmqpConnectException(new ConnectException("Connection refused")))
+                .when(operacoes).send(anyString(), anyString(), any(Message.class));
+
+        outboxRelay.drenar();
+
+        Assertions.assertEquals(2, eventoOutboxRepository.findAllById(ids).size());
+        Mockito.verify(operacoes, Mockito.never()).waitForConfirmsOrDie(anyLong());
+
+        Mockito.reset(operacoes);
+        antecipar(ids);
+        outboxRelay.drenar();
+
+        Assertions.assertTrue(eventoOutboxRepository.findAllById(ids).isEmpty());
+        Assertions.assertEquals(ids.stream().map(id -> "outbox-" + id).toList(), idsPublicados());
+    }
+
+    @Test
+    void naoDevePublicarEventoPosteriorDoMesmoLivroAntesDoQueFalhou() {
+        List<Long> primeiros = registrar(1);
+        Mockito.doThrow(new AmqpNackReceivedException("nack", new Message(new byte[0])))
+                .when(operacoes).waitForConfirmsOrDie(anyLong());
+        outboxRelay.drenar();
+
+        Mockito.reset(operacoes);
+        List<Long> posteriores = registrar(1);
+        outboxRelay.drenar();
+
+        // o evento novo do mesmo livro espera a nova tentativa do anterior
+        Mockito.verify(operacoes, Mockito.never()).send(anyString(), anyString(), any(Message.class));
+        Assertions.assertEquals(2, eventoOutboxRepository.findAllById(
+                List.of(primeiros.get(0), posteriores.get(0))).size());
+
+        antecipar(primeiros);
+        outboxRelay.drenar();
+
+        Assertions.assertEquals(List.of("outbox-" + primeiros.get(0), "outbox-" + posteriores.get(0)), idsPublicados());
+        Assertions.assertEquals(0, eventoOutboxRepository.count());
+    }
+
+    /**
+     * Registra eventos do mesmo livro numa transação e devolve os ids, em ordem de gravação.
+     */
+    private List<Long> registrar(int quantidade) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < quantidade; i++) {
+                outboxService.registrar(1L, "livro.atualizado", MediaType.TEXT_PLAIN_VALUE,
+                        ("evento " + i).getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        return eventoOutboxRepository.findAll().stream()
+                .map(EventoOutbox::getId)
+                .sorted()
+                .skip(eventoOutboxRepository.count() - quantidade)
+                .toList();
+    }
+
+    /**
+     * Faz de conta que o backoff já passou.
+     */
+    private void antecipar(List<Long> ids) {
+        List<EventoOutbox> eventos = eventoOutboxRepository.findAllById(ids);
+        eventos.forEach(evento -> evento.setProximaTentativa(Instant.now().minusSeconds(1)));
+        eventoOutboxRepository.saveAll(eventos);
+    }
+
+    private List<String> idsPublicados() {
+        ArgumentCaptor<Message> mensagens = ArgumentCaptor.forClass(Message.class);
+        Mockito.verify(operacoes, Mockito.atLeastOnce()).send(anyString(), eq("livro.atualizado"), mensagens.capture());
+        return mensagens.getAllValues().stream()
+                .map(mensagem -> mensagem.getMessageProperties().getMessageId())
+                .toList();
+    }
+}
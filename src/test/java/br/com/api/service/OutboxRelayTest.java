@@ -0,0 +1,107 @@
+package br.com.api.service;
+
+import br.com.api.model.evento.LivroAtualizado;
+import br.com.api.model.evento.LivroEvento;
+import br.com.api.model.evento.LivroEventoCodec;
+import br.com.api.repository.EventoOutboxRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static br.com.api.config.RabbitMQConfig.EXCHANGE_NAME;
+import static br.com.api.config.RabbitMQConfig.ROUTING_KEY_LIVRO_ATUALIZADO;
+
+/**
+ * Publica um volume grande de eventos do outbox num RabbitMQ local (Testcontainers) e confere que todos chegam,
+ * em ordem por livro, e que a tabela fica vazia. O agendamento do relay é adiado para que o teste controle a drenagem.
+ */
+@SpringBootTest(properties = {
+        "livro.outbox.relay.atraso-inicial-ms=3600000",
+        "livro.cache.invalidacao=local"
+})
+@Testcontainers(disabledWithoutDocker = true)
+public class OutboxRelayTest {
+
+    private static final int TOTAL_EVENTOS = 10_000;
+    private static final int TOTAL_LIVROS = 50;
+
+    @Container
+    static final RabbitMQContainer RABBITMQ = new RabbitMQContainer("rabbitmq:3-management");
+
+    @DynamicPropertySource
+    static void rabbitmq(DynamicPropertyRegistry registry) {
+        registry.add("spring.rabbitmq.host", RABBITMQ::getHost);
+        registry.add("spring.rabbitmq.port", RABBITMQ::getAmqpPort);
+        registry.add("spring.rabbitmq.username", RABBITMQ::getAdminUsername);
+        registry.add("spring.rabbitmq.password", RABBITMQ::getAdminPassword);
+    }
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private LivroEventoCodec livroEventoCodec;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void testPublicaTodosOsEventosEmOrdemPorLivro() {
+        Queue fila = amqpAdmin.declareQueue();
+        amqpAdmin.declareBinding(BindingBuilder.bind(fila).to(new TopicExchange(EXCHANGE_NAME)).with(ROUTING_KEY_LIVRO_ATUALIZADO));
+
+        for (int inicio = 0; inicio < TOTAL_EVENTOS; inicio += 500) {
+            int primeiro = inicio;
+            transactionTemplate.executeWithoutResult(status -> {
+                // a versão do evento carrega a sequência de gravação, para conferir a ordem na chegada
+                for (int sequencia = primeiro; sequencia < primeiro + 500; sequencia++) {
+                    outboxService.registrar(new LivroAtualizado(UUID.randomUUID(), (long) (sequencia % TOTAL_LIVROS),
+                            "9999999999", null, null, sequencia, Instant.now()));
+                }
+            });
+        }
+
+        outboxRelay.drenar();
+
+        Assertions.assertEquals(0, eventoOutboxRepository.count());
+        Map<Long, Long> ultimaSequenciaPorLivro = new HashMap<>();
+        for (int i = 0; i < TOTAL_EVENTOS; i++) {
+            Message mensagem = rabbitTemplate.receive(fila.getName(), 5_000);
+            Assertions.assertNotNull(mensagem, "evento " + i + " não chegou");
+            LivroEvento evento = livroEventoCodec.decodificar(mensagem.getBody(), mensagem.getMessageProperties().getContentType());
+            long sequencia = evento.versao();
+            Long anterior = ultimaSequenciaPorLivro.put(evento.livroId(), sequencia);
+            Assertions.assertTrue(anterior == null || anterior < sequencia, "eventos do mesmo livro fora de ordem");
+        }
+    }
+}